@@ -16,19 +16,30 @@
 
 package org.yes.cart.shoppingcart.support.impl;
 
-import org.apache.commons.codec.binary.Base64InputStream;
-import org.apache.commons.codec.binary.Base64OutputStream;
+import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yes.cart.shoppingcart.ShoppingCart;
 import org.yes.cart.shoppingcart.support.CartDetuplizationException;
 import org.yes.cart.shoppingcart.support.CartTuplizationException;
 
-import javax.crypto.*;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.DESKeySpec;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
-import java.security.InvalidKeyException;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Default implementation of cookie tuplizer.
@@ -38,6 +49,17 @@ import java.text.MessageFormat;
  * bytes per cookie, so it allow to store 1228800 bytes aprox 1 Mb.
  * Base64 representation will be splited to chunks.
  * <p/>
+ * Tuplizer is thread safe and does not lock: {@link Cipher} instances are borrowed from
+ * a lock free pool shared by all tuplizers with the same key configuration (so pooled
+ * prototypes in {@link TuplizerPoolDecoratorImpl} do not each derive keys) and the object
+ * is serialized into a per thread reusable buffer that is encrypted in a single pass.
+ * <p/>
+ * Cipher names starting with "AES/GCM" enable authenticated encryption. In this mode the
+ * secret key factory name denotes password based key derivation function (e.g.
+ * PBKDF2WithHmacSHA1) and each token is prefixed with random 12 byte IV. Any other cipher
+ * name uses legacy {@link DESKeySpec} key and produces tokens compatible with previous
+ * versions.
+ * <p/>
  * User: dogma
  * Date: 2011-May-17
  * Time: 2:17:57 PM
@@ -48,10 +70,21 @@ public abstract class AbstractCryptedTuplizerImpl {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractCryptedTuplizerImpl.class);
 
-    private final Cipher desCipher;
-    private final Cipher desUnCipher;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /** Buffers that grew above this size are not kept by the thread. */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<TokenBuffer> BUFFER = new ThreadLocal<TokenBuffer>() {
+        @Override
+        protected TokenBuffer initialValue() {
+            return new TokenBuffer();
+        }
+    };
+
+    private static final ConcurrentMap<String, CipherPool> CIPHER_POOLS = new ConcurrentHashMap<String, CipherPool>();
 
-    private SecretKey secretKey;
+    private final CipherPool cipherPool;
 
     /**
      * Default Constructor.
@@ -65,18 +98,7 @@ public abstract class AbstractCryptedTuplizerImpl {
                                        final String cipherName) {
 
         try {
-            final DESKeySpec desKeySpec = new DESKeySpec(keyRingPassword.getBytes());
-
-            SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(secretKeyFactoryName);
-            secretKey = keyFactory.generateSecret(desKeySpec);
-
-            // Create Cipher
-            desCipher = Cipher.getInstance(cipherName);
-            desCipher.init(Cipher.ENCRYPT_MODE, secretKey);
-
-            // create uncipher
-            desUnCipher = Cipher.getInstance(cipherName);
-            desUnCipher.init(Cipher.DECRYPT_MODE, secretKey);
+            cipherPool = getCipherPool(keyRingPassword, secretKeyFactoryName, cipherName);
         } catch (Exception ike) {
             LOG.error(ike.getMessage(), ike);
             throw new RuntimeException("Unable to load Cipher for CookieTuplizer", ike);
@@ -84,6 +106,23 @@ public abstract class AbstractCryptedTuplizerImpl {
 
     }
 
+    private static CipherPool getCipherPool(final String keyRingPassword,
+                                            final String secretKeyFactoryName,
+                                            final String cipherName) throws GeneralSecurityException {
+
+        final String poolKey = secretKeyFactoryName + '\u0000' + cipherName + '\u0000' + keyRingPassword;
+        CipherPool pool = CIPHER_POOLS.get(poolKey);
+        if (pool == null) {
+            final CipherPool created = new CipherPool(keyRingPassword, secretKeyFactoryName, cipherName);
+            pool = CIPHER_POOLS.putIfAbsent(poolKey, created);
+            if (pool == null) {
+                pool = created;
+            }
+        }
+        return pool;
+
+    }
+
     /**
      * Converts cart object into a String tuple.
      *
@@ -95,38 +134,27 @@ public abstract class AbstractCryptedTuplizerImpl {
      */
     protected String toToken(final Serializable serializable) throws CartTuplizationException {
 
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        synchronized (desCipher) {
-            Base64OutputStream base64EncoderStream = new Base64OutputStream(byteArrayOutputStream, true, Integer.MAX_VALUE, null); //will be split manually
-            CipherOutputStream cipherOutputStream = new CipherOutputStream(base64EncoderStream, desCipher);
-            ObjectOutputStream objectOutputStream = null;
-            try {
-                objectOutputStream = new ObjectOutputStream(cipherOutputStream);
-                objectOutputStream.writeObject(serializable);
-                objectOutputStream.flush();
-                objectOutputStream.close();
-            } catch (Throwable ioe) {
-                LOG.error(
-                        MessageFormat.format("Unable to serialize object {0}", serializable),
-                        ioe
-                );
-                throw new CartTuplizationException(ioe);
-            } finally {
-                try {
-                    if (objectOutputStream != null) {
-                        objectOutputStream.close();
-                    }
-                    cipherOutputStream.close();
-                    base64EncoderStream.close();
-                    byteArrayOutputStream.close();
-                } catch (IOException e) {
-                    LOG.error("Can not close stream", e);
-                }
+        final TokenBuffer buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            final ObjectOutputStream objectOutputStream = new ObjectOutputStream(buffer);
+            objectOutputStream.writeObject(serializable);
+            objectOutputStream.flush();
+
+            final byte[] encrypted = cipherPool.encrypt(buffer.getBuffer(), buffer.size());
+            return new String(Base64.encodeBase64(encrypted, false), ASCII); //will be split manually
+        } catch (Throwable ioe) {
+            LOG.error(
+                    MessageFormat.format("Unable to serialize object {0}", serializable),
+                    ioe
+            );
+            throw new CartTuplizationException(ioe);
+        } finally {
+            if (buffer.getBuffer().length > MAX_RETAINED_BUFFER) {
+                BUFFER.remove();
             }
         }
 
-        return byteArrayOutputStream.toString();
-
     }
 
     /**
@@ -143,20 +171,13 @@ public abstract class AbstractCryptedTuplizerImpl {
         if (tuple == null || tuple.length() == 0) {
             return null;
         }
-        final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(tuple.getBytes());
-        final Base64InputStream base64DecoderStream = new Base64InputStream(byteArrayInputStream);
-        final CipherInputStream cipherInputStream = new CipherInputStream(base64DecoderStream, desUnCipher);
         ObjectInputStream objectInputStream = null;
         try {
-            objectInputStream = new ObjectInputStream(cipherInputStream);
+            final byte[] decrypted = cipherPool.decrypt(Base64.decodeBase64(tuple.getBytes(ASCII)));
+            objectInputStream = new ObjectInputStream(new ByteArrayInputStream(decrypted));
             return (ShoppingCart) objectInputStream.readObject();
 
         } catch (Exception exception) {
-            try {
-                desUnCipher.init(Cipher.DECRYPT_MODE, secretKey); //reinit
-            } catch (InvalidKeyException e) {
-                LOG.error("Cant reinit desUnCipher", exception);
-            }
             final String errMsg = "Unable to convert bytes assembled from tuple into object";
             LOG.error(errMsg, exception);
             throw new CartDetuplizationException(errMsg, exception);
@@ -165,9 +186,6 @@ public abstract class AbstractCryptedTuplizerImpl {
                 if (objectInputStream != null) {
                     objectInputStream.close();
                 }
-                cipherInputStream.close();
-                base64DecoderStream.close();
-                byteArrayInputStream.close();
             } catch (IOException ioe) { // leave this one silent as we have the object.
                 LOG.error("Unable to close object stream", ioe);
             }
@@ -175,4 +193,152 @@ public abstract class AbstractCryptedTuplizerImpl {
         }
     }
 
+
+    /**
+     * Byte array stream that exposes its internal buffer to avoid copying before encryption.
+     */
+    private static final class TokenBuffer extends ByteArrayOutputStream {
+
+        private TokenBuffer() {
+            super(1024);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+
+    }
+
+
+    /**
+     * Lock free pool of initialised ciphers for single key configuration. Ciphers are
+     * borrowed for the duration of one operation and returned only after successful
+     * completion, so a cipher left in inconsistent state by a failure is discarded.
+     */
+    private static final class CipherPool {
+
+        private static final String AEAD_PREFIX = "AES/GCM";
+        private static final int GCM_IV_LENGTH = 12;
+        private static final int GCM_TAG_BITS = 128;
+        private static final int AES_KEY_BITS = 128;
+        private static final int KDF_ITERATIONS = 10000;
+        private static final byte[] KDF_SALT = "org.yes.cart.shoppingcart.support.tuplizer".getBytes(ASCII);
+
+        private static final ThreadLocal<SecureRandom> RANDOM = new ThreadLocal<SecureRandom>() {
+            @Override
+            protected SecureRandom initialValue() {
+                return new SecureRandom();
+            }
+        };
+
+        private final String cipherName;
+        private final boolean aead;
+        private final SecretKey secretKey;
+
+        private final Queue<Cipher> encryptors = new ConcurrentLinkedQueue<Cipher>();
+        private final Queue<Cipher> decryptors = new ConcurrentLinkedQueue<Cipher>();
+
+        private CipherPool(final String keyRingPassword,
+                           final String secretKeyFactoryName,
+                           final String cipherName) throws GeneralSecurityException {
+
+            this.cipherName = cipherName;
+            this.aead = cipherName.startsWith(AEAD_PREFIX);
+
+            final SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(secretKeyFactoryName);
+            if (this.aead) {
+                final PBEKeySpec keySpec = new PBEKeySpec(keyRingPassword.toCharArray(), KDF_SALT, KDF_ITERATIONS, AES_KEY_BITS);
+                try {
+                    this.secretKey = new SecretKeySpec(keyFactory.generateSecret(keySpec).getEncoded(), "AES");
+                } finally {
+                    keySpec.clearPassword();
+                }
+            } else {
+                this.secretKey = keyFactory.generateSecret(new DESKeySpec(keyRingPassword.getBytes()));
+            }
+
+            // fail fast on misconfiguration and warm up the pool
+            this.encryptors.offer(newCipher(Cipher.ENCRYPT_MODE));
+            this.decryptors.offer(newCipher(Cipher.DECRYPT_MODE));
+
+        }
+
+        private Cipher newCipher(final int mode) throws GeneralSecurityException {
+            final Cipher cipher = Cipher.getInstance(cipherName);
+            if (!aead) {
+                cipher.init(mode, secretKey);
+            }
+            return cipher;
+        }
+
+        /**
+         * Encrypt given data.
+         *
+         * @param data   data buffer
+         * @param length number of bytes to use from the start of buffer
+         *
+         * @return encrypted bytes (prefixed with IV in AEAD mode)
+         *
+         * @throws GeneralSecurityException encryption error
+         */
+        byte[] encrypt(final byte[] data, final int length) throws GeneralSecurityException {
+
+            Cipher cipher = encryptors.poll();
+            if (cipher == null) {
+                cipher = newCipher(Cipher.ENCRYPT_MODE);
+            }
+
+            final byte[] encrypted;
+            if (aead) {
+                final byte[] iv = new byte[GCM_IV_LENGTH];
+                RANDOM.get().nextBytes(iv);
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+                final byte[] out = new byte[GCM_IV_LENGTH + cipher.getOutputSize(length)];
+                System.arraycopy(iv, 0, out, 0, GCM_IV_LENGTH);
+                final int written = cipher.doFinal(data, 0, length, out, GCM_IV_LENGTH);
+                encrypted = written == out.length - GCM_IV_LENGTH ? out : Arrays.copyOf(out, GCM_IV_LENGTH + written);
+            } else {
+                encrypted = cipher.doFinal(data, 0, length);
+            }
+
+            encryptors.offer(cipher);
+            return encrypted;
+
+        }
+
+        /**
+         * Decrypt given data.
+         *
+         * @param data encrypted bytes (prefixed with IV in AEAD mode)
+         *
+         * @return decrypted bytes
+         *
+         * @throws GeneralSecurityException decryption or authentication error
+         */
+        byte[] decrypt(final byte[] data) throws GeneralSecurityException {
+
+            if (aead && data.length <= GCM_IV_LENGTH) {
+                throw new GeneralSecurityException("Token is too short");
+            }
+
+            Cipher cipher = decryptors.poll();
+            if (cipher == null) {
+                cipher = newCipher(Cipher.DECRYPT_MODE);
+            }
+
+            final byte[] decrypted;
+            if (aead) {
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_BITS, data, 0, GCM_IV_LENGTH));
+                decrypted = cipher.doFinal(data, GCM_IV_LENGTH, data.length - GCM_IV_LENGTH);
+            } else {
+                decrypted = cipher.doFinal(data);
+            }
+
+            decryptors.offer(cipher);
+            return decrypted;
+
+        }
+
+    }
+
 }
@@ -43,6 +43,17 @@ public interface CartRepository {
      */
     String storeShoppingCart(ShoppingCart shoppingCart);
 
+    /**
+     * Store shopping cart and persist its state before this method returns, bypassing any
+     * deferred (write behind) persistence. This should be used when the persisted state has
+     * to be up to date immediately (e.g. login, which merges carts of the customer).
+     *
+     * @param shoppingCart shopping cart
+     *
+     * @return token for later retrieval
+     */
+    String flushShoppingCart(ShoppingCart shoppingCart);
+
     /**
      * Evict shopping cart.
      *
@@ -18,6 +18,8 @@ package org.yes.cart.shoppingcart.support.tokendriven;
 
 import org.yes.cart.shoppingcart.ShoppingCart;
 
+import java.util.Collection;
+
 /**
  * User: denispavlov
  * Date: 22/08/2014
@@ -37,6 +39,17 @@ public interface CartUpdateProcessor {
      */
     void updateShoppingCart(ShoppingCart shoppingCart);
 
+    /**
+     * Perform {@link #updateShoppingCart(ShoppingCart)} for all given carts in a single
+     * transaction, so that state updates can be sent to DB in JDBC batches.
+     *
+     * Carts are treated as snapshots (e.g. write behind queue), so a cart is skipped if
+     * persisted state holds a more recently modified version of it.
+     *
+     * @param shoppingCarts carts to merge (if required) and persist
+     */
+    void updateShoppingCarts(Collection<ShoppingCart> shoppingCarts);
+
     /**
      * Invalidate given cart by removing all customer auth related information
      *
@@ -53,6 +66,17 @@ public interface CartUpdateProcessor {
      */
     ShoppingCart restoreState(byte[] bytes);
 
+    /**
+     * Restore shopping cart from bytes without applying any restore commands. This is
+     * intended for snapshots taken by {@link #saveState(ShoppingCart)} moments ago (e.g.
+     * write behind queue), which are valid and must be persisted exactly as they were.
+     *
+     * @param bytes bytes to restore cart from
+     *
+     * @return shopping cart (or null if bytes are invalid)
+     */
+    ShoppingCart restoreSnapshot(byte[] bytes);
+
     /**
      * Package shopping cart as is into bytes.
      *
@@ -17,6 +17,8 @@
 package org.yes.cart.shoppingcart.support.tokendriven.impl;
 
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.yes.cart.domain.entity.Address;
 import org.yes.cart.domain.entity.ShoppingCartState;
 import org.yes.cart.service.domain.AddressService;
@@ -34,6 +36,8 @@ import java.util.*;
  */
 public class CartUpdateProcessorImpl implements CartUpdateProcessor {
 
+    private static final Logger LOG = LoggerFactory.getLogger(CartUpdateProcessorImpl.class);
+
     private final ShoppingCartStateService shoppingCartStateService;
     private final AddressService addressService;
     private final ShoppingCartCommandFactory shoppingCartCommandFactory;
@@ -54,7 +58,60 @@ public class CartUpdateProcessorImpl implements CartUpdateProcessor {
     public void updateShoppingCart(final ShoppingCart shoppingCart) {
 
         // 1. Need to find this cart by guid in db
-        ShoppingCartState dbState = shoppingCartStateService.findByGuid(shoppingCart.getGuid());
+        updateShoppingCartInternal(shoppingCart, shoppingCartStateService.findByGuid(shoppingCart.getGuid()));
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void updateShoppingCarts(final Collection<ShoppingCart> shoppingCarts) {
+
+        if (shoppingCarts.isEmpty()) {
+            return;
+        }
+
+        // 1. Load all states in one go, so that we do not trigger auto flush by select per cart
+        final List<String> guids = new ArrayList<String>(shoppingCarts.size());
+        for (final ShoppingCart shoppingCart : shoppingCarts) {
+            guids.add(shoppingCart.getGuid());
+        }
+        final Map<String, ShoppingCartState> dbStates = new HashMap<String, ShoppingCartState>(guids.size() * 2);
+        for (final ShoppingCartState dbState : shoppingCartStateService.findByGuids(guids)) {
+            dbStates.put(dbState.getGuid(), dbState);
+        }
+
+        for (final ShoppingCart shoppingCart : shoppingCarts) {
+            final ShoppingCartState dbState = dbStates.get(shoppingCart.getGuid());
+            if (isPersistedStateNewer(shoppingCart, dbState)) {
+                // 2. Cart was persisted synchronously after this snapshot was taken (e.g. checkout)
+                LOG.debug("Skipping stale snapshot of cart {}, persisted state is newer", shoppingCart.getGuid());
+                continue;
+            }
+            updateShoppingCartInternal(shoppingCart, dbState);
+        }
+
+    }
+
+    private boolean isPersistedStateNewer(final ShoppingCart shoppingCart, final ShoppingCartState dbState) {
+
+        if (dbState == null || dbState.getState() == null) {
+            return false;
+        }
+
+        // State written before cart was modified cannot hold a newer cart, so avoid restoring it
+        final Date lastSaved = dbState.getUpdatedTimestamp() != null ? dbState.getUpdatedTimestamp() : dbState.getCreatedTimestamp();
+        if (lastSaved != null && lastSaved.getTime() <= shoppingCart.getModifiedTimestamp()) {
+            return false;
+        }
+
+        final ShoppingCart dbCart = restoreStateInternal(dbState.getState());
+        return dbCart != null && dbCart.getModifiedTimestamp() > shoppingCart.getModifiedTimestamp();
+
+    }
+
+    private void updateShoppingCartInternal(final ShoppingCart shoppingCart, final ShoppingCartState existing) {
+
+        ShoppingCartState dbState = existing;
         if (dbState == null) {
             dbState = shoppingCartStateService.getGenericDao().getEntityFactory().getByIface(ShoppingCartState.class);
             dbState.setGuid(shoppingCart.getGuid());
@@ -242,6 +299,14 @@ public class CartUpdateProcessorImpl implements CartUpdateProcessor {
 
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ShoppingCart restoreSnapshot(final byte[] bytes) {
+
+        return restoreStateInternal(bytes);
+
+    }
+
     protected ShoppingCart restoreStateInternal(final byte[] bytes) {
 
         return shoppingCartStateSerializer.restoreState(bytes);
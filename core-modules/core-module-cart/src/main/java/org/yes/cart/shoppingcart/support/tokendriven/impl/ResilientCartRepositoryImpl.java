@@ -18,6 +18,10 @@ package org.yes.cart.shoppingcart.support.tokendriven.impl;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.core.task.TaskExecutor;
@@ -32,12 +36,31 @@ import org.yes.cart.util.ShopCodeContext;
 import org.yes.cart.shoppingcart.support.tokendriven.CartRepository;
 import org.yes.cart.shoppingcart.support.tokendriven.CartUpdateProcessor;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * Cart repository backed by cache and persistent cart state.
+ * <p/>
+ * If write behind is enabled ({@link #setWriteBehindDelayMs(long)}) modified carts are not persisted
+ * on every store. Instead latest version per cart GUID is queued and queue is flushed periodically in
+ * batches (single transaction per shop), so that a burst of modifications to the same cart results in
+ * single DB update. Login and checkout (cart with order number) are always persisted synchronously.
+ * <p/>
+ * Queue holds serialized snapshot of the cart taken at the time of store, so that flush never reads
+ * cart object that is being modified by request threads. Queued snapshot is the latest state of the
+ * cart, hence it takes precedence over DB state if cart is evicted from cache before it is flushed.
+ * Snapshots are persisted via {@link CartUpdateProcessor#updateShoppingCarts(Collection)}, which never
+ * overwrites a cart that was persisted synchronously after the snapshot was taken.
+ * <p/>
  * User: denispavlov
  * Date: 21/08/2014
  * Time: 20:11
  */
-public class ResilientCartRepositoryImpl implements CartRepository {
+public class ResilientCartRepositoryImpl implements CartRepository, InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResilientCartRepositoryImpl.class);
 
     private final Cache CART_CACHE;
 
@@ -47,6 +70,19 @@ public class ResilientCartRepositoryImpl implements CartRepository {
     private final CartUpdateProcessor cartUpdateProcessor;
     private final TaskExecutor taskExecutor;
 
+    private long writeBehindDelayMs = 0L;
+    private int writeBehindBatchSize = 100;
+
+    private final ConcurrentMap<String, QueuedCart> writeBehindQueue = new ConcurrentHashMap<String, QueuedCart>();
+    private volatile ScheduledExecutorService writeBehindScheduler;
+
+    private final AtomicLong writeBehindQueued = new AtomicLong();
+    private final AtomicLong writeBehindCoalesced = new AtomicLong();
+    private final AtomicLong writeBehindFlushed = new AtomicLong();
+    private final AtomicLong writeBehindFlushes = new AtomicLong();
+    private final AtomicLong writeBehindLastFlushMs = new AtomicLong();
+    private final AtomicLong writeBehindMaxFlushMs = new AtomicLong();
+
     public ResilientCartRepositoryImpl(final ShoppingCartStateService shoppingCartStateService,
                                        final ShopService shopService,
                                        final CartUpdateProcessor cartUpdateProcessor,
@@ -110,6 +146,19 @@ public class ResilientCartRepositoryImpl implements CartRepository {
             }
         }
 
+        // Try write behind queue, it has later state than DB
+        final QueuedCart queuedCart = writeBehindQueue.get(token);
+        if (queuedCart != null) {
+
+            final ShoppingCart queued = cartUpdateProcessor.restoreSnapshot(queuedCart.getState());
+            if (queued != null) {
+                // Update cache
+                CART_CACHE.put(queued.getGuid(), queued);
+                return queued;
+            }
+
+        }
+
         // Try DB
         final ShoppingCartState state = shoppingCartStateService.findByGuid(token);
         if (state != null) {
@@ -202,6 +251,13 @@ public class ResilientCartRepositoryImpl implements CartRepository {
 
         if (shoppingCart.isModified()) {
 
+            if (isWriteBehindEnabled() && StringUtils.isNotBlank(shoppingCart.getOrdernum())) {
+
+                // Checkout: order is created from this cart, so state must be up to date
+                return flushShoppingCart(shoppingCart);
+
+            }
+
             CART_CACHE.put(shoppingCart.getGuid(), shoppingCart);
 
             storeAsynchronously(shoppingCart);
@@ -212,9 +268,29 @@ public class ResilientCartRepositoryImpl implements CartRepository {
 
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public String flushShoppingCart(final ShoppingCart shoppingCart) {
+
+        writeBehindQueue.remove(shoppingCart.getGuid());
+
+        CART_CACHE.put(shoppingCart.getGuid(), shoppingCart);
+
+        createRunnable(shoppingCart, null, null).run();
+
+        return shoppingCart.getGuid();
+
+    }
+
     void storeAsynchronously(final ShoppingCart shoppingCart) {
 
-        if (taskExecutor == null) {
+        if (isWriteBehindEnabled()) {
+            writeBehindQueued.incrementAndGet();
+            final QueuedCart snapshot = new QueuedCart(shoppingCart, cartUpdateProcessor.saveState(shoppingCart));
+            if (writeBehindQueue.put(shoppingCart.getGuid(), snapshot) != null) {
+                writeBehindCoalesced.incrementAndGet();
+            }
+        } else if (taskExecutor == null) {
             createRunnable(shoppingCart, null, null).run();
         } else {
             taskExecutor.execute(createRunnable(shoppingCart,
@@ -250,10 +326,236 @@ public class ResilientCartRepositoryImpl implements CartRepository {
         };
     }
 
+    private boolean isWriteBehindEnabled() {
+        return writeBehindScheduler != null;
+    }
+
+    /**
+     * Persist queued carts. Carts are grouped by shop and each group is persisted in a single
+     * transaction. If batch fails carts are persisted one by one so that single bad cart
+     * does not prevent others from being saved.
+     *
+     * @param maxCarts max number of carts to flush
+     *
+     * @return number of carts flushed
+     */
+    int flushWriteBehind(final int maxCarts) {
+
+        if (writeBehindQueue.isEmpty()) {
+            return 0;
+        }
+
+        final long start = System.currentTimeMillis();
+
+        final Map<String, List<QueuedCart>> cartsByShop = new HashMap<String, List<QueuedCart>>();
+        int count = 0;
+        final Iterator<Map.Entry<String, QueuedCart>> queued = writeBehindQueue.entrySet().iterator();
+        while (queued.hasNext() && count < maxCarts) {
+            final Map.Entry<String, QueuedCart> entry = queued.next();
+            final QueuedCart cart = entry.getValue();
+            if (writeBehindQueue.remove(entry.getKey(), cart)) {
+                List<QueuedCart> shopCarts = cartsByShop.get(cart.getShopCode());
+                if (shopCarts == null) {
+                    shopCarts = new ArrayList<QueuedCart>();
+                    cartsByShop.put(cart.getShopCode(), shopCarts);
+                }
+                shopCarts.add(cart);
+                count++;
+            }
+        }
+
+        for (final List<QueuedCart> shopCarts : cartsByShop.values()) {
+            flushWriteBehindBatch(shopCarts);
+        }
+
+        final long duration = System.currentTimeMillis() - start;
+        writeBehindFlushes.incrementAndGet();
+        writeBehindFlushed.addAndGet(count);
+        writeBehindLastFlushMs.set(duration);
+        long max;
+        while ((max = writeBehindMaxFlushMs.get()) < duration && !writeBehindMaxFlushMs.compareAndSet(max, duration)) {
+            // retry
+        }
+
+        LOG.debug("Flushed {} carts in {}ms, remaining in queue {}", count, duration, writeBehindQueue.size());
+
+        return count;
+    }
+
+    private void flushWriteBehindBatch(final List<QueuedCart> shopCarts) {
+
+        final QueuedCart first = shopCarts.get(0);
+        ShopCodeContext.setShopCode(first.getShopCode());
+        ShopCodeContext.setShopId(first.getShopId());
+
+        try {
+
+            // Work on private copies, live carts may be modified by request threads. Copies are not put
+            // to cache since cached cart is either the same state or a later one.
+            final Map<QueuedCart, ShoppingCart> snapshots = new LinkedHashMap<QueuedCart, ShoppingCart>();
+            for (final QueuedCart queued : shopCarts) {
+                final ShoppingCart snapshot = cartUpdateProcessor.restoreSnapshot(queued.getState());
+                if (snapshot == null) {
+                    LOG.error("Unable to restore queued snapshot of cart {}, skipping", queued.getGuid());
+                } else {
+                    snapshots.put(queued, snapshot);
+                }
+            }
+
+            if (snapshots.isEmpty()) {
+                return;
+            }
+
+            try {
+
+                cartUpdateProcessor.updateShoppingCarts(new ArrayList<ShoppingCart>(snapshots.values()));
+
+            } catch (Exception batchExp) {
+
+                LOG.warn("Unable to persist batch of {} carts, fallback to per cart update, cause: {}",
+                        snapshots.size(), batchExp.getMessage());
+
+                for (final Map.Entry<QueuedCart, ShoppingCart> snapshot : snapshots.entrySet()) {
+                    try {
+                        // snapshot update, so that it does not overwrite cart flushed synchronously since
+                        cartUpdateProcessor.updateShoppingCarts(Collections.singletonList(snapshot.getValue()));
+                    } catch (Exception cartExp) {
+                        LOG.error("Unable to persist cart " + snapshot.getKey().getGuid() + ", will retry on next flush", cartExp);
+                        // newer version takes precedence
+                        writeBehindQueue.putIfAbsent(snapshot.getKey().getGuid(), snapshot.getKey());
+                    }
+                }
+
+            }
+
+        } finally {
+            ShopCodeContext.clear();
+        }
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void afterPropertiesSet() throws Exception {
+
+        if (writeBehindDelayMs > 0L) {
+
+            writeBehindScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Cart write behind");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            writeBehindScheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        flushWriteBehind(writeBehindBatchSize);
+                    } catch (Throwable exp) {
+                        // must not throw, otherwise further executions are suppressed
+                        LOG.error("Unable to flush cart write behind queue", exp);
+                    }
+                }
+            }, writeBehindDelayMs, writeBehindDelayMs, TimeUnit.MILLISECONDS);
+
+        }
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void destroy() throws Exception {
+
+        if (writeBehindScheduler != null) {
+
+            writeBehindScheduler.shutdown();
+            writeBehindScheduler.awaitTermination(writeBehindDelayMs * 10L, TimeUnit.MILLISECONDS);
+            writeBehindScheduler = null;
+
+            // drain, failed carts are re-queued so limit attempts by initial queue size
+            int attempts = writeBehindQueue.size();
+            while (!writeBehindQueue.isEmpty() && attempts-- > 0) {
+                flushWriteBehind(writeBehindBatchSize);
+            }
+
+        }
+
+    }
+
+    /**
+     * @return number of carts currently waiting to be persisted
+     */
+    public int getWriteBehindQueueDepth() {
+        return writeBehindQueue.size();
+    }
+
+    /**
+     * @return number of store requests that were queued
+     */
+    public long getWriteBehindQueued() {
+        return writeBehindQueued.get();
+    }
+
+    /**
+     * @return number of store requests that were coalesced with a cart already in queue
+     */
+    public long getWriteBehindCoalesced() {
+        return writeBehindCoalesced.get();
+    }
+
+    /**
+     * @return number of carts persisted by write behind flushes
+     */
+    public long getWriteBehindFlushed() {
+        return writeBehindFlushed.get();
+    }
+
+    /**
+     * @return number of write behind flushes
+     */
+    public long getWriteBehindFlushes() {
+        return writeBehindFlushes.get();
+    }
+
+    /**
+     * @return duration of last write behind flush in milliseconds
+     */
+    public long getWriteBehindLastFlushMs() {
+        return writeBehindLastFlushMs.get();
+    }
+
+    /**
+     * @return max duration of write behind flush in milliseconds
+     */
+    public long getWriteBehindMaxFlushMs() {
+        return writeBehindMaxFlushMs.get();
+    }
+
+    /**
+     * Delay between write behind flushes. Zero (default) disables write behind.
+     *
+     * @param writeBehindDelayMs delay in milliseconds
+     */
+    public void setWriteBehindDelayMs(final long writeBehindDelayMs) {
+        this.writeBehindDelayMs = writeBehindDelayMs;
+    }
+
+    /**
+     * Max number of carts persisted per write behind flush.
+     *
+     * @param writeBehindBatchSize batch size
+     */
+    public void setWriteBehindBatchSize(final int writeBehindBatchSize) {
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void evictShoppingCart(final ShoppingCart shoppingCart) {
 
+        writeBehindQueue.remove(shoppingCart.getGuid());
         CART_CACHE.evict(shoppingCart.getGuid());
         final ShoppingCartState state = shoppingCartStateService.findByGuid(shoppingCart.getGuid());
         if (state != null) {
@@ -262,4 +564,38 @@ public class ResilientCartRepositoryImpl implements CartRepository {
 
     }
 
+    /**
+     * Serialized snapshot of the cart waiting to be persisted.
+     */
+    private static final class QueuedCart {
+
+        private final String guid;
+        private final String shopCode;
+        private final long shopId;
+        private final byte[] state;
+
+        private QueuedCart(final ShoppingCart shoppingCart, final byte[] state) {
+            this.guid = shoppingCart.getGuid();
+            this.shopCode = shoppingCart.getShoppingContext().getShopCode();
+            this.shopId = shoppingCart.getShoppingContext().getShopId();
+            this.state = state;
+        }
+
+        private String getGuid() {
+            return guid;
+        }
+
+        private String getShopCode() {
+            return shopCode;
+        }
+
+        private long getShopId() {
+            return shopId;
+        }
+
+        private byte[] getState() {
+            return state;
+        }
+    }
+
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart.support.tokendriven.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yes.cart.shoppingcart.ShoppingCart;
+import org.yes.cart.shoppingcart.impl.ShoppingCartBinaryCodec;
+import org.yes.cart.shoppingcart.impl.ShoppingCartImpl;
+import org.yes.cart.shoppingcart.support.tokendriven.ShoppingCartStateSerializer;
+
+import java.io.*;
+import java.text.MessageFormat;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary cart state serializer (see {@link ShoppingCartBinaryCodec}).
+ *
+ * State starts with a header: magic bytes, format version and flags. Payloads larger than compression
+ * threshold are deflated (fastest level) if this results in smaller state. States that do not start with
+ * the magic bytes are considered to be legacy (Java SDK serialisation or Jackson JSON) and are restored
+ * by corresponding serializer, so that existing states are migrated transparently when cart is saved next
+ * time.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 14:48
+ */
+public class ShoppingCartStateSerializerBinaryImpl implements ShoppingCartStateSerializer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShoppingCartStateSerializerBinaryImpl.class);
+
+    static final byte MAGIC_0 = 'Y';
+    static final byte MAGIC_1 = 'C';
+    static final byte MAGIC_2 = 'B';
+    static final int HEADER_SIZE = 5;
+
+    static final byte FLAG_DEFLATE = 1;
+
+    private static final byte SDK_MAGIC_0 = (byte) 0xAC;
+    private static final byte SDK_MAGIC_1 = (byte) 0xED;
+
+    private final ShoppingCartStateSerializer legacyJsonSerializer;
+    private final ShoppingCartStateSerializer legacySdkSerializer;
+
+    private int compressionThreshold = 1024;
+
+    public ShoppingCartStateSerializerBinaryImpl() {
+        this(new ShoppingCartStateSerializerJacksonImpl(), new ShoppingCartStateSerializerSdkImpl());
+    }
+
+    public ShoppingCartStateSerializerBinaryImpl(final ShoppingCartStateSerializer legacyJsonSerializer,
+                                                 final ShoppingCartStateSerializer legacySdkSerializer) {
+        this.legacyJsonSerializer = legacyJsonSerializer;
+        this.legacySdkSerializer = legacySdkSerializer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ShoppingCart restoreState(final byte[] bytes) {
+
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        if (!isBinaryFormat(bytes)) {
+            if (bytes.length > 1 && bytes[0] == SDK_MAGIC_0 && bytes[1] == SDK_MAGIC_1) {
+                return legacySdkSerializer.restoreState(bytes);
+            }
+            return legacyJsonSerializer.restoreState(bytes);
+        }
+
+        final int version = bytes[3] & 0xFF;
+        final int flags = bytes[4];
+
+        final Inflater inflater = (flags & FLAG_DEFLATE) != 0 ? new Inflater() : null;
+        try {
+
+            InputStream payload = new ByteArrayInputStream(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+            if (inflater != null) {
+                payload = new InflaterInputStream(payload, inflater);
+            }
+            return ShoppingCartBinaryCodec.read(new DataInputStream(new BufferedInputStream(payload)), version);
+
+        } catch (Exception exception) {
+            final String errMsg = "Unable to convert bytes assembled from tuple into object";
+            LOG.error(errMsg, exception);
+            return null;
+        } finally {
+            if (inflater != null) {
+                inflater.end(); // release native zlib memory straight away rather than on finalization
+            }
+        }
+
+    }
+
+    static boolean isBinaryFormat(final byte[] bytes) {
+        return bytes.length >= HEADER_SIZE && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1 && bytes[2] == MAGIC_2;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public byte[] saveState(final ShoppingCart shoppingCart) {
+
+        if (!(shoppingCart instanceof ShoppingCartImpl)) {
+            // Binary format supports only default implementation
+            return legacyJsonSerializer.saveState(shoppingCart);
+        }
+
+        try {
+
+            final ByteArrayOutputStream payload = new ByteArrayOutputStream(2048);
+            final DataOutputStream out = new DataOutputStream(payload);
+            ShoppingCartBinaryCodec.write(out, (ShoppingCartImpl) shoppingCart);
+            out.flush();
+
+            byte flags = 0;
+            byte[] body = payload.toByteArray();
+            if (compressionThreshold > 0 && body.length > compressionThreshold) {
+                final byte[] compressed = deflate(body);
+                if (compressed.length < body.length) {
+                    body = compressed;
+                    flags |= FLAG_DEFLATE;
+                }
+            }
+
+            final byte[] state = new byte[HEADER_SIZE + body.length];
+            state[0] = MAGIC_0;
+            state[1] = MAGIC_1;
+            state[2] = MAGIC_2;
+            state[3] = (byte) ShoppingCartBinaryCodec.VERSION;
+            state[4] = flags;
+            System.arraycopy(body, 0, state, HEADER_SIZE, body.length);
+            return state;
+
+        } catch (Exception exp) {
+            LOG.error(
+                    MessageFormat.format("Unable to serialize object {0}", shoppingCart),
+                    exp
+            );
+        }
+
+        return null;
+
+    }
+
+    private byte[] deflate(final byte[] body) throws IOException {
+
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 2);
+            final DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater);
+            out.write(body);
+            out.finish();
+            out.close();
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+
+    }
+
+    /**
+     * Payload size in bytes after which compression is attempted. Zero or negative disables compression.
+     *
+     * @param compressionThreshold threshold in bytes
+     */
+    public void setCompressionThreshold(final int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+}
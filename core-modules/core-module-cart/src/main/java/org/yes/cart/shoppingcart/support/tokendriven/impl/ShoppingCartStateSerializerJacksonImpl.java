@@ -50,6 +50,7 @@ public class ShoppingCartStateSerializerJacksonImpl implements ShoppingCartState
         module.addAbstractTypeMapping(MutableShoppingContext.class, ShoppingContextImpl.class);
         module.addAbstractTypeMapping(MutableOrderInfo.class, OrderInfoImpl.class);
         module.addAbstractTypeMapping(CartItem.class, CartItemImpl.class);
+        module.addAbstractTypeMapping(CustomerSnapshot.class, CustomerSnapshotImpl.class);
 
         mapper.registerModule(module);
     }
@@ -1,10 +1,16 @@
 package org.yes.cart.shoppingcart.support.impl;
 
+import org.junit.Ignore;
 import org.junit.Test;
 import org.yes.cart.shoppingcart.ShoppingCart;
 import org.yes.cart.shoppingcart.impl.ShoppingCartImpl;
+import org.yes.cart.shoppingcart.support.CartDetuplizationException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -42,4 +48,139 @@ public class AbstractCryptedTuplizerImplTest {
 
     }
 
+    @Test
+    public void testCryptoAead() throws Exception {
+
+        final ShoppingCartImpl cart = createCart();
+
+        final AbstractCryptedTuplizerImpl tup = new AbstractCryptedTuplizerImpl(
+                "CHANGE_PASSWORD",
+                "PBKDF2WithHmacSHA1",
+                "AES/GCM/NoPadding"
+        ) {
+
+        };
+
+        final String base64 = tup.toToken(cart);
+        assertFalse("Splitting happens manually as it is media dependent", base64.contains("\n"));
+        assertFalse("Random IV for every token", base64.equals(tup.toToken(cart)));
+
+        final ShoppingCart restored = tup.toObject(base64);
+
+        assertNotNull(restored);
+        assertEquals(1, restored.getCartItemList().size());
+
+        final char[] tampered = base64.toCharArray();
+        final int pos = tampered.length / 2;
+        tampered[pos] = tampered[pos] == 'A' ? 'B' : 'A';
+        try {
+            tup.toObject(new String(tampered));
+            fail("Tampered token must not be accepted");
+        } catch (CartDetuplizationException expected) {
+            // OK
+        }
+
+        // pool is still operational after failure
+        assertNotNull(tup.toObject(base64));
+
+    }
+
+    @Test
+    public void testCryptoConcurrent() throws Exception {
+
+        final AbstractCryptedTuplizerImpl tup = new AbstractCryptedTuplizerImpl(
+                "CHANGE_PASSWORD",
+                "DES",
+                "DES/ECB/PKCS5Padding"
+        ) {
+
+        };
+
+        final AtomicInteger errors = runConcurrently(tup, 8, 200);
+
+        assertEquals(0, errors.get());
+
+    }
+
+    @Test
+    @Ignore("This is performance test for manual checks only")
+    public void testCryptoContentionBenchmark() throws Exception {
+
+        final String[][] configs = new String[][] {
+                { "DES", "DES/ECB/PKCS5Padding" },
+                { "PBKDF2WithHmacSHA1", "AES/GCM/NoPadding" }
+        };
+
+        for (final String[] config : configs) {
+
+            final AbstractCryptedTuplizerImpl tup = new AbstractCryptedTuplizerImpl(
+                    "CHANGE_PASSWORD",
+                    config[0],
+                    config[1]
+            ) {
+
+            };
+
+            runConcurrently(tup, 1, 2000); // warm up
+
+            for (final int threads : new int[] { 1, 2, 4, 8, 16 }) {
+                final int iterations = 20000 / threads;
+                final long start = System.nanoTime();
+                final AtomicInteger errors = runConcurrently(tup, threads, iterations);
+                final long elapsedMs = (System.nanoTime() - start) / 1000000L;
+                System.out.println(config[1] + ", threads: " + threads + ", round trips: " + (threads * iterations)
+                        + ", time: " + elapsedMs + "ms, errors: " + errors.get());
+            }
+
+        }
+
+    }
+
+    private AtomicInteger runConcurrently(final AbstractCryptedTuplizerImpl tup,
+                                          final int threads,
+                                          final int iterations) throws Exception {
+
+        final ShoppingCartImpl cart = createCart();
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < iterations; j++) {
+                        final ShoppingCart restored = tup.toObject(tup.toToken(cart));
+                        if (restored == null || !cart.getGuid().equals(restored.getGuid())) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        start.countDown();
+        for (final Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        return errors;
+
+    }
+
+    private ShoppingCartImpl createCart() {
+
+        final ShoppingCartImpl cart = new ShoppingCartImpl();
+
+        cart.addProductSkuToCart("SKU001", "SKU001", BigDecimal.ONE);
+        cart.setProductSkuPrice("SKU001", new BigDecimal("9.99"), new BigDecimal("9.99"));
+
+        return cart;
+
+    }
+
 }
\ No newline at end of file
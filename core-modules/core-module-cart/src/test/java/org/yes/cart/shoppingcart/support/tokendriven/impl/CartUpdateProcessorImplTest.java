@@ -0,0 +1,112 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart.support.tokendriven.impl;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.yes.cart.domain.entity.ShoppingCartState;
+import org.yes.cart.service.domain.AddressService;
+import org.yes.cart.service.domain.ShoppingCartStateService;
+import org.yes.cart.shoppingcart.ShoppingCart;
+import org.yes.cart.shoppingcart.ShoppingCartCommandFactory;
+import org.yes.cart.shoppingcart.support.tokendriven.ShoppingCartStateSerializer;
+
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 19:20
+ */
+public class CartUpdateProcessorImplTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testUpdateShoppingCartsSkipsStaleSnapshot() throws Exception {
+
+        final ShoppingCartStateService shoppingCartStateService = context.mock(ShoppingCartStateService.class, "shoppingCartStateService");
+        final AddressService addressService = context.mock(AddressService.class, "addressService");
+        final ShoppingCartCommandFactory commandFactory = context.mock(ShoppingCartCommandFactory.class, "commandFactory");
+        final ShoppingCartStateSerializer serializer = context.mock(ShoppingCartStateSerializer.class, "serializer");
+
+        final ShoppingCart snapshot = context.mock(ShoppingCart.class, "snapshot");
+        final ShoppingCart dbCart = context.mock(ShoppingCart.class, "dbCart");
+        final ShoppingCartState dbState = context.mock(ShoppingCartState.class, "dbState");
+        final byte[] dbBytes = new byte[] { 1 };
+
+        context.checking(new Expectations() {{
+            allowing(snapshot).getGuid(); will(returnValue("GUID1"));
+            allowing(snapshot).getModifiedTimestamp(); will(returnValue(100L));
+            allowing(dbState).getGuid(); will(returnValue("GUID1"));
+            allowing(dbState).getState(); will(returnValue(dbBytes));
+            allowing(dbState).getUpdatedTimestamp(); will(returnValue(new Date(200L)));
+            one(shoppingCartStateService).findByGuids(Collections.singletonList("GUID1")); will(returnValue(Collections.singletonList(dbState)));
+            // checkout flushed newer cart after snapshot was taken
+            one(serializer).restoreState(dbBytes); will(returnValue(dbCart));
+            allowing(dbCart).getModifiedTimestamp(); will(returnValue(150L));
+        }});
+
+        new CartUpdateProcessorImpl(shoppingCartStateService, addressService, commandFactory, serializer)
+                .updateShoppingCarts(Collections.singletonList(snapshot));
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testUpdateShoppingCartsWritesSnapshotNewerThanPersistedState() throws Exception {
+
+        final ShoppingCartStateService shoppingCartStateService = context.mock(ShoppingCartStateService.class, "shoppingCartStateService");
+        final AddressService addressService = context.mock(AddressService.class, "addressService");
+        final ShoppingCartCommandFactory commandFactory = context.mock(ShoppingCartCommandFactory.class, "commandFactory");
+        final ShoppingCartStateSerializer serializer = context.mock(ShoppingCartStateSerializer.class, "serializer");
+
+        final ShoppingCart snapshot = context.mock(ShoppingCart.class, "snapshot");
+        final ShoppingCartState dbState = context.mock(ShoppingCartState.class, "dbState");
+        final byte[] dbBytes = new byte[] { 1 };
+        final byte[] snapshotBytes = new byte[] { 2 };
+
+        context.checking(new Expectations() {{
+            allowing(snapshot).getGuid(); will(returnValue("GUID1"));
+            allowing(snapshot).getModifiedTimestamp(); will(returnValue(300L));
+            allowing(snapshot).getLogonState(); will(returnValue(ShoppingCart.NOT_LOGGED));
+            allowing(snapshot).getCartItemsCount(); will(returnValue(1));
+            allowing(dbState).getGuid(); will(returnValue("GUID1"));
+            allowing(dbState).getState(); will(returnValue(dbBytes));
+            allowing(dbState).getUpdatedTimestamp(); will(returnValue(new Date(200L)));
+            allowing(dbState).getShoppingCartStateId(); will(returnValue(10L));
+            one(shoppingCartStateService).findByGuids(Collections.singletonList("GUID1")); will(returnValue(Collections.singletonList(dbState)));
+            // persisted state was saved before snapshot was modified, so it is not restored
+            never(serializer).restoreState(dbBytes);
+            one(serializer).saveState(snapshot); will(returnValue(snapshotBytes));
+            one(dbState).setEmpty(false);
+            one(dbState).setState(snapshotBytes);
+            one(shoppingCartStateService).update(dbState);
+        }});
+
+        new CartUpdateProcessorImpl(shoppingCartStateService, addressService, commandFactory, serializer)
+                .updateShoppingCarts(Collections.singletonList(snapshot));
+
+        context.assertIsSatisfied();
+
+    }
+
+}
@@ -37,6 +37,8 @@ import org.yes.cart.shoppingcart.support.tokendriven.impl.ResilientCartRepositor
 
 import java.io.*;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 
 import static org.junit.Assert.*;
@@ -966,4 +968,218 @@ public class ResilientCartRepositoryImplTest {
 
     }
 
+    @Test
+    public void testStoreShoppingCartWriteBehindCoalesced() throws Exception {
+
+        final ShoppingCartStateService shoppingCartStateService = context.mock(ShoppingCartStateService.class, "shoppingCartStateService");
+        final ShopService shopService = context.mock(ShopService.class, "shopService");
+        final CartUpdateProcessor cartUpdateProcessor = context.mock(CartUpdateProcessor.class, "cartUpdateProcessor");
+        final TaskExecutor taskExecutor = context.mock(TaskExecutor.class, "taskExecutor");
+        final CacheManager cacheManager = context.mock(CacheManager.class, "cacheManager");
+        final Cache cartCache = context.mock(Cache.class, "cartCache");
+
+        final MutableShoppingCart cart = new ShoppingCartImpl();
+        cart.getShoppingContext().setShopCode("SHOP10");
+        cart.getShoppingContext().setShopId(10L);
+
+        final byte[] state1 = new byte[] { 1 };
+        final byte[] state2 = new byte[] { 2 };
+        final byte[] state3 = new byte[] { 3 };
+        final ShoppingCart snapshot = context.mock(ShoppingCart.class, "snapshot");
+
+        context.checking(new Expectations() {{
+            one(cacheManager).getCache("web.shoppingCart"); will(returnValue(cartCache));
+            exactly(3).of(cartCache).put(cart.getGuid(), cart);
+            exactly(3).of(cartUpdateProcessor).saveState(cart); will(onConsecutiveCalls(returnValue(state1), returnValue(state2), returnValue(state3)));
+            one(cartUpdateProcessor).restoreSnapshot(state3); will(returnValue(snapshot));
+            one(cartUpdateProcessor).updateShoppingCarts(Collections.<ShoppingCart>singletonList(snapshot));
+        }});
+
+        final ResilientCartRepositoryImpl repo = new ResilientCartRepositoryImpl(shoppingCartStateService, shopService, cartUpdateProcessor, 60, cacheManager, taskExecutor);
+        repo.setWriteBehindDelayMs(600000L); // no scheduled flush during test
+        repo.afterPropertiesSet();
+
+        try {
+
+            for (int i = 0; i < 3; i++) {
+                cart.markDirty();
+                assertEquals(cart.getGuid(), repo.storeShoppingCart(cart));
+            }
+
+            assertEquals(1, repo.getWriteBehindQueueDepth());
+            assertEquals(3L, repo.getWriteBehindQueued());
+            assertEquals(2L, repo.getWriteBehindCoalesced());
+
+            assertEquals(1, repo.flushWriteBehind(100));
+
+            assertEquals(0, repo.getWriteBehindQueueDepth());
+            assertEquals(1L, repo.getWriteBehindFlushed());
+            assertEquals(1L, repo.getWriteBehindFlushes());
+
+        } finally {
+            repo.destroy();
+        }
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testFlushWriteBehindBatchFailureFallsBackToPerCartSnapshotUpdate() throws Exception {
+
+        final ShoppingCartStateService shoppingCartStateService = context.mock(ShoppingCartStateService.class, "shoppingCartStateService");
+        final ShopService shopService = context.mock(ShopService.class, "shopService");
+        final CartUpdateProcessor cartUpdateProcessor = context.mock(CartUpdateProcessor.class, "cartUpdateProcessor");
+        final TaskExecutor taskExecutor = context.mock(TaskExecutor.class, "taskExecutor");
+        final CacheManager cacheManager = context.mock(CacheManager.class, "cacheManager");
+        final Cache cartCache = context.mock(Cache.class, "cartCache");
+
+        final MutableShoppingCart cart1 = new ShoppingCartImpl();
+        cart1.getShoppingContext().setShopCode("SHOP10");
+        cart1.getShoppingContext().setShopId(10L);
+        final MutableShoppingCart cart2 = new ShoppingCartImpl();
+        cart2.getShoppingContext().setShopCode("SHOP10");
+        cart2.getShoppingContext().setShopId(10L);
+
+        final byte[] state1 = new byte[] { 1 };
+        final byte[] state2 = new byte[] { 2 };
+        final ShoppingCart snapshot1 = context.mock(ShoppingCart.class, "snapshot1");
+        final ShoppingCart snapshot2 = context.mock(ShoppingCart.class, "snapshot2");
+
+        context.checking(new Expectations() {{
+            one(cacheManager).getCache("web.shoppingCart"); will(returnValue(cartCache));
+            one(cartCache).put(cart1.getGuid(), cart1);
+            one(cartCache).put(cart2.getGuid(), cart2);
+            one(cartUpdateProcessor).saveState(cart1); will(returnValue(state1));
+            one(cartUpdateProcessor).saveState(cart2); will(returnValue(state2));
+            // flush and drain of failed cart on destroy
+            one(cartUpdateProcessor).restoreSnapshot(state1); will(returnValue(snapshot1));
+            exactly(2).of(cartUpdateProcessor).restoreSnapshot(state2); will(returnValue(snapshot2));
+            one(cartUpdateProcessor).updateShoppingCarts(with(any(Collection.class))); will(throwException(new RuntimeException("version conflict")));
+            // fallback must use snapshot update, which skips carts persisted synchronously since the snapshot
+            one(cartUpdateProcessor).updateShoppingCarts(Collections.<ShoppingCart>singletonList(snapshot1));
+            one(cartUpdateProcessor).updateShoppingCarts(Collections.<ShoppingCart>singletonList(snapshot2)); will(throwException(new RuntimeException("DB down")));
+            one(cartUpdateProcessor).updateShoppingCarts(Collections.<ShoppingCart>singletonList(snapshot2));
+        }});
+
+        final ResilientCartRepositoryImpl repo = new ResilientCartRepositoryImpl(shoppingCartStateService, shopService, cartUpdateProcessor, 60, cacheManager, taskExecutor);
+        repo.setWriteBehindDelayMs(600000L); // no scheduled flush during test
+        repo.afterPropertiesSet();
+
+        try {
+
+            cart1.markDirty();
+            repo.storeShoppingCart(cart1);
+            cart2.markDirty();
+            repo.storeShoppingCart(cart2);
+            assertEquals(2, repo.getWriteBehindQueueDepth());
+
+            assertEquals(2, repo.flushWriteBehind(100));
+
+            // failed cart is re-queued
+            assertEquals(1, repo.getWriteBehindQueueDepth());
+
+        } finally {
+            repo.destroy();
+        }
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testStoreShoppingCartWriteBehindCheckoutIsSynchronous() throws Exception {
+
+        final ShoppingCartStateService shoppingCartStateService = context.mock(ShoppingCartStateService.class, "shoppingCartStateService");
+        final ShopService shopService = context.mock(ShopService.class, "shopService");
+        final CartUpdateProcessor cartUpdateProcessor = context.mock(CartUpdateProcessor.class, "cartUpdateProcessor");
+        final TaskExecutor taskExecutor = context.mock(TaskExecutor.class, "taskExecutor");
+        final CacheManager cacheManager = context.mock(CacheManager.class, "cacheManager");
+        final Cache cartCache = context.mock(Cache.class, "cartCache");
+
+        final MutableShoppingCart cart = new ShoppingCartImpl();
+        cart.getShoppingContext().setShopCode("SHOP10");
+        cart.getShoppingContext().setShopId(10L);
+
+        context.checking(new Expectations() {{
+            one(cacheManager).getCache("web.shoppingCart"); will(returnValue(cartCache));
+            exactly(3).of(cartCache).put(cart.getGuid(), cart);
+            one(cartUpdateProcessor).saveState(cart); will(returnValue(new byte[0]));
+            one(cartUpdateProcessor).updateShoppingCart(cart);
+        }});
+
+        final ResilientCartRepositoryImpl repo = new ResilientCartRepositoryImpl(shoppingCartStateService, shopService, cartUpdateProcessor, 60, cacheManager, taskExecutor);
+        repo.setWriteBehindDelayMs(600000L); // no scheduled flush during test
+        repo.afterPropertiesSet();
+
+        try {
+
+            cart.markDirty();
+            repo.storeShoppingCart(cart);
+            assertEquals(1, repo.getWriteBehindQueueDepth());
+
+            cart.setOrdernum("ORD-001");
+            cart.markDirty();
+            repo.storeShoppingCart(cart);
+            assertEquals(0, repo.getWriteBehindQueueDepth());
+
+        } finally {
+            repo.destroy();
+        }
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testGetShoppingCartWriteBehindEvictedFromCache() throws Exception {
+
+        final ShoppingCartStateService shoppingCartStateService = context.mock(ShoppingCartStateService.class, "shoppingCartStateService");
+        final ShopService shopService = context.mock(ShopService.class, "shopService");
+        final CartUpdateProcessor cartUpdateProcessor = context.mock(CartUpdateProcessor.class, "cartUpdateProcessor");
+        final TaskExecutor taskExecutor = context.mock(TaskExecutor.class, "taskExecutor");
+        final CacheManager cacheManager = context.mock(CacheManager.class, "cacheManager");
+        final Cache cartCache = context.mock(Cache.class, "cartCache");
+
+        final MutableShoppingCart cart = new ShoppingCartImpl();
+        cart.getShoppingContext().setShopCode("SHOP10");
+        cart.getShoppingContext().setShopId(10L);
+
+        final byte[] state = new byte[] { 1 };
+        final ShoppingCart queued = context.mock(ShoppingCart.class, "queued");
+
+        context.checking(new Expectations() {{
+            one(cacheManager).getCache("web.shoppingCart"); will(returnValue(cartCache));
+            one(cartCache).put(cart.getGuid(), cart);
+            one(cartUpdateProcessor).saveState(cart); will(returnValue(state));
+            one(cartCache).get(cart.getGuid()); will(returnValue(null));
+            allowing(queued).getGuid(); will(returnValue(cart.getGuid()));
+            // once for get and once for flush on destroy
+            exactly(2).of(cartUpdateProcessor).restoreSnapshot(state); will(returnValue(queued));
+            one(cartCache).put(cart.getGuid(), queued);
+            one(cartUpdateProcessor).updateShoppingCarts(Collections.<ShoppingCart>singletonList(queued));
+        }});
+
+        final ResilientCartRepositoryImpl repo = new ResilientCartRepositoryImpl(shoppingCartStateService, shopService, cartUpdateProcessor, 60, cacheManager, taskExecutor);
+        repo.setWriteBehindDelayMs(600000L); // no scheduled flush during test
+        repo.afterPropertiesSet();
+
+        try {
+
+            cart.markDirty();
+            repo.storeShoppingCart(cart);
+            assertEquals(1, repo.getWriteBehindQueueDepth());
+
+            // cart evicted from cache, queued state must be used instead of stale DB state
+            assertSame(queued, repo.getShoppingCart(cart.getGuid()));
+            assertEquals(1, repo.getWriteBehindQueueDepth());
+
+        } finally {
+            repo.destroy();
+        }
+
+        context.assertIsSatisfied();
+
+    }
+
 }
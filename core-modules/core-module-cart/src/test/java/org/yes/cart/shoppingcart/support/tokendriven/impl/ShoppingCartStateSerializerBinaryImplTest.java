@@ -0,0 +1,244 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart.support.tokendriven.impl;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.yes.cart.shoppingcart.CartItem;
+import org.yes.cart.shoppingcart.CustomerSnapshot;
+import org.yes.cart.shoppingcart.MutableShoppingCart;
+import org.yes.cart.shoppingcart.ShoppingCart;
+import org.yes.cart.shoppingcart.impl.CustomerSnapshotImpl;
+import org.yes.cart.shoppingcart.support.tokendriven.ShoppingCartStateSerializer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 15:20
+ */
+public class ShoppingCartStateSerializerBinaryImplTest extends AbstractShoppingCartStateSerializerTest {
+
+    @Test
+    public void testSaveRestore() throws Exception {
+
+        final ShoppingCartStateSerializerBinaryImpl serializer = new ShoppingCartStateSerializerBinaryImpl();
+        serializer.setCompressionThreshold(0);
+
+        final ShoppingCart cart = createFilledCart();
+        assertFilledCart(cart, cart.getGuid());
+
+        byte[] data = serializer.saveState(cart);
+        assertTrue(ShoppingCartStateSerializerBinaryImpl.isBinaryFormat(data));
+        assertEquals(0, data[4] & ShoppingCartStateSerializerBinaryImpl.FLAG_DEFLATE);
+
+        final ShoppingCart restored = serializer.restoreState(data);
+
+        assertFilledCart(restored, cart.getGuid());
+        assertEquals(cart.getModifiedTimestamp(), restored.getModifiedTimestamp());
+        assertEquals(cart.getProcessingStartTimestamp(), restored.getProcessingStartTimestamp());
+        assertTrue(restored.isModified());
+        assertEquals(cart.getTotal().getTotalAmount(), restored.getTotal().getTotalAmount());
+        assertEquals(cart.getTotal().getAppliedDeliveryPromo(), restored.getTotal().getAppliedDeliveryPromo());
+
+    }
+
+    @Test
+    public void testSaveRestoreCompressed() throws Exception {
+
+        final ShoppingCartStateSerializerBinaryImpl serializer = new ShoppingCartStateSerializerBinaryImpl();
+        serializer.setCompressionThreshold(256);
+
+        final ShoppingCart cart = createRandomCart(50, 3, 3, 1);
+
+        byte[] data = serializer.saveState(cart);
+        assertTrue(ShoppingCartStateSerializerBinaryImpl.isBinaryFormat(data));
+        assertEquals(ShoppingCartStateSerializerBinaryImpl.FLAG_DEFLATE, data[4] & ShoppingCartStateSerializerBinaryImpl.FLAG_DEFLATE);
+
+        final ShoppingCart restored = serializer.restoreState(data);
+
+        assertEquals(cart.getGuid(), restored.getGuid());
+        assertEquals(cart.getCartItemsCount(), restored.getCartItemsCount());
+        assertEquals(cart.getCartItemList().size(), restored.getCartItemList().size());
+        for (int i = 0; i < cart.getCartItemList().size(); i++) {
+            final CartItem item = cart.getCartItemList().get(i);
+            final CartItem restoredItem = restored.getCartItemList().get(i);
+            assertEquals(item.getProductSkuCode(), restoredItem.getProductSkuCode());
+            assertEquals(item.getQty(), restoredItem.getQty());
+            assertEquals(item.getSalePrice(), restoredItem.getSalePrice());
+            assertEquals(item.getPrice(), restoredItem.getPrice());
+            assertEquals(item.isGift(), restoredItem.isGift());
+            assertEquals(item.getAppliedPromo(), restoredItem.getAppliedPromo());
+        }
+        assertEquals(Arrays.asList("11", "21", "31"), restored.getShoppingContext().getLatestViewedSkus());
+        assertEquals("127.0.0.1", restored.getShoppingContext().getResolvedIp());
+        assertEquals(Long.valueOf(20L), restored.getOrderInfo().getCarrierSlaId().get(""));
+        assertEquals("Some message1 on my order", restored.getOrderInfo().getOrderMessage());
+        assertEquals(cart.getTotal().getTotalAmount(), restored.getTotal().getTotalAmount());
+
+    }
+
+    @Test
+    public void testSaveRestoreCustomerSnapshot() throws Exception {
+
+        final ShoppingCartStateSerializerBinaryImpl serializer = new ShoppingCartStateSerializerBinaryImpl();
+
+        final ShoppingCart cart = createFilledCart();
+        ((MutableShoppingCart) cart).getShoppingContext().setCustomerSnapshot(
+                new CustomerSnapshotImpl(123L, "bob@doe.com", 10L, "B2B", "vip regular", "P1", 1508335200000L));
+
+        final ShoppingCart restored = serializer.restoreState(serializer.saveState(cart));
+
+        assertFilledCart(restored, cart.getGuid());
+        final CustomerSnapshot snapshot = ((MutableShoppingCart) restored).getShoppingContext().getCustomerSnapshot();
+        assertNotNull(snapshot);
+        assertEquals(123L, snapshot.getCustomerId());
+        assertEquals("bob@doe.com", snapshot.getEmail());
+        assertEquals(10L, snapshot.getShopId());
+        assertEquals("B2B", snapshot.getCustomerType());
+        assertEquals("vip regular", snapshot.getTag());
+        assertEquals("P1", snapshot.getPricingPolicy());
+        assertEquals(1508335200000L, snapshot.getCapturedTimestamp());
+
+        final ShoppingCart fromJson = serializer.restoreState(new ShoppingCartStateSerializerJacksonImpl().saveState(cart));
+        assertEquals("vip regular", ((MutableShoppingCart) fromJson).getShoppingContext().getCustomerSnapshot().getTag());
+
+    }
+
+    @Test
+    public void testRestoreLegacyStates() throws Exception {
+
+        final ShoppingCartStateSerializerBinaryImpl serializer = new ShoppingCartStateSerializerBinaryImpl();
+
+        final ShoppingCart cart = createFilledCart();
+
+        final byte[] json = new ShoppingCartStateSerializerJacksonImpl().saveState(cart);
+        assertFalse(ShoppingCartStateSerializerBinaryImpl.isBinaryFormat(json));
+        final ShoppingCart fromJson = serializer.restoreState(json);
+        assertFilledCart(fromJson, cart.getGuid());
+
+        final byte[] sdk = new ShoppingCartStateSerializerSdkImpl().saveState(cart);
+        assertFalse(ShoppingCartStateSerializerBinaryImpl.isBinaryFormat(sdk));
+        final ShoppingCart fromSdk = serializer.restoreState(sdk);
+        assertFilledCart(fromSdk, cart.getGuid());
+
+        // migrated on next save
+        final byte[] migrated = serializer.saveState(fromJson);
+        assertTrue(ShoppingCartStateSerializerBinaryImpl.isBinaryFormat(migrated));
+        assertFilledCart(serializer.restoreState(migrated), cart.getGuid());
+
+    }
+
+    @Test
+    public void testRestoreCorrupted() throws Exception {
+
+        final ShoppingCartStateSerializerBinaryImpl serializer = new ShoppingCartStateSerializerBinaryImpl();
+
+        final byte[] data = serializer.saveState(createFilledCart());
+        final byte[] truncated = Arrays.copyOf(data, data.length / 2);
+
+        assertNull(serializer.restoreState(truncated));
+
+    }
+
+    /**
+     * Compares state size against Jackson JSON and Java SDK serializers for the same set of carts.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCompareWithLegacySerializers() throws Exception {
+
+        final List<ShoppingCart> carts = createRandomCarts();
+
+        final long binarySize = compare("Binary", new ShoppingCartStateSerializerBinaryImpl(), carts, false);
+        final long jacksonSize = compare("Jackson", new ShoppingCartStateSerializerJacksonImpl(), carts, false);
+        final long sdkSize = compare("SDK", new ShoppingCartStateSerializerSdkImpl(), carts, false);
+
+        assertTrue(binarySize < jacksonSize);
+        assertTrue(binarySize < sdkSize);
+
+    }
+
+    @Ignore("This is performance test for manual checks only")
+    @Test
+    public void testCompareWithLegacySerializersPerformance() throws Exception {
+
+        final ShoppingCartStateSerializerBinaryImpl binary = new ShoppingCartStateSerializerBinaryImpl();
+        final ShoppingCartStateSerializerJacksonImpl jackson = new ShoppingCartStateSerializerJacksonImpl();
+        final ShoppingCartStateSerializerSdkImpl sdk = new ShoppingCartStateSerializerSdkImpl();
+
+        final List<ShoppingCart> carts = createRandomCarts();
+
+        // warm up
+        compare("Binary", binary, carts, false);
+        compare("Jackson", jackson, carts, false);
+        compare("SDK", sdk, carts, false);
+
+        compare("Binary", binary, carts, true);
+        compare("Jackson", jackson, carts, true);
+        compare("SDK", sdk, carts, true);
+
+    }
+
+    private List<ShoppingCart> createRandomCarts() {
+
+        final List<ShoppingCart> carts = new ArrayList<ShoppingCart>();
+        for (int i = 0; i < 100; i++) {
+            carts.add(createRandomCart(25, 3, 3, i));
+        }
+        return carts;
+
+    }
+
+    private long compare(final String name, final ShoppingCartStateSerializer serializer, final List<ShoppingCart> carts, final boolean report) {
+
+        long size = 0L;
+        final long start = System.nanoTime();
+        for (final ShoppingCart cart : carts) {
+            final byte[] data = serializer.saveState(cart);
+            size += data.length;
+            assertEquals(cart.getGuid(), serializer.restoreState(data).getGuid());
+        }
+        final long finish = System.nanoTime();
+
+        if (report) {
+            System.out.println(name + ": to and back for " + carts.size() + " carts took ~"
+                    + new BigDecimal(finish - start).divide(new BigDecimal(1000000L), 1, RoundingMode.HALF_UP).toPlainString()
+                    + "ms (average size of cart is ~" + (size / carts.size()) + " bytes)");
+        }
+
+        return size;
+
+    }
+
+    @Ignore("This is performance test for manual checks only")
+    @Test
+    public void testSerializationPerformance() throws Exception {
+
+        serializationPerformanceRoutine(new ShoppingCartStateSerializerBinaryImpl(), 10000, 100, 5, 5);
+
+    }
+
+}
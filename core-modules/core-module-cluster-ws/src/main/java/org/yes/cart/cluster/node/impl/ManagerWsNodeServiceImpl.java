@@ -19,6 +19,7 @@ package org.yes.cart.cluster.node.impl;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.yes.cart.cluster.node.ContextRspMessage;
 import org.yes.cart.cluster.node.Message;
 import org.yes.cart.cluster.node.Node;
@@ -33,6 +34,11 @@ import org.yes.cart.web.service.ws.client.WsClientFactory;
 
 import java.net.ConnectException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * User: denispavlov
@@ -45,6 +51,8 @@ public class ManagerWsNodeServiceImpl extends AbstractWsNodeServiceImpl implemen
 
     private Set<String> reloadClusterTopics = new HashSet<String>();
 
+    private AsyncTaskExecutor broadcastExecutor;
+
     public ManagerWsNodeServiceImpl(final SystemService systemService,
                                     final WsClientAbstractFactory wsClientAbstractFactory) {
         super(systemService);
@@ -81,62 +89,214 @@ public class ManagerWsNodeServiceImpl extends AbstractWsNodeServiceImpl implemen
             }
         }
 
+        final String timeoutKey = (String) context.getAttribute(AsyncContext.TIMEOUT_KEY);
 
-        for (final Node yesNode : cluster) {
-            try {
-                final WsClientFactory<WebServiceInboundChannel> factory =
-                        getWebServiceInboundChannel(context, yesNode.getChannel(),
-                                (String) context.getAttribute(AsyncContext.TIMEOUT_KEY));
+        if (broadcastExecutor == null || cluster.size() < 2) {
+
+            for (final Node yesNode : cluster) {
+                final Message rsp = sendToNode(wsMessage, context, yesNode, timeoutKey);
+                if (rsp != null) {
+                    wsMessage.addResponse(rsp);
+                }
+            }
+
+        } else {
+
+            final List<NodeCall> calls = new ArrayList<NodeCall>(cluster.size());
+            for (final Node yesNode : cluster) {
+                final NodeCall call = new NodeCall(wsMessage, context, yesNode, timeoutKey);
+                call.setFuture(broadcastExecutor.submit(call));
+                calls.add(call);
+            }
+
+            // WS client enforces connection and receive timeouts, so this is just a safety net
+            final long timeout = 2L * getTimeout(timeoutKey);
 
-                WebServiceInboundChannel service = factory.getService();
+            for (int i = 0; i < calls.size(); i++) {
+                final NodeCall call = calls.get(i);
                 try {
-                    final WsMessage rsp = service.accept(new WsMessage(wsMessage));
-                    if (rsp instanceof WsMessage) {
-                        wsMessage.addResponse(
-                                new BasicMessageImpl(
-                                        rsp.getSource(),
-                                        rsp.getTargets(),
-                                        rsp.getSubject(),
-                                        rsp.getPayloadObject()
-                                ));
+                    final Message rsp = call.get(timeout);
+                    if (rsp != null) {
+                        wsMessage.addResponse(rsp);
                     }
-                } finally {
-                    factory.release(service);
-                    service = null;
-                }
+                } catch (InterruptedException ie) {
 
-            } catch (javax.xml.ws.WebServiceException wse) {
+                    // do not wait for remaining nodes, restore flag so that caller can see it
+                    for (int j = i; j < calls.size(); j++) {
+                        calls.get(j).cancel();
+                    }
+                    Thread.currentThread().interrupt();
 
-                if (wse.getCause() instanceof ConnectException) {
+                    if (LOG.isErrorEnabled()) {
+                        LOG.error(Markers.alert(), "Node message failure [" + message + "] to  url ["
+                                + cluster.get(i).getId() + "] . Interrupted waiting for ws call");
+                    }
+                    return;
 
-                    blacklist(yesNode.getId());
+                } catch (TimeoutException te) {
+
+                    call.cancel();
 
                     if (LOG.isErrorEnabled()) {
                         LOG.error(Markers.alert(), "Node message failure [" + message + "] to  url ["
-                                + yesNode.getId() + "] . Blacklisting this node");
+                                + cluster.get(i).getId() + "] . Timed out waiting for ws call");
                     }
 
-                } else {
+                } catch (Exception e) {
 
                     if (LOG.isErrorEnabled()) {
                         LOG.error(Markers.alert(), "Node message failure [" + message + "] to  url ["
-                                + yesNode.getId() + "] . Exception occurred during ws call",
-                                wse);
+                                + cluster.get(i).getId() + "] . Exception occurred during ws call",
+                                e);
                     }
 
                 }
+            }
+
+        }
+
+    }
+
+
+    /**
+     * Call to a single node. Timeout is measured from the moment call has started, so that
+     * time spent in executor queue or waiting for other nodes is not counted.
+     */
+    private final class NodeCall implements Callable<Message> {
+
+        private final ContextRspMessage wsMessage;
+        private final AsyncContext context;
+        private final Node yesNode;
+        private final String timeoutKey;
+
+        private volatile long started = 0L;
+        private Future<Message> future;
+
+        private NodeCall(final ContextRspMessage wsMessage,
+                         final AsyncContext context,
+                         final Node yesNode,
+                         final String timeoutKey) {
+            this.wsMessage = wsMessage;
+            this.context = context;
+            this.yesNode = yesNode;
+            this.timeoutKey = timeoutKey;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Message call() throws Exception {
+            started = System.currentTimeMillis();
+            return sendToNode(wsMessage, context, yesNode, timeoutKey);
+        }
+
+        private void setFuture(final Future<Message> future) {
+            this.future = future;
+        }
+
+        /**
+         * Wait for response.
+         *
+         * @param timeout timeout in millis from the start of this call
+         *
+         * @return response
+         *
+         * @throws InterruptedException if waiting thread is interrupted
+         * @throws ExecutionException if call failed
+         * @throws TimeoutException if call has not finished within timeout since it started
+         */
+        private Message get(final long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+
+            while (true) {
+                final long start = started;
+                // if call is still queued wait full timeout and check again
+                final long wait = start == 0L ? timeout : start + timeout - System.currentTimeMillis();
+                try {
+                    return future.get(Math.max(0L, wait), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException te) {
+                    final long startedNow = started;
+                    if (startedNow == 0L || startedNow + timeout > System.currentTimeMillis()) {
+                        continue; // not started yet or started while we waited
+                    }
+                    throw te;
+                }
+            }
+
+        }
+
+        private void cancel() {
+            future.cancel(true);
+        }
+
+    }
+
+    /**
+     * Send message to a single node.
+     *
+     * @param wsMessage  message
+     * @param context    context
+     * @param yesNode    target node
+     * @param timeoutKey timeout configuration key
+     *
+     * @return response or null if node did not respond
+     */
+    private Message sendToNode(final ContextRspMessage wsMessage,
+                               final AsyncContext context,
+                               final Node yesNode,
+                               final String timeoutKey) {
+
+        try {
+            final WsClientFactory<WebServiceInboundChannel> factory =
+                    getWebServiceInboundChannel(context, yesNode.getChannel(), timeoutKey);
+
+            WebServiceInboundChannel service = factory.getService();
+            try {
+                final WsMessage rsp = service.accept(new WsMessage(wsMessage));
+                if (rsp instanceof WsMessage) {
+                    return new BasicMessageImpl(
+                            rsp.getSource(),
+                            rsp.getTargets(),
+                            rsp.getSubject(),
+                            rsp.getPayloadObject()
+                    );
+                }
+            } finally {
+                factory.release(service);
+                service = null;
+            }
+
+        } catch (javax.xml.ws.WebServiceException wse) {
 
-            } catch (Exception e) {
+            if (wse.getCause() instanceof ConnectException) {
+
+                blacklist(yesNode.getId());
 
                 if (LOG.isErrorEnabled()) {
-                    LOG.error(Markers.alert(), "Node message failure [" + message + "] to  url ["
+                    LOG.error(Markers.alert(), "Node message failure [" + wsMessage + "] to  url ["
+                            + yesNode.getId() + "] . Blacklisting this node");
+                }
+
+            } else {
+
+                if (LOG.isErrorEnabled()) {
+                    LOG.error(Markers.alert(), "Node message failure [" + wsMessage + "] to  url ["
                             + yesNode.getId() + "] . Exception occurred during ws call",
-                            e);
+                            wse);
                 }
 
             }
+
+        } catch (Exception e) {
+
+            if (LOG.isErrorEnabled()) {
+                LOG.error(Markers.alert(), "Node message failure [" + wsMessage + "] to  url ["
+                        + yesNode.getId() + "] . Exception occurred during ws call",
+                        e);
+            }
+
         }
 
+        return null;
+
     }
 
 
@@ -151,13 +311,18 @@ public class ManagerWsNodeServiceImpl extends AbstractWsNodeServiceImpl implemen
         final boolean hashed = StringUtils.isNotBlank(passwordHash);
         final String pwd = hashed ? passwordHash : password;
 
-        final int timeout = NumberUtils.toInt(getConfiguration().get(timeoutKey), 1000);
+        final int timeout = getTimeout(timeoutKey);
 
         return wsClientAbstractFactory.getFactory(WebServiceInboundChannel.class, userName, pwd, hashed, backdoorUrl, timeout);
 
     }
 
 
+    private int getTimeout(final String timeoutKey) {
+        return NumberUtils.toInt(getConfiguration().get(timeoutKey), 1000);
+    }
+
+
     /**
      * Spring IoC.
      *
@@ -166,4 +331,14 @@ public class ManagerWsNodeServiceImpl extends AbstractWsNodeServiceImpl implemen
     public void setReloadClusterTopics(final Set<String> reloadClusterTopics) {
         this.reloadClusterTopics = new HashSet<String>(reloadClusterTopics);
     }
+
+    /**
+     * Spring IoC.
+     *
+     * @param broadcastExecutor executor for sending messages to nodes concurrently, if not set
+     *                          messages are sent sequentially in the calling thread
+     */
+    public void setBroadcastExecutor(final AsyncTaskExecutor broadcastExecutor) {
+        this.broadcastExecutor = broadcastExecutor;
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cluster.node.impl;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.yes.cart.cluster.node.ContextRspMessage;
+import org.yes.cart.cluster.node.Message;
+import org.yes.cart.cluster.node.NodeService;
+import org.yes.cart.service.async.model.AsyncContext;
+import org.yes.cart.web.service.ws.WebServiceInboundChannel;
+import org.yes.cart.web.service.ws.WsMessage;
+import org.yes.cart.web.service.ws.client.WsClientAbstractFactory;
+import org.yes.cart.web.service.ws.client.WsClientFactory;
+
+import javax.servlet.ServletContext;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:41
+ */
+public class ManagerWsNodeServiceImplTest {
+
+    private static final String YES0 = "http://localhost:8080/yes-shop/services/backdoor";
+    private static final String YES1 = "http://localhost:8081/yes-api/services/backdoor";
+
+    private final Mockery context = new JUnit4Mockery();
+
+    private ThreadPoolTaskExecutor executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.initialize();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testBroadcastResponsesInNodeOrder() throws Exception {
+
+        final Map<String, Long> delays = new HashMap<String, Long>();
+        delays.put(YES0, 300L); // first node responds last
+        delays.put(YES1, 0L);
+
+        final ManagerWsNodeServiceImpl service = createService(delays, "1000");
+
+        final ContextRspMessage message = createMessage();
+
+        service.broadcast(message);
+
+        final List<Message> responses = message.getResponses();
+        assertEquals(2, responses.size());
+        assertEquals("TESTCLUSTER.YES0", responses.get(0).getSource());
+        assertEquals("TESTCLUSTER.YES1", responses.get(1).getSource());
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testBroadcastSlowNodeTimesOut() throws Exception {
+
+        final Map<String, Long> delays = new HashMap<String, Long>();
+        delays.put(YES0, 5000L); // first node is too slow
+        delays.put(YES1, 0L);
+
+        final ManagerWsNodeServiceImpl service = createService(delays, "100");
+
+        final ContextRspMessage message = createMessage();
+
+        final long start = System.currentTimeMillis();
+        service.broadcast(message);
+        final long duration = System.currentTimeMillis() - start;
+
+        final List<Message> responses = message.getResponses();
+        assertEquals(1, responses.size());
+        assertEquals("TESTCLUSTER.YES1", responses.get(0).getSource());
+        assertTrue("Took " + duration + "ms", duration < 5000L);
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testBroadcastInterruptedRestoresFlag() throws Exception {
+
+        final Map<String, Long> delays = new HashMap<String, Long>();
+        delays.put(YES0, 5000L);
+        delays.put(YES1, 5000L);
+
+        final ManagerWsNodeServiceImpl service = createService(delays, "10000");
+
+        final ContextRspMessage message = createMessage();
+
+        Thread.currentThread().interrupt();
+        try {
+            service.broadcast(message);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertTrue(message.getResponses().isEmpty());
+
+        context.assertIsSatisfied();
+
+    }
+
+    private ContextRspMessage createMessage() {
+
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put(AsyncContext.TIMEOUT_KEY, "TEST_TIMEOUT");
+
+        final AsyncContext asyncContext = new AsyncContext() {
+            @Override
+            public <T> T getAttribute(final String name) {
+                return (T) attributes.get(name);
+            }
+
+            @Override
+            public Map<String, Object> getAttributes() {
+                return attributes;
+            }
+        };
+
+        return new ContextRspMessageImpl("TESTCLUSTER.JAM", "TEST", "payload", asyncContext);
+    }
+
+    private ManagerWsNodeServiceImpl createService(final Map<String, Long> delays, final String timeout) {
+
+        final ServletContext servletContext = context.mock(ServletContext.class, "servletContext");
+
+        final Map<String, String> params = new HashMap<String, String>();
+        params.put(NodeService.NODE_ID, "JAM");
+        params.put(NodeService.NODE_TYPE, "ADM");
+        params.put(NodeService.CLUSTER_ID, "TESTCLUSTER");
+
+        context.checking(new Expectations() {{
+            allowing(servletContext).getInitParameterNames(); will(returnValue(Collections.enumeration(params.keySet())));
+            for (final Map.Entry<String, String> param : params.entrySet()) {
+                allowing(servletContext).getInitParameter(param.getKey()); will(returnValue(param.getValue()));
+            }
+        }});
+
+        // Stubs instead of mocks since channels are invoked from executor threads
+        final WsClientAbstractFactory factory = new WsClientAbstractFactory() {
+            @Override
+            public <S> WsClientFactory<S> getFactory(final Class<S> service,
+                                                     final String userName,
+                                                     final String password,
+                                                     final boolean hashed,
+                                                     final String url,
+                                                     final long timeout) {
+                return (WsClientFactory<S>) new WsClientFactory<WebServiceInboundChannel>() {
+                    @Override
+                    public WebServiceInboundChannel getService() {
+                        return new DelayedChannel(url, delays.get(url));
+                    }
+
+                    @Override
+                    public void release(final WebServiceInboundChannel service) {
+                        // nothing to release
+                    }
+                };
+            }
+        };
+
+        final Map<String, String> configuration = Collections.singletonMap("TEST_TIMEOUT", timeout);
+
+        final ManagerWsNodeServiceImpl service = new ManagerWsNodeServiceImpl(null, factory) {
+            @Override
+            public Map<String, String> getConfiguration() {
+                return configuration;
+            }
+        };
+        service.setBroadcastExecutor(executor);
+        service.setWsConfigurationLoader(new NodeConfigurationXStreamProvider());
+        service.setWsConfiguration(new FileSystemResource("src/test/resources/cluster.xml"));
+        service.setServletContext(servletContext);
+
+        assertEquals(2, service.getSfNodes().size());
+
+        return service;
+    }
+
+    private static final class DelayedChannel implements WebServiceInboundChannel {
+
+        private final String url;
+        private final long delay;
+
+        private DelayedChannel(final String url, final long delay) {
+            this.url = url;
+            this.delay = delay;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public WsMessage accept(final WsMessage inbound) {
+            if (delay > 0L) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new javax.xml.ws.WebServiceException("Interrupted", ie);
+                }
+            }
+            final WsMessage rsp = new WsMessage();
+            rsp.setSource(YES0.equals(url) ? "TESTCLUSTER.YES0" : "TESTCLUSTER.YES1");
+            rsp.setSubject(inbound.getSubject());
+            rsp.setPayload(inbound.getPayload());
+            return rsp;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void ping() {
+            // not used
+        }
+
+    }
+
+}
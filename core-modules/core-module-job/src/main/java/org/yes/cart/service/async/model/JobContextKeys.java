@@ -29,6 +29,10 @@ public interface JobContextKeys {
     String NODE_FULL_PRODUCT_INDEX_STATE = "nodeIndexState";
     /** Long shop PK for the shop which products need reindexing */
     String NODE_FULL_PRODUCT_INDEX_SHOP = "nodeIndexShop";
+    /** Integer batch size override for full index */
+    String NODE_FULL_PRODUCT_INDEX_BATCH_SIZE = "nodeIndexBatchSize";
+    /** Integer number of parallel workers override for full index */
+    String NODE_FULL_PRODUCT_INDEX_WORKERS = "nodeIndexWorkers";
 
     //-- IMPORT/EXPORT JOBS ----------------------------------//
 
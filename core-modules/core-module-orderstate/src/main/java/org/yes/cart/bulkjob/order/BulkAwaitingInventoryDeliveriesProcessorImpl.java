@@ -18,6 +18,7 @@ package org.yes.cart.bulkjob.order;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.yes.cart.bulkjob.cron.AbstractLastRunDependentProcessorImpl;
 import org.yes.cart.domain.entity.CustomerOrder;
 import org.yes.cart.domain.entity.CustomerOrderDelivery;
@@ -30,9 +31,10 @@ import org.yes.cart.service.order.OrderStateManager;
 import org.yes.cart.service.order.impl.OrderEventImpl;
 import org.yes.cart.util.log.Markers;
 
-import java.util.Arrays;
-import java.util.Date;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Processor that scrolls though all order deliveries that are waiting for
@@ -40,7 +42,19 @@ import java.util.List;
  * is not available.
  *
  * Last time this job runs is stored in system preferences: JOB_DEL_WAITING_INV_LAST_RUN
- * So that next run we only scan inventory that has changed since last job run.
+ * So that next run we only scan inventory that has changed since last job run and only
+ * deliveries that contain SKU with changed inventory are retried.
+ *
+ * Each delivery is processed in its own transaction (processDeliveryEvent is proxied with
+ * PROPAGATION_REQUIRES_NEW, whereas job run itself is PROPAGATION_NOT_SUPPORTED).
+ *
+ * Deliveries are grouped by inventory they compete for: deliveries of the same order and of
+ * orders that require the same SKU form one group, which is always processed oldest delivery
+ * first by a single worker. If delivery executor is set groups are processed concurrently.
+ * If delivery fails with unexpected error the rest of its group is deferred and the group
+ * is retried once, oldest delivery first, after all groups are processed. If retry fails as
+ * well (or deliveries could not be processed at all) last run is not updated, so that next
+ * run rescans the same inventory changes and deliveries left behind are retried.
  *
  * User: denispavlov
  * Date: 07/11/2013
@@ -57,6 +71,8 @@ public class BulkAwaitingInventoryDeliveriesProcessorImpl extends AbstractLastRu
     private final OrderStateManager orderStateManager;
     private final SkuWarehouseService skuWarehouseService;
 
+    private AsyncTaskExecutor deliveryExecutor;
+
     public BulkAwaitingInventoryDeliveriesProcessorImpl(final CustomerOrderService customerOrderService,
                                                         final OrderStateManager orderStateManager,
                                                         final SkuWarehouseService skuWarehouseService,
@@ -83,7 +99,8 @@ public class BulkAwaitingInventoryDeliveriesProcessorImpl extends AbstractLastRu
 
         final int allocWaiting = processAwaitingOrders(null,
                 CustomerOrderDelivery.DELIVERY_STATUS_ALLOCATION_WAIT,
-                OrderStateManager.EVT_PROCESS_ALLOCATION);
+                OrderStateManager.EVT_PROCESS_ALLOCATION,
+                new AtomicBoolean(false)); // all deliveries are scanned every run
 
         LOG.info("Transitioned {} deliveries awaiting allocation", allocWaiting);
 
@@ -91,7 +108,8 @@ public class BulkAwaitingInventoryDeliveriesProcessorImpl extends AbstractLastRu
 
         final int dateWaiting = processAwaitingOrders(null,
                 CustomerOrderDelivery.DELIVERY_STATUS_DATE_WAIT,
-                OrderStateManager.EVT_DELIVERY_ALLOWED_TIMEOUT);
+                OrderStateManager.EVT_DELIVERY_ALLOWED_TIMEOUT,
+                new AtomicBoolean(false)); // all deliveries are scanned every run
 
 
         LOG.info("Transitioned {} deliveries awaiting preorder start date", dateWaiting);
@@ -99,18 +117,26 @@ public class BulkAwaitingInventoryDeliveriesProcessorImpl extends AbstractLastRu
         LOG.info("Check orders awaiting inventory");
 
         final int inventoryWaiting;
+        final AtomicBoolean inventoryIncomplete = new AtomicBoolean(false);
         final List<String> skuChanged = skuWarehouseService.findProductSkuForWhichInventoryChangedAfter(lastRun);
         if (skuChanged.isEmpty()) {
             inventoryWaiting = 0;
         } else {
-            inventoryWaiting = processAwaitingOrders(null,
+            inventoryWaiting = processAwaitingOrders(skuChanged,
                     CustomerOrderDelivery.DELIVERY_STATUS_INVENTORY_WAIT,
-                    OrderStateManager.EVT_DELIVERY_ALLOWED_QUANTITY);
+                    OrderStateManager.EVT_DELIVERY_ALLOWED_QUANTITY,
+                    inventoryIncomplete);
         }
         LOG.info("Transitioned {} deliveries awaiting inventory", inventoryWaiting);
 
         LOG.info("Check orders awaiting preorder start date ... completed");
 
+        if (inventoryIncomplete.get()) {
+            // Only deliveries with SKU changed after last run are scanned, so keep last run to retry them
+            LOG.warn("Not all deliveries awaiting inventory were processed, inventory changes after {} are rescanned next run", lastRun);
+            return false;
+        }
+
         return true;
     }
 
@@ -121,49 +147,139 @@ public class BulkAwaitingInventoryDeliveriesProcessorImpl extends AbstractLastRu
      * @param productSkus          SKU's for which inventory changes since the last run
      * @param status               status of delivery
      * @param event                what event to look for
+     * @param incomplete           set to true if some deliveries were left unprocessed due to unexpected error
      *
      * @return quantity of processed deliveries
      */
     int processAwaitingOrders(final List<String> productSkus,
                               final String status,
-                              final String event) {
+                              final String event,
+                              final AtomicBoolean incomplete) {
 
         int cnt = 0;
 
-        final List<Long> awaitingDeliveries = customerOrderService.findAwaitingDeliveriesIds(
-                productSkus,
-                status,
-                Arrays.asList(CustomerOrder.ORDER_STATUS_IN_PROGRESS, CustomerOrder.ORDER_STATUS_PARTIALLY_SHIPPED));
+        try {
 
+            final List<List<Long>> awaitingDeliveries = customerOrderService.findAwaitingDeliveriesIdsGroupedBySku(
+                    productSkus,
+                    status,
+                    Arrays.asList(CustomerOrder.ORDER_STATUS_IN_PROGRESS, CustomerOrder.ORDER_STATUS_PARTIALLY_SHIPPED));
 
-        try {
-            for (final Long deliveryId : awaitingDeliveries) {
+            final BulkAwaitingInventoryDeliveriesProcessorInternal proxy = proxy();
+            final List<List<Long>> deferred = Collections.synchronizedList(new ArrayList<List<Long>>());
+
+            if (deliveryExecutor == null || awaitingDeliveries.size() < 2) {
+
+                for (final List<Long> groupDeliveries : awaitingDeliveries) {
+                    cnt += processGroupDeliveries(proxy, event, groupDeliveries, deferred, incomplete);
+                }
+
+            } else {
+
+                // groups with oldest deliveries are submitted first
+                final List<Future<Integer>> groups = new ArrayList<Future<Integer>>(awaitingDeliveries.size());
+                for (final List<Long> groupDeliveries : awaitingDeliveries) {
+                    groups.add(deliveryExecutor.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws Exception {
+                            return processGroupDeliveries(proxy, event, groupDeliveries, deferred, incomplete);
+                        }
+                    }));
+                }
 
-                try {
-                    // We want to isolate delivery updates, since we want to process others if one fails
-                    proxy().processDeliveryEvent(event, deliveryId);
+                for (final Future<Integer> group : groups) {
+                    cnt += group.get();
+                }
 
-                } catch (OrderException oexp) {
+            }
 
-                    LOG.warn("Cannot process delivery " + deliveryId + ", caused: " + oexp.getMessage());
+            if (!deferred.isEmpty()) {
 
-                } catch (Exception exp) {
+                // Retry groups oldest first, so that inventory is still allocated in FIFO order
+                final List<List<Long>> retry = new ArrayList<List<Long>>(deferred);
+                Collections.sort(retry, new Comparator<List<Long>>() {
+                    @Override
+                    public int compare(final List<Long> group1, final List<Long> group2) {
+                        return group1.get(0).compareTo(group2.get(0));
+                    }
+                });
 
-                    LOG.error(Markers.alert(), "Awaiting delivery processor failed for: " + deliveryId, exp);
+                LOG.info("Retrying {} deferred delivery groups sequentially", retry.size());
 
+                for (final List<Long> groupDeliveries : retry) {
+                    cnt += processGroupDeliveries(proxy, event, groupDeliveries, null, incomplete);
                 }
 
             }
+
         } catch (Exception exp){
+            incomplete.set(true);
             LOG.error(exp.getMessage(), exp);
         }
 
         return cnt;
     }
 
+    /**
+     * Process deliveries that compete for the same inventory in sequence. If delivery fails with
+     * unexpected error the rest of the group is not processed, so that younger deliveries do not
+     * take inventory of the older one.
+     *
+     * @param proxy           transactional proxy
+     * @param event           what event to look for
+     * @param groupDeliveries deliveries of the same group, oldest first
+     * @param deferred        failed delivery and the rest of its group are added here for retry,
+     *                        null if this is the retry (rest of the group waits for next run)
+     * @param incomplete      set to true if retry fails
+     *
+     * @return quantity of transitioned deliveries
+     */
+    private int processGroupDeliveries(final BulkAwaitingInventoryDeliveriesProcessorInternal proxy,
+                                       final String event,
+                                       final List<Long> groupDeliveries,
+                                       final List<List<Long>> deferred,
+                                       final AtomicBoolean incomplete) {
+
+        int cnt = 0;
+
+        for (int i = 0; i < groupDeliveries.size(); i++) {
+
+            final Long deliveryId = groupDeliveries.get(i);
+
+            try {
+                // We want to isolate delivery updates, since we want to process others if one fails
+                if (proxy.processDeliveryEvent(event, deliveryId)) {
+                    cnt++;
+                }
+
+            } catch (OrderException oexp) {
+
+                LOG.warn("Cannot process delivery " + deliveryId + ", caused: " + oexp.getMessage());
+
+            } catch (Exception exp) {
+
+                LOG.error(Markers.alert(), "Awaiting delivery processor failed for: " + deliveryId, exp);
+                final List<Long> rest = new ArrayList<Long>(groupDeliveries.subList(i, groupDeliveries.size()));
+                if (deferred != null) {
+                    deferred.add(rest);
+                } else {
+                    incomplete.set(true);
+                    if (rest.size() > 1) {
+                        LOG.warn("Deliveries {} wait for failed delivery {} until next run", rest.subList(1, rest.size()), deliveryId);
+                    }
+                }
+                break;
+
+            }
+
+        }
+
+        return cnt;
+    }
+
     /** {@inheritDoc} */
     @Override
-    public void processDeliveryEvent(final String event, final long deliveryId) throws OrderException {
+    public boolean processDeliveryEvent(final String event, final long deliveryId) throws OrderException {
 
         final CustomerOrderDelivery delivery = customerOrderService.findDelivery(deliveryId);
 
@@ -172,8 +288,10 @@ public class BulkAwaitingInventoryDeliveriesProcessorImpl extends AbstractLastRu
 
             customerOrderService.update(delivery.getCustomerOrder());
             LOG.info("Updated customer order {} delivery {}", delivery.getCustomerOrder().getOrdernum(), delivery.getDeliveryNum());
+            return true;
 
         }
+        return false;
     }
 
     private BulkAwaitingInventoryDeliveriesProcessorInternal proxy;
@@ -194,5 +312,15 @@ public class BulkAwaitingInventoryDeliveriesProcessorImpl extends AbstractLastRu
         return null;
     }
 
+    /**
+     * Spring IoC.
+     *
+     * @param deliveryExecutor executor for processing orders concurrently, if not set
+     *                         deliveries are processed sequentially in the calling thread
+     */
+    public void setDeliveryExecutor(final AsyncTaskExecutor deliveryExecutor) {
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
 
 }
@@ -30,7 +30,9 @@ public interface BulkAwaitingInventoryDeliveriesProcessorInternal extends Runnab
      *
      * @param event event to process
      * @param deliveryId delivery to update
+     *
+     * @return true if delivery was transitioned
      */
-    void processDeliveryEvent(final String event, final long deliveryId) throws OrderException;
+    boolean processDeliveryEvent(final String event, final long deliveryId) throws OrderException;
 
 }
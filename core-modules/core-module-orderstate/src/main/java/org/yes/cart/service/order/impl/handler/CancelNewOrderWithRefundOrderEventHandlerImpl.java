@@ -23,6 +23,7 @@ import org.yes.cart.service.domain.ProductService;
 import org.yes.cart.service.domain.WarehouseService;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderException;
 import org.yes.cart.service.order.PGDisabledException;
 import org.yes.cart.service.payment.PaymentProcessor;
@@ -30,6 +31,7 @@ import org.yes.cart.service.payment.PaymentProcessorFactory;
 import org.yes.cart.shoppingcart.InventoryResolver;
 
 import java.util.Collections;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Cancel new order transition with funds return.
@@ -71,7 +73,8 @@ public class CancelNewOrderWithRefundOrderEventHandlerImpl extends CancelOrderEv
      */
     @Override
     public boolean handle(final OrderEvent orderEvent) throws OrderException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
 
             final CustomerOrder order = orderEvent.getCustomerOrder();
 
@@ -94,6 +97,8 @@ public class CancelNewOrderWithRefundOrderEventHandlerImpl extends CancelOrderEv
             } // else we have offline payment, so no money yet
 
             return super.handle(orderEvent);
+        } finally {
+            orderLock.unlock();
         }
     }
 
@@ -23,6 +23,7 @@ import org.yes.cart.service.domain.ProductService;
 import org.yes.cart.service.domain.WarehouseService;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderException;
 import org.yes.cart.shoppingcart.InventoryResolver;
 import org.yes.cart.util.MoneyUtils;
@@ -30,7 +31,9 @@ import org.yes.cart.util.log.Markers;
 
 import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -63,10 +66,13 @@ public class CancelOrderEventHandlerImpl extends AbstractOrderEventHandlerImpl i
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderException  {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
             creditQuantity(orderEvent.getCustomerOrder());
             handleInternal(orderEvent);
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
@@ -117,7 +123,7 @@ public class CancelOrderEventHandlerImpl extends AbstractOrderEventHandlerImpl i
             final Map<String, Warehouse> warehouseByCode = warehouseService.getByShopIdMapped(
                     delivery.getCustomerOrder().getShop().getShopId(), false);
 
-            for (CustomerOrderDeliveryDet det : delivery.getDetail()) {
+            for (CustomerOrderDeliveryDet det : OrderEventLocks.inInventoryLockOrder(Collections.singletonList(delivery))) {
 
                 final String skuCode = det.getProductSkuCode();
                 final BigDecimal toCredit = det.getQty();
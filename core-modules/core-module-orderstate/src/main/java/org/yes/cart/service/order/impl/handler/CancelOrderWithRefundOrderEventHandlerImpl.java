@@ -24,6 +24,7 @@ import org.yes.cart.service.domain.ProductService;
 import org.yes.cart.service.domain.WarehouseService;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderException;
 import org.yes.cart.service.order.PGDisabledException;
 import org.yes.cart.service.payment.PaymentProcessor;
@@ -31,6 +32,7 @@ import org.yes.cart.service.payment.PaymentProcessorFactory;
 import org.yes.cart.shoppingcart.InventoryResolver;
 
 import java.util.Collections;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Cancel order transition with funds return.
@@ -81,7 +83,8 @@ public class CancelOrderWithRefundOrderEventHandlerImpl extends CancelOrderEvent
      */
     @Override
     public boolean handle(final OrderEvent orderEvent) throws OrderException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
             final CustomerOrder order = orderEvent.getCustomerOrder();
 
             final Shop pgShop = order.getShop().getMaster() != null ? order.getShop().getMaster() : order.getShop();
@@ -111,6 +114,8 @@ public class CancelOrderWithRefundOrderEventHandlerImpl extends CancelOrderEvent
 
             handleInternal(orderEvent);
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
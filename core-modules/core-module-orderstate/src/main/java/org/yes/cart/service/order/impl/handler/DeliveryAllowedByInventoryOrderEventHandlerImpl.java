@@ -23,10 +23,12 @@ import org.yes.cart.service.domain.ProductService;
 import org.yes.cart.service.domain.WarehouseService;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderItemAllocationException;
 import org.yes.cart.shoppingcart.InventoryResolver;
 
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -58,7 +60,8 @@ public class DeliveryAllowedByInventoryOrderEventHandlerImpl extends ProcessAllo
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderItemAllocationException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
 
             final CustomerOrderDelivery orderDelivery = orderEvent.getCustomerOrderDelivery();
 
@@ -100,6 +103,8 @@ public class DeliveryAllowedByInventoryOrderEventHandlerImpl extends ProcessAllo
                 }
             }
             return super.handle(orderEvent);
+        } finally {
+            orderLock.unlock();
         }
     }
 
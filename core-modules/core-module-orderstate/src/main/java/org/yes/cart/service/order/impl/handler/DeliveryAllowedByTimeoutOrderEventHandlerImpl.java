@@ -25,12 +25,14 @@ import org.yes.cart.domain.entity.Product;
 import org.yes.cart.service.domain.ProductService;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderException;
 import org.yes.cart.service.order.OrderStateManager;
 import org.yes.cart.service.order.impl.OrderEventImpl;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Perform transition from time  wait to inventory wait state.
@@ -54,7 +56,8 @@ public class DeliveryAllowedByTimeoutOrderEventHandlerImpl implements OrderEvent
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent)  throws OrderException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
             final Date now = getCurrentDate();
 
             final Collection<CustomerOrderDeliveryDet> deliveryDetails = orderEvent.getCustomerOrderDelivery().getDetail();
@@ -72,6 +75,8 @@ public class DeliveryAllowedByTimeoutOrderEventHandlerImpl implements OrderEvent
             getOrderStateManager().fireTransition(new OrderEventImpl(orderEvent, OrderStateManager.EVT_DELIVERY_ALLOWED_QUANTITY, orderEvent.getCustomerOrder(), orderEvent.getCustomerOrderDelivery()));
 
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
@@ -19,6 +19,9 @@ package org.yes.cart.service.order.impl.handler;
 import org.yes.cart.domain.entity.CustomerOrderDelivery;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
+
+import java.util.concurrent.locks.Lock;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -31,9 +34,12 @@ public class PackCompleteOrderEventHandlerImpl implements OrderEventHandler {
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
             orderEvent.getCustomerOrderDelivery().setDeliveryStatus(CustomerOrderDelivery.DELIVERY_STATUS_SHIPMENT_READY);
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
@@ -19,6 +19,9 @@ package org.yes.cart.service.order.impl.handler;
 import org.yes.cart.domain.entity.CustomerOrder;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
+
+import java.util.concurrent.locks.Lock;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -31,9 +34,12 @@ public class PaymentOfflineOrderEventHandlerImpl extends AbstractOrderEventHandl
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
             handleInternal(orderEvent);
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
@@ -25,12 +25,14 @@ import org.yes.cart.domain.entity.CustomerOrder;
 import org.yes.cart.domain.entity.CustomerOrderDelivery;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderException;
 import org.yes.cart.service.order.OrderStateManager;
 import org.yes.cart.service.order.impl.OrderEventImpl;
 
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Perform separate processing of order deliveries.
@@ -77,7 +79,8 @@ public class PaymentOkOrderEventHandlerImpl extends AbstractOrderEventHandlerImp
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
             handleInternal(orderEvent);
             CustomerOrder order = orderEvent.getCustomerOrder();
 
@@ -108,6 +111,8 @@ public class PaymentOkOrderEventHandlerImpl extends AbstractOrderEventHandlerImp
                 }
             }
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
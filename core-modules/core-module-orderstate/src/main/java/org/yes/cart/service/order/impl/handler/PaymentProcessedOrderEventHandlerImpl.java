@@ -27,6 +27,8 @@ import org.yes.cart.service.order.impl.OrderEventImpl;
 import org.yes.cart.service.payment.PaymentProcessor;
 import org.yes.cart.service.payment.PaymentProcessorFactory;
 
+import java.util.concurrent.locks.Lock;
+
 /**
  * Handles payment callbacks if payment AUTH or AUTH_CAPTURE was in processing state.
  * <p/>
@@ -67,7 +69,8 @@ public class PaymentProcessedOrderEventHandlerImpl extends AbstractOrderEventHan
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
 
             final CustomerOrder order = orderEvent.getCustomerOrder();
 
@@ -97,6 +100,8 @@ public class PaymentProcessedOrderEventHandlerImpl extends AbstractOrderEventHan
             }
 
             return handled;
+        } finally {
+            orderLock.unlock();
         }
     }
 
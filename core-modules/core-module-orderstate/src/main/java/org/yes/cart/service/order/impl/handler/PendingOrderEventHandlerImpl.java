@@ -32,9 +32,8 @@ import org.yes.cart.util.DomainApiUtils;
 import org.yes.cart.util.MoneyUtils;
 
 import java.math.BigDecimal;
-import java.util.Collection;
-import java.util.Date;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Initial {@link CustomerOrder#ORDER_STATUS_PENDING} state.
@@ -88,11 +87,10 @@ public class PendingOrderEventHandlerImpl extends AbstractOrderEventHandlerImpl
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
 
-            for (CustomerOrderDelivery customerOrderDelivery : orderEvent.getCustomerOrder().getDelivery()) {
-                reserveQuantity(customerOrderDelivery);
-            }
+            reserveQuantity(orderEvent.getCustomerOrder());
             handleInternal(orderEvent);
 
             final CustomerOrder order = orderEvent.getCustomerOrder();
@@ -125,28 +123,42 @@ public class PendingOrderEventHandlerImpl extends AbstractOrderEventHandlerImpl
             }
 
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
     /**
      * Allocate sku quantity on warehouses, that belong to shop, where order was made.
+     * <p/>
+     * Items of all deliveries are reserved in canonical inventory order (see
+     * {@link OrderEventLocks#inInventoryLockOrder(Collection)}) so that concurrent orders
+     * acquire inventory row locks in the same order.
      *
-     * @param orderDelivery reserve for this delivery
+     * @param order reserve for all deliveries of this order
      * @throws OrderItemAllocationException in case if can not allocate quantity for each sku
      */
-    void reserveQuantity(final CustomerOrderDelivery orderDelivery) throws OrderItemAllocationException {
+    void reserveQuantity(final CustomerOrder order) throws OrderItemAllocationException {
 
-        if (!CustomerOrderDelivery.ELECTRONIC_DELIVERY_GROUP.equals(orderDelivery.getDeliveryGroup())) {
+        final List<CustomerOrderDelivery> inventoryDeliveries = new ArrayList<CustomerOrderDelivery>();
+        for (final CustomerOrderDelivery orderDelivery : order.getDelivery()) {
+            if (!CustomerOrderDelivery.ELECTRONIC_DELIVERY_GROUP.equals(orderDelivery.getDeliveryGroup())) {
+                inventoryDeliveries.add(orderDelivery);
+            }
+        }
 
-            final Collection<CustomerOrderDeliveryDet> deliveryDetails = orderDelivery.getDetail();
+        if (!inventoryDeliveries.isEmpty()) {
+
+            final Collection<CustomerOrderDeliveryDet> deliveryDetails = OrderEventLocks.inInventoryLockOrder(inventoryDeliveries);
 
             final Map<String, Warehouse> warehouseByCode = warehouseService.getByShopIdMapped(
-                    orderDelivery.getCustomerOrder().getShop().getShopId(), false);
+                    order.getShop().getShopId(), false);
 
             final Date now = now();
 
             for (CustomerOrderDeliveryDet det : deliveryDetails) {
 
+                final CustomerOrderDelivery orderDelivery = det.getDelivery();
                 final Product product = productService.getProductBySkuCode(det.getProductSkuCode());
                 // there may not be this product anymore potentially, so it can be null
                 // Null products are treated as AVAILABILITY_STANDARD
@@ -199,7 +211,9 @@ public class PendingOrderEventHandlerImpl extends AbstractOrderEventHandlerImpl
                 }
             }
         }
-        orderDelivery.setDeliveryStatus(CustomerOrderDelivery.DELIVERY_STATUS_INVENTORY_RESERVED);
+        for (final CustomerOrderDelivery orderDelivery : order.getDelivery()) {
+            orderDelivery.setDeliveryStatus(CustomerOrderDelivery.DELIVERY_STATUS_INVENTORY_RESERVED);
+        }
 
     }
 
@@ -27,13 +27,16 @@ import org.yes.cart.service.domain.SkuWarehouseService;
 import org.yes.cart.service.domain.WarehouseService;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderItemAllocationException;
 import org.yes.cart.shoppingcart.InventoryResolver;
 import org.yes.cart.util.MoneyUtils;
 
 import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -69,9 +72,12 @@ public class ProcessAllocationOrderEventHandlerImpl implements OrderEventHandler
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderItemAllocationException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
             allocateQuantity(orderEvent.getCustomerOrderDelivery());
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
@@ -106,7 +112,8 @@ public class ProcessAllocationOrderEventHandlerImpl implements OrderEventHandler
 
         if (!CustomerOrderDelivery.ELECTRONIC_DELIVERY_GROUP.equals(orderDelivery.getDeliveryGroup())) {
 
-            final Collection<CustomerOrderDeliveryDet> deliveryDetails = orderDelivery.getDetail();
+            final Collection<CustomerOrderDeliveryDet> deliveryDetails =
+                    OrderEventLocks.inInventoryLockOrder(Collections.singletonList(orderDelivery));
 
             final Map<String, Warehouse> warehouseByCode = warehouseService.getByShopIdMapped(
                     orderDelivery.getCustomerOrder().getShop().getShopId(), false);
@@ -21,11 +21,14 @@ import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.payment.dto.Payment;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderException;
 import org.yes.cart.service.order.PGDisabledException;
 import org.yes.cart.service.payment.PaymentProcessor;
 import org.yes.cart.service.payment.PaymentProcessorFactory;
 
+import java.util.concurrent.locks.Lock;
+
 /**
  * Handle pending refunds for cancelled and returned orders.
  * <p/>
@@ -50,7 +53,8 @@ public class RefundProcessedOrderEventHandlerImpl extends AbstractOrderEventHand
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
 
             final CustomerOrder order = orderEvent.getCustomerOrder();
 
@@ -71,6 +75,8 @@ public class RefundProcessedOrderEventHandlerImpl extends AbstractOrderEventHand
             }
 
             return handled;
+        } finally {
+            orderLock.unlock();
         }
     }
 
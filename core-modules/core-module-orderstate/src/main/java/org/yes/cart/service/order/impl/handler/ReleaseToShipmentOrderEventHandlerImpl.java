@@ -22,11 +22,14 @@ import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.payment.dto.Payment;
 import org.yes.cart.service.order.OrderEvent;
 import org.yes.cart.service.order.OrderEventHandler;
+import org.yes.cart.service.order.OrderEventLocks;
 import org.yes.cart.service.order.OrderException;
 import org.yes.cart.service.order.PGDisabledException;
 import org.yes.cart.service.payment.PaymentProcessor;
 import org.yes.cart.service.payment.PaymentProcessorFactory;
 
+import java.util.concurrent.locks.Lock;
+
 /**
  * User: Igor Azarny iazarny@yahoo.com
  * Date: 09-May-2011
@@ -50,7 +53,8 @@ public class ReleaseToShipmentOrderEventHandlerImpl implements OrderEventHandler
      * {@inheritDoc}
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderException {
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
 
             final CustomerOrder order = orderEvent.getCustomerOrder();
             final CustomerOrderDelivery delivery = orderEvent.getCustomerOrderDelivery();
@@ -110,6 +114,8 @@ public class ReleaseToShipmentOrderEventHandlerImpl implements OrderEventHandler
             }
 
             return true;
+        } finally {
+            orderLock.unlock();
         }
     }
 
@@ -36,6 +36,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 /**
  * User: denispavlov
@@ -91,7 +92,8 @@ public class DeliveryUpdateOrderEventHandlerImpl implements OrderEventHandler, A
      */
     public boolean handle(final OrderEvent orderEvent) throws OrderException {
 
-        synchronized (OrderEventHandler.syncMonitor) {
+        final Lock orderLock = OrderEventLocks.lock(orderEvent);
+        try {
 
             final CustomerOrder customerOrder = orderEvent.getCustomerOrder();
             final OrderDeliveryStatusUpdate update = (OrderDeliveryStatusUpdate) orderEvent.getParams().get("update");
@@ -334,6 +336,8 @@ public class DeliveryUpdateOrderEventHandlerImpl implements OrderEventHandler, A
             }
 
             return false; // no update
+        } finally {
+            orderLock.unlock();
         }
     }
 
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.bulkjob.order;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.Sequence;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.yes.cart.domain.entity.CustomerOrder;
+import org.yes.cart.domain.entity.CustomerOrderDelivery;
+import org.yes.cart.service.domain.CustomerOrderService;
+import org.yes.cart.service.domain.SkuWarehouseService;
+import org.yes.cart.service.domain.SystemService;
+import org.yes.cart.service.order.OrderException;
+import org.yes.cart.service.order.OrderStateManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 21:10
+ */
+public class BulkAwaitingInventoryDeliveriesProcessorImplDispatchTest {
+
+    private static final String EVT = "evt.test";
+    private static final List<String> SKU = Arrays.asList("SKU-1", "SKU-2");
+    private static final List<String> ORDER_STATUS = Arrays.asList(CustomerOrder.ORDER_STATUS_IN_PROGRESS, CustomerOrder.ORDER_STATUS_PARTIALLY_SHIPPED);
+    private static final String LAST_RUN_PREF = "JOB_DELWAITINV_LR";
+
+    private final Mockery context = new JUnit4Mockery();
+
+    private CustomerOrderService customerOrderService;
+    private SkuWarehouseService skuWarehouseService;
+    private SystemService systemService;
+    private BulkAwaitingInventoryDeliveriesProcessorInternal proxy;
+    private BulkAwaitingInventoryDeliveriesProcessorImpl processor;
+    private int submitted;
+
+    @Before
+    public void setUp() throws Exception {
+
+        customerOrderService = context.mock(CustomerOrderService.class, "customerOrderService");
+        skuWarehouseService = context.mock(SkuWarehouseService.class, "skuWarehouseService");
+        systemService = context.mock(SystemService.class, "systemService");
+        proxy = context.mock(BulkAwaitingInventoryDeliveriesProcessorInternal.class, "proxy");
+
+        processor = new BulkAwaitingInventoryDeliveriesProcessorImpl(customerOrderService, null, skuWarehouseService, systemService, null) {
+            @Override
+            public BulkAwaitingInventoryDeliveriesProcessorInternal getSelfProxy() {
+                return proxy;
+            }
+        };
+
+        submitted = 0;
+
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        context.assertIsSatisfied();
+    }
+
+    private void withExecutor() {
+
+        // run groups in calling thread, so that sequence of deliveries is deterministic
+        processor.setDeliveryExecutor(new TaskExecutorAdapter(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                submitted++;
+                command.run();
+            }
+        }));
+
+    }
+
+    private void expectGroups(final List<List<Long>> groups) {
+
+        context.checking(new Expectations() {{
+            oneOf(customerOrderService).findAwaitingDeliveriesIdsGroupedBySku(SKU, "DS", ORDER_STATUS); will(returnValue(groups));
+        }});
+
+    }
+
+    private void expectRun(final List<List<Long>> inventoryGroups) {
+
+        context.checking(new Expectations() {{
+            allowing(systemService).createOrGetAttributeValue(LAST_RUN_PREF, "Date"); will(returnValue("2017-10-18 10:00:00"));
+            oneOf(customerOrderService).findAwaitingDeliveriesIdsGroupedBySku(null, CustomerOrderDelivery.DELIVERY_STATUS_ALLOCATION_WAIT, ORDER_STATUS);
+            will(returnValue(Collections.emptyList()));
+            oneOf(customerOrderService).findAwaitingDeliveriesIdsGroupedBySku(null, CustomerOrderDelivery.DELIVERY_STATUS_DATE_WAIT, ORDER_STATUS);
+            will(returnValue(Collections.emptyList()));
+            oneOf(skuWarehouseService).findProductSkuForWhichInventoryChangedAfter(with(any(Date.class))); will(returnValue(SKU));
+            oneOf(customerOrderService).findAwaitingDeliveriesIdsGroupedBySku(SKU, CustomerOrderDelivery.DELIVERY_STATUS_INVENTORY_WAIT, ORDER_STATUS);
+            will(returnValue(inventoryGroups));
+        }});
+
+    }
+
+    @Test
+    public void testProcessAwaitingOrdersGroupPerWorkerOldestFirst() throws Exception {
+
+        withExecutor();
+        expectGroups(Arrays.asList(Arrays.asList(1L, 3L), Arrays.asList(2L), Arrays.asList(4L, 5L)));
+
+        final Sequence deliveries = context.sequence("deliveries");
+        context.checking(new Expectations() {{
+            oneOf(proxy).processDeliveryEvent(EVT, 1L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 3L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 2L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 4L); inSequence(deliveries); will(returnValue(false));
+            oneOf(proxy).processDeliveryEvent(EVT, 5L); inSequence(deliveries); will(returnValue(true));
+        }});
+
+        final AtomicBoolean incomplete = new AtomicBoolean(false);
+        assertEquals(4, processor.processAwaitingOrders(SKU, "DS", EVT, incomplete));
+        assertEquals(3, submitted);
+        assertFalse(incomplete.get());
+
+    }
+
+    @Test
+    public void testProcessAwaitingOrdersSingleGroupInCallingThread() throws Exception {
+
+        withExecutor();
+        expectGroups(Arrays.asList(Arrays.asList(1L, 2L)));
+
+        final Sequence deliveries = context.sequence("deliveries");
+        context.checking(new Expectations() {{
+            oneOf(proxy).processDeliveryEvent(EVT, 1L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 2L); inSequence(deliveries); will(returnValue(true));
+        }});
+
+        final AtomicBoolean incomplete = new AtomicBoolean(false);
+        assertEquals(2, processor.processAwaitingOrders(SKU, "DS", EVT, incomplete));
+        assertEquals(0, submitted);
+        assertFalse(incomplete.get());
+
+    }
+
+    @Test
+    public void testProcessAwaitingOrdersOrderExceptionDoesNotStopGroup() throws Exception {
+
+        expectGroups(Arrays.asList(Arrays.asList(1L, 2L), Arrays.asList(3L)));
+
+        final Sequence deliveries = context.sequence("deliveries");
+        context.checking(new Expectations() {{
+            oneOf(proxy).processDeliveryEvent(EVT, 1L); inSequence(deliveries); will(throwException(new OrderException("not allowed")));
+            oneOf(proxy).processDeliveryEvent(EVT, 2L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 3L); inSequence(deliveries); will(returnValue(true));
+        }});
+
+        final AtomicBoolean incomplete = new AtomicBoolean(false);
+        assertEquals(2, processor.processAwaitingOrders(SKU, "DS", EVT, incomplete));
+        assertFalse(incomplete.get());
+
+    }
+
+    @Test
+    public void testProcessAwaitingOrdersFailedDeliveryDefersRestOfGroup() throws Exception {
+
+        withExecutor();
+        expectGroups(Arrays.asList(Arrays.asList(1L, 2L, 3L), Arrays.asList(4L), Arrays.asList(5L, 6L)));
+
+        final Sequence deliveries = context.sequence("deliveries");
+        context.checking(new Expectations() {{
+            oneOf(proxy).processDeliveryEvent(EVT, 1L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 2L); inSequence(deliveries); will(throwException(new RuntimeException("stale")));
+            oneOf(proxy).processDeliveryEvent(EVT, 4L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 5L); inSequence(deliveries); will(throwException(new RuntimeException("stale")));
+            // retry oldest group first, 3 is never processed ahead of 2
+            oneOf(proxy).processDeliveryEvent(EVT, 2L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 3L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 5L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 6L); inSequence(deliveries); will(returnValue(true));
+        }});
+
+        final AtomicBoolean incomplete = new AtomicBoolean(false);
+        assertEquals(6, processor.processAwaitingOrders(SKU, "DS", EVT, incomplete));
+        assertEquals(3, submitted);
+        assertFalse(incomplete.get());
+
+    }
+
+    @Test
+    public void testProcessAwaitingOrdersRetryFailureLeavesRestOfGroupForNextRun() throws Exception {
+
+        expectGroups(Arrays.asList(Arrays.asList(1L, 2L), Arrays.asList(3L)));
+
+        final Sequence deliveries = context.sequence("deliveries");
+        context.checking(new Expectations() {{
+            oneOf(proxy).processDeliveryEvent(EVT, 1L); inSequence(deliveries); will(throwException(new RuntimeException("stale")));
+            oneOf(proxy).processDeliveryEvent(EVT, 3L); inSequence(deliveries); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(EVT, 1L); inSequence(deliveries); will(throwException(new RuntimeException("stale")));
+        }});
+
+        final AtomicBoolean incomplete = new AtomicBoolean(false);
+        assertEquals(1, processor.processAwaitingOrders(SKU, "DS", EVT, incomplete));
+        assertTrue(incomplete.get());
+
+    }
+
+    @Test
+    public void testProcessAwaitingOrdersLookupFailureIsIncomplete() throws Exception {
+
+        context.checking(new Expectations() {{
+            oneOf(customerOrderService).findAwaitingDeliveriesIdsGroupedBySku(SKU, "DS", ORDER_STATUS); will(throwException(new RuntimeException("db down")));
+        }});
+
+        final AtomicBoolean incomplete = new AtomicBoolean(false);
+        assertEquals(0, processor.processAwaitingOrders(SKU, "DS", EVT, incomplete));
+        assertTrue(incomplete.get());
+
+    }
+
+    @Test
+    public void testRunKeepsLastRunWhenDeliveriesLeftBehind() throws Exception {
+
+        expectRun(Arrays.asList(Arrays.asList(1L, 2L)));
+
+        context.checking(new Expectations() {{
+            exactly(2).of(proxy).processDeliveryEvent(OrderStateManager.EVT_DELIVERY_ALLOWED_QUANTITY, 1L); will(throwException(new RuntimeException("stale")));
+            never(systemService).updateAttributeValue(with(equal(LAST_RUN_PREF)), with(any(String.class)));
+        }});
+
+        processor.run();
+
+    }
+
+    @Test
+    public void testRunUpdatesLastRunWhenAllDeliveriesProcessed() throws Exception {
+
+        expectRun(Arrays.asList(Arrays.asList(1L, 2L)));
+
+        context.checking(new Expectations() {{
+            oneOf(proxy).processDeliveryEvent(OrderStateManager.EVT_DELIVERY_ALLOWED_QUANTITY, 1L); will(returnValue(true));
+            oneOf(proxy).processDeliveryEvent(OrderStateManager.EVT_DELIVERY_ALLOWED_QUANTITY, 2L); will(returnValue(false));
+            oneOf(systemService).updateAttributeValue(with(equal(LAST_RUN_PREF)), with(any(String.class)));
+        }});
+
+        processor.run();
+
+    }
+
+}
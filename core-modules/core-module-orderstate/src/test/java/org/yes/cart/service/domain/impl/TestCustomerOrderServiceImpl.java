@@ -168,6 +168,21 @@ public class TestCustomerOrderServiceImpl extends BaseCoreDBTestCase {
                 assertEquals(count[0], rezIds.size());
                 assertTrue(rezIds.contains(expected.get(0)));
 
+                final List<String> skuCodes = Arrays.asList(productSkuService.findById(15330L).getCode(), productSkuService.findById(15340L).getCode());
+                final List<Long> rezAllIds = customerOrderService.findAwaitingDeliveriesIds(
+                        skuCodes, CustomerOrderDelivery.DELIVERY_STATUS_DATE_WAIT,
+                        Arrays.asList(CustomerOrder.ORDER_STATUS_IN_PROGRESS));
+                final List<List<Long>> rezGroups = customerOrderService.findAwaitingDeliveriesIdsGroupedBySku(
+                        skuCodes, CustomerOrderDelivery.DELIVERY_STATUS_DATE_WAIT,
+                        Arrays.asList(CustomerOrder.ORDER_STATUS_IN_PROGRESS));
+                final Set<Long> rezGroupedIds = new HashSet<Long>();
+                for (final List<Long> group : rezGroups) {
+                    assertFalse(group.isEmpty());
+                    rezGroupedIds.addAll(group);
+                }
+                assertEquals(new HashSet<Long>(rezAllIds), rezGroupedIds);
+                assertTrue(rezGroupedIds.contains(expected.get(0)));
+
                 transactionStatus.setRollbackOnly();
             }
         });
@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yes.cart.bulkjob.cron.AbstractLastRunDependentProcessorImpl;
 import org.yes.cart.cache.CacheBundleHelper;
+import org.yes.cart.cache.CacheTagResolver;
 import org.yes.cart.cluster.node.NodeService;
 import org.yes.cart.constants.AttributeNamesKeys;
 import org.yes.cart.service.domain.ProductService;
@@ -155,7 +156,7 @@ public class ProductInventoryChangedProcessorImpl extends AbstractLastRunDepende
                 LOG.info("Reindexing inventory updates on {}, reindexed ALL", nodeId);
             }
 
-            flushCaches();
+            flushCaches(runBatch ? productSkus : null);
         }
 
         LOG.info("Reindexing inventory updates on {} ... completed", nodeId);
@@ -163,9 +164,22 @@ public class ProductInventoryChangedProcessorImpl extends AbstractLastRunDepende
         return true;
     }
 
-    protected void flushCaches() {
+    /**
+     * Flush product caches. If changes are small enough only entries that depend on changed SKU are evicted,
+     * so that unaffected products stay warm. Otherwise all bundle caches are flushed.
+     *
+     * @param skuCodes changed SKU codes or null if all products were reindexed
+     */
+    protected void flushCaches(final List<String> skuCodes) {
 
-        productCacheHelper.flushBundleCaches();
+        final int max = getCacheFlushMaxSize();
+        if (skuCodes == null || skuCodes.size() > max) {
+            LOG.info("Flushing all product caches (changed: {}, max for selective eviction: {})",
+                    skuCodes == null ? "ALL" : skuCodes.size(), max);
+            productCacheHelper.flushBundleCaches();
+        } else {
+            productCacheHelper.flushBundleCaches(CacheTagResolver.SKU_CODE, skuCodes);
+        }
 
     }
 
@@ -214,6 +228,10 @@ public class ProductInventoryChangedProcessorImpl extends AbstractLastRunDepende
         return NumberUtils.toInt(getSystemService().getAttributeValue(AttributeNamesKeys.System.JOB_PRODUCT_INVENTORY_FULL_THRESHOLD), 1000);
     }
 
+    protected int getCacheFlushMaxSize() {
+        return NumberUtils.toInt(getSystemService().getAttributeValue(AttributeNamesKeys.System.JOB_PRODUCT_INVENTORY_CACHE_FULL_THRESHOLD), 500);
+    }
+
     protected long getDeltaCheckDelay() {
         return NumberUtils.toLong(getSystemService().getAttributeValue(AttributeNamesKeys.System.JOB_PRODUCT_INVENTORY_UPDATE_DELTA_DELAY_SECONDS), 15) * 1000L;
     }
@@ -16,6 +16,8 @@
 
 package org.yes.cart.cache;
 
+import java.util.Collection;
+
 /**
  * User: denispavlov
  * Date: 17/07/2016
@@ -28,4 +30,13 @@ public interface CacheBundleHelper {
      */
     void flushBundleCaches();
 
+    /**
+     * Evict entries of bundle related caches that depend on given tags. Caches that do not keep
+     * tags of given type are flushed.
+     *
+     * @param tagType tag type (e.g. {@link CacheTagResolver#SKU_CODE})
+     * @param values  tag values (e.g. SKU codes)
+     */
+    void flushBundleCaches(String tagType, Collection<String> values);
+
 }
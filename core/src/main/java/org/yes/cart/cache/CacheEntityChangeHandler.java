@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.cache;
+
+import java.util.Collection;
+
+/**
+ * Handler that applies entity change to cache in place, so that cache entries do not have to be
+ * evicted and reloaded (e.g. large in memory structures that hold many entities).
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 19:45
+ */
+public interface CacheEntityChangeHandler {
+
+    /**
+     * Apply change of given entity to cache.
+     *
+     * @param cacheName  cache name
+     * @param entityName entity name
+     * @param pkValue    primary key of changed entity
+     *
+     * @return true if change was applied, false if cache entries that depend on this entity must be evicted
+     */
+    boolean onEntityChange(String cacheName, String entityName, Object pkValue);
+
+    /**
+     * Apply changes of given entities to cache in single pass.
+     *
+     * @param cacheName  cache name
+     * @param entityName entity name
+     * @param pkValues   primary keys of changed entities
+     *
+     * @return true if changes were applied, false if cache entries that depend on these entities must be evicted
+     */
+    boolean onEntityChanges(String cacheName, String entityName, Collection<?> pkValues);
+
+}
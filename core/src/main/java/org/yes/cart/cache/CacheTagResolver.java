@@ -0,0 +1,57 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.cache;
+
+import java.util.Set;
+
+/**
+ * Resolves dependency tags of cached values. Tag has form "EntityName:PK" where entity name is
+ * the same simple class name that is used in cache eviction configuration (e.g. "ProductEntity:10"),
+ * so that entity change event can be directly translated into tag eviction.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 17:05
+ */
+public interface CacheTagResolver {
+
+    /**
+     * Tag type for values that depend on SKU code (e.g. "SkuCode:BENDER-ua"). Used by processes that
+     * only know codes of changed SKU, such as inventory changes detection.
+     */
+    String SKU_CODE = "SkuCode";
+
+    /**
+     * Resolve tags for cached value.
+     *
+     * @param value cached value
+     * @param tags  tags to add to
+     *
+     * @return true if all dependencies of the value were resolved, false if value
+     *         cannot be (fully) tagged
+     */
+    boolean resolveTags(Object value, Set<String> tags);
+
+    /**
+     * @param entityName entity name
+     *
+     * @return true if changes of given entity can be expressed as tags by this resolver
+     */
+    boolean isTagged(String entityName);
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.cache;
+
+import java.util.Map;
+
+/**
+ * Cache manager that keeps dependency tags of entries for some caches, so that entity change
+ * evicts only entries that depend on it instead of clearing whole cache.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 17:08
+ */
+public interface TaggedCacheManager {
+
+    /**
+     * @param cacheName  cache name
+     * @param entityName entity name
+     *
+     * @return true if given cache keeps tags and changes of given entity can be evicted by tag
+     */
+    boolean isTagged(String cacheName, String entityName);
+
+    /**
+     * Evict all entries that carry given tag. Entries that could not be tagged are evicted as well.
+     *
+     * @param cacheName cache name
+     * @param tag       tag ("EntityName:PK")
+     *
+     * @return number of evicted entries
+     */
+    int evictByTag(String cacheName, String tag);
+
+    /**
+     * @param cacheName cache name
+     *
+     * @return number of evicted entries per tag type (entity name) or null if cache does not keep tags
+     */
+    Map<String, Long> getTagEvictions(String cacheName);
+
+}
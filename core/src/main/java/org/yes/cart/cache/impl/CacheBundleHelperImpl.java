@@ -21,7 +21,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.yes.cart.cache.CacheBundleHelper;
+import org.yes.cart.cache.TaggedCacheManager;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
 
@@ -48,6 +50,30 @@ public class CacheBundleHelperImpl implements CacheBundleHelper {
 
     }
 
+    @Override
+    public void flushBundleCaches(final String tagType, final Collection<String> values) {
+
+        for (final String cache : caches) {
+
+            if (cacheManager instanceof TaggedCacheManager
+                    && ((TaggedCacheManager) cacheManager).isTagged(cache, tagType)) {
+
+                int evicted = 0;
+                for (final String value : values) {
+                    evicted += ((TaggedCacheManager) cacheManager).evictByTag(cache, tagType + ":" + value);
+                }
+                LOG.debug("Evicted {} entries from cache {} for {} {} tags", new Object[] { evicted, cache, values.size(), tagType });
+
+            } else {
+
+                safeFlushCache(cache);
+
+            }
+
+        }
+
+    }
+
     private void safeFlushCache(final String cacheName) {
 
         final Cache cache = cacheManager.getCache(cacheName);
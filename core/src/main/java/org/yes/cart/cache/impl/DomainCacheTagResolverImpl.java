@@ -0,0 +1,136 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.cache.impl;
+
+import org.hibernate.Hibernate;
+import org.yes.cart.cache.CacheTagResolver;
+import org.yes.cart.domain.entity.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves tags for catalog entities: products, SKU, categories, shops and brands, SKU dependent
+ * prices and inventory, as well as collections and maps of those.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 17:25
+ */
+public class DomainCacheTagResolverImpl implements CacheTagResolver {
+
+    static final String PRODUCT = "ProductEntity";
+    static final String SKU = "ProductSkuEntity";
+    static final String CATEGORY = "CategoryEntity";
+    static final String SHOP = "ShopEntity";
+    static final String BRAND = "BrandEntity";
+
+    private static final Set<String> TAGGED = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList(PRODUCT, SKU, CATEGORY, SHOP, BRAND, SKU_CODE)));
+
+    /** {@inheritDoc} */
+    public boolean resolveTags(final Object value, final Set<String> tags) {
+
+        if (value instanceof Product) {
+
+            final Product product = (Product) value;
+            tags.add(PRODUCT + ":" + product.getProductId());
+            if (product.getBrand() != null) {
+                tags.add(BRAND + ":" + product.getBrand().getBrandId());
+            }
+            // detached product with uninitialised SKU cannot expose them, so there is no dependency
+            if (product.getSku() != null && Hibernate.isInitialized(product.getSku())) {
+                for (final ProductSku sku : product.getSku()) {
+                    tags.add(SKU + ":" + sku.getSkuId());
+                    tags.add(SKU_CODE + ":" + sku.getCode());
+                }
+            }
+            return true;
+
+        } else if (value instanceof ProductSku) {
+
+            final ProductSku sku = (ProductSku) value;
+            tags.add(SKU + ":" + sku.getSkuId());
+            tags.add(SKU_CODE + ":" + sku.getCode());
+            if (sku.getProduct() != null) {
+                tags.add(PRODUCT + ":" + sku.getProduct().getProductId());
+            }
+            return true;
+
+        } else if (value instanceof SkuWarehouse) {
+
+            tags.add(SKU_CODE + ":" + ((SkuWarehouse) value).getSkuCode());
+            return true;
+
+        } else if (value instanceof SkuPrice) {
+
+            tags.add(SKU_CODE + ":" + ((SkuPrice) value).getSkuCode());
+            return true;
+
+        } else if (value instanceof Shop) {
+
+            final Shop shop = (Shop) value;
+            tags.add(SHOP + ":" + shop.getShopId());
+            if (shop.getMaster() != null) {
+                tags.add(SHOP + ":" + shop.getMaster().getShopId());
+            }
+            return true;
+
+        } else if (value instanceof Category) {
+
+            tags.add(CATEGORY + ":" + ((Category) value).getCategoryId());
+            return true;
+
+        } else if (value instanceof Brand) {
+
+            tags.add(BRAND + ":" + ((Brand) value).getBrandId());
+            return true;
+
+        } else if (value instanceof Collection) {
+
+            if (((Collection) value).isEmpty()) {
+                // empty result (e.g. no stock records yet) may change when any new dependency appears
+                return false;
+            }
+
+            boolean resolved = true;
+            for (final Object item : (Collection) value) {
+                resolved = resolveTags(item, tags) && resolved;
+            }
+            return resolved;
+
+        } else if (value instanceof Map) {
+
+            return resolveTags(((Map) value).values(), tags);
+
+        }
+
+        return false;
+
+    }
+
+    /** {@inheritDoc} */
+    public boolean isTagged(final String entityName) {
+        return TAGGED.contains(entityName);
+    }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.cache.impl;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.yes.cart.cache.CacheTagResolver;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ehcache backed cache that keeps tag index of its entries. Index follows Ehcache removals,
+ * evictions and expiry through cache event listener.
+ *
+ * Values that cannot be tagged (including null values) are marked with {@link #ANY} tag and
+ * are evicted by any tag eviction, so that tag eviction never leaves stale entries.
+ *
+ * Value is put to cache first and indexed afterwards. Index entry remembers cache element, so that
+ * late Ehcache notification for previous element does not drop index of the new one. If index entry
+ * was removed by concurrent eviction before put completed the new value is evicted as well, hence
+ * there is never an entry in cache that is not in the index. Elements are compared by identity, so
+ * tagged caches must not use copy on read/write.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 17:15
+ */
+final class TaggedEhCache implements Cache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaggedEhCache.class);
+
+    static final String ANY = "*";
+
+    private final Cache cache;
+    private final Ehcache ehcache;
+    private final CacheTagResolver cacheTagResolver;
+
+    private final ConcurrentMap<String, Set<Object>> keysByTag = new ConcurrentHashMap<String, Set<Object>>();
+    private final ConcurrentMap<Object, TaggedElement> tagsByKey = new ConcurrentHashMap<Object, TaggedElement>();
+    private final ConcurrentMap<String, AtomicLong> evictions = new ConcurrentHashMap<String, AtomicLong>();
+
+    // index updates for the same key must not interleave, cache operations are never done under these locks
+    private final Object[] keyLocks = new Object[64];
+
+    TaggedEhCache(final Cache cache, final Ehcache ehcache, final CacheTagResolver cacheTagResolver) {
+        this.cache = cache;
+        this.ehcache = ehcache;
+        this.cacheTagResolver = cacheTagResolver;
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Start following Ehcache events. Must be called once per native cache.
+     */
+    void registerListener() {
+        this.ehcache.getCacheEventNotificationService().registerListener(new CacheEventListenerAdapter() {
+            @Override
+            public void notifyElementRemoved(final Ehcache cache, final Element element) {
+                untag(element.getObjectKey(), element);
+            }
+
+            @Override
+            public void notifyElementExpired(final Ehcache cache, final Element element) {
+                untag(element.getObjectKey(), element);
+            }
+
+            @Override
+            public void notifyElementEvicted(final Ehcache cache, final Element element) {
+                untag(element.getObjectKey(), element);
+            }
+
+            @Override
+            public void notifyRemoveAll(final Ehcache cache) {
+                clearTags();
+            }
+        });
+    }
+
+    /** {@inheritDoc} */
+    public String getName() {
+        return cache.getName();
+    }
+
+    /** {@inheritDoc} */
+    public Object getNativeCache() {
+        return cache.getNativeCache();
+    }
+
+    /** {@inheritDoc} */
+    public ValueWrapper get(final Object key) {
+        return cache.get(key);
+    }
+
+    /** {@inheritDoc} */
+    public void put(final Object key, final Object value) {
+
+        final Set<String> tags = new HashSet<String>();
+        boolean resolved;
+        try {
+            resolved = cacheTagResolver.resolveTags(value, tags);
+        } catch (Exception exp) {
+            LOG.debug("Unable to resolve tags for {} in {}: {}", new Object[] { key, getName(), exp.getMessage() });
+            resolved = false;
+        }
+        if (!resolved) {
+            tags.add(ANY);
+        }
+
+        final Element element = new Element(key, value);
+        ehcache.put(element);
+        tag(key, new TaggedElement(element, tags));
+
+        // concurrent eviction could have removed the index before it was able to remove this element
+        if (!isCurrent(key, element)) {
+            cache.evict(key);
+            untag(key, element);
+        }
+
+    }
+
+    /** {@inheritDoc} */
+    public void evict(final Object key) {
+        // index first, so that concurrent put either sees it is no longer indexed or is removed from cache
+        untag(key);
+        cache.evict(key);
+    }
+
+    /** {@inheritDoc} */
+    public void clear() {
+        cache.clear();
+        clearTags();
+    }
+
+    /**
+     * Evict entries with given tag and entries that could not be tagged.
+     *
+     * @param tag tag
+     *
+     * @return number of evicted entries
+     */
+    int evictByTag(final String tag) {
+
+        final int cnt = evictKeys(keysByTag.get(tag)) + evictKeys(keysByTag.get(ANY));
+
+        if (cnt > 0) {
+            final int pos = tag.indexOf(':');
+            final String type = pos == -1 ? tag : tag.substring(0, pos);
+            AtomicLong counter = evictions.get(type);
+            if (counter == null) {
+                final AtomicLong newCounter = new AtomicLong();
+                counter = evictions.putIfAbsent(type, newCounter);
+                if (counter == null) {
+                    counter = newCounter;
+                }
+            }
+            counter.addAndGet(cnt);
+        }
+
+        return cnt;
+    }
+
+    /**
+     * @return number of evicted entries per tag type
+     */
+    Map<String, Long> getTagEvictions() {
+        final Map<String, Long> counts = new HashMap<String, Long>();
+        for (final Map.Entry<String, AtomicLong> entry : evictions.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * @return number of tags in index (for monitoring and tests)
+     */
+    int getTagCount() {
+        return keysByTag.size();
+    }
+
+    private int evictKeys(final Set<Object> keys) {
+
+        if (keys == null || keys.isEmpty()) {
+            return 0;
+        }
+
+        int cnt = 0;
+        for (final Object key : new ArrayList<Object>(keys)) {
+            untag(key);
+            cache.evict(key);
+            cnt++;
+        }
+        return cnt;
+    }
+
+    private Object lockFor(final Object key) {
+        return keyLocks[(key.hashCode() & Integer.MAX_VALUE) % keyLocks.length];
+    }
+
+    private boolean isCurrent(final Object key, final Element element) {
+
+        final TaggedElement indexed = tagsByKey.get(key);
+        return indexed != null && indexed.element == element && ehcache.getQuiet(key) == element;
+
+    }
+
+    private void tag(final Object key, final TaggedElement tagged) {
+
+        synchronized (lockFor(key)) {
+
+            removeFromTags(key, tagsByKey.put(key, tagged));
+
+            for (final String tag : tagged.tags) {
+                while (true) {
+                    Set<Object> keys = keysByTag.get(tag);
+                    if (keys == null) {
+                        final Set<Object> newKeys = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+                        keys = keysByTag.putIfAbsent(tag, newKeys);
+                        if (keys == null) {
+                            keys = newKeys;
+                        }
+                    }
+                    keys.add(key);
+                    if (keysByTag.get(tag) == keys) {
+                        break; // empty set could have been dropped by untag concurrently
+                    }
+                }
+            }
+
+        }
+
+    }
+
+    private void untag(final Object key) {
+
+        synchronized (lockFor(key)) {
+            removeFromTags(key, tagsByKey.remove(key));
+        }
+
+    }
+
+    private void untag(final Object key, final Element element) {
+
+        synchronized (lockFor(key)) {
+            final TaggedElement indexed = tagsByKey.get(key);
+            if (indexed != null && indexed.element == element) {
+                tagsByKey.remove(key);
+                removeFromTags(key, indexed);
+            }
+        }
+
+    }
+
+    private void removeFromTags(final Object key, final TaggedElement indexed) {
+
+        if (indexed != null) {
+            for (final String tag : indexed.tags) {
+                final Set<Object> keys = keysByTag.get(tag);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByTag.remove(tag, Collections.emptySet());
+                    }
+                }
+            }
+        }
+
+    }
+
+    private void clearTags() {
+        // elements put concurrently with clear remain in cache, so keep their index
+        for (final Map.Entry<Object, TaggedElement> indexed : tagsByKey.entrySet()) {
+            if (ehcache.getQuiet(indexed.getKey()) != indexed.getValue().element) {
+                untag(indexed.getKey(), indexed.getValue().element);
+            }
+        }
+    }
+
+    /**
+     * Index entry: tags of the cache element.
+     */
+    private static final class TaggedElement {
+
+        private final Element element;
+        private final Set<String> tags;
+
+        private TaggedElement(final Element element, final Set<String> tags) {
+            this.element = element;
+            this.tags = tags;
+        }
+    }
+
+}
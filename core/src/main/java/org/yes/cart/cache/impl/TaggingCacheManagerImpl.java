@@ -0,0 +1,144 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.cache.impl;
+
+import net.sf.ehcache.Ehcache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.yes.cart.cache.CacheTagResolver;
+import org.yes.cart.cache.TaggedCacheManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache manager decorator that keeps dependency tags for configured Ehcache caches. Tags are
+ * resolved from cached values when they are put into cache, so *CachedImpl services do not need
+ * to be aware of tagging. All other caches are served by delegate cache manager as is.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 17:40
+ */
+public class TaggingCacheManagerImpl implements CacheManager, TaggedCacheManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaggingCacheManagerImpl.class);
+
+    private final CacheManager cacheManager;
+    private final CacheTagResolver cacheTagResolver;
+
+    private final ConcurrentMap<String, TaggedEhCache> taggedCaches = new ConcurrentHashMap<String, TaggedEhCache>();
+
+    private Set<String> taggedCacheNames = Collections.emptySet();
+
+    public TaggingCacheManagerImpl(final CacheManager cacheManager,
+                                   final CacheTagResolver cacheTagResolver) {
+        this.cacheManager = cacheManager;
+        this.cacheTagResolver = cacheTagResolver;
+    }
+
+    /** {@inheritDoc} */
+    public Cache getCache(final String name) {
+
+        if (taggedCacheNames.contains(name)) {
+            final TaggedEhCache tagged = getTaggedCache(name);
+            if (tagged != null) {
+                return tagged;
+            }
+        }
+        return cacheManager.getCache(name);
+
+    }
+
+    /** {@inheritDoc} */
+    public Collection<String> getCacheNames() {
+        return cacheManager.getCacheNames();
+    }
+
+    /** {@inheritDoc} */
+    public boolean isTagged(final String cacheName, final String entityName) {
+        return cacheTagResolver.isTagged(entityName) && getTaggedCache(cacheName) != null;
+    }
+
+    /** {@inheritDoc} */
+    public int evictByTag(final String cacheName, final String tag) {
+
+        final TaggedEhCache tagged = getTaggedCache(cacheName);
+        if (tagged != null) {
+            return tagged.evictByTag(tag);
+        }
+        return 0;
+
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, Long> getTagEvictions(final String cacheName) {
+
+        final TaggedEhCache tagged = getTaggedCache(cacheName);
+        if (tagged != null) {
+            return tagged.getTagEvictions();
+        }
+        return null;
+
+    }
+
+    private TaggedEhCache getTaggedCache(final String name) {
+
+        if (!taggedCacheNames.contains(name)) {
+            return null;
+        }
+
+        TaggedEhCache tagged = taggedCaches.get(name);
+        if (tagged == null) {
+
+            final Cache cache = cacheManager.getCache(name);
+            if (cache == null || !(cache.getNativeCache() instanceof Ehcache)) {
+                LOG.warn("Cache {} cannot be tagged, only existing Ehcache caches are supported", name);
+                return null;
+            }
+
+            final TaggedEhCache newTagged = new TaggedEhCache(cache, (Ehcache) cache.getNativeCache(), cacheTagResolver);
+            tagged = taggedCaches.putIfAbsent(name, newTagged);
+            if (tagged == null) {
+                tagged = newTagged;
+                // entries put before tagging was enabled are not indexed
+                cache.clear();
+                tagged.registerListener();
+            }
+        }
+        return tagged;
+
+    }
+
+    /**
+     * IoC. Set names of caches that should keep tags.
+     *
+     * @param taggedCacheNames cache names
+     */
+    public void setTaggedCaches(final Set<String> taggedCacheNames) {
+        this.taggedCacheNames = new HashSet<String>(taggedCacheNames);
+    }
+
+}
@@ -18,6 +18,7 @@
 package org.yes.cart.domain.dto.impl;
 
 import java.io.Serializable;
+import java.util.Map;
 
 /**
  *
@@ -51,6 +52,8 @@ public class CacheInfoDTOImpl implements Serializable {
 
     private String nodeUri;
 
+    private Map<String, Long> tagEvictions;
+
     public String getNodeId() {
         return nodeId;
     }
@@ -131,6 +134,17 @@ public class CacheInfoDTOImpl implements Serializable {
         this.misses = misses;
     }
 
+    /**
+     * @return number of evicted entries per tag type for caches that keep dependency tags, null otherwise
+     */
+    public Map<String, Long> getTagEvictions() {
+        return tagEvictions;
+    }
+
+    public void setTagEvictions(final Map<String, Long> tagEvictions) {
+        this.tagEvictions = tagEvictions;
+    }
+
     public boolean isStats() {
         return stats;
     }
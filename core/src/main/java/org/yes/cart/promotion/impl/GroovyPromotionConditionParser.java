@@ -18,6 +18,7 @@ package org.yes.cart.promotion.impl;
 
 import groovy.lang.GroovyClassLoader;
 import org.apache.commons.lang.StringUtils;
+import org.codehaus.groovy.control.CompilationFailedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
@@ -26,10 +27,21 @@ import org.yes.cart.promotion.PromotionCondition;
 import org.yes.cart.promotion.PromotionConditionParser;
 import org.yes.cart.util.log.Markers;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Groovy backed promotion parser. promotion.getEligibilityCondition() is assumed to be
  * groovy script. The
  *
+ * Conditions are compiled in a generation class loader. Once a promotion that has already been
+ * compiled in current generation is parsed again (i.e. its condition was evicted from cache and
+ * promotions are reloaded) a new generation is started and the old class loader is discarded,
+ * so that it can be collected together with its classes once no condition refers to it.
+ *
+ * When compileStatic is enabled conditions are compiled with @CompileStatic against typed context
+ * variables. Conditions that do not type check are compiled dynamically as before.
+ *
  * User: denispavlov
  * Date: 13-10-28
  * Time: 8:47 AM
@@ -38,7 +50,10 @@ public class GroovyPromotionConditionParser implements PromotionConditionParser
 
     private static final Logger LOG = LoggerFactory.getLogger(GroovyPromotionConditionParser.class);
 
-    private final GroovyClassLoader gcl = new GroovyClassLoader();
+    private final Object generationLock = new Object();
+    private Generation generation = new Generation(1);
+
+    private boolean compileStatic = false;
 
     /** {@inheritDoc} */
     @Cacheable(value = "promotionService-groovyCache", key = "#promotion.promotionId")
@@ -62,14 +77,48 @@ public class GroovyPromotionConditionParser implements PromotionConditionParser
 
     Class parseGroovyCondition(final long promoId, final String promoCode, final String condition) {
 
+        final GroovyClassLoader gcl = getClassLoader(promoId);
+
+        if (compileStatic) {
+            try {
+                return gcl.parseClass(createScript(promoId, promoCode, condition, true));
+            } catch (CompilationFailedException cfe) {
+                LOG.warn("Condition for promo: {} cannot be compiled statically, using dynamic compilation, cause: {}",
+                        promoCode, cfe.getMessage());
+            }
+        }
+
+        return gcl.parseClass(createScript(promoId, promoCode, condition, false));
+
+    }
+
+    /*
+     * Class loader of current generation. If promotion has already been compiled in current
+     * generation it means that promotions are being reloaded, so new generation is started.
+     */
+    GroovyClassLoader getClassLoader(final long promoId) {
+
+        synchronized (generationLock) {
+            if (!generation.promotions.add(promoId)) {
+                generation = new Generation(generation.number + 1);
+                generation.promotions.add(promoId);
+                LOG.info("Promotion conditions are reloaded, starting class loader generation {}", generation.number);
+            }
+            return generation.loader;
+        }
+
+    }
+
+    String createScript(final long promoId, final String promoCode, final String condition, final boolean typed) {
+
         final StringBuilder script = new StringBuilder();
 
-        appendImports(script);
-        appendStartClass(script, promoId, promoCode);
+        appendImports(script, typed);
+        appendStartClass(script, promoId, promoCode, typed);
         appendBody(script, condition);
         appendEndClass(script);
 
-        return gcl.parseClass(script.toString());
+        return script.toString();
 
     }
 
@@ -80,8 +129,15 @@ public class GroovyPromotionConditionParser implements PromotionConditionParser
     /*
      * Declare all necessary imports to compile groovy class
      */
-    void appendImports(final StringBuilder script) {
+    void appendImports(final StringBuilder script, final boolean typed) {
         script.append("import org.yes.cart.promotion.PromotionCondition;\n");
+        if (typed) {
+            script.append("import groovy.transform.CompileStatic;\n");
+            script.append("import org.yes.cart.domain.entity.Customer;\n");
+            script.append("import org.yes.cart.shoppingcart.CartItem;\n");
+            script.append("import org.yes.cart.shoppingcart.ShoppingCart;\n");
+            script.append("import org.yes.cart.shoppingcart.Total;\n");
+        }
     }
 
     /*
@@ -91,8 +147,14 @@ public class GroovyPromotionConditionParser implements PromotionConditionParser
      * shoppingCart = context.shoppingCart;
      * shoppingCartItem = context.shoppingCartItem;
      * order = context.order;
+     *
+     * In typed mode same variables are declared with their types, so that condition can be
+     * compiled statically.
      */
-    void appendStartClass(final StringBuilder script, final long promoId, final String promoCode) {
+    void appendStartClass(final StringBuilder script, final long promoId, final String promoCode, final boolean typed) {
+        if (typed) {
+            script.append("@CompileStatic\n");
+        }
         script.append("public class Promotion").append(clensePromoCode(promoCode)).append(" implements PromotionCondition {\n");
         script.append("public long getPromotionId() {\n");
         script.append("return ").append(promoId).append(";\n");
@@ -101,13 +163,23 @@ public class GroovyPromotionConditionParser implements PromotionConditionParser
         script.append("return '").append(promoCode).append("';\n");
         script.append("}\n");
         script.append("public boolean isEligible(Map<String, Object> context) {\n");
-        script.append("def registered = context.registered;\n");
-        script.append("def customer = context.customer;\n");
-        script.append("def customerTags = context.customerTags;\n");
-        script.append("def shoppingCart = context.shoppingCart;\n");
-        script.append("def shoppingCartItem = context.shoppingCartItem;\n");
-        script.append("def shoppingCartItemTotal = context.shoppingCartItemTotal;\n");
-        script.append("def shoppingCartOrderTotal = context.shoppingCartOrderTotal;\n");
+        if (typed) {
+            script.append("boolean registered = Boolean.TRUE.equals(context.get(PromotionCondition.VAR_REGISTERED));\n");
+            script.append("Customer customer = (Customer) context.get(PromotionCondition.VAR_CUSTOMER);\n");
+            script.append("List<String> customerTags = (List<String>) context.get(PromotionCondition.VAR_CUSTOMER_TAGS);\n");
+            script.append("ShoppingCart shoppingCart = (ShoppingCart) context.get(PromotionCondition.VAR_CART);\n");
+            script.append("CartItem shoppingCartItem = (CartItem) context.get(PromotionCondition.VAR_CART_ITEM);\n");
+            script.append("Total shoppingCartItemTotal = (Total) context.get(PromotionCondition.VAR_CART_ITEM_TOTAL);\n");
+            script.append("Total shoppingCartOrderTotal = (Total) context.get(PromotionCondition.VAR_CART_ORDER_TOTAL);\n");
+        } else {
+            script.append("def registered = context.registered;\n");
+            script.append("def customer = context.customer;\n");
+            script.append("def customerTags = context.customerTags;\n");
+            script.append("def shoppingCart = context.shoppingCart;\n");
+            script.append("def shoppingCartItem = context.shoppingCartItem;\n");
+            script.append("def shoppingCartItemTotal = context.shoppingCartItemTotal;\n");
+            script.append("def shoppingCartOrderTotal = context.shoppingCartOrderTotal;\n");
+        }
     }
 
     /*
@@ -129,4 +201,31 @@ public class GroovyPromotionConditionParser implements PromotionConditionParser
         script.append("}\n}");
     }
 
+    /**
+     * @return current class loader generation
+     */
+    public int getGeneration() {
+        synchronized (generationLock) {
+            return generation.number;
+        }
+    }
+
+    /**
+     * @param compileStatic compile conditions with @CompileStatic using typed context variables
+     */
+    public void setCompileStatic(final boolean compileStatic) {
+        this.compileStatic = compileStatic;
+    }
+
+    private static final class Generation {
+
+        private final int number;
+        private final GroovyClassLoader loader = new GroovyClassLoader(GroovyPromotionConditionParser.class.getClassLoader());
+        private final Set<Long> promotions = new HashSet<Long>();
+
+        private Generation(final int number) {
+            this.number = number;
+        }
+    }
+
 }
@@ -26,6 +26,7 @@ import org.yes.cart.service.domain.ShopService;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * User: denispavlov
@@ -42,6 +43,8 @@ public class PromotionContextFactoryImpl implements PromotionContextFactory {
     private final Map<String, Map<String, PromotionAction>> promotionActionMap;
     private final PromotionApplicationStrategy strategy;
 
+    private final AtomicLong skippedEvaluations = new AtomicLong(0L);
+
     public PromotionContextFactoryImpl(final ShopService shopService,
                                        final PromotionService promotionService,
                                        final PromotionConditionParser promotionConditionParser,
@@ -57,7 +60,8 @@ public class PromotionContextFactoryImpl implements PromotionContextFactory {
     /** {@inheritDoc} */
     public PromotionContext getInstance(final String shopCode, final String currency) {
 
-        final PromotionContextImpl ctx = new PromotionContextImpl(shopCode, strategy);
+        final PromotionRuleIndex ruleIndex = new PromotionRuleIndex(skippedEvaluations);
+        final PromotionContextImpl ctx = new PromotionContextImpl(shopCode, strategy, ruleIndex);
         final List<Promotion> active = promotionService.getPromotionsByShopCode(shopCode, currency, true);
         for (final Promotion promotion : active) {
             final PromotionCondition condition = promotionConditionParser.parse(promotion);
@@ -76,6 +80,8 @@ public class PromotionContextFactoryImpl implements PromotionContextFactory {
                         "No action mapping for promotion: {}, type: {}", promotion.getCode(), promotion.getPromoType());
             }
         }
+        LOG.debug("Promotion context for {}/{} has {} of {} promotions with pre-filter facets",
+                new Object[]{shopCode, currency, ruleIndex.getIndexedCount(), active.size()});
         return ctx;
     }
 
@@ -96,6 +102,13 @@ public class PromotionContextFactoryImpl implements PromotionContextFactory {
         return getInstance(shop.getCode(), currency, ensureNew);
     }
 
+    /**
+     * @return total number of eligibility evaluations skipped by rule indices of all contexts
+     */
+    public long getSkippedEvaluations() {
+        return skippedEvaluations.get();
+    }
+
     private PromotionContextFactory proxy;
 
     private PromotionContextFactory proxy() {
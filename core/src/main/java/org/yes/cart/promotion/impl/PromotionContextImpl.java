@@ -21,11 +21,13 @@ import org.yes.cart.domain.entity.Customer;
 import org.yes.cart.domain.entity.Promotion;
 import org.yes.cart.promotion.*;
 import org.yes.cart.shoppingcart.CartItem;
+import org.yes.cart.shoppingcart.CustomerSnapshot;
 import org.yes.cart.shoppingcart.MutableShoppingCart;
 import org.yes.cart.shoppingcart.Total;
 import org.yes.cart.shoppingcart.impl.TotalImpl;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * User: denispavlov
@@ -34,6 +36,8 @@ import java.util.*;
  */
 public class PromotionContextImpl implements PromotionContext {
 
+    private static final Pattern CUSTOMER_VARIABLE = Pattern.compile("\\b" + PromotionCondition.VAR_CUSTOMER + "\\b");
+
     private final String shopCode;
     private final PromotionApplicationStrategy strategy;
     private final Date timestamp = new Date();
@@ -41,9 +45,20 @@ public class PromotionContextImpl implements PromotionContext {
     private final Map<String, List<List<PromoTriplet>>> promotionBuckets = new HashMap<String, List<List<PromoTriplet>>>();
     private final Map<String, PromoTriplet> promotionByCode = new HashMap<String, PromoTriplet>();
 
+    private final PromotionRuleIndex ruleIndex;
+
+    private boolean customerRequired = false;
+
     public PromotionContextImpl(final String shopCode, final PromotionApplicationStrategy strategy) {
+        this(shopCode, strategy, new PromotionRuleIndex());
+    }
+
+    public PromotionContextImpl(final String shopCode,
+                                final PromotionApplicationStrategy strategy,
+                                final PromotionRuleIndex ruleIndex) {
         this.shopCode = shopCode;
         this.strategy = strategy;
+        this.ruleIndex = ruleIndex;
     }
 
     /**
@@ -60,6 +75,13 @@ public class PromotionContextImpl implements PromotionContext {
         final PromoTriplet promo = new PromoTripletImpl(promotion, condition, action);
 
         promotionByCode.put(promotion.getCode(), promo);
+        ruleIndex.add(promo);
+
+        if (!Promotion.TYPE_CUSTOMER_TAG.equals(promotion.getPromoType())
+                && promotion.getEligibilityCondition() != null
+                && CUSTOMER_VARIABLE.matcher(promotion.getEligibilityCondition()).find()) {
+            customerRequired = true; // condition reads customer entity
+        }
 
         List<List<PromoTriplet>> buckets = promotionBuckets.get(promotion.getPromoType());
 
@@ -86,22 +108,42 @@ public class PromotionContextImpl implements PromotionContext {
         return timestamp;
     }
 
-    private List<String> getCustomerTags(Customer customer) {
-        if (customer != null && customer.getTag() != null) {
-            return Arrays.asList(customer.getTag().split(" "));
-        }
-        return Collections.emptyList();
+    /**
+     * @return rule index used to pre-filter promotions before eligibility condition is evaluated
+     */
+    public PromotionRuleIndex getRuleIndex() {
+        return ruleIndex;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isCustomerRequired() {
+        return customerRequired;
     }
 
-    private List<String> getCustomerPricingPolicies(Customer customer) {
-        if (customer != null && customer.getPricingPolicy() != null) {
-            return Arrays.asList(customer.getPricingPolicy().split(" "));
+    private List<String> split(final String values) {
+        if (values != null) {
+            return Arrays.asList(values.split(" "));
         }
         return Collections.emptyList();
     }
 
+    private Map<String, Object> createContext(final CustomerSnapshot customerSnapshot,
+                                              final Customer customer,
+                                              final MutableShoppingCart cart) {
+
+        final Map<String, Object> context = new HashMap<String, Object>();
+        context.put(PromotionCondition.VAR_REGISTERED, customerSnapshot != null);
+        context.put(PromotionCondition.VAR_CUSTOMER, customer);
+        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, split(customerSnapshot != null ? customerSnapshot.getTag() : null));
+        context.put(PromotionCondition.VAR_CUSTOMER_TYPE, customerSnapshot != null ? customerSnapshot.getCustomerType() : null);
+        context.put(PromotionCondition.VAR_CUSTOMER_PRICING_POLICY, split(customerSnapshot != null ? customerSnapshot.getPricingPolicy() : null));
+        context.put(PromotionCondition.VAR_CART, cart);
+        return context;
+
+    }
+
     /** {@inheritDoc} */
-    public void applyItemPromo(final Customer customer, final MutableShoppingCart cart) {
+    public void applyItemPromo(final CustomerSnapshot customerSnapshot, final Customer customer, final MutableShoppingCart cart) {
 
         cart.removeItemPromotions(); // remove all gifts and promo prices
 
@@ -111,13 +153,7 @@ public class PromotionContextImpl implements PromotionContext {
             return;
         }
 
-        final Map<String, Object> context = new HashMap<String, Object>();
-        context.put(PromotionCondition.VAR_REGISTERED, customer != null);
-        context.put(PromotionCondition.VAR_CUSTOMER, customer);
-        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customer));
-        context.put(PromotionCondition.VAR_CUSTOMER_TYPE, customer != null ? customer.getCustomerType() : null);
-        context.put(PromotionCondition.VAR_CUSTOMER_PRICING_POLICY, getCustomerPricingPolicies(customer));
-        context.put(PromotionCondition.VAR_CART, cart);
+        final Map<String, Object> context = createContext(customerSnapshot, customer, cart);
 
         for (final CartItem item : cart.getCartItemList()) {
 
@@ -134,7 +170,7 @@ public class PromotionContextImpl implements PromotionContext {
     }
 
     /** {@inheritDoc} */
-    public Total applyOrderPromo(final Customer customer, final MutableShoppingCart cart, final Total itemTotal) {
+    public Total applyOrderPromo(final CustomerSnapshot customerSnapshot, final Customer customer, final MutableShoppingCart cart, final Total itemTotal) {
 
         final List<List<PromoTriplet>> orderPromoBuckets = promotionBuckets.get(Promotion.TYPE_ORDER);
 
@@ -142,13 +178,7 @@ public class PromotionContextImpl implements PromotionContext {
             return new TotalImpl().add(itemTotal);
         }
 
-        final Map<String, Object> context = new HashMap<String, Object>();
-        context.put(PromotionCondition.VAR_REGISTERED, customer != null);
-        context.put(PromotionCondition.VAR_CUSTOMER, customer);
-        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customer));
-        context.put(PromotionCondition.VAR_CUSTOMER_TYPE, customer != null ? customer.getCustomerType() : null);
-        context.put(PromotionCondition.VAR_CUSTOMER_PRICING_POLICY, getCustomerPricingPolicies(customer));
-        context.put(PromotionCondition.VAR_CART, cart);
+        final Map<String, Object> context = createContext(customerSnapshot, customer, cart);
         context.put(PromotionCondition.VAR_CART_ITEM_TOTAL, itemTotal);
         context.put(PromotionCondition.VAR_TMP_TOTAL, new TotalImpl().add(itemTotal));
 
@@ -159,7 +189,7 @@ public class PromotionContextImpl implements PromotionContext {
     }
 
     /** {@inheritDoc} */
-    public void applyShippingPromo(final Customer customer, final MutableShoppingCart cart, final Total orderTotal) {
+    public void applyShippingPromo(final CustomerSnapshot customerSnapshot, final Customer customer, final MutableShoppingCart cart, final Total orderTotal) {
 
         final List<List<PromoTriplet>> orderPromoBuckets = promotionBuckets.get(Promotion.TYPE_SHIPPING);
 
@@ -167,13 +197,7 @@ public class PromotionContextImpl implements PromotionContext {
             return;
         }
 
-        final Map<String, Object> context = new HashMap<String, Object>();
-        context.put(PromotionCondition.VAR_REGISTERED, customer != null);
-        context.put(PromotionCondition.VAR_CUSTOMER, customer);
-        context.put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customer));
-        context.put(PromotionCondition.VAR_CUSTOMER_TYPE, customer != null ? customer.getCustomerType() : null);
-        context.put(PromotionCondition.VAR_CUSTOMER_PRICING_POLICY, getCustomerPricingPolicies(customer));
-        context.put(PromotionCondition.VAR_CART, cart);
+        final Map<String, Object> context = createContext(customerSnapshot, customer, cart);
         context.put(PromotionCondition.VAR_CART_ORDER_TOTAL, orderTotal);
 
         for (final CartItem shipping : cart.getShippingList()) {
@@ -200,10 +224,11 @@ public class PromotionContextImpl implements PromotionContext {
         }
 
         final Map<String, Object> context = new HashMap<String, Object>() {{
+            put(PromotionCondition.VAR_REGISTERED, true);
             put(PromotionCondition.VAR_CUSTOMER, customer);
-            put(PromotionCondition.VAR_CUSTOMER_TAGS, getCustomerTags(customer));
-            put(PromotionCondition.VAR_CUSTOMER_TYPE, customer != null ? customer.getCustomerType() : null);
-            put(PromotionCondition.VAR_CUSTOMER_PRICING_POLICY, getCustomerPricingPolicies(customer));
+            put(PromotionCondition.VAR_CUSTOMER_TAGS, split(customer.getTag()));
+            put(PromotionCondition.VAR_CUSTOMER_TYPE, customer.getCustomerType());
+            put(PromotionCondition.VAR_CUSTOMER_PRICING_POLICY, split(customer.getPricingPolicy()));
             put(PromotionCondition.VAR_CART, cart);
         }};
 
@@ -214,7 +239,11 @@ public class PromotionContextImpl implements PromotionContext {
     private void applyPromotions(final List<List<PromoTriplet>> promoBuckets,
                                  final Map<String, Object> context) {
 
-        strategy.applyPromotions(promoBuckets, context);
+        // Only candidates that pass declarative facets reach eligibility condition evaluation
+        final List<List<PromoTriplet>> candidates = ruleIndex.getCandidates(promoBuckets, context);
+        if (ruleIndex.hasCandidates(candidates)) {
+            strategy.applyPromotions(candidates, context);
+        }
 
     }
 
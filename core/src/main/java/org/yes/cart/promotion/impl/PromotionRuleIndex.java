@@ -0,0 +1,459 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.promotion.impl;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.yes.cart.domain.entity.Promotion;
+import org.yes.cart.promotion.PromoTriplet;
+import org.yes.cart.promotion.PromotionCondition;
+import org.yes.cart.shoppingcart.CartItem;
+import org.yes.cart.shoppingcart.ShoppingCart;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rule index of promotions in a single promotion context. Eligibility conditions are groovy scripts
+ * which are evaluated for every cart item on every recalculation, so when context is created each
+ * condition is inspected for declarative facets (SKU, customer tag, customer type and pricing policy)
+ * that must hold for condition to be true. Coupon triggered promotions additionally require coupons
+ * in the cart.
+ *
+ * Facets are only taken from conditions that are a single expression with terms joined by top level
+ * "&&", so that each recognised term is a necessary condition. Unrecognised terms and conditions are
+ * left to groovy, therefore index never filters out promotion that would have been eligible.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 19:10
+ */
+public class PromotionRuleIndex implements Serializable {
+
+    private static final String LITERAL = "(?:'[^'\\\\$]*'|\"[^\"\\\\$]*\")";
+    private static final String LIST = "\\[\\s*" + LITERAL + "(?:\\s*,\\s*" + LITERAL + ")*\\s*\\]";
+
+    private static final Pattern LITERALS = Pattern.compile(LITERAL);
+
+    private static final Pattern SKU_IN_LIST = Pattern.compile(
+            "(" + LIST + ")\\s*\\.\\s*contains\\s*\\(\\s*shoppingCartItem\\s*\\??\\.\\s*productSkuCode\\s*\\)");
+    private static final Pattern SKU_EQ = Pattern.compile(
+            "shoppingCartItem\\s*\\??\\.\\s*productSkuCode\\s*==\\s*(" + LITERAL + ")");
+    private static final Pattern TAG = Pattern.compile(
+            "customerTags\\s*\\??\\.\\s*contains\\s*\\(\\s*(" + LITERAL + ")\\s*\\)");
+    private static final Pattern TYPE_IN_LIST = Pattern.compile(
+            "(" + LIST + ")\\s*\\.\\s*contains\\s*\\(\\s*customer\\s*\\??\\.\\s*customerType\\s*\\)");
+    private static final Pattern TYPE_EQ = Pattern.compile(
+            "customer\\s*\\??\\.\\s*customerType\\s*==\\s*(" + LITERAL + ")");
+    private static final Pattern POLICY = Pattern.compile(
+            "context\\s*\\??\\.\\s*pricingPolicy\\s*\\??\\.\\s*contains\\s*\\(\\s*(" + LITERAL + ")\\s*\\)");
+
+    private final Map<PromoTriplet, Facets> facets = new HashMap<PromoTriplet, Facets>();
+
+    private final AtomicLong skipped = new AtomicLong(0L);
+    private final AtomicLong skippedTotal;
+
+    public PromotionRuleIndex() {
+        this(null);
+    }
+
+    /**
+     * @param skippedTotal (optional) counter shared by all indices to accumulate skipped evaluations
+     */
+    public PromotionRuleIndex(final AtomicLong skippedTotal) {
+        this.skippedTotal = skippedTotal;
+    }
+
+    /**
+     * Add promotion to this index.
+     *
+     * @param promo promotion triplet
+     */
+    public void add(final PromoTriplet promo) {
+
+        final Facets promoFacets = parse(promo.getPromotion());
+        if (promoFacets != null) {
+            facets.put(promo, promoFacets);
+        } else {
+            facets.remove(promo);
+        }
+
+    }
+
+    /**
+     * Filter promotion buckets leaving only promotions that may be eligible for given context.
+     * Original buckets are returned if nothing was filtered out.
+     *
+     * @param promoBuckets promotion buckets
+     * @param context      evaluation context
+     *
+     * @return candidate buckets (empty buckets are removed)
+     */
+    public List<List<PromoTriplet>> getCandidates(final List<List<PromoTriplet>> promoBuckets,
+                                                  final Map<String, Object> context) {
+
+        if (facets.isEmpty()) {
+            return promoBuckets;
+        }
+
+        List<List<PromoTriplet>> candidates = null;
+        for (int i = 0; i < promoBuckets.size(); i++) {
+
+            final List<PromoTriplet> promoBucket = promoBuckets.get(i);
+
+            List<PromoTriplet> filtered = promoBucket;
+            for (int j = 0; j < promoBucket.size(); j++) {
+                final PromoTriplet promo = promoBucket.get(j);
+                final Facets promoFacets = facets.get(promo);
+                if (promoFacets != null && !isCandidate(promoFacets, context)) {
+                    if (filtered == promoBucket) {
+                        filtered = new ArrayList<PromoTriplet>(promoBucket.subList(0, j));
+                    }
+                    skipped.incrementAndGet();
+                    if (skippedTotal != null) {
+                        skippedTotal.incrementAndGet();
+                    }
+                } else if (filtered != promoBucket) {
+                    filtered.add(promo);
+                }
+            }
+
+            if (filtered != promoBucket && candidates == null) {
+                candidates = new ArrayList<List<PromoTriplet>>(promoBuckets.size());
+                for (final List<PromoTriplet> previous : promoBuckets.subList(0, i)) {
+                    if (!previous.isEmpty()) {
+                        candidates.add(previous);
+                    }
+                }
+            }
+            if (candidates != null && !filtered.isEmpty()) {
+                candidates.add(filtered);
+            }
+
+        }
+
+        return candidates != null ? candidates : promoBuckets;
+    }
+
+    /**
+     * @param promoBuckets promotion buckets
+     *
+     * @return true if there is at least one promotion in buckets
+     */
+    public boolean hasCandidates(final List<List<PromoTriplet>> promoBuckets) {
+        for (final List<PromoTriplet> promoBucket : promoBuckets) {
+            if (!promoBucket.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of promotions that have pre-filter facets
+     */
+    public int getIndexedCount() {
+        return facets.size();
+    }
+
+    /**
+     * @return number of eligibility evaluations skipped by this index
+     */
+    public long getSkippedEvaluations() {
+        return skipped.get();
+    }
+
+    boolean isCandidate(final Facets promoFacets, final Map<String, Object> context) {
+
+        if (promoFacets.coupon) {
+            final Object cart = context.get(PromotionCondition.VAR_CART);
+            if (cart instanceof ShoppingCart && CollectionUtils.isEmpty(((ShoppingCart) cart).getCoupons())) {
+                return false;
+            }
+        }
+
+        if (promoFacets.skus != null) {
+            final Object item = context.get(PromotionCondition.VAR_CART_ITEM);
+            if (item instanceof CartItem && !promoFacets.skus.contains(((CartItem) item).getProductSkuCode())) {
+                return false;
+            }
+        }
+
+        if (promoFacets.customerTypes != null) {
+            if (Boolean.TRUE.equals(context.get(PromotionCondition.VAR_REGISTERED))
+                    && !promoFacets.customerTypes.contains(context.get(PromotionCondition.VAR_CUSTOMER_TYPE))) {
+                return false;
+            }
+        }
+
+        if (!promoFacets.customerTags.isEmpty()) {
+            final Object tags = context.get(PromotionCondition.VAR_CUSTOMER_TAGS);
+            if (tags instanceof Collection && !((Collection) tags).containsAll(promoFacets.customerTags)) {
+                return false;
+            }
+        }
+
+        if (!promoFacets.pricingPolicies.isEmpty()) {
+            final Object policies = context.get(PromotionCondition.VAR_CUSTOMER_PRICING_POLICY);
+            if (policies instanceof Collection && !((Collection) policies).containsAll(promoFacets.pricingPolicies)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Extract facets from promotion.
+     *
+     * @param promotion promotion
+     *
+     * @return facets or null if promotion cannot be pre-filtered
+     */
+    static Facets parse(final Promotion promotion) {
+
+        final Facets promoFacets = new Facets();
+        promoFacets.coupon = promotion.isCouponTriggered();
+
+        if (StringUtils.isNotBlank(promotion.getEligibilityCondition())) {
+            final List<String> terms = splitConjunction(promotion.getEligibilityCondition());
+            if (terms != null) {
+                for (final String term : terms) {
+                    addFacet(promoFacets, term);
+                }
+            }
+        }
+
+        return promoFacets.isEmpty() ? null : promoFacets;
+    }
+
+    private static void addFacet(final Facets promoFacets, final String term) {
+
+        Matcher matcher = SKU_IN_LIST.matcher(term);
+        if (matcher.matches()) {
+            promoFacets.skus = restrict(promoFacets.skus, literals(matcher.group(1)));
+            return;
+        }
+        matcher = SKU_EQ.matcher(term);
+        if (matcher.matches()) {
+            promoFacets.skus = restrict(promoFacets.skus, literals(matcher.group(1)));
+            return;
+        }
+        matcher = TYPE_IN_LIST.matcher(term);
+        if (matcher.matches()) {
+            promoFacets.customerTypes = restrict(promoFacets.customerTypes, literals(matcher.group(1)));
+            return;
+        }
+        matcher = TYPE_EQ.matcher(term);
+        if (matcher.matches()) {
+            promoFacets.customerTypes = restrict(promoFacets.customerTypes, literals(matcher.group(1)));
+            return;
+        }
+        matcher = TAG.matcher(term);
+        if (matcher.matches()) {
+            promoFacets.customerTags.addAll(literals(matcher.group(1)));
+            return;
+        }
+        matcher = POLICY.matcher(term);
+        if (matcher.matches()) {
+            promoFacets.pricingPolicies.addAll(literals(matcher.group(1)));
+        }
+
+    }
+
+    private static Set<String> restrict(final Set<String> current, final Set<String> allowed) {
+        if (current == null) {
+            return allowed;
+        }
+        current.retainAll(allowed);
+        return current;
+    }
+
+    private static Set<String> literals(final String expression) {
+        final Set<String> values = new HashSet<String>();
+        final Matcher matcher = LITERALS.matcher(expression);
+        while (matcher.find()) {
+            final String literal = matcher.group();
+            values.add(literal.substring(1, literal.length() - 1));
+        }
+        return values;
+    }
+
+    /**
+     * Split condition into terms that are joined by top level "&&". Only single expressions without
+     * "||", ternary operators, comments, regex or multiple statements are split, in all other cases
+     * terms cannot be treated as necessary conditions.
+     *
+     * @param condition eligibility condition
+     *
+     * @return terms or null if condition cannot be split
+     */
+    static List<String> splitConjunction(final String condition) {
+
+        String expr = condition.trim();
+        if (expr.startsWith("return") && expr.length() > 6 && Character.isWhitespace(expr.charAt(6))) {
+            expr = expr.substring(6).trim();
+        }
+        if (expr.endsWith(";")) {
+            expr = expr.substring(0, expr.length() - 1).trim();
+        }
+
+        final List<String> terms = new ArrayList<String>();
+
+        int depth = 0;
+        int start = 0;
+        char quote = 0;
+        for (int i = 0; i < expr.length(); i++) {
+            final char ch = expr.charAt(i);
+            final char next = i + 1 < expr.length() ? expr.charAt(i + 1) : 0;
+            if (quote != 0) {
+                if (ch == '\\') {
+                    i++;
+                } else if (ch == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            switch (ch) {
+                case '\'':
+                case '"':
+                    quote = ch;
+                    break;
+                case '(':
+                case '[':
+                case '{':
+                    depth++;
+                    break;
+                case ')':
+                case ']':
+                case '}':
+                    if (--depth < 0) {
+                        return null;
+                    }
+                    break;
+                case ';':
+                case '\n':
+                case '\r':
+                case '/':
+                    return null;
+                case '?':
+                    if (depth == 0 && next != '.') {
+                        return null;
+                    }
+                    break;
+                case '|':
+                    if (depth == 0 && next == '|') {
+                        return null;
+                    }
+                    break;
+                case '&':
+                    if (depth == 0 && next == '&') {
+                        addTerms(terms, expr.substring(start, i));
+                        i++;
+                        start = i + 1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (quote != 0 || depth != 0) {
+            return null;
+        }
+        addTerms(terms, expr.substring(start));
+        return terms;
+    }
+
+    private static void addTerms(final List<String> terms, final String term) {
+
+        final String trimmed = term.trim();
+        if (trimmed.length() > 1 && trimmed.charAt(0) == '(' && closingBracket(trimmed) == trimmed.length() - 1) {
+            // (A && B) is split further, anything else is kept as is and will not be recognised
+            final List<String> nested = splitConjunction(trimmed.substring(1, trimmed.length() - 1));
+            if (nested != null) {
+                terms.addAll(nested);
+                return;
+            }
+        }
+        terms.add(trimmed);
+
+    }
+
+    private static int closingBracket(final String expr) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < expr.length(); i++) {
+            final char ch = expr.charAt(i);
+            if (quote != 0) {
+                if (ch == '\\') {
+                    i++;
+                } else if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '\'' || ch == '"') {
+                quote = ch;
+            } else if (ch == '(') {
+                depth++;
+            } else if (ch == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Pre-filter facets of a single promotion. All facets must be satisfied, for SKU and customer
+     * type any of the values, for tags and pricing policies all of the values.
+     */
+    static final class Facets implements Serializable {
+
+        private Set<String> skus;
+        private Set<String> customerTypes;
+        private final Set<String> customerTags = new HashSet<String>();
+        private final Set<String> pricingPolicies = new HashSet<String>();
+        private boolean coupon;
+
+        boolean isEmpty() {
+            return !coupon && skus == null && customerTypes == null && customerTags.isEmpty() && pricingPolicies.isEmpty();
+        }
+
+        Set<String> getSkus() {
+            return skus;
+        }
+
+        Set<String> getCustomerTypes() {
+            return customerTypes;
+        }
+
+        Set<String> getCustomerTags() {
+            return customerTags;
+        }
+
+        Set<String> getPricingPolicies() {
+            return pricingPolicies;
+        }
+
+        boolean isCoupon() {
+            return coupon;
+        }
+    }
+
+}
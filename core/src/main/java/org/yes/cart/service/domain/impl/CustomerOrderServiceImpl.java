@@ -42,6 +42,8 @@ public class CustomerOrderServiceImpl extends BaseGenericServiceImpl<CustomerOrd
 
     private static final Logger LOG = LoggerFactory.getLogger(CustomerOrderServiceImpl.class);
 
+    private static final int SKU_CODES_BATCH = 500;
+
     private final OrderAssembler orderAssembler;
 
     private final DeliveryAssembler deliveryAssembler;
@@ -125,6 +127,84 @@ public class CustomerOrderServiceImpl extends BaseGenericServiceImpl<CustomerOrd
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public List<List<Long>> findAwaitingDeliveriesIdsGroupedBySku(final List<String> skuCodes, final String deliveryStatus, final List<String> orderStatus) {
+
+        // delivery id => order id, sorted by delivery, so that merged SKU chunks keep FIFO order
+        final SortedMap<Long, Long> waitingDeliveries = new TreeMap<Long, Long>();
+        // order id => order id of the same group (disjoint set forest), SKU => first order that requires it
+        final Map<Long, Long> orderGroups = new HashMap<Long, Long>();
+        final Map<String, Long> skuOrders = new HashMap<String, Long>();
+
+        if (skuCodes != null) {
+            // keep IN clause within limits of all supported databases
+            for (int fromIndex = 0; fromIndex < skuCodes.size(); fromIndex += SKU_CODES_BATCH) {
+                final List<String> skuBatch = skuCodes.subList(fromIndex, Math.min(fromIndex + SKU_CODES_BATCH, skuCodes.size()));
+                addDeliveryOrderSku(waitingDeliveries, orderGroups, skuOrders, customerOrderDeliveryDao.findQueryObjectByNamedQuery("DELIVERIES.ORDER.SKU.WAITING.FOR.INVENTORY.BY.SKU",
+                        deliveryStatus,
+                        orderStatus,
+                        skuBatch));
+            }
+        } else {
+            addDeliveryOrderSku(waitingDeliveries, orderGroups, skuOrders, customerOrderDeliveryDao.findQueryObjectByNamedQuery("DELIVERIES.ORDER.SKU.WAITING.FOR.INVENTORY",
+                    deliveryStatus,
+                    orderStatus));
+        }
+
+        final Map<Long, List<Long>> deliveriesByGroup = new LinkedHashMap<Long, List<Long>>();
+        for (final Map.Entry<Long, Long> delivery : waitingDeliveries.entrySet()) {
+            final Long group = findOrderGroup(orderGroups, delivery.getValue());
+            List<Long> groupDeliveries = deliveriesByGroup.get(group);
+            if (groupDeliveries == null) {
+                groupDeliveries = new ArrayList<Long>(2);
+                deliveriesByGroup.put(group, groupDeliveries);
+            }
+            groupDeliveries.add(delivery.getKey());
+        }
+
+        return new ArrayList<List<Long>>(deliveriesByGroup.values());
+
+    }
+
+    private void addDeliveryOrderSku(final Map<Long, Long> waitingDeliveries,
+                                     final Map<Long, Long> orderGroups,
+                                     final Map<String, Long> skuOrders,
+                                     final List<Object> orderDeliverySku) {
+        for (final Object row : orderDeliverySku) {
+            final Object[] ids = (Object[]) row;
+            final Long orderId = (Long) ids[0];
+            waitingDeliveries.put((Long) ids[1], orderId);
+            final Long orderGroup = findOrderGroup(orderGroups, orderId);
+            final Long skuOrder = skuOrders.get((String) ids[2]);
+            if (skuOrder == null) {
+                skuOrders.put((String) ids[2], orderId);
+            } else {
+                final Long skuGroup = findOrderGroup(orderGroups, skuOrder);
+                if (!skuGroup.equals(orderGroup)) {
+                    orderGroups.put(skuGroup, orderGroup);
+                }
+            }
+        }
+    }
+
+    private Long findOrderGroup(final Map<Long, Long> orderGroups, final Long orderId) {
+        Long group = orderId;
+        Long parent = orderGroups.get(group);
+        while (parent != null && !parent.equals(group)) {
+            group = parent;
+            parent = orderGroups.get(group);
+        }
+        if (parent == null) {
+            orderGroups.put(group, group);
+        }
+        if (!group.equals(orderId)) {
+            orderGroups.put(orderId, group); // shorten path for next lookup
+        }
+        return group;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -16,9 +16,11 @@
 
 package org.yes.cart.service.domain.impl;
 
+import org.apache.commons.lang.math.NumberUtils;
 import org.hibernate.criterion.Criterion;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.yes.cart.cache.CacheEntityChangeHandler;
 import org.yes.cart.dao.CriteriaTuner;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Shop;
@@ -28,14 +30,14 @@ import org.yes.cart.search.dto.FilteredNavigationRecord;
 import org.yes.cart.service.domain.PriceService;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.*;
 
 /**
  * User: denispavlov
  * Date: 28/01/2017
  * Time: 17:33
  */
-public class PriceServiceCachedImpl implements PriceService {
+public class PriceServiceCachedImpl implements PriceService, CacheEntityChangeHandler {
 
     private final PriceService priceService;
 
@@ -58,6 +60,57 @@ public class PriceServiceCachedImpl implements PriceService {
         return priceService.getMinimalPrice(productId, selectedSku, customerShopId, masterShopId, currencyCode, quantity, enforceTier, pricingPolicy);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, SkuPrice> getMinimalPrices(final Map<String, BigDecimal> skuQuantities,
+                                                  final long customerShopId,
+                                                  final Long masterShopId,
+                                                  final String currencyCode,
+                                                  final boolean enforceTier,
+                                                  final String pricingPolicy) {
+        // Not cached since bulk requests hardly repeat. Relies on "priceService-priceBook" cache in price service
+        // (falls back to single query per shop if price book cache is not configured)
+        return priceService.getMinimalPrices(skuQuantities, customerShopId, masterShopId, currencyCode, enforceTier, pricingPolicy);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void refreshPriceBooks(final Collection<Long> skuPriceIds) {
+        priceService.refreshPriceBooks(skuPriceIds);
+    }
+
+    /**
+     * Price books are patched in place on price changes, other caches are evicted as usual.
+     *
+     * {@inheritDoc}
+     */
+    public boolean onEntityChange(final String cacheName, final String entityName, final Object pkValue) {
+        return onEntityChanges(cacheName, entityName, Collections.singletonList(pkValue));
+    }
+
+    /**
+     * Price books are patched in place on price changes, other caches are evicted as usual.
+     *
+     * {@inheritDoc}
+     */
+    public boolean onEntityChanges(final String cacheName, final String entityName, final Collection<?> pkValues) {
+        if ("priceService-priceBook".equals(cacheName) && "SkuPriceEntity".equals(entityName)) {
+            final List<Long> skuPriceIds = new ArrayList<Long>(pkValues.size());
+            for (final Object pkValue : pkValues) {
+                final long skuPriceId = NumberUtils.toLong(String.valueOf(pkValue), 0L);
+                if (skuPriceId <= 0L) {
+                    return false;
+                }
+                skuPriceIds.add(skuPriceId);
+            }
+            refreshPriceBooks(skuPriceIds);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -18,6 +18,11 @@ package org.yes.cart.service.domain.impl;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.domain.entity.SkuPrice;
@@ -35,6 +40,8 @@ import org.yes.cart.util.MoneyUtils;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -43,21 +50,32 @@ import java.util.*;
  */
 public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implements PriceService {
 
+    private static final String PRICE_BOOK_CACHE = "priceService-priceBook";
+    private static final int PRICE_BOOK_QUERY_BATCH = 500;
+
     private final PriceNavigation priceNavigation;
     private final GenericDAO<SkuPrice, Long> skuPriceDao;
 
+    private final Cache priceBookCache;
+    private final Set<String> priceBookKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ConcurrentMap<String, Object> priceBookLocks = new ConcurrentHashMap<String, Object>();
+
     /**
      * Constructor.
      *
      * @param priceNavigation     price navigation composer
      * @param skuPriceDao         sku price dao service
+     * @param cacheManager        optional cache manager, if "priceService-priceBook" cache is configured
+     *                            prices are resolved from in memory price books instead of per SKU queries
      */
     public PriceServiceImpl(final PriceNavigation priceNavigation,
-                            final GenericDAO<SkuPrice, Long> skuPriceDao
+                            final GenericDAO<SkuPrice, Long> skuPriceDao,
+                            final CacheManager cacheManager
     ) {
         super(skuPriceDao);
         this.priceNavigation = priceNavigation;
         this.skuPriceDao = skuPriceDao;
+        this.priceBookCache = cacheManager != null ? cacheManager.getCache(PRICE_BOOK_CACHE) : null;
 
     }
 
@@ -141,6 +159,34 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
         return rez.getSecond();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, SkuPrice> getMinimalPrices(final Map<String, BigDecimal> skuQuantities,
+                                                  final long customerShopId,
+                                                  final Long masterShopId,
+                                                  final String currencyCode,
+                                                  final boolean enforceTier,
+                                                  final String pricingPolicy) {
+
+        if (skuQuantities == null || skuQuantities.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, List<Pair<String, SkuPrice>>> skuPrices =
+                getSkuPrices(skuQuantities.keySet(), customerShopId, masterShopId, currencyCode, pricingPolicy);
+
+        final Map<String, SkuPrice> minimal = new LinkedHashMap<String, SkuPrice>(skuQuantities.size() * 2);
+        for (final Map.Entry<String, BigDecimal> skuQuantity : skuQuantities.entrySet()) {
+            List<Pair<String, SkuPrice>> prices = skuPrices.get(skuQuantity.getKey());
+            if (prices == null) {
+                prices = Collections.emptyList();
+            }
+            minimal.put(skuQuantity.getKey(), getMinimalSkuPrice(prices, skuQuantity.getKey(), skuQuantity.getValue(), enforceTier));
+        }
+        return minimal;
+    }
+
     private static final Comparator<SkuPrice> SORT_PRICE_BY_QUANTITY = new SkuPriceQuantityComparatorImpl();
 
     /**
@@ -238,6 +284,82 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
 
     }
 
+    /**
+     * Get the sku prices filtered by shop for multiple SKU in single pass.
+     *
+     * @param skuCodes        SKU codes
+     * @param customerShopId  shop filter
+     * @param masterShopId    optional fallback shop filter
+     * @param currencyCode    currency code
+     * @param pricingPolicy   optional pricing policy
+     *
+     * @return sku prices grouped by SKU code (SKU without prices are omitted)
+     */
+    Map<String, List<Pair<String, SkuPrice>>> getSkuPrices(final Collection<String> skuCodes,
+                                                           final long customerShopId,
+                                                           final Long masterShopId,
+                                                           final String currencyCode,
+                                                           final String pricingPolicy) {
+
+        final Map<String, List<SkuPrice>> bySku = new HashMap<String, List<SkuPrice>>(skuCodes.size() * 2);
+
+        if (priceBookCache != null) {
+
+            final SkuPriceBook customerBook = getPriceBook(customerShopId, currencyCode);
+            final SkuPriceBook masterBook = masterShopId != null && masterShopId != customerShopId ?
+                    getPriceBook(masterShopId, currencyCode) : null;
+            for (final String skuCode : skuCodes) {
+                final List<SkuPrice> prices = new ArrayList<SkuPrice>();
+                customerBook.collectPrices(skuCode, pricingPolicy, prices);
+                if (masterBook != null) {
+                    masterBook.collectPrices(skuCode, pricingPolicy, prices);
+                    Collections.sort(prices, SkuPriceBook.BY_ID);
+                }
+                if (!prices.isEmpty()) {
+                    bySku.put(skuCode, prices);
+                }
+            }
+
+        } else {
+
+            final List<String> codes = new ArrayList<String>(skuCodes);
+            final List<SkuPrice> prices;
+            if (StringUtils.isNotBlank(pricingPolicy)) {
+                if (masterShopId != null) {
+                    prices = getGenericDao().findByNamedQuery("SKUPRICE.BY.CODES.AND.CURRENCY.AND.SHOPS.AND.POLICY",
+                            codes, currencyCode, customerShopId, masterShopId, pricingPolicy);
+                } else {
+                    prices = getGenericDao().findByNamedQuery("SKUPRICE.BY.CODES.AND.CURRENCY.AND.SHOP.AND.POLICY",
+                            codes, currencyCode, customerShopId, pricingPolicy);
+                }
+            } else {
+                if (masterShopId != null) {
+                    prices = getGenericDao().findByNamedQuery("SKUPRICE.BY.CODES.AND.CURRENCY.AND.SHOPS",
+                            codes, currencyCode, customerShopId, masterShopId);
+                } else {
+                    prices = getGenericDao().findByNamedQuery("SKUPRICE.BY.CODES.AND.CURRENCY.AND.SHOP",
+                            codes, currencyCode, customerShopId);
+                }
+            }
+            for (final SkuPrice price : prices) {
+                List<SkuPrice> skuPrices = bySku.get(price.getSkuCode());
+                if (skuPrices == null) {
+                    skuPrices = new ArrayList<SkuPrice>();
+                    bySku.put(price.getSkuCode(), skuPrices);
+                }
+                skuPrices.add(price);
+            }
+
+        }
+
+        final Map<String, List<Pair<String, SkuPrice>>> rez = new HashMap<String, List<Pair<String, SkuPrice>>>(bySku.size() * 2);
+        for (final Map.Entry<String, List<SkuPrice>> skuPrices : bySku.entrySet()) {
+            rez.put(skuPrices.getKey(), toSkuPricePairs(skuPrices.getValue()));
+        }
+        return rez;
+
+    }
+
     /**
      * Get the sku prices filtered by shop.
      *
@@ -289,6 +411,16 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
                                                                            final String currencyCode,
                                                                            final String pricingPolicy) {
 
+        if (priceBookCache != null) {
+            final List<SkuPrice> prices = new ArrayList<SkuPrice>();
+            getPriceBook(customerShopId, currencyCode).collectPrices(skuCode, pricingPolicy, prices);
+            if (masterShopId != null && masterShopId != customerShopId) {
+                getPriceBook(masterShopId, currencyCode).collectPrices(skuCode, pricingPolicy, prices);
+            }
+            Collections.sort(prices, SkuPriceBook.BY_ID);
+            return toSkuPricePairs(prices);
+        }
+
         final List<SkuPrice> prices;
         if (StringUtils.isNotBlank(pricingPolicy)) {
             if (masterShopId != null) {
@@ -307,14 +439,7 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
                         skuCode, currencyCode, customerShopId);
             }
         }
-        if (CollectionUtils.isNotEmpty(prices)) {
-            final List<Pair<String, SkuPrice>> rez = new ArrayList<Pair<String, SkuPrice>>(prices.size());
-            for (final SkuPrice price : prices) {
-                rez.add(new Pair<String, SkuPrice>(price.getSkuCode(), price));
-            }
-            return rez;
-        }
-        return Collections.emptyList();
+        return toSkuPricePairs(prices);
 
     }
 
@@ -324,6 +449,16 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
                                                                            final String currencyCode,
                                                                            final String pricingPolicy) {
 
+        if (priceBookCache != null) {
+            final List<SkuPrice> prices = new ArrayList<SkuPrice>();
+            getPriceBook(customerShopId, currencyCode).collectPrices(productId, pricingPolicy, prices);
+            if (masterShopId != null && masterShopId != customerShopId) {
+                getPriceBook(masterShopId, currencyCode).collectPrices(productId, pricingPolicy, prices);
+            }
+            Collections.sort(prices, SkuPriceBook.BY_ID);
+            return toSkuPricePairs(prices);
+        }
+
         final List<SkuPrice> prices;
         if (StringUtils.isNotBlank(pricingPolicy)) {
             if (masterShopId != null) {
@@ -342,6 +477,12 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
                         productId, currencyCode, customerShopId);
             }
         }
+        return toSkuPricePairs(prices);
+
+    }
+
+    private List<Pair<String, SkuPrice>> toSkuPricePairs(final List<SkuPrice> prices) {
+
         if (CollectionUtils.isNotEmpty(prices)) {
             final List<Pair<String, SkuPrice>> rez = new ArrayList<Pair<String, SkuPrice>>(prices.size());
             for (final SkuPrice price : prices) {
@@ -353,6 +494,296 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
 
     }
 
+    /**
+     * Get price book for shop and currency, loading it if necessary.
+     *
+     * @param shopId   shop PK
+     * @param currency currency
+     *
+     * @return price book
+     */
+    SkuPriceBook getPriceBook(final long shopId, final String currency) {
+
+        final String key = priceBookKey(shopId, currency);
+        final SkuPriceBook cached = getLoadedPriceBook(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // single load per book, concurrent requests wait for it instead of loading the same book
+        synchronized (priceBookLock(key)) {
+
+            final SkuPriceBook loaded = getLoadedPriceBook(key);
+            if (loaded != null) {
+                return loaded;
+            }
+
+            // register key before load, so that changes committed during load wait for this lock and
+            // are applied to the book after it is loaded (load may have read pre-commit rows)
+            priceBookKeys.add(key);
+
+            final SkuPriceBook book = loadPriceBook(shopId, currency);
+
+            priceBookCache.put(key, book);
+            return book;
+
+        }
+
+    }
+
+    /**
+     * Load price book for shop and currency.
+     *
+     * @param shopId   shop PK
+     * @param currency currency
+     *
+     * @return price book
+     */
+    SkuPriceBook loadPriceBook(final long shopId, final String currency) {
+
+        final List<SkuPrice> prices = getGenericDao().findByNamedQuery("SKUPRICE.BY.SHOP.AND.CURRENCY", shopId, currency);
+        final List<Object> productSkus = getGenericDao().findQueryObjectByNamedQuery("PRODUCT.ID.AND.SKUCODE.BY.SKUPRICE.SHOP.AND.CURRENCY", shopId, currency);
+        return new SkuPriceBook(shopId, currency, prices, productSkus);
+
+    }
+
+    private SkuPriceBook getLoadedPriceBook(final String key) {
+        final Cache.ValueWrapper cached = priceBookCache.get(key);
+        if (cached != null && cached.get() != null) {
+            return (SkuPriceBook) cached.get();
+        }
+        return null;
+    }
+
+    /*
+     * Lock guards loading of the book and changes applied to it, so that change committed while book is
+     * loaded is not lost. Number of locks is bounded by number of shop and currency combinations.
+     */
+    private Object priceBookLock(final String key) {
+        final Object lock = priceBookLocks.get(key);
+        if (lock != null) {
+            return lock;
+        }
+        final Object newLock = new Object();
+        final Object existing = priceBookLocks.putIfAbsent(key, newLock);
+        return existing != null ? existing : newLock;
+    }
+
+    private String priceBookKey(final long shopId, final String currency) {
+        return shopId + ":" + currency;
+    }
+
+    /*
+     * Resolve product PK for SKU of given prices using single query per batch of SKU codes.
+     */
+    private Map<String, Long> resolvePriceBookProductIds(final Collection<SkuPrice> prices) {
+
+        final Set<String> skuCodes = new HashSet<String>();
+        for (final SkuPrice price : prices) {
+            if (price.getShop() != null) {
+                skuCodes.add(price.getSkuCode());
+            }
+        }
+
+        final Map<String, Long> productIds = new HashMap<String, Long>(skuCodes.size() * 2);
+        final List<String> codes = new ArrayList<String>(skuCodes);
+        for (int i = 0; i < codes.size(); i += PRICE_BOOK_QUERY_BATCH) {
+            final List<String> batch = new ArrayList<String>(codes.subList(i, Math.min(i + PRICE_BOOK_QUERY_BATCH, codes.size())));
+            final List<Object> productSkus = getGenericDao().findQueryObjectByNamedQuery("PRODUCT.ID.AND.SKUCODE.BY.SKUCODES", batch);
+            for (final Object productSku : productSkus) {
+                final Object[] row = (Object[]) productSku;
+                productIds.put((String) row[1], ((Number) row[0]).longValue());
+            }
+        }
+        return productIds;
+
+    }
+
+    /*
+     * Create change for committed (or about to be committed) price. Removed prices have null price.
+     */
+    private PriceBookChange toPriceBookChange(final long skuPriceId, final SkuPrice price, final Map<String, Long> productIds) {
+
+        if (price == null || price.getShop() == null) {
+            return new PriceBookChange(skuPriceId, null, null, null);
+        }
+        return new PriceBookChange(skuPriceId, price, priceBookKey(price.getShop().getShopId(), price.getCurrency()), productIds.get(price.getSkuCode()));
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void refreshPriceBooks(final Collection<Long> skuPriceIds) {
+
+        if (priceBookCache == null || skuPriceIds == null || skuPriceIds.isEmpty()) {
+            return;
+        }
+
+        // changes are already committed by the node that made them, so they are applied immediately
+        final List<Long> ids = new ArrayList<Long>(new HashSet<Long>(skuPriceIds));
+        final Map<Long, SkuPrice> prices = new HashMap<Long, SkuPrice>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i += PRICE_BOOK_QUERY_BATCH) {
+            final List<Long> batch = new ArrayList<Long>(ids.subList(i, Math.min(i + PRICE_BOOK_QUERY_BATCH, ids.size())));
+            for (final SkuPrice price : getGenericDao().findByNamedQuery("SKUPRICE.BY.IDS", batch)) {
+                prices.put(price.getSkuPriceId(), price);
+            }
+        }
+        final Map<String, Long> productIds = resolvePriceBookProductIds(prices.values());
+
+        final List<PriceBookChange> changes = new ArrayList<PriceBookChange>(ids.size());
+        for (final Long skuPriceId : ids) {
+            changes.add(toPriceBookChange(skuPriceId, prices.get(skuPriceId), productIds));
+        }
+        applyPriceBookUpdates(changes);
+
+    }
+
+    /**
+     * Apply price change to all loaded price books. Price books are shared by all threads, so if there is
+     * active transaction the change is applied only after it is committed. All changes of the transaction
+     * are applied together.
+     *
+     * @param price   changed price
+     * @param removed true if price is removed
+     */
+    private void updatePriceBooks(final SkuPrice price, final boolean removed) {
+
+        if (priceBookCache == null) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+
+            getTransactionPriceBookChanges().add(price, removed);
+
+        } else {
+
+            final Map<String, Long> productIds = removed ?
+                    Collections.<String, Long>emptyMap() : resolvePriceBookProductIds(Collections.singletonList(price));
+            applyPriceBookUpdates(Collections.singletonList(
+                    toPriceBookChange(price.getSkuPriceId(), removed ? null : price, productIds)));
+
+        }
+
+    }
+
+    /**
+     * Changes are attached to current transaction synchronization, so that suspended outer transactions
+     * (e.g. REQUIRES_NEW) keep their own changes.
+     *
+     * @return price book changes for current transaction
+     */
+    private PriceBookChangesSynchronization getTransactionPriceBookChanges() {
+
+        for (final TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sync instanceof PriceBookChangesSynchronization
+                    && ((PriceBookChangesSynchronization) sync).getOwner() == this) {
+                return (PriceBookChangesSynchronization) sync;
+            }
+        }
+
+        final PriceBookChangesSynchronization sync = new PriceBookChangesSynchronization();
+        TransactionSynchronizationManager.registerSynchronization(sync);
+        return sync;
+
+    }
+
+    /**
+     * Apply committed price changes to all loaded price books. Each book is locked once for all changes.
+     *
+     * @param changes committed changes
+     */
+    private void applyPriceBookUpdates(final List<PriceBookChange> changes) {
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // price may have been moved to different shop or currency, so remove it from all other books
+        for (final String key : priceBookKeys) {
+            synchronized (priceBookLock(key)) {
+                final SkuPriceBook book = getLoadedPriceBook(key);
+                if (book == null) {
+                    priceBookKeys.remove(key); // evicted
+                    continue;
+                }
+                for (final PriceBookChange change : changes) {
+                    if (key.equals(change.bookKey) && change.productId != null) {
+                        book.put(change.productId, change.price);
+                    } else {
+                        book.remove(change.skuPriceId);
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Committed change of a single price.
+     */
+    private static final class PriceBookChange {
+
+        private final long skuPriceId;
+        private final SkuPrice price;
+        private final String bookKey;
+        private final Long productId;
+
+        /**
+         * @param skuPriceId changed price PK
+         * @param price      changed price, null if price is removed
+         * @param bookKey    key of the book price belongs to, null if price is removed
+         * @param productId  product PK of the price SKU, null if price is removed
+         */
+        private PriceBookChange(final long skuPriceId, final SkuPrice price, final String bookKey, final Long productId) {
+            this.skuPriceId = skuPriceId;
+            this.price = price;
+            this.bookKey = bookKey;
+            this.productId = productId;
+        }
+    }
+
+    /**
+     * Collects price changes of the transaction, resolves their books before commit (while session
+     * can still be used) and applies them after commit.
+     */
+    private final class PriceBookChangesSynchronization extends TransactionSynchronizationAdapter {
+
+        // last change of each price wins, null value means price is removed
+        private final Map<Long, SkuPrice> prices = new LinkedHashMap<Long, SkuPrice>();
+        private List<PriceBookChange> changes = Collections.emptyList();
+
+        PriceServiceImpl getOwner() {
+            return PriceServiceImpl.this;
+        }
+
+        void add(final SkuPrice price, final boolean removed) {
+            prices.put(price.getSkuPriceId(), removed ? null : price);
+        }
+
+        @Override
+        public void beforeCommit(final boolean readOnly) {
+            final List<SkuPrice> changed = new ArrayList<SkuPrice>(prices.size());
+            for (final SkuPrice price : prices.values()) {
+                if (price != null) {
+                    changed.add(price);
+                }
+            }
+            final Map<String, Long> productIds = resolvePriceBookProductIds(changed);
+            final List<PriceBookChange> resolved = new ArrayList<PriceBookChange>(prices.size());
+            for (final Map.Entry<Long, SkuPrice> price : prices.entrySet()) {
+                resolved.add(toPriceBookChange(price.getKey(), price.getValue(), productIds));
+            }
+            changes = resolved;
+        }
+
+        @Override
+        public void afterCommit() {
+            applyPriceBookUpdates(changes);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -427,7 +858,9 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
      */
     public SkuPrice create(final SkuPrice instance) {
         ensureNonZeroPrices(instance);
-        return super.create(instance);
+        final SkuPrice created = super.create(instance);
+        updatePriceBooks(created, false);
+        return created;
     }
 
     /**
@@ -435,7 +868,17 @@ public class PriceServiceImpl extends BaseGenericServiceImpl<SkuPrice> implement
      */
     public SkuPrice update(final SkuPrice instance) {
         ensureNonZeroPrices(instance);
-        return super.update(instance);
+        final SkuPrice updated = super.update(instance);
+        updatePriceBooks(updated, false);
+        return updated;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void delete(final SkuPrice instance) {
+        super.delete(instance);
+        updatePriceBooks(instance, true);
     }
 
 
@@ -167,6 +167,14 @@ public class ProductServiceCachedImpl implements ProductService {
         return productService.getProductSearchResultDTOByQuery(navigationContext, firstResult, maxResults, sortFieldName, reverse);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Cacheable(value = "productService-productSearchResultDTOByQuery")
+    public ProductSearchResultPageDTO getProductSearchResultDTOByQuery(final NavigationContext navigationContext, final int firstResult, final int maxResults, final String sortFieldName, final boolean reverse, final String pageToken) {
+        return productService.getProductSearchResultDTOByQuery(navigationContext, firstResult, maxResults, sortFieldName, reverse, pageToken);
+    }
+
 
     /**
      * {@inheritDoc}
@@ -368,6 +376,13 @@ public class ProductServiceCachedImpl implements ProductService {
         productService.reindexProducts(batchSize, async);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void reindexProducts(final int batchSize, final int workers, final boolean async) {
+        productService.reindexProducts(batchSize, workers, async);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -383,6 +398,13 @@ public class ProductServiceCachedImpl implements ProductService {
         productService.reindexProductsSku(batchSize, async);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void reindexProductsSku(final int batchSize, final int workers, final boolean async) {
+        productService.reindexProductsSku(batchSize, workers, async);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -504,7 +504,7 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
 
         final List<ProductSearchResultDTO> rez = new ArrayList<ProductSearchResultDTO>(searchRez.getFirst().size());
         for (Object[] obj : searchRez.getFirst()) {
-            final ProductSearchResultDTO dto = LuceneDocumentAdapterUtils.readObjectFieldValue((String) obj[2], ProductSearchResultDTOImpl.class);
+            final ProductSearchResultDTO dto = LuceneDocumentAdapterUtils.readObjectFieldValue(obj[2], ProductSearchResultDTOImpl.class);
             rez.add(dto);
         }
 
@@ -512,6 +512,39 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public ProductSearchResultPageDTO getProductSearchResultDTOByQuery(final NavigationContext navigationContext,
+                                                                       final int firstResult,
+                                                                       final int maxResults,
+                                                                       final String sortFieldName,
+                                                                       final boolean reverse,
+                                                                       final String pageToken) {
+
+        final Pair<Pair<List<Object[]>, Integer>, String> searchRez = productDao.fullTextSearchAfter(
+                navigationContext.getProductQuery(),
+                firstResult,
+                maxResults,
+                sortFieldName,
+                reverse,
+                pageToken,
+                LuceneDocumentAdapterUtils.FIELD_PK,
+                LuceneDocumentAdapterUtils.FIELD_CLASS,
+                LuceneDocumentAdapterUtils.FIELD_OBJECT
+        );
+
+        final List<Object[]> page = searchRez.getFirst().getFirst();
+        final List<ProductSearchResultDTO> rez = new ArrayList<ProductSearchResultDTO>(page.size());
+        for (Object[] obj : page) {
+            final ProductSearchResultDTO dto = LuceneDocumentAdapterUtils.readObjectFieldValue(obj[2], ProductSearchResultDTOImpl.class);
+            rez.add(dto);
+        }
+
+        return new ProductSearchResultPageDTOImpl(rez, firstResult, maxResults, searchRez.getFirst().getSecond(), sortFieldName, reverse, searchRez.getSecond());
+
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -995,6 +1028,13 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
         productDao.fullTextSearchReindex(async, batchSize);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void reindexProducts(final int batchSize, final int workers, final boolean async) {
+        productDao.fullTextSearchReindex(async, batchSize, workers);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1010,6 +1050,13 @@ public class ProductServiceImpl extends BaseGenericServiceImpl<Product> implemen
         productSkuDao.fullTextSearchReindex(async, batchSize);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void reindexProductsSku(final int batchSize, final int workers, final boolean async) {
+        productSkuDao.fullTextSearchReindex(async, batchSize, workers);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -103,7 +103,7 @@ public class ProductSkuServiceImpl extends BaseGenericServiceImpl<ProductSku> im
 
         final List<ProductSkuSearchResultDTO> rez = new ArrayList<ProductSkuSearchResultDTO>(searchRez.getFirst().size());
         for (Object[] obj : searchRez.getFirst()) {
-            final ProductSkuSearchResultDTO dto = LuceneDocumentAdapterUtils.readObjectFieldValue((String) obj[2], ProductSkuSearchResultDTOImpl.class);
+            final ProductSkuSearchResultDTO dto = LuceneDocumentAdapterUtils.readObjectFieldValue(obj[2], ProductSkuSearchResultDTOImpl.class);
             rez.add(dto);
         }
 
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.service.domain.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.yes.cart.domain.entity.SkuPrice;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In memory price book that holds all prices for single shop and currency.
+ * <p/>
+ * Reads are lock free: prices are kept as immutable arrays per SKU and product to SKU
+ * mapping is an immutable sorted index of primitive product PK's, both replaced on
+ * write (copy on write). Writes are expected to be rare (price changes) and are serialised.
+ * <p/>
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 15:10
+ */
+public class SkuPriceBook {
+
+    private static final String[] NO_CODES = new String[0];
+
+    private final long shopId;
+    private final String currency;
+
+    private final ConcurrentMap<String, SkuPrice[]> pricesBySku;
+    private final Map<Long, String> skuByPriceId;
+    private volatile ProductIndex products;
+
+    /**
+     * Construct price book.
+     *
+     * @param shopId       shop PK
+     * @param currency     currency
+     * @param prices       all prices for shop and currency
+     * @param productSkus  pairs of product PK (Number) and SKU code (String) for all SKU
+     *                     that have prices in this book
+     */
+    public SkuPriceBook(final long shopId,
+                        final String currency,
+                        final Collection<SkuPrice> prices,
+                        final Collection<Object> productSkus) {
+
+        this.shopId = shopId;
+        this.currency = currency;
+
+        final Map<String, List<SkuPrice>> bySku = new HashMap<String, List<SkuPrice>>();
+        this.skuByPriceId = new HashMap<Long, String>(prices.size() * 2);
+        for (final SkuPrice price : prices) {
+            List<SkuPrice> skuPrices = bySku.get(price.getSkuCode());
+            if (skuPrices == null) {
+                skuPrices = new ArrayList<SkuPrice>(2);
+                bySku.put(price.getSkuCode(), skuPrices);
+            }
+            skuPrices.add(price);
+            this.skuByPriceId.put(price.getSkuPriceId(), price.getSkuCode());
+        }
+
+        this.pricesBySku = new ConcurrentHashMap<String, SkuPrice[]>(bySku.size() * 2);
+        for (final Map.Entry<String, List<SkuPrice>> entry : bySku.entrySet()) {
+            final SkuPrice[] skuPrices = entry.getValue().toArray(new SkuPrice[entry.getValue().size()]);
+            Arrays.sort(skuPrices, BY_ID);
+            this.pricesBySku.put(entry.getKey(), skuPrices);
+        }
+
+        final SortedMap<Long, Set<String>> byProduct = new TreeMap<Long, Set<String>>();
+        for (final Object row : productSkus) {
+            final Object[] productSku = (Object[]) row;
+            final Long productId = ((Number) productSku[0]).longValue();
+            Set<String> codes = byProduct.get(productId);
+            if (codes == null) {
+                codes = new TreeSet<String>();
+                byProduct.put(productId, codes);
+            }
+            codes.add((String) productSku[1]);
+        }
+        this.products = new ProductIndex(byProduct);
+
+    }
+
+    /**
+     * @return shop PK
+     */
+    public long getShopId() {
+        return shopId;
+    }
+
+    /**
+     * @return currency
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * @return number of prices in this book
+     */
+    public int size() {
+        int size = 0;
+        for (final SkuPrice[] prices : pricesBySku.values()) {
+            size += prices.length;
+        }
+        return size;
+    }
+
+    /**
+     * Collect prices for given SKU.
+     *
+     * @param skuCode       SKU code
+     * @param pricingPolicy optional pricing policy (prices without policy are always included)
+     * @param result        collector
+     */
+    public void collectPrices(final String skuCode, final String pricingPolicy, final List<SkuPrice> result) {
+
+        final SkuPrice[] prices = pricesBySku.get(skuCode);
+        if (prices != null) {
+            final boolean hasPolicy = StringUtils.isNotBlank(pricingPolicy);
+            for (final SkuPrice price : prices) {
+                if (StringUtils.isBlank(price.getPricingPolicy())
+                        || (hasPolicy && pricingPolicy.equals(price.getPricingPolicy()))) {
+                    result.add(price);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Collect prices for all SKU of given product.
+     *
+     * @param productId     product PK
+     * @param pricingPolicy optional pricing policy (prices without policy are always included)
+     * @param result        collector
+     */
+    public void collectPrices(final long productId, final String pricingPolicy, final List<SkuPrice> result) {
+
+        for (final String skuCode : products.getSkuCodes(productId)) {
+            collectPrices(skuCode, pricingPolicy, result);
+        }
+
+    }
+
+    /**
+     * Add or replace price in this book.
+     *
+     * @param productId product PK for price SKU
+     * @param price     price
+     */
+    public synchronized void put(final long productId, final SkuPrice price) {
+
+        remove(price.getSkuPriceId());
+
+        final SkuPrice[] current = pricesBySku.get(price.getSkuCode());
+        final SkuPrice[] updated;
+        if (current == null) {
+            updated = new SkuPrice[] { price };
+        } else {
+            updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = price;
+            Arrays.sort(updated, BY_ID);
+        }
+        pricesBySku.put(price.getSkuCode(), updated);
+        skuByPriceId.put(price.getSkuPriceId(), price.getSkuCode());
+
+        products = products.with(productId, price.getSkuCode());
+
+    }
+
+    /**
+     * Remove price from this book.
+     *
+     * @param skuPriceId price PK
+     *
+     * @return true if price was in this book
+     */
+    public synchronized boolean remove(final long skuPriceId) {
+
+        final String skuCode = skuByPriceId.remove(skuPriceId);
+        if (skuCode == null) {
+            return false;
+        }
+
+        final SkuPrice[] current = pricesBySku.get(skuCode);
+        if (current != null) {
+            final List<SkuPrice> remaining = new ArrayList<SkuPrice>(current.length);
+            for (final SkuPrice price : current) {
+                if (price.getSkuPriceId() != skuPriceId) {
+                    remaining.add(price);
+                }
+            }
+            if (remaining.isEmpty()) {
+                pricesBySku.remove(skuCode);
+            } else {
+                pricesBySku.put(skuCode, remaining.toArray(new SkuPrice[remaining.size()]));
+            }
+        }
+        // product index is left as is since lookups by code without prices are harmless
+        return true;
+
+    }
+
+
+    /**
+     * Price PK order, which is the natural order of prices when selected from database.
+     */
+    static final Comparator<SkuPrice> BY_ID = new Comparator<SkuPrice>() {
+        @Override
+        public int compare(final SkuPrice price1, final SkuPrice price2) {
+            return price1.getSkuPriceId() < price2.getSkuPriceId() ? -1 : (price1.getSkuPriceId() == price2.getSkuPriceId() ? 0 : 1);
+        }
+    };
+
+
+    /**
+     * Immutable product to SKU codes index keyed by sorted primitive product PK's.
+     */
+    private static final class ProductIndex {
+
+        private final long[] productIds;
+        private final String[][] skuCodes;
+
+        private ProductIndex(final SortedMap<Long, Set<String>> byProduct) {
+            this.productIds = new long[byProduct.size()];
+            this.skuCodes = new String[byProduct.size()][];
+            int i = 0;
+            for (final Map.Entry<Long, Set<String>> entry : byProduct.entrySet()) {
+                this.productIds[i] = entry.getKey();
+                this.skuCodes[i] = entry.getValue().toArray(new String[entry.getValue().size()]);
+                i++;
+            }
+        }
+
+        private ProductIndex(final long[] productIds, final String[][] skuCodes) {
+            this.productIds = productIds;
+            this.skuCodes = skuCodes;
+        }
+
+        String[] getSkuCodes(final long productId) {
+            final int pos = Arrays.binarySearch(productIds, productId);
+            return pos < 0 ? NO_CODES : skuCodes[pos];
+        }
+
+        ProductIndex with(final long productId, final String skuCode) {
+            final int pos = Arrays.binarySearch(productIds, productId);
+            if (pos >= 0) {
+                final String[] codes = skuCodes[pos];
+                if (Arrays.asList(codes).contains(skuCode)) {
+                    return this;
+                }
+                final String[][] newCodes = skuCodes.clone();
+                newCodes[pos] = Arrays.copyOf(codes, codes.length + 1);
+                newCodes[pos][codes.length] = skuCode;
+                return new ProductIndex(productIds, newCodes);
+            }
+            final int insert = -pos - 1;
+            final long[] newIds = new long[productIds.length + 1];
+            final String[][] newCodes = new String[skuCodes.length + 1][];
+            System.arraycopy(productIds, 0, newIds, 0, insert);
+            System.arraycopy(skuCodes, 0, newCodes, 0, insert);
+            newIds[insert] = productId;
+            newCodes[insert] = new String[] { skuCode };
+            System.arraycopy(productIds, insert, newIds, insert + 1, productIds.length - insert);
+            System.arraycopy(skuCodes, insert, newCodes, insert + 1, skuCodes.length - insert);
+            return new ProductIndex(newIds, newCodes);
+        }
+
+    }
+
+}
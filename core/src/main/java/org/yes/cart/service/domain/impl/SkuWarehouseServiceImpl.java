@@ -305,7 +305,13 @@ public class SkuWarehouseServiceImpl extends BaseGenericServiceImpl<SkuWarehouse
     private SkuWarehouse findByWarehouseSkuForUpdate(final Warehouse warehouse, final String productSkuCode) {
         final SkuWarehouse inventory = findByWarehouseSku(warehouse, productSkuCode);
         if (inventory != null) {
-            return getGenericDao().findById(inventory.getSkuWarehouseId(), true);
+            final SkuWarehouse locked = getGenericDao().findById(inventory.getSkuWarehouseId(), true);
+            if (locked != null) {
+                // Lock upgrade does not re-read entity already in session, so refresh while holding row lock
+                // to make sure quantities reflect the latest committed state
+                getGenericDao().refresh(locked);
+            }
+            return locked;
         }
         return null;
     }
@@ -54,19 +54,28 @@ public class TaxConfigServiceCachedImpl implements TaxConfigService {
     }
 
     /** {@inheritDoc} */
-    @CacheEvict(value = "taxConfigService-getTaxIdBy", allEntries = true)
+    @CacheEvict(value = {
+            "taxConfigService-getTaxIdBy",
+            "taxConfigService-taxRuleMatrix"
+    }, allEntries = true)
     public TaxConfig create(final TaxConfig instance) {
         return taxConfigService.create(instance);
     }
 
     /** {@inheritDoc} */
-    @CacheEvict(value = "taxConfigService-getTaxIdBy", allEntries = true)
+    @CacheEvict(value = {
+            "taxConfigService-getTaxIdBy",
+            "taxConfigService-taxRuleMatrix"
+    }, allEntries = true)
     public TaxConfig update(final TaxConfig instance) {
         return taxConfigService.update(instance);
     }
 
     /** {@inheritDoc} */
-    @CacheEvict(value = "taxConfigService-getTaxIdBy", allEntries = true)
+    @CacheEvict(value = {
+            "taxConfigService-getTaxIdBy",
+            "taxConfigService-taxRuleMatrix"
+    }, allEntries = true)
     public void delete(final TaxConfig instance) {
         taxConfigService.delete(instance);
     }
@@ -19,6 +19,8 @@ package org.yes.cart.service.domain.impl;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Restrictions;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Tax;
 import org.yes.cart.domain.entity.TaxConfig;
@@ -37,17 +39,35 @@ import java.util.List;
  */
 public class TaxConfigServiceImpl extends BaseGenericServiceImpl<TaxConfig> implements TaxConfigService {
 
+    private static final String TAX_RULE_MATRIX_CACHE = "taxConfigService-taxRuleMatrix";
+
     private final TaxService taxService;
 
+    private final Cache taxRuleMatrixCache;
+
+    /**
+     * Constructor.
+     *
+     * @param genericDao          tax config dao
+     * @param taxService          tax service
+     * @param cacheManager        optional cache manager, if "taxConfigService-taxRuleMatrix" cache is configured
+     *                            taxes are resolved from in memory tax rule matrices instead of per item queries
+     */
     public TaxConfigServiceImpl(final GenericDAO<TaxConfig, Long> genericDao,
-                                final TaxService taxService) {
+                                final TaxService taxService,
+                                final CacheManager cacheManager) {
         super(genericDao);
         this.taxService = taxService;
+        this.taxRuleMatrixCache = cacheManager != null ? cacheManager.getCache(TAX_RULE_MATRIX_CACHE) : null;
     }
 
     /** {@inheritDoc} */
     public Long getTaxIdBy(final String shopCode, final String currency, final String countryCode, final String stateCode, final String productCode) {
 
+        if (taxRuleMatrixCache != null) {
+            return getTaxRuleMatrix(shopCode, currency).getTaxId(countryCode, stateCode, productCode);
+        }
+
         final List<Tax> shopTaxes = taxService.getTaxesByShopCode(shopCode, currency);
         if (shopTaxes.isEmpty()) {
             return null;
@@ -64,6 +84,37 @@ public class TaxConfigServiceImpl extends BaseGenericServiceImpl<TaxConfig> impl
 
     }
 
+    /**
+     * Get tax rule matrix for shop and currency. Matrix is built on first access and held in
+     * "taxConfigService-taxRuleMatrix" cache until tax or tax configuration changes.
+     *
+     * @param shopCode shop code
+     * @param currency currency
+     *
+     * @return tax rule matrix
+     */
+    TaxRuleMatrix getTaxRuleMatrix(final String shopCode, final String currency) {
+
+        final String key = shopCode + ":" + currency;
+        final Cache.ValueWrapper cached = taxRuleMatrixCache.get(key);
+        if (cached != null && cached.get() != null) {
+            return (TaxRuleMatrix) cached.get();
+        }
+
+        final List<Tax> shopTaxes = taxService.getTaxesByShopCode(shopCode, currency);
+        final List<TaxConfig> taxConfigs;
+        if (shopTaxes.isEmpty()) {
+            taxConfigs = Collections.emptyList();
+        } else {
+            taxConfigs = getGenericDao().findByNamedQuery("TAXCONFIG.IN.TAXES", shopTaxes);
+        }
+        final TaxRuleMatrix matrix = new TaxRuleMatrix(taxConfigs);
+
+        taxRuleMatrixCache.put(key, matrix);
+        return matrix;
+
+    }
+
     /**
      * The sorting rule:
      * 1. Product state specific tax
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.domain.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.yes.cart.domain.entity.TaxConfig;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable in memory tax rule matrix that holds all tax configurations for single shop and currency.
+ * <p/>
+ * Rules are keyed by product, country and state, so resolution is a fixed number of map lookups
+ * that follow the same priority as {@link TaxConfigServiceImpl#PRIORITY}: product specific rules
+ * (state, country, shop) are layered over regional defaults (state, country, shop). Within the
+ * same level more specific rule (e.g. state rule that also specifies country) wins.
+ * <p/>
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:05
+ */
+public class TaxRuleMatrix {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final Map<String, Long> taxIdByRule;
+
+    /**
+     * Construct matrix.
+     *
+     * @param taxConfigs all tax configurations for shop and currency
+     */
+    public TaxRuleMatrix(final Collection<TaxConfig> taxConfigs) {
+
+        this.taxIdByRule = new HashMap<String, Long>(taxConfigs.size() * 2);
+        for (final TaxConfig taxConfig : taxConfigs) {
+            final String key = key(taxConfig.getProductCode(), taxConfig.getCountryCode(), taxConfig.getStateCode());
+            if (!this.taxIdByRule.containsKey(key)) {
+                this.taxIdByRule.put(key, taxConfig.getTax().getTaxId());
+            }
+        }
+
+    }
+
+    /**
+     * Resolve tax for given location and product.
+     *
+     * @param countryCode country code (optional)
+     * @param stateCode   state code (optional)
+     * @param productCode product or SKU code (optional)
+     *
+     * @return tax PK or null if no rule is applicable
+     */
+    public Long getTaxId(final String countryCode, final String stateCode, final String productCode) {
+
+        if (taxIdByRule.isEmpty()) {
+            return null;
+        }
+
+        final String country = StringUtils.isEmpty(countryCode) ? null : countryCode;
+        final String state = StringUtils.isEmpty(stateCode) ? null : stateCode;
+        final String product = StringUtils.isEmpty(productCode) ? null : productCode;
+
+        if (product != null) {
+            final Long productTax = getRegionalTaxId(product, country, state);
+            if (productTax != null) {
+                return productTax;
+            }
+        }
+        return getRegionalTaxId(null, country, state);
+
+    }
+
+    private Long getRegionalTaxId(final String product, final String country, final String state) {
+
+        Long taxId;
+        if (state != null) {
+            if (country != null) {
+                taxId = taxIdByRule.get(key(product, country, state));
+                if (taxId != null) {
+                    return taxId;
+                }
+            }
+            taxId = taxIdByRule.get(key(product, null, state));
+            if (taxId != null) {
+                return taxId;
+            }
+        }
+        if (country != null) {
+            taxId = taxIdByRule.get(key(product, country, null));
+            if (taxId != null) {
+                return taxId;
+            }
+        }
+        return taxIdByRule.get(key(product, null, null));
+
+    }
+
+    /**
+     * @return number of rules in this matrix
+     */
+    public int size() {
+        return taxIdByRule.size();
+    }
+
+    private static String key(final String product, final String country, final String state) {
+        final StringBuilder key = new StringBuilder();
+        if (StringUtils.isNotEmpty(product)) {
+            key.append(product);
+        }
+        key.append(SEPARATOR);
+        if (StringUtils.isNotEmpty(country)) {
+            key.append(country);
+        }
+        key.append(SEPARATOR);
+        if (StringUtils.isNotEmpty(state)) {
+            key.append(state);
+        }
+        return key.toString();
+    }
+
+}
@@ -59,7 +59,8 @@ public class TaxServiceCachedImpl implements TaxService {
     /** {@inheritDoc} */
     @CacheEvict(value = {
             "taxService-getTaxesByShopCode",
-            "taxService-getById"
+            "taxService-getById",
+            "taxConfigService-taxRuleMatrix"
     }, allEntries = true)
     public Tax create(final Tax instance) {
         return taxService.create(instance);
@@ -68,7 +69,8 @@ public class TaxServiceCachedImpl implements TaxService {
     /** {@inheritDoc} */
     @CacheEvict(value = {
             "taxService-getTaxesByShopCode",
-            "taxService-getById"
+            "taxService-getById",
+            "taxConfigService-taxRuleMatrix"
     }, allEntries = true)
     public Tax update(final Tax instance) {
         return taxService.update(instance);
@@ -77,7 +79,8 @@ public class TaxServiceCachedImpl implements TaxService {
     /** {@inheritDoc} */
     @CacheEvict(value = {
             "taxService-getTaxesByShopCode",
-            "taxService-getById"
+            "taxService-getById",
+            "taxConfigService-taxRuleMatrix"
     }, allEntries = true)
     public void delete(final Tax instance) {
         taxService.delete(instance);
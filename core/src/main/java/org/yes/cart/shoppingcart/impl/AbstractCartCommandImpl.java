@@ -64,13 +64,26 @@ public abstract class AbstractCartCommandImpl implements ConfigurableShoppingCar
     public abstract void execute(final MutableShoppingCart shoppingCart, final Map<String, Object> parameters);
 
     /**
-     * Recalculate shopping cart.
+     * Recalculate shopping cart. If this command is executed as part of command chain
+     * (see {@link ShoppingCartCommandFactoryImpl#execute(ShoppingCart, Map)}) recalculation
+     * is deferred until all commands in the chain are executed.
      *
      * @param shoppingCart current cart
      */
     protected void recalculate(final MutableShoppingCart shoppingCart) {
-        shoppingCart.recalculate();
-        setCheckoutOptions(shoppingCart);
+        if (!ShoppingCartCommandBatch.defer(shoppingCart, this)) {
+            recalculateNow(shoppingCart);
+        }
+    }
+
+    /**
+     * Perform recalculation of the shopping cart immediately.
+     *
+     * @param shoppingCart current cart
+     */
+    void recalculateNow(final ShoppingCart shoppingCart) {
+        ((MutableShoppingCart) shoppingCart).recalculate();
+        setCheckoutOptions((MutableShoppingCart) shoppingCart);
     }
 
     /**
@@ -28,6 +28,8 @@ import org.yes.cart.shoppingcart.*;
 import org.yes.cart.util.MoneyUtils;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Abstract cart prices recalculation command.
@@ -90,9 +92,26 @@ public abstract class AbstractRecalculatePriceCartCommandImpl extends AbstractCa
 
             final PricingPolicyProvider.PricingPolicy policy = determinePricingPolicy(shoppingCart);
 
+            final Map<String, BigDecimal> skuQuantities = new LinkedHashMap<String, BigDecimal>();
             for (final CartItem cartItem : shoppingCart.getCartItemList()) {
+                skuQuantities.put(cartItem.getProductSkuCode(), cartItem.getQty());
+            }
+
+            if (!skuQuantities.isEmpty()) {
+
+                final Map<String, SkuPrice> skuPrices = getPriceResolver().getMinimalPrices(
+                        skuQuantities,
+                        customerShopId,
+                        fallbackShopId,
+                        shoppingCart.getCurrencyCode(),
+                        false,
+                        policy.getID());
+
+                for (final Map.Entry<String, SkuPrice> skuPrice : skuPrices.entrySet()) {
 
-                setProductSkuPrice(shoppingCart, customerShopId, fallbackShopId, cartItem.getProductSkuCode(), cartItem.getQty(), policy);
+                    setProductSkuPrice(shoppingCart, skuPrice.getKey(), skuPrice.getValue());
+
+                }
 
             }
 
@@ -158,21 +177,8 @@ public abstract class AbstractRecalculatePriceCartCommandImpl extends AbstractCa
     }
 
     private void setProductSkuPrice(final MutableShoppingCart shoppingCart,
-                                    final long customerShopId,
-                                    final Long masterShopId,
                                     final String skuCode,
-                                    final BigDecimal qty,
-                                    final PricingPolicyProvider.PricingPolicy policy) {
-
-        final SkuPrice skuPrice = getPriceResolver().getMinimalPrice(
-                null,
-                skuCode,
-                customerShopId,
-                masterShopId,
-                shoppingCart.getCurrencyCode(),
-                qty,
-                false,
-                policy.getID());
+                                    final SkuPrice skuPrice) {
 
         if (shoppingCart.setProductSkuPrice(
                 skuCode,
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart.impl;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.yes.cart.domain.entity.Customer;
+import org.yes.cart.shoppingcart.CustomerSnapshot;
+
+/**
+ * Immutable customer snapshot.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:50
+ */
+public class CustomerSnapshotImpl implements CustomerSnapshot {
+
+    private static final long serialVersionUID = 20171018L;
+
+    private final long customerId;
+    private final String email;
+    private final long shopId;
+    private final String customerType;
+    private final String tag;
+    private final String pricingPolicy;
+    private final long capturedTimestamp;
+
+    /**
+     * Capture snapshot of given customer.
+     *
+     * @param customer customer
+     * @param shopId   shop PK for which customer was loaded
+     */
+    public CustomerSnapshotImpl(final Customer customer, final long shopId) {
+        this(customer.getCustomerId(), customer.getEmail(), shopId,
+                customer.getCustomerType(), customer.getTag(), customer.getPricingPolicy(),
+                System.currentTimeMillis());
+    }
+
+    @JsonCreator
+    public CustomerSnapshotImpl(@JsonProperty("customerId") final long customerId,
+                                @JsonProperty("email") final String email,
+                                @JsonProperty("shopId") final long shopId,
+                                @JsonProperty("customerType") final String customerType,
+                                @JsonProperty("tag") final String tag,
+                                @JsonProperty("pricingPolicy") final String pricingPolicy,
+                                @JsonProperty("capturedTimestamp") final long capturedTimestamp) {
+        this.customerId = customerId;
+        this.email = email;
+        this.shopId = shopId;
+        this.customerType = customerType;
+        this.tag = tag;
+        this.pricingPolicy = pricingPolicy;
+        this.capturedTimestamp = capturedTimestamp;
+    }
+
+    /** {@inheritDoc} */
+    public long getCustomerId() {
+        return customerId;
+    }
+
+    /** {@inheritDoc} */
+    public String getEmail() {
+        return email;
+    }
+
+    /** {@inheritDoc} */
+    public long getShopId() {
+        return shopId;
+    }
+
+    /** {@inheritDoc} */
+    public String getCustomerType() {
+        return customerType;
+    }
+
+    /** {@inheritDoc} */
+    public String getTag() {
+        return tag;
+    }
+
+    /** {@inheritDoc} */
+    public String getPricingPolicy() {
+        return pricingPolicy;
+    }
+
+    /** {@inheritDoc} */
+    public long getCapturedTimestamp() {
+        return capturedTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerSnapshotImpl{" +
+                "customerId=" + customerId +
+                ", email='" + email + '\'' +
+                ", shopId=" + shopId +
+                ", customerType='" + customerType + '\'' +
+                ", capturedTimestamp=" + capturedTimestamp +
+                '}';
+    }
+}
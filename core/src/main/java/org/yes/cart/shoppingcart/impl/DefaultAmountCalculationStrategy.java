@@ -23,6 +23,7 @@ import org.yes.cart.domain.entity.Customer;
 import org.yes.cart.domain.entity.CustomerOrder;
 import org.yes.cart.domain.entity.CustomerOrderDelivery;
 import org.yes.cart.domain.entity.Shop;
+import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.promotion.PromotionContext;
 import org.yes.cart.promotion.PromotionContextFactory;
 import org.yes.cart.service.domain.CustomerService;
@@ -71,6 +72,8 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
     private final CustomerService customerService;
     private final ShopService shopService;
 
+    private long customerSnapshotTtl = 300000L;
+
     /**
      * Construct default amount calculator with included tax.
      *
@@ -96,22 +99,13 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
     /** {@inheritDoc} */
     public Total calculate(final MutableShoppingCart cart) {
 
-        final Customer customer;
-        if (StringUtils.isNotBlank(cart.getCustomerEmail())) {
-            final Shop shop = shopService.getById(cart.getShoppingContext().getShopId());
-            if (shop != null) {
-                customer = customerService.getCustomerByEmail(cart.getCustomerEmail(), shop);
-            } else {
-                customer = null;
-            }
-        } else {
-            customer = null;
-        }
-
         final PromotionContext promoCtx = promotionContextFactory.getInstance(cart.getShoppingContext().getShopCode(), cart.getCurrencyCode());
 
+        final Pair<CustomerSnapshot, Customer> customer = resolveCustomer(cart, promoCtx.isCustomerRequired());
+        final CustomerSnapshot snapshot = customer.getFirst();
+
         // 1. Apply all item level promotions as the first step
-        applyItemLevelPromotions(customer, cart, promoCtx);
+        applyItemLevelPromotions(snapshot, customer.getSecond(), cart, promoCtx);
 
         // 2. Calculate current subtotal (including item promotions, excluding delivery cost)
         final Total itemTotal = applyTaxToCartItemsAndCalculateItemTotal(cart);
@@ -123,11 +117,11 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
         final Total draftOrderTotal = deliveryCostTotalNoTax != null ? itemTotal.add(deliveryCostTotalNoTax) : itemTotal.add(ZERO_TOTAL);
 
         // 5. Use current cart + dummy item total to calculate order level promotions
-        final Total orderTotal = applyOrderLevelPromotions(customer, cart, draftOrderTotal, promoCtx);
+        final Total orderTotal = applyOrderLevelPromotions(snapshot, customer.getSecond(), cart, draftOrderTotal, promoCtx);
 
         // 6. At this stage we have reliable total for the whole order so we can
         //    calculate shipping promotions
-        applyShippingPromotions(customer, cart, orderTotal, promoCtx);
+        applyShippingPromotions(snapshot, customer.getSecond(), cart, orderTotal, promoCtx);
 
         // 7. Calculate final order total (including delivery cost)
         final Total finalTotal = applyTaxToShippingAndCalculateOrderTotal(cart, orderTotal);
@@ -136,20 +130,70 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
 
     }
 
-    void applyItemLevelPromotions(final Customer customer,
+    /**
+     * Resolve customer for promotions. If shopping context has a fresh snapshot for current customer
+     * then snapshot is used for tags, type and pricing policy and customer entity is loaded only if
+     * promotions require it (i.e. eligibility conditions refer to customer). Otherwise customer is
+     * loaded and snapshot is captured.
+     *
+     * @param cart             cart
+     * @param customerRequired true if customer entity has to be loaded
+     *
+     * @return snapshot and customer, where snapshot is null for anonymous cart and customer is null
+     *         if it is not required or not found
+     */
+    protected Pair<CustomerSnapshot, Customer> resolveCustomer(final MutableShoppingCart cart,
+                                                               final boolean customerRequired) {
+
+        if (StringUtils.isBlank(cart.getCustomerEmail())) {
+            return new Pair<CustomerSnapshot, Customer>(null, null);
+        }
+
+        final MutableShoppingContext ctx = cart.getShoppingContext();
+        final CustomerSnapshot snapshot = ctx.getCustomerSnapshot();
+        final boolean fresh = snapshot != null
+                && snapshot.getShopId() == ctx.getShopId()
+                && cart.getCustomerEmail().equals(snapshot.getEmail())
+                && System.currentTimeMillis() - snapshot.getCapturedTimestamp() < customerSnapshotTtl;
+
+        if (fresh && !customerRequired) {
+            return new Pair<CustomerSnapshot, Customer>(snapshot, null);
+        }
+
+        final Shop shop = shopService.getById(ctx.getShopId());
+        final Customer customer = shop != null ? customerService.getCustomerByEmail(cart.getCustomerEmail(), shop) : null;
+        if (customer == null) {
+            return new Pair<CustomerSnapshot, Customer>(null, null);
+        }
+
+        if (fresh) {
+            return new Pair<CustomerSnapshot, Customer>(snapshot, customer);
+        }
+
+        final CustomerSnapshot captured = new CustomerSnapshotImpl(customer, shop.getShopId());
+        if (customerSnapshotTtl > 0L) {
+            ctx.setCustomerSnapshot(captured);
+        }
+        return new Pair<CustomerSnapshot, Customer>(captured, customer);
+
+    }
+
+    void applyItemLevelPromotions(final CustomerSnapshot customerSnapshot,
+                                  final Customer customer,
                                   final MutableShoppingCart cart,
                                   final PromotionContext promoCtx) {
 
-        promoCtx.applyItemPromo(customer, cart);
+        promoCtx.applyItemPromo(customerSnapshot, customer, cart);
 
     }
 
-    Total applyOrderLevelPromotions(final Customer customer,
+    Total applyOrderLevelPromotions(final CustomerSnapshot customerSnapshot,
+                                    final Customer customer,
                                     final MutableShoppingCart cart,
                                     final Total itemTotal,
                                     final PromotionContext promoCtx) {
 
-        final Total tmp = promoCtx.applyOrderPromo(customer, cart, itemTotal);
+        final Total tmp = promoCtx.applyOrderPromo(customerSnapshot, customer, cart, itemTotal);
 
         final BigDecimal orderLevelDiscountRatio = MoneyUtils.isFirstBiggerThanSecond(itemTotal.getSubTotal(), BigDecimal.ZERO) ? tmp.getSubTotal().divide(itemTotal.getSubTotal(), 16, RoundingMode.HALF_UP) : Total.ZERO;
 
@@ -186,12 +230,13 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
 
     }
 
-    void applyShippingPromotions(final Customer customer,
+    void applyShippingPromotions(final CustomerSnapshot customerSnapshot,
+                                 final Customer customer,
                                  final MutableShoppingCart cart,
                                  final Total orderTotal,
                                  final PromotionContext promoCtx) {
 
-        promoCtx.applyShippingPromo(customer, cart, orderTotal);
+        promoCtx.applyShippingPromo(customerSnapshot, customer, cart, orderTotal);
 
     }
 
@@ -626,4 +671,14 @@ public class DefaultAmountCalculationStrategy implements AmountCalculationStrate
     }
 
 
+    /**
+     * Time for which customer snapshot in shopping context is trusted, after that customer
+     * is reloaded and snapshot is captured again. Zero disables snapshots.
+     *
+     * @param customerSnapshotTtlSeconds time to live in seconds
+     */
+    public void setCustomerSnapshotTtlSeconds(final int customerSnapshotTtlSeconds) {
+        this.customerSnapshotTtl = customerSnapshotTtlSeconds * 1000L;
+    }
+
 }
@@ -100,6 +100,7 @@ public class LoginCommandImpl extends AbstractRecalculatePriceCartCommandImpl im
                 ctx.setCustomerEmail(customer.getEmail());
                 ctx.setCustomerName(customerService.formatNameFor(customer, current));
                 ctx.setCustomerShops(customerShops);
+                ctx.setCustomerSnapshot(new CustomerSnapshotImpl(customer, ctx.getShopId()));
                 setDefaultCustomerOptions(shoppingCart);
                 setDefaultAddressesIfNecessary(current, customer, shoppingCart);
                 setDefaultTaxOptions(shoppingCart);
@@ -22,6 +22,7 @@ import org.yes.cart.shoppingcart.PriceResolver;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User: denispavlov
@@ -42,6 +43,12 @@ public class PriceResolverDefaultImpl implements PriceResolver {
         return this.priceService.getMinimalPrice(productId, selectedSku, customerShopId, masterShopId, currencyCode, quantity, enforceTier, pricingPolicy);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, SkuPrice> getMinimalPrices(final Map<String, BigDecimal> skuQuantities, final long customerShopId, final Long masterShopId, final String currencyCode, final boolean enforceTier, final String pricingPolicy) {
+        return this.priceService.getMinimalPrices(skuQuantities, customerShopId, masterShopId, currencyCode, enforceTier, pricingPolicy);
+    }
+
     /** {@inheritDoc} */
     @Override
     public List<SkuPrice> getAllCurrentPrices(final Long productId, final String selectedSku, final long customerShopId, final Long masterShopId, final String currencyCode, final String pricingPolicy) {
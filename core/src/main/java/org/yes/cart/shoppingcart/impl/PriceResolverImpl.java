@@ -49,6 +49,12 @@ public class PriceResolverImpl implements PriceResolver, ConfigurationRegistry<L
         return getPriceResolver(customerShopId).getMinimalPrice(productId, selectedSku, customerShopId, masterShopId, currencyCode, quantity, enforceTier, pricingPolicy);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, SkuPrice> getMinimalPrices(final Map<String, BigDecimal> skuQuantities, final long customerShopId, final Long masterShopId, final String currencyCode, final boolean enforceTier, final String pricingPolicy) {
+        return getPriceResolver(customerShopId).getMinimalPrices(skuQuantities, customerShopId, masterShopId, currencyCode, enforceTier, pricingPolicy);
+    }
+
     /** {@inheritDoc} */
     @Override
     public List<SkuPrice> getAllCurrentPrices(final Long productId, final String selectedSku, final long customerShopId, final Long masterShopId, final String currencyCode, final String pricingPolicy) {
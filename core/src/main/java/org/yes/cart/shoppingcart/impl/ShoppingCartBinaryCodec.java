@@ -0,0 +1,500 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart.impl;
+
+import org.yes.cart.shoppingcart.CustomerSnapshot;
+import org.yes.cart.shoppingcart.MutableShoppingContext;
+import org.yes.cart.shoppingcart.OrderInfo;
+import org.yes.cart.shoppingcart.Total;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Compact binary format for {@link ShoppingCartImpl} and its parts ({@link CartItemImpl},
+ * {@link ShoppingContextImpl}, {@link OrderInfoImpl} and {@link TotalImpl}).
+ *
+ * Properties are written in fixed order, nullable values are prefixed by length or presence marker.
+ * Format version is not part of this codec's output, it is supplied by the caller (see
+ * ShoppingCartStateSerializerBinaryImpl) so that header and compression are kept in one place.
+ * Any change to the format must bump {@link #VERSION} and keep reading of older versions.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 14:12
+ */
+public final class ShoppingCartBinaryCodec {
+
+    /** Current format version. Version 2 adds customer snapshot to shopping context. */
+    public static final int VERSION = 2;
+
+    /** Oldest format version that can be read. */
+    public static final int VERSION_MIN = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private ShoppingCartBinaryCodec() {
+        // no instance
+    }
+
+    /**
+     * Write cart in current format {@link #VERSION}.
+     *
+     * @param out  output
+     * @param cart cart
+     *
+     * @throws IOException on encoding errors
+     */
+    public static void write(final DataOutputStream out, final ShoppingCartImpl cart) throws IOException {
+
+        writeString(out, cart.getGuid());
+        writeString(out, cart.getCurrentLocale());
+        writeString(out, cart.getCurrencyCode());
+        out.writeLong(cart.getModifiedTimestamp());
+        out.writeLong(cart.getProcessingStartTimestamp());
+        out.writeBoolean(cart.isPromotionsDisabled());
+        writeString(out, cart.getOrdernum());
+        writeStrings(out, cart.getCoupons());
+        writeItems(out, cart.getItems());
+        writeItems(out, cart.getGifts());
+        writeItems(out, cart.getShipping());
+        writeTotal(out, cart.getTotal());
+        writeContext(out, cart.getShoppingContext());
+        writeOrderInfo(out, cart.getOrderInfo());
+
+    }
+
+    /**
+     * Read cart.
+     *
+     * @param in      input
+     * @param version format version
+     *
+     * @return cart
+     *
+     * @throws IOException on decoding errors or unsupported version
+     */
+    public static ShoppingCartImpl read(final DataInputStream in, final int version) throws IOException {
+
+        if (version < VERSION_MIN || version > VERSION) {
+            throw new IOException("Unsupported cart state version: " + version);
+        }
+
+        final ShoppingCartImpl cart = new ShoppingCartImpl();
+
+        final String guid = readString(in);
+        cart.setCurrentLocale(readString(in));
+        cart.setCurrencyCode(readString(in));
+        final long modifiedTimestamp = in.readLong();
+        final long processingStartTimestamp = in.readLong();
+        cart.setPromotionsDisabled(in.readBoolean());
+        cart.setOrdernum(readString(in));
+        final List<String> coupons = readStrings(in);
+        if (coupons != null) {
+            for (final String coupon : coupons) {
+                cart.addCoupon(coupon);
+            }
+        }
+        readItems(in, cart.getItems());
+        readItems(in, cart.getGifts());
+        readItems(in, cart.getShipping());
+        final Total total = readTotal(in);
+        readContext(in, (ShoppingContextImpl) cart.getShoppingContext(), version);
+        readOrderInfo(in, (OrderInfoImpl) cart.getOrderInfo());
+
+        cart.restoreInternalState(guid, modifiedTimestamp, processingStartTimestamp, total);
+
+        return cart;
+    }
+
+    private static void writeItems(final DataOutputStream out, final List<CartItemImpl> items) throws IOException {
+
+        writeVarInt(out, items.size());
+        for (final CartItemImpl item : items) {
+            writeString(out, item.getProductSkuCode());
+            writeString(out, item.getProductName());
+            writeDecimal(out, item.getQty());
+            writeString(out, item.getSupplierCode());
+            writeString(out, item.getDeliveryGroup());
+            writeDecimal(out, item.getPrice());
+            writeDecimal(out, item.getSalePrice());
+            writeDecimal(out, item.getListPrice());
+            writeDecimal(out, item.getNetPrice());
+            writeDecimal(out, item.getGrossPrice());
+            writeDecimal(out, item.getTaxRate());
+            writeString(out, item.getTaxCode());
+            int flags = 0;
+            if (item.isTaxExclusiveOfPrice()) {
+                flags |= 1;
+            }
+            if (item.isGift()) {
+                flags |= 2;
+            }
+            if (item.isPromoApplied()) {
+                flags |= 4;
+            }
+            if (item.isFixedPrice()) {
+                flags |= 8;
+            }
+            out.writeByte(flags);
+            writeString(out, item.getAppliedPromo());
+        }
+
+    }
+
+    private static void readItems(final DataInputStream in, final List<CartItemImpl> items) throws IOException {
+
+        final int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            final CartItemImpl item = new CartItemImpl();
+            item.setProductSkuCode(readString(in));
+            item.setProductName(readString(in));
+            item.setQuantity(readDecimal(in));
+            item.setSupplierCode(readString(in));
+            item.setDeliveryGroup(readString(in));
+            item.setPrice(readDecimal(in));
+            item.setSalePrice(readDecimal(in));
+            item.setListPrice(readDecimal(in));
+            item.setNetPrice(readDecimal(in));
+            item.setGrossPrice(readDecimal(in));
+            item.setTaxRate(readDecimal(in));
+            item.setTaxCode(readString(in));
+            final int flags = in.readByte();
+            item.setTaxExclusiveOfPrice((flags & 1) != 0);
+            item.setGift((flags & 2) != 0);
+            item.setPromoApplied((flags & 4) != 0);
+            item.setFixedPrice((flags & 8) != 0);
+            item.setAppliedPromo(readString(in));
+            items.add(item);
+        }
+
+    }
+
+    private static void writeTotal(final DataOutputStream out, final Total total) throws IOException {
+
+        writeDecimal(out, total.getListSubTotal());
+        writeDecimal(out, total.getSaleSubTotal());
+        writeDecimal(out, total.getNonSaleSubTotal());
+        writeDecimal(out, total.getPriceSubTotal());
+        out.writeBoolean(total.isOrderPromoApplied());
+        writeString(out, total.getAppliedOrderPromo());
+        writeDecimal(out, total.getSubTotal());
+        writeDecimal(out, total.getSubTotalTax());
+        writeDecimal(out, total.getSubTotalAmount());
+        writeDecimal(out, total.getDeliveryListCost());
+        writeDecimal(out, total.getDeliveryCost());
+        out.writeBoolean(total.isDeliveryPromoApplied());
+        writeString(out, total.getAppliedDeliveryPromo());
+        writeDecimal(out, total.getDeliveryTax());
+        writeDecimal(out, total.getDeliveryCostAmount());
+        writeDecimal(out, total.getTotal());
+        writeDecimal(out, total.getTotalTax());
+        writeDecimal(out, total.getListTotalAmount());
+        writeDecimal(out, total.getTotalAmount());
+
+    }
+
+    private static Total readTotal(final DataInputStream in) throws IOException {
+
+        return new TotalImpl(
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                in.readBoolean(),
+                readString(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                in.readBoolean(),
+                readString(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in)
+        );
+
+    }
+
+    private static void writeContext(final DataOutputStream out, final MutableShoppingContext ctx) throws IOException {
+
+        out.writeLong(ctx.getShopId());
+        writeString(out, ctx.getShopCode());
+        out.writeLong(ctx.getCustomerShopId());
+        writeString(out, ctx.getCustomerShopCode());
+        writeString(out, ctx.getCustomerName());
+        writeString(out, ctx.getCustomerEmail());
+        writeStrings(out, ctx.getCustomerShops());
+        writeString(out, ctx.getCountryCode());
+        writeString(out, ctx.getStateCode());
+        int flags = 0;
+        if (ctx.isTaxInfoChangeViewEnabled()) {
+            flags |= 1;
+        }
+        if (ctx.isTaxInfoEnabled()) {
+            flags |= 2;
+        }
+        if (ctx.isTaxInfoUseNet()) {
+            flags |= 4;
+        }
+        if (ctx.isTaxInfoShowAmount()) {
+            flags |= 8;
+        }
+        if (ctx.isHidePrices()) {
+            flags |= 16;
+        }
+        out.writeByte(flags);
+        writeStrings(out, ctx.getLatestViewedSkus());
+        writeStrings(out, ctx.getLatestViewedCategories());
+        writeString(out, ctx.getResolvedIp());
+        final CustomerSnapshot snapshot = ctx.getCustomerSnapshot();
+        out.writeBoolean(snapshot != null);
+        if (snapshot != null) {
+            out.writeLong(snapshot.getCustomerId());
+            writeString(out, snapshot.getEmail());
+            out.writeLong(snapshot.getShopId());
+            writeString(out, snapshot.getCustomerType());
+            writeString(out, snapshot.getTag());
+            writeString(out, snapshot.getPricingPolicy());
+            out.writeLong(snapshot.getCapturedTimestamp());
+        }
+
+    }
+
+    private static void readContext(final DataInputStream in, final ShoppingContextImpl ctx, final int version) throws IOException {
+
+        // shop must be set first since setters reset customer shop
+        ctx.setShopId(in.readLong());
+        ctx.setShopCode(readString(in));
+        ctx.setCustomerShopId(in.readLong());
+        ctx.setCustomerShopCode(readString(in));
+        ctx.setCustomerName(readString(in));
+        ctx.setCustomerEmail(readString(in));
+        ctx.setCustomerShops(readStrings(in));
+        ctx.setCountryCode(readString(in));
+        ctx.setStateCode(readString(in));
+        final int flags = in.readByte();
+        ctx.setTaxInfoChangeViewEnabled((flags & 1) != 0);
+        ctx.setTaxInfoEnabled((flags & 2) != 0);
+        ctx.setTaxInfoUseNet((flags & 4) != 0);
+        ctx.setTaxInfoShowAmount((flags & 8) != 0);
+        ctx.setHidePrices((flags & 16) != 0);
+        ctx.setLatestViewedSkus(readStrings(in));
+        ctx.setLatestViewedCategories(readStrings(in));
+        ctx.setResolvedIp(readString(in));
+        if (version >= 2 && in.readBoolean()) {
+            ctx.setCustomerSnapshot(new CustomerSnapshotImpl(
+                    in.readLong(), readString(in), in.readLong(),
+                    readString(in), readString(in), readString(in),
+                    in.readLong()
+            ));
+        }
+
+    }
+
+    private static void writeOrderInfo(final DataOutputStream out, final OrderInfo info) throws IOException {
+
+        writeString(out, info.getPaymentGatewayLabel());
+        int flags = 0;
+        if (info.isMultipleDelivery()) {
+            flags |= 1;
+        }
+        if (info.isSeparateBillingAddress()) {
+            flags |= 2;
+        }
+        if (info.isSeparateBillingAddressEnabled()) {
+            flags |= 4;
+        }
+        if (info.isBillingAddressNotRequired()) {
+            flags |= 8;
+        }
+        if (info.isDeliveryAddressNotRequired()) {
+            flags |= 16;
+        }
+        out.writeByte(flags);
+        writeLong(out, info.getBillingAddressId());
+        writeLong(out, info.getDeliveryAddressId());
+
+        final Map<String, Long> carrierSla = info.getCarrierSlaId();
+        writeVarInt(out, carrierSla.size());
+        for (final Map.Entry<String, Long> entry : carrierSla.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+
+        final Map<String, Boolean> multipleDeliveryAvailable = info.getMultipleDeliveryAvailable();
+        writeVarInt(out, multipleDeliveryAvailable.size());
+        for (final Map.Entry<String, Boolean> entry : multipleDeliveryAvailable.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeBoolean(entry.getValue());
+        }
+
+        // order message is one of the details
+        final Map<String, String> details = info.getDetails();
+        writeVarInt(out, details.size());
+        for (final Map.Entry<String, String> entry : details.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+
+    }
+
+    private static void readOrderInfo(final DataInputStream in, final OrderInfoImpl info) throws IOException {
+
+        info.setPaymentGatewayLabel(readString(in));
+        final int flags = in.readByte();
+        info.setMultipleDelivery((flags & 1) != 0);
+        info.setSeparateBillingAddress((flags & 2) != 0);
+        info.setSeparateBillingAddressEnabled((flags & 4) != 0);
+        info.setBillingAddressNotRequired((flags & 8) != 0);
+        info.setDeliveryAddressNotRequired((flags & 16) != 0);
+        info.setBillingAddressId(readLong(in));
+        info.setDeliveryAddressId(readLong(in));
+
+        final int carrierSla = readVarInt(in);
+        for (int i = 0; i < carrierSla; i++) {
+            final String supplier = readString(in);
+            info.putCarrierSlaId(supplier, in.readLong());
+        }
+
+        final int multipleDeliveryAvailable = readVarInt(in);
+        for (int i = 0; i < multipleDeliveryAvailable; i++) {
+            final String supplier = readString(in);
+            info.putMultipleDeliveryAvailable(supplier, in.readBoolean());
+        }
+
+        final int details = readVarInt(in);
+        if (details > 0) {
+            final Map<String, String> map = new HashMap<String, String>(details * 2);
+            for (int i = 0; i < details; i++) {
+                final String key = readString(in);
+                map.put(key, readString(in));
+            }
+            info.setDetails(map);
+        }
+
+    }
+
+    private static void writeStrings(final DataOutputStream out, final Collection<String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, values.size() + 1);
+        for (final String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(final DataInputStream in) throws IOException {
+        final int size = readVarInt(in);
+        if (size == 0) {
+            return null;
+        }
+        final List<String> values = new ArrayList<String>(size - 1);
+        for (int i = 1; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeLong(final DataOutputStream out, final Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? Long.valueOf(in.readLong()) : null;
+    }
+
+    private static void writeDecimal(final DataOutputStream out, final BigDecimal value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        final byte[] unscaled = value.unscaledValue().toByteArray();
+        writeVarInt(out, unscaled.length + 1);
+        out.write(unscaled);
+        writeVarInt(out, value.scale() + 1);
+    }
+
+    private static BigDecimal readDecimal(final DataInputStream in) throws IOException {
+        final int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        final byte[] unscaled = new byte[length - 1];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), readVarInt(in) - 1);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        final byte[] utf = value.getBytes(UTF8);
+        writeVarInt(out, utf.length + 1);
+        out.write(utf);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        final byte[] utf = new byte[length - 1];
+        in.readFully(utf);
+        return new String(utf, UTF8);
+    }
+
+    private static void writeVarInt(final DataOutputStream out, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Malformed var int");
+            }
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+}
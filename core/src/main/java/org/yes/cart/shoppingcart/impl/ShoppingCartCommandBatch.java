@@ -0,0 +1,111 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.shoppingcart.impl;
+
+import org.yes.cart.shoppingcart.ShoppingCart;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Thread bound batch of cart commands executed against a single cart. While batch for a cart
+ * is open recalculation requests from {@link AbstractCartCommandImpl} are deferred so that
+ * the full amount calculation runs once when the batch is closed.
+ * <p/>
+ * Batches are tracked per cart instance, so nested command execution for the same cart joins
+ * the outer batch whereas execution for a different cart opens its own.
+ * <p/>
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 14:05
+ */
+final class ShoppingCartCommandBatch {
+
+    private static final ThreadLocal<Map<ShoppingCart, ShoppingCartCommandBatch>> BATCHES =
+            new ThreadLocal<Map<ShoppingCart, ShoppingCartCommandBatch>>() {
+                @Override
+                protected Map<ShoppingCart, ShoppingCartCommandBatch> initialValue() {
+                    return new IdentityHashMap<ShoppingCart, ShoppingCartCommandBatch>();
+                }
+            };
+
+    private final ShoppingCart shoppingCart;
+    private AbstractCartCommandImpl deferredBy;
+    private int requests;
+
+    private ShoppingCartCommandBatch(final ShoppingCart shoppingCart) {
+        this.shoppingCart = shoppingCart;
+    }
+
+    /**
+     * Open batch for given cart.
+     *
+     * @param shoppingCart cart
+     *
+     * @return new batch or null if batch for this cart is already open on current thread
+     */
+    static ShoppingCartCommandBatch open(final ShoppingCart shoppingCart) {
+        final Map<ShoppingCart, ShoppingCartCommandBatch> batches = BATCHES.get();
+        if (batches.containsKey(shoppingCart)) {
+            return null;
+        }
+        final ShoppingCartCommandBatch batch = new ShoppingCartCommandBatch(shoppingCart);
+        batches.put(shoppingCart, batch);
+        return batch;
+    }
+
+    /**
+     * Defer recalculation if there is an open batch for given cart.
+     *
+     * @param shoppingCart cart
+     * @param command      command requesting recalculation
+     *
+     * @return true if recalculation is deferred, false if it must be performed immediately
+     */
+    static boolean defer(final ShoppingCart shoppingCart, final AbstractCartCommandImpl command) {
+        final Map<ShoppingCart, ShoppingCartCommandBatch> batches = BATCHES.get();
+        if (batches.isEmpty()) {
+            return false;
+        }
+        final ShoppingCartCommandBatch batch = batches.get(shoppingCart);
+        if (batch == null) {
+            return false;
+        }
+        batch.deferredBy = command;
+        batch.requests++;
+        return true;
+    }
+
+    /**
+     * Close this batch and perform single recalculation if any was requested.
+     *
+     * @return number of recalculations that were requested within this batch
+     */
+    int close() {
+        final Map<ShoppingCart, ShoppingCartCommandBatch> batches = BATCHES.get();
+        batches.remove(shoppingCart);
+        if (batches.isEmpty()) {
+            BATCHES.remove();
+        }
+        if (deferredBy != null) {
+            deferredBy.recalculateNow(shoppingCart);
+        }
+        return requests;
+    }
+
+}
@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import org.yes.cart.shoppingcart.*;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * .
@@ -41,6 +42,11 @@ public class ShoppingCartCommandFactoryImpl implements ShoppingCartCommandFactor
     private ConfigurableShoppingCartCommand[] commands;
     private final Map<String, ConfigurableShoppingCartCommand> commandByKey = new HashMap<String, ConfigurableShoppingCartCommand>();
 
+    private boolean batchRecalculation = true;
+
+    private final AtomicLong recalculationsPerformed = new AtomicLong();
+    private final AtomicLong recalculationsAvoided = new AtomicLong();
+
     public ShoppingCartCommandFactoryImpl(final ShoppingCartCommandConfigurationProvider configurationProvider) {
         this.configurationProvider = configurationProvider;
     }
@@ -76,8 +82,20 @@ public class ShoppingCartCommandFactoryImpl implements ShoppingCartCommandFactor
     /** {@inheritDoc} */
     @Override
     public void execute(final ShoppingCart shoppingCart, final Map<String, Object> parameters) {
-        for (ShoppingCartCommand command : commands) {
-            command.execute(shoppingCart, parameters);
+        // null batch means no batching or nested execution that joins outer batch for this cart
+        final ShoppingCartCommandBatch batch = batchRecalculation ? ShoppingCartCommandBatch.open(shoppingCart) : null;
+        try {
+            for (ShoppingCartCommand command : commands) {
+                command.execute(shoppingCart, parameters);
+            }
+        } finally {
+            if (batch != null) {
+                final int requested = batch.close();
+                if (requested > 0) {
+                    recalculationsPerformed.incrementAndGet();
+                    recalculationsAvoided.addAndGet(requested - 1);
+                }
+            }
         }
     }
 
@@ -91,6 +109,37 @@ public class ShoppingCartCommandFactoryImpl implements ShoppingCartCommandFactor
         }
     }
 
+    /**
+     * Batch mode, in which commands in the chain only mark the cart for recalculation and
+     * single recalculation is performed after all commands are executed.
+     *
+     * @param batchRecalculation true to enable batch mode (default)
+     */
+    public void setBatchRecalculation(final boolean batchRecalculation) {
+        this.batchRecalculation = batchRecalculation;
+    }
+
+    /**
+     * @return true if batch mode is enabled
+     */
+    public boolean isBatchRecalculation() {
+        return batchRecalculation;
+    }
+
+    /**
+     * @return number of recalculations performed at the end of command chain in batch mode
+     */
+    public long getRecalculationsPerformed() {
+        return recalculationsPerformed.get();
+    }
+
+    /**
+     * @return number of recalculations requested by commands that were avoided in batch mode
+     */
+    public long getRecalculationsAvoided() {
+        return recalculationsAvoided.get();
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getCmdKey() {
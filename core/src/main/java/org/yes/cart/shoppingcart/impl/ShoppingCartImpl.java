@@ -668,6 +668,24 @@ public class ShoppingCartImpl implements MutableShoppingCart {
     }
 
 
+    /**
+     * Internal access to restore state that has no setters (used by {@link ShoppingCartBinaryCodec}).
+     *
+     * @param guid                     cart guid
+     * @param modifiedTimestamp        last modified
+     * @param processingStartTimestamp processing start
+     * @param total                    cart total
+     */
+    void restoreInternalState(final String guid,
+                              final long modifiedTimestamp,
+                              final long processingStartTimestamp,
+                              final Total total) {
+        this.guid = guid;
+        this.modifiedTimestamp = modifiedTimestamp;
+        this.processingStartTimestamp = processingStartTimestamp;
+        this.total = total;
+    }
+
     /**
      * Internal access to mutable items.
      */
@@ -16,6 +16,7 @@
 
 package org.yes.cart.shoppingcart.impl;
 
+import org.yes.cart.shoppingcart.CustomerSnapshot;
 import org.yes.cart.shoppingcart.MutableShoppingContext;
 
 import java.util.ArrayList;
@@ -42,6 +43,7 @@ public class ShoppingContextImpl implements MutableShoppingContext {
     private String stateCode;
     private String customerEmail;
     private List<String> customerShops;
+    private CustomerSnapshot customerSnapshot;
 
     private boolean taxInfoChangeViewEnabled;
     private boolean taxInfoEnabled;
@@ -75,6 +77,7 @@ public class ShoppingContextImpl implements MutableShoppingContext {
         customerEmail = null;
         customerName = null;
         customerShops = new ArrayList<String>(0);
+        customerSnapshot = null;
         customerShopId = shopId;
         customerShopCode = shopCode;
     }
@@ -324,4 +327,14 @@ public class ShoppingContextImpl implements MutableShoppingContext {
     public void setHidePrices(final boolean hidePrices) {
         this.hidePrices = hidePrices;
     }
+
+    /** {@inheritDoc} */
+    public CustomerSnapshot getCustomerSnapshot() {
+        return customerSnapshot;
+    }
+
+    /** {@inheritDoc} */
+    public void setCustomerSnapshot(final CustomerSnapshot customerSnapshot) {
+        this.customerSnapshot = customerSnapshot;
+    }
 }
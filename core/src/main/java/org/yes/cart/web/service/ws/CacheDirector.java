@@ -19,6 +19,8 @@ package org.yes.cart.web.service.ws;
 import org.yes.cart.domain.dto.impl.CacheInfoDTOImpl;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service responsible  to evict particular cache(s) depending on entity and operation.
@@ -79,4 +81,15 @@ public interface CacheDirector {
      */
     int onCacheableChange(String entityOperation, String entityName, Long pkValue);
 
+    /**
+     * Fire batch of entity change events coalesced by cache in a single pass.
+     *
+     * @param evictAll  caches that have to be cleared
+     * @param evictKeys keys to evict per cache (ignored for caches in evictAll)
+     * @param evictTags tags ("EntityName:PK") to evict per cache (ignored for caches in evictAll)
+     *
+     * @return number of evictions
+     */
+    int onCacheableBulkChange(Set<String> evictAll, Map<String, Set<Long>> evictKeys, Map<String, Set<String>> evictTags);
+
 }
@@ -20,8 +20,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.yes.cart.cache.CacheEntityChangeHandler;
+import org.yes.cart.cache.TaggedCacheManager;
 import org.yes.cart.domain.dto.impl.CacheInfoDTOImpl;
 import org.yes.cart.domain.misc.Pair;
+import org.yes.cart.search.dao.LuceneIndexProvider;
 import org.yes.cart.web.service.ws.CacheDirector;
 
 import java.util.*;
@@ -43,6 +46,12 @@ public class CacheDirectorImpl implements CacheDirector {
 
     private Set<String> skipEvictAll = Collections.emptySet();
 
+    private List<LuceneIndexProvider> indexProviders = Collections.emptyList();
+
+    private Map<String, CacheEntityChangeHandler> entityChangeHandlers = Collections.emptyMap();
+
+    private int entityChangeHandlerMaxBatch = 500;
+
     /**
      * {@inheritDoc}
      */
@@ -62,34 +71,111 @@ public class CacheDirectorImpl implements CacheDirector {
             final net.sf.ehcache.Cache nativeCache = (net.sf.ehcache.Cache) cache.getNativeCache();
             final LiveCacheStatistics stats = nativeCache.getLiveCacheStatistics();
             final boolean statsEnabled = stats != null && stats.isStatisticsEnabled();
+            final CacheInfoDTOImpl info;
             if (statsEnabled) {
+                info = new CacheInfoDTOImpl(
+                        nativeCache.getName(),
+                        nativeCache.getSize(),
+                        nativeCache.getMemoryStoreSize(),
+                        nativeCache.getDiskStoreSize(),
+                        stats.getCacheHitCount(),
+                        stats.getCacheMissCount(),
+                        nativeCache.calculateInMemorySize(),
+                        nativeCache.calculateOnDiskSize()
+                );
+            } else {
+                info = new CacheInfoDTOImpl(
+                        nativeCache.getName(),
+                        nativeCache.getSize(),
+                        nativeCache.getMemoryStoreSize(),
+                        nativeCache.getDiskStoreSize()
+                );
+            }
+            if (cacheManager instanceof TaggedCacheManager) {
+                info.setTagEvictions(((TaggedCacheManager) cacheManager).getTagEvictions(cacheName));
+            }
+            rez.add(info);
+
+        }
+        for (final LuceneIndexProvider indexProvider : indexProviders) {
+            final int size = indexProvider.getFacetsStateCacheSize();
+            if (indexProvider.isFacetsStateCacheStatsEnabled()) {
                 rez.add(
                         new CacheInfoDTOImpl(
-                                nativeCache.getName(),
-                                nativeCache.getSize(),
-                                nativeCache.getMemoryStoreSize(),
-                                nativeCache.getDiskStoreSize(),
-                                stats.getCacheHitCount(),
-                                stats.getCacheMissCount(),
-                                nativeCache.calculateInMemorySize(),
-                                nativeCache.calculateOnDiskSize()
+                                getFacetsStateCacheName(indexProvider),
+                                size,
+                                size,
+                                0,
+                                indexProvider.getFacetsStateCacheHits(),
+                                indexProvider.getFacetsStateCacheMisses(),
+                                -1,
+                                -1
                         )
                 );
             } else {
                 rez.add(
                         new CacheInfoDTOImpl(
-                                nativeCache.getName(),
-                                nativeCache.getSize(),
-                                nativeCache.getMemoryStoreSize(),
-                                nativeCache.getDiskStoreSize()
+                                getFacetsStateCacheName(indexProvider),
+                                size,
+                                size,
+                                0
+                        )
+                );
+            }
+            final int storedValuesSize = indexProvider.getStoredValuesCacheSize();
+            if (indexProvider.isStoredValuesCacheStatsEnabled()) {
+                rez.add(
+                        new CacheInfoDTOImpl(
+                                getStoredValuesCacheName(indexProvider),
+                                storedValuesSize,
+                                storedValuesSize,
+                                0,
+                                indexProvider.getStoredValuesCacheHits(),
+                                indexProvider.getStoredValuesCacheMisses(),
+                                -1,
+                                -1
+                        )
+                );
+            } else {
+                rez.add(
+                        new CacheInfoDTOImpl(
+                                getStoredValuesCacheName(indexProvider),
+                                storedValuesSize,
+                                storedValuesSize,
+                                0
                         )
                 );
             }
-
         }
         return rez;
     }
 
+    private String getFacetsStateCacheName(final LuceneIndexProvider indexProvider) {
+        return "luceneIndexProvider-" + indexProvider.getName() + "-facetsState";
+    }
+
+    private LuceneIndexProvider getFacetsStateCacheProvider(final String cacheName) {
+        for (final LuceneIndexProvider indexProvider : indexProviders) {
+            if (getFacetsStateCacheName(indexProvider).equals(cacheName)) {
+                return indexProvider;
+            }
+        }
+        return null;
+    }
+
+    private String getStoredValuesCacheName(final LuceneIndexProvider indexProvider) {
+        return "luceneIndexProvider-" + indexProvider.getName() + "-storedValues";
+    }
+
+    private LuceneIndexProvider getStoredValuesCacheProvider(final String cacheName) {
+        for (final LuceneIndexProvider indexProvider : indexProviders) {
+            if (getStoredValuesCacheName(indexProvider).equals(cacheName)) {
+                return indexProvider;
+            }
+        }
+        return null;
+    }
+
     Set<String> getSkipEvictAll() {
         return skipEvictAll;
     }
@@ -109,6 +195,14 @@ public class CacheDirectorImpl implements CacheDirector {
                 cache.clear();
             }
         }
+        for (final LuceneIndexProvider indexProvider : indexProviders) {
+            if (force || !this.skipEvictAll.contains(getFacetsStateCacheName(indexProvider))) {
+                indexProvider.clearFacetsStateCache();
+            }
+            if (force || !this.skipEvictAll.contains(getStoredValuesCacheName(indexProvider))) {
+                indexProvider.clearStoredValuesCache();
+            }
+        }
     }
 
     /**
@@ -119,6 +213,16 @@ public class CacheDirectorImpl implements CacheDirector {
         final Cache cache = cm.getCache(cacheName);
         if (cache != null) {
             cache.clear();
+        } else {
+            final LuceneIndexProvider indexProvider = getFacetsStateCacheProvider(cacheName);
+            if (indexProvider != null) {
+                indexProvider.clearFacetsStateCache();
+            } else {
+                final LuceneIndexProvider storedValuesProvider = getStoredValuesCacheProvider(cacheName);
+                if (storedValuesProvider != null) {
+                    storedValuesProvider.clearStoredValuesCache();
+                }
+            }
         }
     }
 
@@ -131,6 +235,16 @@ public class CacheDirectorImpl implements CacheDirector {
         if (cache != null) {
             final net.sf.ehcache.Cache nativeCache = (net.sf.ehcache.Cache) cache.getNativeCache();
             nativeCache.setStatisticsEnabled(true);
+        } else {
+            final LuceneIndexProvider indexProvider = getFacetsStateCacheProvider(cacheName);
+            if (indexProvider != null) {
+                indexProvider.setFacetsStateCacheStatsEnabled(true);
+            } else {
+                final LuceneIndexProvider storedValuesProvider = getStoredValuesCacheProvider(cacheName);
+                if (storedValuesProvider != null) {
+                    storedValuesProvider.setStoredValuesCacheStatsEnabled(true);
+                }
+            }
         }
     }
 
@@ -141,6 +255,16 @@ public class CacheDirectorImpl implements CacheDirector {
         if (cache != null) {
             final net.sf.ehcache.Cache nativeCache = (net.sf.ehcache.Cache) cache.getNativeCache();
             nativeCache.setStatisticsEnabled(false);
+        } else {
+            final LuceneIndexProvider indexProvider = getFacetsStateCacheProvider(cacheName);
+            if (indexProvider != null) {
+                indexProvider.setFacetsStateCacheStatsEnabled(false);
+            } else {
+                final LuceneIndexProvider storedValuesProvider = getStoredValuesCacheProvider(cacheName);
+                if (storedValuesProvider != null) {
+                    storedValuesProvider.setStoredValuesCacheStatsEnabled(false);
+                }
+            }
         }
     }
 
@@ -175,6 +299,12 @@ public class CacheDirectorImpl implements CacheDirector {
 
                         cnt ++;
 
+                    } else if("tag".equals(cacheStrategy.getSecond())) {
+
+                        evictTag(cache, entityName, pkValue);
+
+                        cnt ++;
+
                     } else {
 
                         LOG.warn("The [" + cacheStrategy.getSecond() + "] cache eviction strategy not supported");
@@ -190,6 +320,205 @@ public class CacheDirectorImpl implements CacheDirector {
         return cnt;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public int onCacheableBulkChange(final Set<String> evictAll,
+                                     final Map<String, Set<Long>> evictKeys,
+                                     final Map<String, Set<String>> evictTags) {
+
+        int cnt = 0;
+
+        final CacheManager cm = getCacheManager();
+
+        if (evictAll != null) {
+
+            for (final String cacheName : evictAll) {
+
+                final Cache cache = cm.getCache(cacheName);
+
+                if (cache != null) {
+
+                    cache.clear();
+
+                    cnt ++;
+
+                }
+
+            }
+
+        }
+
+        if (evictKeys != null) {
+
+            for (final Map.Entry<String, Set<Long>> cacheKeys : evictKeys.entrySet()) {
+
+                if (evictAll != null && evictAll.contains(cacheKeys.getKey())) {
+                    continue; // already cleared
+                }
+
+                final Cache cache = cm.getCache(cacheKeys.getKey());
+
+                if (cache != null) {
+
+                    for (final Long pkValue : cacheKeys.getValue()) {
+
+                        cache.evict(pkValue);
+
+                        cnt ++;
+
+                    }
+
+                }
+
+            }
+
+        }
+
+        if (evictTags != null) {
+
+            for (final Map.Entry<String, Set<String>> cacheTags : evictTags.entrySet()) {
+
+                if (evictAll != null && evictAll.contains(cacheTags.getKey())) {
+                    continue; // already cleared
+                }
+
+                final Cache cache = cm.getCache(cacheTags.getKey());
+
+                if (cache != null) {
+
+                    cnt += evictTags(cache, cacheTags.getValue());
+
+                }
+
+            }
+
+        }
+
+        return cnt;
+    }
+
+    /**
+     * Evict entries of given cache that depend on given tags ("entityName:pk"). Changes of the same entity
+     * are passed to cache change handler together. If there are more than {@link #setEntityChangeHandlerMaxBatch(int)}
+     * changes of the same entity applying them in place is more expensive than reloading the cache, so
+     * cache is cleared instead.
+     *
+     * @param cache cache
+     * @param tags  tags of changed entities
+     *
+     * @return number of evicted tags
+     */
+    int evictTags(final Cache cache, final Collection<String> tags) {
+
+        final Map<String, List<String>> pkValuesByEntity = new LinkedHashMap<String, List<String>>();
+        for (final String tag : tags) {
+            final int pos = tag.indexOf(':');
+            if (pos == -1) {
+                cache.clear();
+                return 1;
+            }
+            final String entityName = tag.substring(0, pos);
+            List<String> pkValues = pkValuesByEntity.get(entityName);
+            if (pkValues == null) {
+                pkValues = new ArrayList<String>();
+                pkValuesByEntity.put(entityName, pkValues);
+            }
+            pkValues.add(tag.substring(pos + 1));
+        }
+
+        int cnt = 0;
+
+        final CacheEntityChangeHandler handler = entityChangeHandlers.get(cache.getName());
+        for (final Map.Entry<String, List<String>> entityPkValues : pkValuesByEntity.entrySet()) {
+
+            final String entityName = entityPkValues.getKey();
+            final List<String> pkValues = entityPkValues.getValue();
+
+            if (handler != null) {
+
+                if (pkValues.size() > entityChangeHandlerMaxBatch) {
+                    LOG.info("Too many changes of " + entityName + " (" + pkValues.size() + ") to apply to cache "
+                            + cache.getName() + ", cache will be cleared");
+                    cache.clear();
+                    return cnt + 1;
+                }
+
+                try {
+                    if (handler.onEntityChanges(cache.getName(), entityName, pkValues)) {
+                        cnt += pkValues.size();
+                        continue;
+                    }
+                } catch (Exception exp) {
+                    LOG.error("Unable to apply changes of " + entityName + " " + pkValues + " to cache " + cache.getName() + ", cache will be cleared", exp);
+                }
+
+            }
+
+            for (final String pkValue : pkValues) {
+
+                cnt ++;
+
+                if (!evictTaggedEntries(cache, entityName, pkValue)) {
+                    return cnt; // cache was cleared
+                }
+
+            }
+
+        }
+
+        return cnt;
+
+    }
+
+    /**
+     * Evict entries of given cache that depend on given entity. If cache has change handler that can apply
+     * the change in place nothing is evicted. If cache does not keep tags or entity changes cannot be
+     * expressed as tags the whole cache is cleared.
+     *
+     * @param cache      cache
+     * @param entityName entity name
+     * @param pkValue    primary key
+     *
+     * @return true if evicted by tag, false if cache was cleared
+     */
+    boolean evictTag(final Cache cache, final String entityName, final Object pkValue) {
+
+        final CacheEntityChangeHandler handler = entityChangeHandlers.get(cache.getName());
+        if (pkValue != null && handler != null) {
+            try {
+                if (handler.onEntityChange(cache.getName(), entityName, pkValue)) {
+                    return true;
+                }
+            } catch (Exception exp) {
+                LOG.error("Unable to apply change of " + entityName + ":" + pkValue + " to cache " + cache.getName() + ", cache will be cleared", exp);
+            }
+        }
+
+        return evictTaggedEntries(cache, entityName, pkValue);
+
+    }
+
+    /*
+     * Evict entries tagged with given entity, or clear cache if entries are not tagged.
+     */
+    private boolean evictTaggedEntries(final Cache cache, final String entityName, final Object pkValue) {
+
+        final CacheManager cm = getCacheManager();
+
+        if (pkValue != null && cm instanceof TaggedCacheManager
+                && ((TaggedCacheManager) cm).isTagged(cache.getName(), entityName)) {
+
+            ((TaggedCacheManager) cm).evictByTag(cache.getName(), entityName + ":" + pkValue);
+            return true;
+
+        }
+
+        cache.clear();
+        return false;
+
+    }
+
     /**
      * Resolve caches names for invalidation for given entity and operation.
      * @param entityOperation given operation
@@ -218,6 +547,21 @@ public class CacheDirectorImpl implements CacheDirector {
         this.cacheManager = cacheManager;
     }
 
+    /** IoC. Set handlers that apply entity changes in place for "tag" strategy, keyed by cache name.  */
+    public void setEntityChangeHandlers(final Map<String, CacheEntityChangeHandler> entityChangeHandlers) {
+        this.entityChangeHandlers = entityChangeHandlers;
+    }
+
+    /** IoC. Set max number of changes of single entity type passed to change handler, cache is cleared if there are more.  */
+    public void setEntityChangeHandlerMaxBatch(final int entityChangeHandlerMaxBatch) {
+        this.entityChangeHandlerMaxBatch = entityChangeHandlerMaxBatch;
+    }
+
+    /** IoC. Set index providers which facet state caches should be reported in cache info.  */
+    public void setIndexProviders(final List<LuceneIndexProvider> indexProviders) {
+        this.indexProviders = indexProviders;
+    }
+
     /** IoC. Set cachecs that should not be evicted during evict all.  */
     public void setSkipEvictAll(final Set<String> skipEvictAll) {
         this.skipEvictAll = skipEvictAll;
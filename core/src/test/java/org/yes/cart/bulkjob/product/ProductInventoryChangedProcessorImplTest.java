@@ -16,11 +16,16 @@
 
 package org.yes.cart.bulkjob.product;
 
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
 import org.junit.Test;
 import org.springframework.cache.CacheManager;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.yes.cart.BaseCoreDBTestCase;
+import org.yes.cart.cache.CacheBundleHelper;
+import org.yes.cart.cache.CacheTagResolver;
 import org.yes.cart.domain.dto.ProductSearchResultDTO;
 import org.yes.cart.domain.entity.Product;
 import org.yes.cart.domain.entity.Warehouse;
@@ -47,6 +52,8 @@ import static org.junit.Assert.*;
  */
 public class ProductInventoryChangedProcessorImplTest extends BaseCoreDBTestCase {
 
+    private final Mockery mockery = new JUnit4Mockery();
+
 
     @Test
     public void testRun() throws Exception {
@@ -137,7 +144,7 @@ public class ProductInventoryChangedProcessorImplTest extends BaseCoreDBTestCase
                     }
 
                     @Override
-                    protected void flushCaches() {
+                    protected void flushCaches(final List<String> skuCodes) {
 
                     }
                 }.doRun(new Date()); // this should reindex product and it will be removed as there is no inventory
@@ -215,7 +222,7 @@ public class ProductInventoryChangedProcessorImplTest extends BaseCoreDBTestCase
                     }
 
                     @Override
-                    protected void flushCaches() {
+                    protected void flushCaches(final List<String> skuCodes) {
 
                     }
                 }.doRun(new Date()); // this should reindex product and it will be removed as there is no inventory
@@ -233,6 +240,33 @@ public class ProductInventoryChangedProcessorImplTest extends BaseCoreDBTestCase
 
     }
 
+    @Test
+    public void testFlushCachesThreshold() throws Exception {
+
+        final CacheBundleHelper productCacheHelper = mockery.mock(CacheBundleHelper.class, "productCacheHelper");
+
+        mockery.checking(new Expectations() {{
+            one(productCacheHelper).flushBundleCaches(CacheTagResolver.SKU_CODE, Arrays.asList("SKU-1", "SKU-2"));
+            exactly(2).of(productCacheHelper).flushBundleCaches();
+        }});
+
+        final ProductInventoryChangedProcessorImpl processor =
+                new ProductInventoryChangedProcessorImpl(null, null, null, null, null, productCacheHelper) {
+                    @Override
+                    protected int getCacheFlushMaxSize() {
+                        return 2;
+                    }
+                };
+
+        // within threshold, evict only entries of changed SKU
+        processor.flushCaches(Arrays.asList("SKU-1", "SKU-2"));
+        // above threshold, flush all
+        processor.flushCaches(Arrays.asList("SKU-1", "SKU-2", "SKU-3"));
+        // full reindex, flush all
+        processor.flushCaches(null);
 
+        mockery.assertIsSatisfied();
+
+    }
 
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.cache.impl;
+
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.ehcache.EhCacheCacheManager;
+import org.yes.cart.domain.entity.Brand;
+import org.yes.cart.domain.entity.Product;
+import org.yes.cart.domain.entity.ProductSku;
+import org.yes.cart.domain.entity.SkuPrice;
+import org.yes.cart.domain.entity.SkuWarehouse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 18:20
+ */
+public class TaggingCacheManagerImplTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    private net.sf.ehcache.CacheManager ehcache;
+    private TaggingCacheManagerImpl cacheManager;
+
+    @Before
+    public void setUp() throws Exception {
+
+        final Configuration config = new Configuration();
+        config.setName("taggingCacheManagerImplTest");
+        config.setUpdateCheck(false);
+        config.addDefaultCache(new CacheConfiguration("default", 100));
+        config.addCache(new CacheConfiguration("products", 100));
+        config.addCache(new CacheConfiguration("other", 100));
+        ehcache = new net.sf.ehcache.CacheManager(config);
+
+        final EhCacheCacheManager delegate = new EhCacheCacheManager();
+        delegate.setCacheManager(ehcache);
+        delegate.afterPropertiesSet();
+
+        cacheManager = new TaggingCacheManagerImpl(delegate, new DomainCacheTagResolverImpl());
+        cacheManager.setTaggedCaches(Collections.singleton("products"));
+
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ehcache.shutdown();
+    }
+
+    @Test
+    public void testEvictByTag() throws Exception {
+
+        final Product p1 = context.mock(Product.class, "p1");
+        final Product p2 = context.mock(Product.class, "p2");
+        final ProductSku sku1 = context.mock(ProductSku.class, "sku1");
+        final Brand brand = context.mock(Brand.class, "brand");
+
+        context.checking(new Expectations() {{
+            allowing(p1).getProductId(); will(returnValue(1L));
+            allowing(p1).getBrand(); will(returnValue(brand));
+            allowing(p1).getSku(); will(returnValue(Arrays.asList(sku1)));
+            allowing(p2).getProductId(); will(returnValue(2L));
+            allowing(p2).getBrand(); will(returnValue(null));
+            allowing(p2).getSku(); will(returnValue(Collections.emptyList()));
+            allowing(sku1).getSkuId(); will(returnValue(11L));
+            allowing(sku1).getCode(); will(returnValue("SKU-11"));
+            allowing(brand).getBrandId(); will(returnValue(100L));
+        }});
+
+        final Cache products = cacheManager.getCache("products");
+        assertTrue(products instanceof TaggedEhCache);
+        assertFalse(cacheManager.getCache("other") instanceof TaggedEhCache);
+
+        products.put(1L, p1);
+        products.put(2L, p2);
+        products.put("list", Arrays.asList(p1, p2));
+
+        assertTrue(cacheManager.isTagged("products", "ProductEntity"));
+        assertFalse(cacheManager.isTagged("products", "AttrValueEntityProduct"));
+        assertFalse(cacheManager.isTagged("other", "ProductEntity"));
+
+        assertEquals(0, cacheManager.evictByTag("products", "ProductEntity:3"));
+
+        assertEquals(2, cacheManager.evictByTag("products", "ProductSkuEntity:11"));
+        assertNull(products.get(1L));
+        assertNull(products.get("list"));
+        assertNotNull(products.get(2L));
+
+        assertEquals(1, cacheManager.evictByTag("products", "ProductEntity:2"));
+        assertNull(products.get(2L));
+
+        final Map<String, Long> evictions = cacheManager.getTagEvictions("products");
+        assertEquals(Long.valueOf(2L), evictions.get("ProductSkuEntity"));
+        assertEquals(Long.valueOf(1L), evictions.get("ProductEntity"));
+        assertNull(cacheManager.getTagEvictions("other"));
+
+        assertEquals(0, ((TaggedEhCache) products).getTagCount());
+
+    }
+
+    @Test
+    public void testUntaggedValuesEvictedByAnyTag() throws Exception {
+
+        final Brand brand = context.mock(Brand.class, "brand");
+
+        context.checking(new Expectations() {{
+            allowing(brand).getBrandId(); will(returnValue(100L));
+        }});
+
+        final Cache products = cacheManager.getCache("products");
+
+        products.put("brand", brand);
+        products.put("missing", null);
+        products.put("text", "some text");
+
+        assertEquals(2, cacheManager.evictByTag("products", "ShopEntity:10"));
+        assertNotNull(products.get("brand"));
+        assertNull(products.get("missing"));
+        assertNull(products.get("text"));
+
+    }
+
+    @Test
+    public void testBundleFlushBySkuCode() throws Exception {
+
+        final Product p1 = context.mock(Product.class, "p1");
+        final ProductSku sku1 = context.mock(ProductSku.class, "sku1");
+        final SkuWarehouse inv1 = context.mock(SkuWarehouse.class, "inv1");
+        final SkuWarehouse inv2 = context.mock(SkuWarehouse.class, "inv2");
+        final SkuPrice price2 = context.mock(SkuPrice.class, "price2");
+
+        context.checking(new Expectations() {{
+            allowing(p1).getProductId(); will(returnValue(1L));
+            allowing(p1).getBrand(); will(returnValue(null));
+            allowing(p1).getSku(); will(returnValue(Arrays.asList(sku1)));
+            allowing(sku1).getSkuId(); will(returnValue(11L));
+            allowing(sku1).getCode(); will(returnValue("SKU-11"));
+            allowing(inv1).getSkuCode(); will(returnValue("SKU-11"));
+            allowing(inv2).getSkuCode(); will(returnValue("SKU-22"));
+            allowing(price2).getSkuCode(); will(returnValue("SKU-22"));
+        }});
+
+        final Cache products = cacheManager.getCache("products");
+        final Cache other = cacheManager.getCache("other");
+
+        products.put(1L, p1);
+        products.put("inv1", Arrays.asList(inv1));
+        products.put("inv2", Arrays.asList(inv2));
+        products.put("price2", price2);
+        products.put("noinv", Collections.emptyList());
+        other.put("text", "some text");
+
+        final CacheBundleHelperImpl helper = new CacheBundleHelperImpl();
+        helper.setCacheManager(cacheManager);
+        helper.setCaches(new HashSet<String>(Arrays.asList("products", "other")));
+
+        helper.flushBundleCaches("SkuCode", Collections.singletonList("SKU-11"));
+
+        assertNull(products.get(1L));
+        assertNull(products.get("inv1"));
+        assertNull(products.get("noinv"));
+        assertNotNull(products.get("inv2"));
+        assertNotNull(products.get("price2"));
+        assertNull(other.get("text"));
+
+        helper.flushBundleCaches("SkuCode", Collections.singletonList("SKU-22"));
+
+        assertNull(products.get("inv2"));
+        assertNull(products.get("price2"));
+        assertEquals(Long.valueOf(5L), cacheManager.getTagEvictions("products").get("SkuCode"));
+
+    }
+
+    @Test
+    public void testIndexFollowsCache() throws Exception {
+
+        final Brand brand = context.mock(Brand.class, "brand");
+
+        context.checking(new Expectations() {{
+            allowing(brand).getBrandId(); will(returnValue(100L));
+        }});
+
+        final TaggedEhCache products = (TaggedEhCache) cacheManager.getCache("products");
+
+        products.put("brand", brand);
+        assertEquals(1, products.getTagCount());
+
+        ehcache.getCache("products").remove("brand");
+        assertEquals(0, products.getTagCount());
+
+        products.put("brand", brand);
+        ehcache.getCache("products").removeAll();
+        assertEquals(0, products.getTagCount());
+        assertEquals(0, cacheManager.evictByTag("products", "BrandEntity:100"));
+
+    }
+
+    @Test
+    public void testLateNotificationKeepsIndexOfNewElement() throws Exception {
+
+        final Brand brand = context.mock(Brand.class, "brand");
+
+        context.checking(new Expectations() {{
+            allowing(brand).getBrandId(); will(returnValue(100L));
+        }});
+
+        final TaggedEhCache products = (TaggedEhCache) cacheManager.getCache("products");
+        final net.sf.ehcache.Cache nativeProducts = ehcache.getCache("products");
+
+        products.put("brand", brand);
+        final Element previous = nativeProducts.getQuiet("brand");
+
+        products.put("brand", brand);
+        assertNotSame(previous, nativeProducts.getQuiet("brand"));
+
+        // removal of previous element is reported after new element was put
+        nativeProducts.getCacheEventNotificationService().notifyElementRemoved(previous, false);
+        assertEquals(1, products.getTagCount());
+
+        assertEquals(1, cacheManager.evictByTag("products", "BrandEntity:100"));
+        assertNull(products.get("brand"));
+        assertEquals(0, products.getTagCount());
+
+    }
+
+}
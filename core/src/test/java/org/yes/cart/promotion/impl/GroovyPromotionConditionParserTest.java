@@ -22,9 +22,11 @@ import org.jmock.integration.junit4.JUnit4Mockery;
 import org.junit.Test;
 import org.yes.cart.domain.entity.Promotion;
 import org.yes.cart.promotion.PromotionCondition;
+import org.yes.cart.shoppingcart.CartItem;
 
 import java.util.HashMap;
 
+import static java.util.Collections.singletonMap;
 import static org.junit.Assert.*;
 
 /**
@@ -80,6 +82,78 @@ public class GroovyPromotionConditionParserTest {
 
     }
 
+    @Test
+    public void testParseGroovyConditionStatic() throws Exception {
+
+        final CartItem item = mockery.mock(CartItem.class, "item");
+
+        mockery.checking(new Expectations() {{
+            allowing(item).getProductSkuCode(); will(returnValue("SKU-001"));
+        }});
+
+        GroovyPromotionConditionParser parser = new GroovyPromotionConditionParser();
+        parser.setCompileStatic(true);
+
+        assertTrue(parser.createScript(1L, "ABC#", "true", true).contains("@CompileStatic"));
+        assertFalse(parser.createScript(1L, "ABC#", "true", false).contains("@CompileStatic"));
+
+        final Class cl = parser.parseGroovyCondition(1L, "ABC#", "registered && ['SKU-001','SKU-002'].contains(shoppingCartItem.productSkuCode)");
+
+        final PromotionCondition condition = ((PromotionCondition) cl.newInstance());
+
+        assertTrue(condition.isEligible(new HashMap<String, Object>() {{
+            put("registered", Boolean.TRUE);
+            put("shoppingCartItem", item);
+        }}));
+
+        assertFalse(condition.isEligible(new HashMap<String, Object>() {{
+            put("shoppingCartItem", item);
+        }}));
+
+    }
+
+    @Test
+    public void testParseGroovyConditionStaticFallback() throws Exception {
+
+        GroovyPromotionConditionParser parser = new GroovyPromotionConditionParser();
+        parser.setCompileStatic(true);
+
+        // shoppingCart has no such property, so static compilation fails and condition is compiled dynamically
+        final Class cl = parser.parseGroovyCondition(1L, "ABC#", "shoppingCart.someProperty == 'X'");
+
+        final PromotionCondition condition = ((PromotionCondition) cl.newInstance());
+
+        assertTrue(condition.isEligible(new HashMap<String, Object>() {{
+            put("shoppingCart", singletonMap("someProperty", "X"));
+        }}));
+
+    }
+
+    @Test
+    public void testParseGroovyConditionGenerations() throws Exception {
+
+        GroovyPromotionConditionParser parser = new GroovyPromotionConditionParser();
+
+        assertEquals(1, parser.getGeneration());
+
+        final Class cl1 = parser.parseGroovyCondition(1L, "ABC", "true");
+        final Class cl2 = parser.parseGroovyCondition(2L, "DEF", "true");
+
+        assertEquals(1, parser.getGeneration());
+        assertSame(cl1.getClassLoader().getParent(), cl2.getClassLoader().getParent());
+
+        // promotion 1 is parsed again, so conditions are reloaded
+        final Class cl1reloaded = parser.parseGroovyCondition(1L, "ABC", "true");
+
+        assertEquals(2, parser.getGeneration());
+        assertNotSame(cl1.getClassLoader().getParent(), cl1reloaded.getClassLoader().getParent());
+
+        final Class cl2reloaded = parser.parseGroovyCondition(2L, "DEF", "true");
+
+        assertEquals(2, parser.getGeneration());
+        assertSame(cl1reloaded.getClassLoader().getParent(), cl2reloaded.getClassLoader().getParent());
+
+    }
 
     @Test
     public void testParseCache() throws Exception {
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.promotion.impl;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.yes.cart.domain.entity.Promotion;
+import org.yes.cart.promotion.PromoTriplet;
+import org.yes.cart.promotion.PromotionCondition;
+import org.yes.cart.shoppingcart.CartItem;
+import org.yes.cart.shoppingcart.ShoppingCart;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 19:45
+ */
+public class PromotionRuleIndexTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testSplitConjunction() throws Exception {
+
+        assertEquals(Arrays.asList("a", "b.c(d && e)", "f"), PromotionRuleIndex.splitConjunction("a && b.c(d && e) && f"));
+        assertEquals(Arrays.asList("a", "b", "c"), PromotionRuleIndex.splitConjunction("return a && (b && c);"));
+        assertEquals(Arrays.asList("a", "(b || c)"), PromotionRuleIndex.splitConjunction("a && (b || c)"));
+        assertEquals(Arrays.asList("customer?.email", "'&&' == x"), PromotionRuleIndex.splitConjunction("customer?.email && '&&' == x"));
+
+        assertNull(PromotionRuleIndex.splitConjunction("a && b || c"));
+        assertNull(PromotionRuleIndex.splitConjunction("a ? b : c"));
+        assertNull(PromotionRuleIndex.splitConjunction("def a = b;\na && c"));
+        assertNull(PromotionRuleIndex.splitConjunction("a && b // comment"));
+        assertNull(PromotionRuleIndex.splitConjunction("a && (b"));
+
+    }
+
+    @Test
+    public void testParse() throws Exception {
+
+        assertNull(PromotionRuleIndex.parse(promotion(1L, "", false)));
+        assertNull(PromotionRuleIndex.parse(promotion(2L, "shoppingCartItemTotal.priceSubTotal > 100.00", false)));
+        assertNull(PromotionRuleIndex.parse(promotion(3L, "['A', 'B'].contains(shoppingCartItem.productSkuCode) || registered", false)));
+        assertNull(PromotionRuleIndex.parse(promotion(4L, "!['A', 'B'].contains(shoppingCartItem.productSkuCode)", false)));
+
+        final PromotionRuleIndex.Facets coupon = PromotionRuleIndex.parse(promotion(5L, "", true));
+        assertNotNull(coupon);
+        assertTrue(coupon.isCoupon());
+        assertNull(coupon.getSkus());
+
+        final PromotionRuleIndex.Facets sku = PromotionRuleIndex.parse(promotion(6L,
+                "['A', \"B\", 'C'].contains(shoppingCartItem.productSkuCode) && shoppingCartItem.qty >= 2 && (['B', 'C'].contains(shoppingCartItem.productSkuCode))", false));
+        assertNotNull(sku);
+        assertFalse(sku.isCoupon());
+        assertEquals(new HashSet<String>(Arrays.asList("B", "C")), sku.getSkus());
+
+        final PromotionRuleIndex.Facets customer = PromotionRuleIndex.parse(promotion(7L,
+                "customerTags.contains('vip') && customer?.customerType == 'B2B' && context.pricingPolicy.contains('P1') && customerTags.contains('new')", false));
+        assertNotNull(customer);
+        assertNull(customer.getSkus());
+        assertEquals(Collections.singleton("B2B"), customer.getCustomerTypes());
+        assertEquals(new HashSet<String>(Arrays.asList("vip", "new")), customer.getCustomerTags());
+        assertEquals(Collections.singleton("P1"), customer.getPricingPolicies());
+
+        assertNull(PromotionRuleIndex.parse(promotion(8L, "customerTags.contains(\"${tag}\")", false)));
+
+    }
+
+    @Test
+    public void testGetCandidates() throws Exception {
+
+        final PromoTriplet skuAB = triplet(promotion(1L, "['A', 'B'].contains(shoppingCartItem.productSkuCode)", false));
+        final PromoTriplet skuC = triplet(promotion(2L, "shoppingCartItem.productSkuCode == 'C'", false));
+        final PromoTriplet vip = triplet(promotion(3L, "customerTags.contains('vip')", false));
+        final PromoTriplet b2b = triplet(promotion(4L, "customer.customerType == 'B2B'", false));
+        final PromoTriplet coupon = triplet(promotion(5L, "", true));
+        final PromoTriplet any = triplet(promotion(6L, "shoppingCartItem.qty > 1", false));
+
+        final AtomicLong total = new AtomicLong(0L);
+        final PromotionRuleIndex index = new PromotionRuleIndex(total);
+        for (final PromoTriplet promo : Arrays.asList(skuAB, skuC, vip, b2b, coupon, any)) {
+            index.add(promo);
+        }
+        assertEquals(5, index.getIndexedCount());
+
+        final List<List<PromoTriplet>> buckets = new ArrayList<List<PromoTriplet>>();
+        buckets.add(Arrays.asList(skuAB, vip, any));
+        buckets.add(Collections.singletonList(skuC));
+        buckets.add(Collections.singletonList(b2b));
+        buckets.add(Collections.singletonList(coupon));
+
+        final CartItem itemA = context.mock(CartItem.class, "itemA");
+        final ShoppingCart cart = context.mock(ShoppingCart.class, "cart");
+
+        context.checking(new Expectations() {{
+            allowing(itemA).getProductSkuCode(); will(returnValue("A"));
+            allowing(cart).getCoupons(); will(returnValue(Collections.emptyList()));
+        }});
+
+        final Map<String, Object> ctx = new HashMap<String, Object>();
+        ctx.put(PromotionCondition.VAR_CART, cart);
+        ctx.put(PromotionCondition.VAR_CART_ITEM, itemA);
+        ctx.put(PromotionCondition.VAR_REGISTERED, true);
+        ctx.put(PromotionCondition.VAR_CUSTOMER_TYPE, "B2C");
+        ctx.put(PromotionCondition.VAR_CUSTOMER_TAGS, Collections.emptyList());
+
+        final List<List<PromoTriplet>> candidates = index.getCandidates(buckets, ctx);
+
+        assertEquals(1, candidates.size());
+        assertEquals(Arrays.asList(skuAB, any), candidates.get(0));
+        assertTrue(index.hasCandidates(candidates));
+
+        assertEquals(4L, index.getSkippedEvaluations());
+        assertEquals(4L, total.get());
+
+        // anonymous: no customer, so customer type is left to eligibility condition
+        ctx.put(PromotionCondition.VAR_REGISTERED, false);
+        ctx.remove(PromotionCondition.VAR_CUSTOMER_TYPE);
+        ctx.put(PromotionCondition.VAR_CUSTOMER_TAGS, Collections.singletonList("vip"));
+
+        final List<List<PromoTriplet>> anonymous = index.getCandidates(buckets, ctx);
+
+        assertEquals(2, anonymous.size());
+        assertEquals(Arrays.asList(skuAB, vip, any), anonymous.get(0));
+        assertEquals(Collections.singletonList(b2b), anonymous.get(1));
+
+        assertEquals(6L, index.getSkippedEvaluations());
+
+        final List<List<PromoTriplet>> noPromo = Collections.singletonList(Collections.singletonList(any));
+        assertSame(noPromo, index.getCandidates(noPromo, ctx));
+
+        context.assertIsSatisfied();
+
+    }
+
+    private PromoTriplet triplet(final Promotion promotion) {
+        return new PromoTripletImpl(promotion, null, null);
+    }
+
+    private Promotion promotion(final long id, final String condition, final boolean coupon) {
+
+        final Promotion promotion = context.mock(Promotion.class, "promotion" + id);
+
+        context.checking(new Expectations() {{
+            allowing(promotion).getPromotionId(); will(returnValue(id));
+            allowing(promotion).getEligibilityCondition(); will(returnValue(condition));
+            allowing(promotion).isCouponTriggered(); will(returnValue(coupon));
+        }});
+
+        return promotion;
+    }
+
+}
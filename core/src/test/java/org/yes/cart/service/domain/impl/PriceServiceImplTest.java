@@ -16,14 +16,21 @@
 
 package org.yes.cart.service.domain.impl;
 
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.concurrent.Synchroniser;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.yes.cart.BaseCoreDBTestCase;
 import org.yes.cart.constants.ServiceSpringKeys;
+import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.domain.entity.Category;
 import org.yes.cart.domain.entity.Product;
 import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.domain.entity.SkuPrice;
+import org.yes.cart.domain.entity.impl.SkuPriceEntity;
 import org.yes.cart.domain.misc.navigation.price.PriceTierTree;
 import org.yes.cart.search.dto.FilteredNavigationRecord;
 import org.yes.cart.service.domain.CategoryService;
@@ -32,7 +39,11 @@ import org.yes.cart.service.domain.ProductService;
 import org.yes.cart.service.domain.ShopService;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -591,10 +602,97 @@ public class PriceServiceImplTest extends BaseCoreDBTestCase {
     }
 
 
+    @Test
+    public void testPriceBookChangeCommittedDuringLoadIsApplied() throws Exception {
+
+        final Mockery context = new JUnit4Mockery();
+        context.setThreadingPolicy(new Synchroniser());
+
+        final GenericDAO<SkuPrice, Long> skuPriceDao = context.mock(GenericDAO.class, "skuPriceDao");
+        final Shop shop = context.mock(Shop.class, "shop");
+
+        final SkuPrice stale = new SkuPriceEntity();
+        stale.setSkuPriceId(1L);
+        stale.setSkuCode("SKU-A");
+        stale.setShop(shop);
+        stale.setCurrency("EUR");
+        stale.setRegularPrice(new BigDecimal("10.00"));
+
+        final SkuPrice changed = new SkuPriceEntity();
+        changed.setSkuPriceId(1L);
+        changed.setSkuCode("SKU-A");
+        changed.setShop(shop);
+        changed.setCurrency("EUR");
+        changed.setRegularPrice(new BigDecimal("9.00"));
+
+        context.checking(new Expectations() {{
+            allowing(shop).getShopId(); will(returnValue(10L));
+            allowing(skuPriceDao).findByNamedQuery("SKUPRICE.BY.IDS", Collections.singletonList(1L));
+            will(returnValue(Collections.singletonList(changed)));
+            allowing(skuPriceDao).findQueryObjectByNamedQuery("PRODUCT.ID.AND.SKUCODE.BY.SKUCODES", Collections.singletonList("SKU-A"));
+            will(returnValue(Collections.<Object>singletonList(new Object[] { 100L, "SKU-A" })));
+        }});
+
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+
+        final PriceServiceImpl service = new PriceServiceImpl(null, skuPriceDao, new ConcurrentMapCacheManager("priceService-priceBook")) {
+            @Override
+            SkuPriceBook loadPriceBook(final long shopId, final String currency) {
+                loading.countDown();
+                try {
+                    proceed.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // load has read rows before change was committed
+                return new SkuPriceBook(shopId, currency,
+                        Collections.singletonList(stale),
+                        Collections.<Object>singletonList(new Object[] { 100L, "SKU-A" }));
+            }
+        };
+
+        final Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                service.getPriceBook(10L, "EUR");
+            }
+        });
+        loader.start();
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        final Thread updater = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                service.refreshPriceBooks(Collections.singletonList(1L));
+            }
+        });
+        updater.start();
+
+        // change must wait for the book that is being loaded
+        final long until = System.currentTimeMillis() + 10000L;
+        while (updater.getState() != Thread.State.BLOCKED && updater.isAlive() && System.currentTimeMillis() < until) {
+            Thread.sleep(10L);
+        }
+        proceed.countDown();
+
+        loader.join(10000L);
+        updater.join(10000L);
+
+        final List<SkuPrice> prices = new ArrayList<SkuPrice>();
+        service.getPriceBook(10L, "EUR").collectPrices("SKU-A", null, prices);
+
+        assertEquals(1, prices.size());
+        assertSame(changed, prices.get(0));
+
+        context.assertIsSatisfied();
+
+    }
+
     @Test
     public void testCreatePriceTierNodes() {
 
-        PriceServiceImpl priceService1 = new PriceServiceImpl(null, null);
+        PriceServiceImpl priceService1 = new PriceServiceImpl(null, null, null);
 
         assertEquals( new BigDecimal("3000").intValue(), priceService1.niceBigDecimal(new BigDecimal("3000")).intValue());
         assertEquals( new BigDecimal("30").intValue(), priceService1.niceBigDecimal(new BigDecimal("30")).intValue());
@@ -74,10 +74,17 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(shopService).getById(123L); will(returnValue(shop));
             allowing(customerService).getCustomerByEmail("bob.doe@somewhere.com", shop); will(returnValue(customer));
+            allowing(shop).getShopId(); will(returnValue(123L));
+            allowing(customer).getCustomerId(); will(returnValue(1L));
+            allowing(customer).getEmail(); will(returnValue("bob.doe@somewhere.com"));
+            allowing(customer).getCustomerType(); will(returnValue(null));
+            allowing(customer).getTag(); will(returnValue(null));
+            allowing(customer).getPricingPolicy(); will(returnValue(null));
 
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
 
-            allowing(promotionContext).applyItemPromo(with(customer), with(any(MutableShoppingCart.class)));
+            allowing(promotionContext).applyItemPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)));
 
             allowing(taxProvider).determineTax("SHOP10", "EUR", "GB", "GB-GB", "SKU0001"); will(returnValue(tax));
             // NULL tax config
@@ -87,9 +94,9 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(deliveryCostCalculationStrategy).calculate(with(any(MutableShoppingCart.class))); will(returnValue(deliveryCost));
 
-            allowing(promotionContext).applyOrderPromo(with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
+            allowing(promotionContext).applyOrderPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
 
-            allowing(promotionContext).applyShippingPromo(with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class)));
+            allowing(promotionContext).applyShippingPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class)));
 
         }});
 
@@ -150,8 +157,9 @@ public class ShoppingCartCalculatorImplTest {
             allowing(currentCartCtx).getResolvedIp(); will(returnValue("127.0.0.1"));
 
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
 
-            allowing(promotionContext).applyItemPromo(with((Customer) null), with(any(MutableShoppingCart.class)));
+            allowing(promotionContext).applyItemPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)));
 
             allowing(taxProvider).determineTax("SHOP10", "EUR", null, null, "SKU0001"); will(returnValue(tax));
             // NULL tax config
@@ -161,9 +169,9 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(deliveryCostCalculationStrategy).calculate(with(any(MutableShoppingCart.class))); will(returnValue(deliveryCost));
 
-            allowing(promotionContext).applyOrderPromo(with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
+            allowing(promotionContext).applyOrderPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
 
-            allowing(promotionContext).applyShippingPromo(with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class)));
+            allowing(promotionContext).applyShippingPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class)));
 
         }});
 
@@ -229,10 +237,17 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(shopService).getById(123L); will(returnValue(shop));
             allowing(customerService).getCustomerByEmail("bob.doe@somewhere.com", shop); will(returnValue(customer));
+            allowing(shop).getShopId(); will(returnValue(123L));
+            allowing(customer).getCustomerId(); will(returnValue(1L));
+            allowing(customer).getEmail(); will(returnValue("bob.doe@somewhere.com"));
+            allowing(customer).getCustomerType(); will(returnValue(null));
+            allowing(customer).getTag(); will(returnValue(null));
+            allowing(customer).getPricingPolicy(); will(returnValue(null));
 
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
 
-            allowing(promotionContext).applyItemPromo(with(customer), with(any(MutableShoppingCart.class)));
+            allowing(promotionContext).applyItemPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)));
 
             allowing(taxProvider).determineTax("SHOP10", "EUR", "GB", "GB-GB", "SKU0001"); will(returnValue(tax));
             allowing(tax).getCode(); will(returnValue("VAT"));
@@ -241,9 +256,9 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(deliveryCostCalculationStrategy).calculate(with(any(MutableShoppingCart.class))); will(returnValue(deliveryCost));
 
-            allowing(promotionContext).applyOrderPromo(with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
+            allowing(promotionContext).applyOrderPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
 
-            allowing(promotionContext).applyShippingPromo(with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class)));
+            allowing(promotionContext).applyShippingPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class)));
 
         }});
 
@@ -305,8 +320,9 @@ public class ShoppingCartCalculatorImplTest {
             allowing(currentCartCtx).getResolvedIp(); will(returnValue("127.0.0.1"));
 
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
 
-            allowing(promotionContext).applyItemPromo(with((Customer) null), with(any(MutableShoppingCart.class)));
+            allowing(promotionContext).applyItemPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)));
 
             allowing(taxProvider).determineTax("SHOP10", "EUR", null, null, "SKU0001"); will(returnValue(tax));
             allowing(tax).getCode(); will(returnValue("VAT"));
@@ -315,9 +331,9 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(deliveryCostCalculationStrategy).calculate(with(any(MutableShoppingCart.class))); will(returnValue(deliveryCost));
 
-            allowing(promotionContext).applyOrderPromo(with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
+            allowing(promotionContext).applyOrderPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
 
-            allowing(promotionContext).applyShippingPromo(with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class)));
+            allowing(promotionContext).applyShippingPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class)));
 
         }});
 
@@ -385,10 +401,17 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(shopService).getById(123L); will(returnValue(shop));
             allowing(customerService).getCustomerByEmail("bob.doe@somewhere.com", shop); will(returnValue(customer));
+            allowing(shop).getShopId(); will(returnValue(123L));
+            allowing(customer).getCustomerId(); will(returnValue(1L));
+            allowing(customer).getEmail(); will(returnValue("bob.doe@somewhere.com"));
+            allowing(customer).getCustomerType(); will(returnValue(null));
+            allowing(customer).getTag(); will(returnValue(null));
+            allowing(customer).getPricingPolicy(); will(returnValue(null));
 
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
 
-            allowing(promotionContext).applyItemPromo(with(customer), with(any(MutableShoppingCart.class)));
+            allowing(promotionContext).applyItemPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)));
 
             allowing(taxProvider).determineTax("SHOP10", "EUR", "US", "US-US", "SKU0001"); will(returnValue(tax));
             allowing(tax).getCode(); will(returnValue("FED"));
@@ -397,9 +420,9 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(deliveryCostCalculationStrategy).calculate(with(any(MutableShoppingCart.class))); will(returnValue(deliveryCost));
 
-            allowing(promotionContext).applyOrderPromo(with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
+            allowing(promotionContext).applyOrderPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
 
-            allowing(promotionContext).applyShippingPromo(with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class)));
+            allowing(promotionContext).applyShippingPromo(with(any(CustomerSnapshot.class)), with(customer), with(any(MutableShoppingCart.class)), with(any(Total.class)));
 
         }});
 
@@ -461,8 +484,9 @@ public class ShoppingCartCalculatorImplTest {
             allowing(currentCartCtx).getResolvedIp(); will(returnValue("127.0.0.1"));
 
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
 
-            allowing(promotionContext).applyItemPromo(with((Customer) null), with(any(MutableShoppingCart.class)));
+            allowing(promotionContext).applyItemPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)));
 
             allowing(taxProvider).determineTax("SHOP10", "EUR", null, null, "SKU0001"); will(returnValue(tax));
             allowing(tax).getCode(); will(returnValue("FED"));
@@ -471,9 +495,9 @@ public class ShoppingCartCalculatorImplTest {
 
             allowing(deliveryCostCalculationStrategy).calculate(with(any(MutableShoppingCart.class))); will(returnValue(deliveryCost));
 
-            allowing(promotionContext).applyOrderPromo(with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
+            allowing(promotionContext).applyOrderPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class))); will(returnValue(itemsTotal));
 
-            allowing(promotionContext).applyShippingPromo(with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class)));
+            allowing(promotionContext).applyShippingPromo(with((CustomerSnapshot) null), with((Customer) null), with(any(MutableShoppingCart.class)), with(any(Total.class)));
 
         }});
 
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.service.domain.impl;
+
+import org.junit.Test;
+import org.yes.cart.domain.entity.SkuPrice;
+import org.yes.cart.domain.entity.impl.SkuPriceEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 15:52
+ */
+public class SkuPriceBookTest {
+
+    @Test
+    public void testCollectAndUpdate() throws Exception {
+
+        final SkuPrice p1 = createPrice(1L, "SKU-A", null);
+        final SkuPrice p2 = createPrice(2L, "SKU-A", "P1");
+        final SkuPrice p3 = createPrice(3L, "SKU-B", null);
+        final SkuPrice p4 = createPrice(4L, "SKU-X", null);
+
+        final SkuPriceBook book = new SkuPriceBook(10L, "EUR",
+                Arrays.asList(p3, p2, p1, p4),
+                Arrays.<Object>asList(new Object[] { 100L, "SKU-A" }, new Object[] { 100L, "SKU-B" }, new Object[] { 200L, "SKU-X" }));
+
+        assertEquals(4, book.size());
+
+        List<SkuPrice> prices = new ArrayList<SkuPrice>();
+        book.collectPrices("SKU-A", null, prices);
+        assertEquals(Arrays.asList(p1), prices);
+
+        prices = new ArrayList<SkuPrice>();
+        book.collectPrices("SKU-A", "P1", prices);
+        assertEquals(Arrays.asList(p1, p2), prices);
+
+        prices = new ArrayList<SkuPrice>();
+        book.collectPrices(100L, null, prices);
+        assertEquals(Arrays.asList(p1, p3), prices);
+
+        prices = new ArrayList<SkuPrice>();
+        book.collectPrices(150L, null, prices);
+        assertTrue(prices.isEmpty());
+
+        // new SKU for new product
+        final SkuPrice p5 = createPrice(5L, "SKU-C", null);
+        book.put(150L, p5);
+        prices = new ArrayList<SkuPrice>();
+        book.collectPrices(150L, null, prices);
+        assertEquals(Arrays.asList(p5), prices);
+
+        // moved price
+        final SkuPrice p3moved = createPrice(3L, "SKU-C", null);
+        book.put(150L, p3moved);
+        prices = new ArrayList<SkuPrice>();
+        book.collectPrices(150L, null, prices);
+        assertEquals(Arrays.asList(p3moved, p5), prices);
+        prices = new ArrayList<SkuPrice>();
+        book.collectPrices("SKU-B", null, prices);
+        assertTrue(prices.isEmpty());
+
+        assertTrue(book.remove(1L));
+        assertFalse(book.remove(1L));
+        prices = new ArrayList<SkuPrice>();
+        book.collectPrices(100L, "P1", prices);
+        assertEquals(Arrays.asList(p2), prices);
+
+        assertEquals(4, book.size());
+
+    }
+
+    private SkuPrice createPrice(final long id, final String sku, final String policy) {
+        final SkuPrice price = new SkuPriceEntity();
+        price.setSkuPriceId(id);
+        price.setSkuCode(sku);
+        price.setPricingPolicy(policy);
+        return price;
+    }
+
+}
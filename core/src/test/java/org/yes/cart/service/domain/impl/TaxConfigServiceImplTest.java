@@ -28,6 +28,7 @@ import java.util.*;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -220,4 +221,32 @@ public class TaxConfigServiceImplTest extends BaseCoreDBTestCase {
 
     }
 
+    @Test
+    public void testGetTaxIdByMatrixSameAsQuery() throws Exception {
+
+        final TaxService taxService = ctx().getBean("taxService", TaxService.class);
+        final TaxConfigService taxConfigService = ctx().getBean("taxConfigService", TaxConfigService.class);
+
+        final TaxConfigServiceImpl queryService = new TaxConfigServiceImpl(taxConfigService.getGenericDao(), taxService, null);
+
+        final TaxRuleMatrix matrix = new TaxRuleMatrix(
+                taxConfigService.getGenericDao().findByNamedQuery("TAXCONFIG.IN.TAXES", taxService.getTaxesByShopCode("SHOIP1", "EUR")));
+
+        assertEquals(6, matrix.size());
+
+        for (final String country : Arrays.asList(null, "", "GB", "UA", "US")) {
+            for (final String state : Arrays.asList(null, "", "GB-CAM", "US-US")) {
+                for (final String product : Arrays.asList(null, "", "CC_TEST1", "CC_TEST2")) {
+                    assertEquals(country + "/" + state + "/" + product,
+                            queryService.getTaxIdBy("SHOIP1", "EUR", country, state, product),
+                            matrix.getTaxId(country, state, product));
+                }
+            }
+        }
+
+        final TaxRuleMatrix empty = new TaxRuleMatrix(Collections.<TaxConfig>emptyList());
+        assertNull(empty.getTaxId("GB", "GB-CAM", "CC_TEST1"));
+
+    }
+
 }
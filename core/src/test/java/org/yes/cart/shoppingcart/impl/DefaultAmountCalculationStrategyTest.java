@@ -24,6 +24,7 @@ import org.yes.cart.domain.entity.Customer;
 import org.yes.cart.domain.entity.CustomerOrder;
 import org.yes.cart.domain.entity.CustomerOrderDelivery;
 import org.yes.cart.domain.entity.Shop;
+import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.promotion.PromotionContext;
 import org.yes.cart.promotion.PromotionContextFactory;
 import org.yes.cart.service.domain.CustomerService;
@@ -1154,11 +1155,20 @@ public class DefaultAmountCalculationStrategyTest {
         context.checking(new Expectations() {{
             allowing(deliveryCostCalculationStrategy).calculate(cart); will(returnValue(deliveryTotal));
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
             allowing(cart).getCustomerEmail(); will(returnValue("bob@doe.com"));
             allowing(shopService).getById(10L); will(returnValue(shop));
             allowing(customerService).getCustomerByEmail("bob@doe.com", shop); will(returnValue(customer));
             allowing(cart).getShoppingContext(); will(returnValue(shoppingContext));
             allowing(shoppingContext).getShopId(); will(returnValue(10L));
+            allowing(shoppingContext).getCustomerSnapshot(); will(returnValue(null));
+            allowing(shop).getShopId(); will(returnValue(10L));
+            allowing(customer).getCustomerId(); will(returnValue(1L));
+            allowing(customer).getEmail(); will(returnValue("bob@doe.com"));
+            allowing(customer).getCustomerType(); will(returnValue("B2C"));
+            allowing(customer).getTag(); will(returnValue("vip"));
+            allowing(customer).getPricingPolicy(); will(returnValue(null));
+            one(shoppingContext).setCustomerSnapshot(with(any(CustomerSnapshot.class)));
             allowing(shoppingContext).getShopCode(); will(returnValue("SHOP10"));
             allowing(shoppingContext).getCountryCode(); will(returnValue("GB"));
             allowing(shoppingContext).getStateCode(); will(returnValue("GB-CAM"));
@@ -1212,14 +1222,17 @@ public class DefaultAmountCalculationStrategyTest {
         final Total rezTaxIncluded = new DefaultAmountCalculationStrategy(taxProvider, deliveryCostCalculationStrategy, promotionContextFactory, customerService, shopService) {
 
             @Override
-            void applyItemLevelPromotions(final Customer cust, final MutableShoppingCart scart, final PromotionContext promoCtx) {
+            void applyItemLevelPromotions(final CustomerSnapshot snap, final Customer cust, final MutableShoppingCart scart, final PromotionContext promoCtx) {
+                assertEquals("B2C", snap.getCustomerType());
+                assertEquals("vip", snap.getTag());
                 assertSame(customer, cust);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
             }
 
             @Override
-            Total applyOrderLevelPromotions(final Customer cust, final MutableShoppingCart scart, final Total itemTotal, final PromotionContext promoCtx) {
+            Total applyOrderLevelPromotions(final CustomerSnapshot snap, final Customer cust, final MutableShoppingCart scart, final Total itemTotal, final PromotionContext promoCtx) {
+                assertEquals("B2C", snap.getCustomerType());
                 assertSame(customer, cust);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
@@ -1227,7 +1240,8 @@ public class DefaultAmountCalculationStrategyTest {
             }
 
             @Override
-            void applyShippingPromotions(final Customer cust, final MutableShoppingCart scart, final Total orderTotal, final PromotionContext promoCtx) {
+            void applyShippingPromotions(final CustomerSnapshot snap, final Customer cust, final MutableShoppingCart scart, final Total orderTotal, final PromotionContext promoCtx) {
+                assertEquals("B2C", snap.getCustomerType());
                 assertSame(customer, cust);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
@@ -1305,11 +1319,20 @@ public class DefaultAmountCalculationStrategyTest {
         context.checking(new Expectations() {{
             allowing(deliveryCostCalculationStrategy).calculate(cart); will(returnValue(deliveryTotal));
             allowing(promotionContextFactory).getInstance("SHOP10", "EUR"); will(returnValue(promotionContext));
+            allowing(promotionContext).isCustomerRequired(); will(returnValue(false));
             allowing(cart).getCustomerEmail(); will(returnValue("bob@doe.com"));
             allowing(shopService).getById(10L); will(returnValue(shop));
             allowing(customerService).getCustomerByEmail("bob@doe.com", shop); will(returnValue(customer));
             allowing(cart).getShoppingContext(); will(returnValue(shoppingContext));
             allowing(shoppingContext).getShopId(); will(returnValue(10L));
+            allowing(shoppingContext).getCustomerSnapshot(); will(returnValue(null));
+            allowing(shop).getShopId(); will(returnValue(10L));
+            allowing(customer).getCustomerId(); will(returnValue(1L));
+            allowing(customer).getEmail(); will(returnValue("bob@doe.com"));
+            allowing(customer).getCustomerType(); will(returnValue("B2C"));
+            allowing(customer).getTag(); will(returnValue("vip"));
+            allowing(customer).getPricingPolicy(); will(returnValue(null));
+            one(shoppingContext).setCustomerSnapshot(with(any(CustomerSnapshot.class)));
             allowing(shoppingContext).getShopCode(); will(returnValue("SHOP10"));
             allowing(shoppingContext).getCountryCode(); will(returnValue("GB"));
             allowing(shoppingContext).getStateCode(); will(returnValue("GB-CAM"));
@@ -1362,14 +1385,17 @@ public class DefaultAmountCalculationStrategyTest {
         final Total rezTaxExcluded = new DefaultAmountCalculationStrategy(taxProvider, deliveryCostCalculationStrategy, promotionContextFactory, customerService, shopService) {
 
             @Override
-            void applyItemLevelPromotions(final Customer cust, final MutableShoppingCart scart, final PromotionContext promoCtx) {
+            void applyItemLevelPromotions(final CustomerSnapshot snap, final Customer cust, final MutableShoppingCart scart, final PromotionContext promoCtx) {
+                assertEquals("B2C", snap.getCustomerType());
+                assertEquals("vip", snap.getTag());
                 assertSame(customer, cust);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
             }
 
             @Override
-            Total applyOrderLevelPromotions(final Customer cust, final MutableShoppingCart scart, final Total itemTotal, final PromotionContext promoCtx) {
+            Total applyOrderLevelPromotions(final CustomerSnapshot snap, final Customer cust, final MutableShoppingCart scart, final Total itemTotal, final PromotionContext promoCtx) {
+                assertEquals("B2C", snap.getCustomerType());
                 assertSame(customer, cust);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
@@ -1377,7 +1403,8 @@ public class DefaultAmountCalculationStrategyTest {
             }
 
             @Override
-            void applyShippingPromotions(final Customer cust, final MutableShoppingCart scart, final Total orderTotal, final PromotionContext promoCtx) {
+            void applyShippingPromotions(final CustomerSnapshot snap, final Customer cust, final MutableShoppingCart scart, final Total orderTotal, final PromotionContext promoCtx) {
+                assertEquals("B2C", snap.getCustomerType());
                 assertSame(customer, cust);
                 assertSame(cart, scart);
                 assertSame(promotionContext, promoCtx);
@@ -1407,4 +1434,69 @@ public class DefaultAmountCalculationStrategyTest {
 
     }
 
+    @Test
+    public void testResolveCustomerFromSnapshot() throws Exception {
+
+        final TaxProvider taxProvider = context.mock(TaxProvider.class, "taxProvider");
+        final DeliveryCostCalculationStrategy deliveryCostCalculationStrategy = context.mock(DeliveryCostCalculationStrategy.class, "deliveryCost");
+        final PromotionContextFactory promotionContextFactory = context.mock(PromotionContextFactory.class, "promotion");
+        final CustomerService customerService = context.mock(CustomerService.class, "customerService");
+        final ShopService shopService = context.mock(ShopService.class, "shopService");
+
+        final MutableShoppingCart cart = context.mock(MutableShoppingCart.class, "cart");
+        final MutableShoppingContext shoppingContext = context.mock(MutableShoppingContext.class, "ctx");
+
+        final CustomerSnapshot snapshot = new CustomerSnapshotImpl(1L, "bob@doe.com", 10L, "B2B", "vip", "P1", System.currentTimeMillis());
+
+        context.checking(new Expectations() {{
+            allowing(cart).getCustomerEmail(); will(returnValue("bob@doe.com"));
+            allowing(cart).getShoppingContext(); will(returnValue(shoppingContext));
+            allowing(shoppingContext).getShopId(); will(returnValue(10L));
+            allowing(shoppingContext).getCustomerSnapshot(); will(returnValue(snapshot));
+            // fresh snapshot and no customer dependent conditions, so customer is not loaded
+            never(shopService).getById(10L);
+            never(customerService).getCustomerByEmail(with(any(String.class)), with(any(Shop.class)));
+        }});
+
+        final Pair<CustomerSnapshot, Customer> resolved = new DefaultAmountCalculationStrategy(taxProvider, deliveryCostCalculationStrategy, promotionContextFactory, customerService, shopService).resolveCustomer(cart, false);
+
+        assertSame(snapshot, resolved.getFirst());
+        assertNull(resolved.getSecond());
+
+    }
+
+    @Test
+    public void testResolveCustomerFromSnapshotCustomerRequired() throws Exception {
+
+        final TaxProvider taxProvider = context.mock(TaxProvider.class, "taxProvider");
+        final DeliveryCostCalculationStrategy deliveryCostCalculationStrategy = context.mock(DeliveryCostCalculationStrategy.class, "deliveryCost");
+        final PromotionContextFactory promotionContextFactory = context.mock(PromotionContextFactory.class, "promotion");
+        final CustomerService customerService = context.mock(CustomerService.class, "customerService");
+        final ShopService shopService = context.mock(ShopService.class, "shopService");
+
+        final MutableShoppingCart cart = context.mock(MutableShoppingCart.class, "cart");
+        final MutableShoppingContext shoppingContext = context.mock(MutableShoppingContext.class, "ctx");
+        final Customer customer = context.mock(Customer.class, "customer");
+        final Shop shop = context.mock(Shop.class, "shop");
+
+        final CustomerSnapshot snapshot = new CustomerSnapshotImpl(1L, "bob@doe.com", 10L, "B2B", "vip", "P1", System.currentTimeMillis());
+
+        context.checking(new Expectations() {{
+            allowing(cart).getCustomerEmail(); will(returnValue("bob@doe.com"));
+            allowing(cart).getShoppingContext(); will(returnValue(shoppingContext));
+            allowing(shoppingContext).getShopId(); will(returnValue(10L));
+            allowing(shoppingContext).getCustomerSnapshot(); will(returnValue(snapshot));
+            // eligibility conditions refer to customer, so it is loaded but fresh snapshot is kept
+            one(shopService).getById(10L); will(returnValue(shop));
+            one(customerService).getCustomerByEmail("bob@doe.com", shop); will(returnValue(customer));
+            never(shoppingContext).setCustomerSnapshot(with(any(CustomerSnapshot.class)));
+        }});
+
+        final Pair<CustomerSnapshot, Customer> resolved = new DefaultAmountCalculationStrategy(taxProvider, deliveryCostCalculationStrategy, promotionContextFactory, customerService, shopService).resolveCustomer(cart, true);
+
+        assertSame(snapshot, resolved.getFirst());
+        assertSame(customer, resolved.getSecond());
+
+    }
+
 }
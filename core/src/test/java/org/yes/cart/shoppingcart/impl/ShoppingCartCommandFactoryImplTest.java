@@ -20,12 +20,12 @@ import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.integration.junit4.JUnit4Mockery;
 import org.junit.Test;
-import org.yes.cart.shoppingcart.ConfigurableShoppingCartCommand;
-import org.yes.cart.shoppingcart.ShoppingCartCommand;
+import org.yes.cart.shoppingcart.*;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -125,4 +125,76 @@ public class ShoppingCartCommandFactoryImplTest {
 
 
     }
+
+    @Test
+    public void testExecuteBatchRecalculation() throws Exception {
+
+        final ShoppingCartCommandConfigurationProvider provider = mockery.mock(ShoppingCartCommandConfigurationProvider.class, "provider");
+        final ShoppingCartCommandConfigurationVisitor checkout = mockery.mock(ShoppingCartCommandConfigurationVisitor.class, "checkout");
+        final MutableShoppingCart cart = mockery.mock(MutableShoppingCart.class, "cart");
+
+        mockery.checking(new Expectations() {{
+            allowing(provider).provide("CHECKOUT"); will(returnValue(checkout));
+            oneOf(cart).recalculate();
+            oneOf(checkout).visit(cart);
+        }});
+
+        final ShoppingCartCommandFactoryImpl factory = new ShoppingCartCommandFactoryImpl(provider);
+        new RecalculatingCommand(factory) { };
+        new RecalculatingCommand(factory) { };
+        new RecalculatingCommand(factory) { };
+
+        factory.execute(cart, Collections.<String, Object>emptyMap());
+
+        assertEquals(1L, factory.getRecalculationsPerformed());
+        assertEquals(2L, factory.getRecalculationsAvoided());
+
+        mockery.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testExecuteNoBatchRecalculation() throws Exception {
+
+        final ShoppingCartCommandConfigurationProvider provider = mockery.mock(ShoppingCartCommandConfigurationProvider.class, "provider");
+        final ShoppingCartCommandConfigurationVisitor checkout = mockery.mock(ShoppingCartCommandConfigurationVisitor.class, "checkout");
+        final MutableShoppingCart cart = mockery.mock(MutableShoppingCart.class, "cart");
+
+        mockery.checking(new Expectations() {{
+            allowing(provider).provide("CHECKOUT"); will(returnValue(checkout));
+            exactly(2).of(cart).recalculate();
+            exactly(2).of(checkout).visit(cart);
+        }});
+
+        final ShoppingCartCommandFactoryImpl factory = new ShoppingCartCommandFactoryImpl(provider);
+        factory.setBatchRecalculation(false);
+        new RecalculatingCommand(factory) { };
+        new RecalculatingCommand(factory) { };
+
+        factory.execute(cart, Collections.<String, Object>emptyMap());
+
+        assertEquals(0L, factory.getRecalculationsPerformed());
+        assertEquals(0L, factory.getRecalculationsAvoided());
+
+        mockery.assertIsSatisfied();
+
+    }
+
+    private abstract static class RecalculatingCommand extends AbstractCartCommandImpl {
+
+        private RecalculatingCommand(final ShoppingCartCommandRegistry registry) {
+            super(registry);
+        }
+
+        @Override
+        public void execute(final MutableShoppingCart shoppingCart, final Map<String, Object> parameters) {
+            recalculate(shoppingCart);
+        }
+
+        @Override
+        public String getCmdKey() {
+            return getClass().getName();
+        }
+    }
+
 }
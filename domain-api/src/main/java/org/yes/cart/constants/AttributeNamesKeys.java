@@ -65,6 +65,10 @@ public interface AttributeNamesKeys {
          * Batch size for indexing.
          */
         String JOB_REINDEX_PRODUCT_BATCH_SIZE = "JOB_REINDEX_PRODUCT_BATCH_SIZE";
+        /**
+         * Number of parallel workers for full reindex.
+         */
+        String JOB_REINDEX_PRODUCT_WORKERS = "JOB_REINDEX_PRODUCT_WORKERS";
         /**
          * Delta check size for inventory changed processor.
          */
@@ -77,6 +81,10 @@ public interface AttributeNamesKeys {
          * Full reindex size for inventory changed processor.
          */
         String JOB_PRODUCT_INVENTORY_FULL_THRESHOLD = "JOB_PRODINVUP_FULL";
+        /**
+         * Max number of changed SKU for which inventory changed processor evicts only dependent cache entries.
+         */
+        String JOB_PRODUCT_INVENTORY_CACHE_FULL_THRESHOLD = "JOB_PRODINVUP_CACHE_FULL";
         /**
          * Maximum number of days after which unavailable product becomes obsolete.
          */
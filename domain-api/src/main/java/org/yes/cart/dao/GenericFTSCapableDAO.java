@@ -46,6 +46,15 @@ public interface GenericFTSCapableDAO<T, PK extends Serializable, FTQ> extends G
      */
     void fullTextSearchReindex(boolean async, int batchSize);
 
+    /**
+     * Force reindex the all entities using parallel workers.
+     *
+     * @param async true if async required
+     * @param batchSize batch size for re-indexing
+     * @param workers number of parallel workers (1 or less means serial reindex)
+     */
+    void fullTextSearchReindex(boolean async, int batchSize, int workers);
+
     /**
      * Force reindex given entity.
      *
@@ -107,6 +116,31 @@ public interface GenericFTSCapableDAO<T, PK extends Serializable, FTQ> extends G
                                                  boolean reverse,
                                                  String ... fields);
 
+    /**
+     * Get the full text search result page using continuation token (search after). Unlike offset based
+     * paging the cost of retrieving the page does not depend on how deep the page is, as long as the
+     * token returned by previous page is supplied.
+     *
+     * @param query         lucene search query
+     * @param firstResult   first row of result
+     * @param maxResults    size of result set
+     * @param sortFieldName optional  sort field name
+     * @param reverse       reverse the search result
+     * @param pageToken     continuation token of previous page, invalid or stale tokens (e.g. token from different
+     *                      query or page) are ignored and firstResult offset is used instead
+     * @param fields        list of fields for projections
+     *
+     * @return pair: first is page of results and total hits, second is token for next page (or null if this
+     *         is the last page)
+     */
+    Pair<Pair<List<Object[]>, Integer>, String> fullTextSearchAfter(FTQ query,
+                                                                    int firstResult,
+                                                                    int maxResults,
+                                                                    String sortFieldName,
+                                                                    boolean reverse,
+                                                                    String pageToken,
+                                                                    String... fields);
+
     /**
      * Get the full text search result. The map returned by this method should be a single use only.
      * i.e. DO NOT CACHE this method. There are no benefits to this as final FilterNavigationRecord's are already
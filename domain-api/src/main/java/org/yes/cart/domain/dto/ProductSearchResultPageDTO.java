@@ -68,6 +68,14 @@ public interface ProductSearchResultPageDTO extends Serializable {
      */
     boolean isSortDesc();
 
+    /**
+     * Continuation token for the next page. Supplying this token when requesting next page allows
+     * to retrieve it without collecting all preceding results.
+     *
+     * @return token for next page or null if this is the last page (or paging is not token based)
+     */
+    String getNextPageToken();
+
     /**
      * Creates copy of this object
      *
@@ -17,6 +17,7 @@
 package org.yes.cart.promotion;
 
 import org.yes.cart.domain.entity.Customer;
+import org.yes.cart.shoppingcart.CustomerSnapshot;
 import org.yes.cart.shoppingcart.MutableShoppingCart;
 import org.yes.cart.shoppingcart.Total;
 
@@ -43,33 +44,45 @@ public interface PromotionContext extends Serializable {
      */
     Date getTimestamp();
 
+    /**
+     * Customer entity is only passed to eligibility conditions of item, order and shipping promotions
+     * if it is required by any of these conditions (i.e. condition uses "customer" variable). All other
+     * customer variables are taken from customer snapshot.
+     *
+     * @return true if full customer entity has to be provided to apply promotions
+     */
+    boolean isCustomerRequired();
+
     /**
      * Apply item level promotions on cart.
      *
-     * @param customer customer
+     * @param customerSnapshot customer snapshot (null for anonymous)
+     * @param customer customer (only needed if {@link #isCustomerRequired()})
      * @param cart cart
      */
-    void applyItemPromo(Customer customer, MutableShoppingCart cart);
+    void applyItemPromo(CustomerSnapshot customerSnapshot, Customer customer, MutableShoppingCart cart);
 
     /**
      * Apply order level promotions on cart.
      *
-     * @param customer customer
+     * @param customerSnapshot customer snapshot (null for anonymous)
+     * @param customer customer (only needed if {@link #isCustomerRequired()})
      * @param cart cart
      * @param itemTotal current total after item promotions
      *
      * @return  order total (does not include shipping promotions)
      */
-    Total applyOrderPromo(Customer customer, MutableShoppingCart cart, Total itemTotal);
+    Total applyOrderPromo(CustomerSnapshot customerSnapshot, Customer customer, MutableShoppingCart cart, Total itemTotal);
 
     /**
      * Apply shipping promotions on cart.
      *
-     * @param customer customer
+     * @param customerSnapshot customer snapshot (null for anonymous)
+     * @param customer customer (only needed if {@link #isCustomerRequired()})
      * @param cart cart
      * @param orderTotal current total after order promotions
      */
-    void applyShippingPromo(Customer customer, MutableShoppingCart cart, Total orderTotal);
+    void applyShippingPromo(CustomerSnapshot customerSnapshot, Customer customer, MutableShoppingCart cart, Total orderTotal);
 
     /**
      * Apply promotion on customer. This is not strictly speaking promotion
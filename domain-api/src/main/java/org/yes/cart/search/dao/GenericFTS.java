@@ -77,6 +77,31 @@ public interface GenericFTS<PK extends Serializable, FTQ> {
                                                  boolean reverse,
                                                  String... fields);
 
+    /**
+     * Get the full text search result page using continuation token (search after). Unlike offset based
+     * paging the cost of retrieving the page does not depend on how deep the page is, as long as the
+     * token returned by previous page is supplied.
+     *
+     * @param query         lucene search query
+     * @param firstResult   first row of result
+     * @param maxResults    size of result set
+     * @param sortFieldName optional  sort field name
+     * @param reverse       reverse the search result
+     * @param pageToken     continuation token of previous page, invalid or stale tokens (e.g. token from different
+     *                      query or page) are ignored and firstResult offset is used instead
+     * @param fields        list of fields for projections
+     *
+     * @return pair: first is page of results and total hits, second is token for next page (or null if this
+     *         is the last page)
+     */
+    Pair<Pair<List<Object[]>, Integer>, String> fullTextSearchAfter(FTQ query,
+                                                                    int firstResult,
+                                                                    int maxResults,
+                                                                    String sortFieldName,
+                                                                    boolean reverse,
+                                                                    String pageToken,
+                                                                    String... fields);
+
     /**
      * Get the full text search result. The map returned by this method should be a single use only.
      * i.e. DO NOT CACHE this method. There are no benefits to this as final FilterNavigationRecord's are already
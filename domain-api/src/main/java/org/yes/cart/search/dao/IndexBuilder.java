@@ -66,6 +66,17 @@ public interface IndexBuilder<T, PK extends Serializable> {
      */
     void fullTextSearchReindex(boolean async, int batchSize);
 
+    /**
+     * Force reindex the all entities using parallel workers. Each worker processes
+     * partitions of primary key range with its own persistence session and all workers
+     * share the same index writer.
+     *
+     * @param async true if async required
+     * @param batchSize batch size for re-indexing (size of the primary key range partition in parallel mode)
+     * @param workers number of parallel workers (1 or less means serial reindex)
+     */
+    void fullTextSearchReindex(boolean async, int batchSize, int workers);
+
     /**
      * Force reindex given entity.
      *
@@ -123,6 +123,20 @@ public interface CustomerOrderService extends GenericService<CustomerOrder> {
      */
     List<Long> findAwaitingDeliveriesIds(List<String> skuCodes, String deliveryStatus, List<String> orderStatus);
 
+    /**
+     * Find deliveries, which are waiting for inventory to be completed, grouped by inventory they
+     * compete for. Deliveries of the same order and deliveries of orders that require the same SKU
+     * (directly or through other orders) are put in the same group, so that groups can be processed
+     * independently of each other.
+     *
+     * @param skuCodes       what sku is required. optional
+     * @param deliveryStatus status of delivery
+     * @param orderStatus    order status
+     * @return groups of awaiting delivery ids, groups are in order of their first awaiting delivery
+     *         and delivery ids of each group are in ascending order
+     */
+    List<List<Long>> findAwaitingDeliveriesIdsGroupedBySku(List<String> skuCodes, String deliveryStatus, List<String> orderStatus);
+
     /**
      * Find orders, which are waiting for inventory to be completed.
      *
@@ -22,7 +22,9 @@ import org.yes.cart.domain.misc.navigation.price.PriceTierTree;
 import org.yes.cart.search.dto.FilteredNavigationRecord;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Price service.
@@ -59,6 +61,41 @@ public interface PriceService extends GenericService<SkuPrice> {
                              final boolean enforceTier,
                              final String pricingPolicy);
 
+    /**
+     * Get minimal prices for given SKU, shop, currency and quantity in bulk. This is equivalent
+     * of calling {@link #getMinimalPrice(Long, String, long, Long, String, BigDecimal, boolean, String)}
+     * for each SKU but resolves all prices in single pass.
+     *
+     * Result of this method is not cached since SKU sets hardly repeat. If "priceService-priceBook"
+     * cache is configured prices are resolved from in memory price book, otherwise single query
+     * per shop is used.
+     *
+     * @param skuQuantities  SKU codes with quantity tier for each
+     * @param customerShopId shop for which to get the price for
+     * @param masterShopId   optional fallback shop (if specified the result will be a merge of prices available in both shops)
+     * @param currencyCode   desirable currency
+     * @param enforceTier    force to pick closest tier price rather than cheapest
+     * @param pricingPolicy  optional pricing policy
+     *
+     * @return lowest available sku price for each requested SKU (same order as in request)
+     */
+    Map<String, SkuPrice> getMinimalPrices(final Map<String, BigDecimal> skuQuantities,
+                                           final long customerShopId,
+                                           final Long masterShopId,
+                                           final String currencyCode,
+                                           final boolean enforceTier,
+                                           final String pricingPolicy);
+
+    /**
+     * Apply committed changes of given prices to in memory price books (if "priceService-priceBook"
+     * cache is configured). Prices are re-read, so each is moved to the book of its current shop and
+     * currency, or removed from all books if it no longer exists. Books that are not loaded are
+     * not affected.
+     *
+     * @param skuPriceIds price PKs
+     */
+    void refreshPriceBooks(Collection<Long> skuPriceIds);
+
     /**
      * Get all prices for given product skus (all), shop, currency and quantity.
      *
@@ -256,6 +256,26 @@ public interface ProductService extends GenericService<Product> {
                                                                 String sortFieldName,
                                                                 boolean reverse);
 
+    /**
+     * Get the all products, that match the given query using continuation token from previous
+     * page (see {@link ProductSearchResultPageDTO#getNextPageToken()}). Deep pages retrieved with
+     * valid token cost the same as the first page.
+     *
+     * @param navigationContext navigation context
+     * @param firstResult       index of first result
+     * @param maxResults        quantity results to return
+     * @param sortFieldName     sort field name
+     * @param reverse           reverse the search result if true
+     * @param pageToken         continuation token (optional, ignored if not valid for this page)
+     * @return list of products
+     */
+    ProductSearchResultPageDTO getProductSearchResultDTOByQuery(NavigationContext navigationContext,
+                                                                int firstResult,
+                                                                int maxResults,
+                                                                String sortFieldName,
+                                                                boolean reverse,
+                                                                String pageToken);
+
     /**
      * Create filter navigation records counts.
      *
@@ -308,6 +328,15 @@ public interface ProductService extends GenericService<Product> {
      */
     void reindexProducts(int batchSize, boolean async);
 
+    /**
+     * Reindex the products using parallel workers.
+     *
+     * @param batchSize batch size for re-indexing
+     * @param workers number of parallel workers
+     * @param async asynchronous
+     */
+    void reindexProducts(int batchSize, int workers, boolean async);
+
     /**
      * Reindex the products.
      *
@@ -323,6 +352,15 @@ public interface ProductService extends GenericService<Product> {
      */
     void reindexProductsSku(int batchSize, boolean async);
 
+    /**
+     * Reindex the products using parallel workers.
+     *
+     * @param batchSize batch size for re-indexing
+     * @param workers number of parallel workers
+     * @param async asynchronous
+     */
+    void reindexProductsSku(int batchSize, int workers, boolean async);
+
     /**
      * Reindex the products.
      *
@@ -19,6 +19,7 @@ package org.yes.cart.service.domain;
 import org.yes.cart.dao.ResultsIterator;
 import org.yes.cart.domain.entity.ShoppingCartState;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -38,6 +39,15 @@ public interface ShoppingCartStateService extends GenericService<ShoppingCartSta
      */
     ShoppingCartState findByGuid(String guid);
 
+    /**
+     * Get states by guids.
+     *
+     * @param guids guids
+     *
+     * @return all states that exist for given guids
+     */
+    List<ShoppingCartState> findByGuids(Collection<String> guids);
+
     /**
      * Get state by guid.
      *
@@ -23,8 +23,6 @@ package org.yes.cart.service.order;
  */
 public interface OrderEventHandler {
 
-    Object syncMonitor = new Object();
-
     /**
      * Event handler.
      *
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.order;
+
+import org.yes.cart.domain.entity.CustomerOrder;
+import org.yes.cart.domain.entity.CustomerOrderDelivery;
+import org.yes.cart.domain.entity.CustomerOrderDeliveryDet;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per order locks used by {@link OrderEventHandler}s to serialise transitions of the same order.
+ * <p/>
+ * Locks are striped by order number so that transitions for different orders do not block
+ * each other. Locks are reentrant since handlers fire nested transitions for the same order
+ * (e.g. pending triggers allocation). Inventory consistency across orders is guaranteed by
+ * the database row locks (see SkuWarehouseService.findByWarehouseSkuForUpdate) rather than by
+ * this class; {@link #inInventoryLockOrder(Collection)} provides the canonical order in which
+ * these row locks should be acquired to avoid deadlocks.
+ * <p/>
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 10:02
+ */
+public final class OrderEventLocks {
+
+    private static final int STRIPES = 256;
+
+    private static final Lock[] LOCKS = new Lock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private static final Comparator<CustomerOrderDeliveryDet> INVENTORY_LOCK_ORDER = new Comparator<CustomerOrderDeliveryDet>() {
+        @Override
+        public int compare(final CustomerOrderDeliveryDet det1, final CustomerOrderDeliveryDet det2) {
+            int cmp = compareNullable(det1.getSupplierCode(), det2.getSupplierCode());
+            if (cmp == 0) {
+                cmp = compareNullable(det1.getProductSkuCode(), det2.getProductSkuCode());
+                if (cmp == 0 && det1.getDelivery() != null && det2.getDelivery() != null) {
+                    cmp = compareNullable(det1.getDelivery().getDeliveryNum(), det2.getDelivery().getDeliveryNum());
+                }
+            }
+            return cmp;
+        }
+    };
+
+    private OrderEventLocks() {
+        // no instance
+    }
+
+    /**
+     * Acquire lock for the order of given event. Caller must release the lock in finally block.
+     *
+     * @param orderEvent event
+     *
+     * @return acquired lock
+     */
+    public static Lock lock(final OrderEvent orderEvent) {
+
+        final Lock lock = LOCKS[stripe(orderEvent.getCustomerOrder())];
+        lock.lock();
+        return lock;
+
+    }
+
+    /**
+     * Flatten delivery details in canonical inventory lock order (supplier, SKU, delivery number).
+     *
+     * @param deliveries deliveries
+     *
+     * @return details sorted in canonical order
+     */
+    public static List<CustomerOrderDeliveryDet> inInventoryLockOrder(final Collection<CustomerOrderDelivery> deliveries) {
+
+        final List<CustomerOrderDeliveryDet> details = new ArrayList<CustomerOrderDeliveryDet>();
+        for (final CustomerOrderDelivery delivery : deliveries) {
+            details.addAll(delivery.getDetail());
+        }
+        Collections.sort(details, INVENTORY_LOCK_ORDER);
+        return details;
+
+    }
+
+    static int stripe(final CustomerOrder order) {
+
+        final Object key;
+        if (order == null) {
+            key = null;
+        } else if (order.getOrdernum() != null) {
+            key = order.getOrdernum();
+        } else {
+            key = order.getCustomerorderId();
+        }
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (STRIPES - 1);
+
+    }
+
+    private static <T extends Comparable<T>> int compareNullable(final T val1, final T val2) {
+        if (val1 == null) {
+            return val2 == null ? 0 : -1;
+        } else if (val2 == null) {
+            return 1;
+        }
+        return val1.compareTo(val2);
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.shoppingcart;
+
+import java.io.Serializable;
+
+/**
+ * Lightweight immutable view of customer attributes that are used in cart calculation
+ * (promotions and pricing). Snapshot is captured at login and carried in shopping context,
+ * so that recalculation does not need to load customer entity.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:40
+ */
+public interface CustomerSnapshot extends Serializable {
+
+    /**
+     * @return customer PK
+     */
+    long getCustomerId();
+
+    /**
+     * @return customer email
+     */
+    String getEmail();
+
+    /**
+     * @return shop PK for which this snapshot was captured
+     */
+    long getShopId();
+
+    /**
+     * @return customer type
+     */
+    String getCustomerType();
+
+    /**
+     * @return customer tags (space separated, same as {@link org.yes.cart.domain.entity.Customer#getTag()})
+     */
+    String getTag();
+
+    /**
+     * @return customer pricing policy (same as {@link org.yes.cart.domain.entity.Customer#getPricingPolicy()})
+     */
+    String getPricingPolicy();
+
+    /**
+     * @return time when this snapshot was captured
+     */
+    long getCapturedTimestamp();
+
+}
@@ -147,6 +147,20 @@ public interface MutableShoppingContext extends ShoppingContext, Serializable {
      */
     void setLatestViewedCategories(List<String> latestViewedCategories);
 
+    /**
+     * Get snapshot of logged in customer attributes used in cart calculation.
+     *
+     * @return customer snapshot or null if customer is not logged in or snapshot is not yet captured
+     */
+    CustomerSnapshot getCustomerSnapshot();
+
+    /**
+     * Set snapshot of logged in customer attributes.
+     *
+     * @param customerSnapshot customer snapshot
+     */
+    void setCustomerSnapshot(CustomerSnapshot customerSnapshot);
+
     /**
      * Clear context.
      */
@@ -20,6 +20,7 @@ import org.yes.cart.domain.entity.SkuPrice;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User: denispavlov
@@ -54,6 +55,27 @@ public interface PriceResolver {
                              final boolean enforceTier,
                              final String pricingPolicy);
 
+    /**
+     * Get minimal prices for given SKU, shop, currency and quantity in bulk. This is equivalent
+     * of calling {@link #getMinimalPrice(Long, String, long, Long, String, BigDecimal, boolean, String)}
+     * for each SKU but resolves all prices in single pass.
+     *
+     * @param skuQuantities  SKU codes with quantity tier for each
+     * @param customerShopId shop for which to get the price for
+     * @param masterShopId   optional fallback shop (if specified the result will be a merge of prices available in both shops)
+     * @param currencyCode   desirable currency
+     * @param enforceTier    force to pick closest tier price rather than cheapest
+     * @param pricingPolicy  optional pricing policy
+     *
+     * @return lowest available sku price for each requested SKU (same order as in request)
+     */
+    Map<String, SkuPrice> getMinimalPrices(final Map<String, BigDecimal> skuQuantities,
+                                           final long customerShopId,
+                                           final Long masterShopId,
+                                           final String currencyCode,
+                                           final boolean enforceTier,
+                                           final String pricingPolicy);
+
     /**
      * Get all prices for given product skus (all), shop, currency and quantity.
      *
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.service.order;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.yes.cart.domain.entity.CustomerOrder;
+import org.yes.cart.domain.entity.CustomerOrderDelivery;
+import org.yes.cart.domain.entity.CustomerOrderDeliveryDet;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 10:41
+ */
+public class OrderEventLocksTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testLockIsReentrantAndPerOrder() throws Exception {
+
+        final OrderEvent event1 = context.mock(OrderEvent.class, "event1");
+        final OrderEvent event2 = context.mock(OrderEvent.class, "event2");
+        final CustomerOrder order1 = context.mock(CustomerOrder.class, "order1");
+        final CustomerOrder order2 = context.mock(CustomerOrder.class, "order2");
+
+        context.checking(new Expectations() {{
+            allowing(event1).getCustomerOrder(); will(returnValue(order1));
+            allowing(order1).getOrdernum(); will(returnValue("ORD-1"));
+            allowing(event2).getCustomerOrder(); will(returnValue(order2));
+            allowing(order2).getOrdernum(); will(returnValue("ORD-2"));
+        }});
+
+        assertTrue(OrderEventLocks.stripe(order1) != OrderEventLocks.stripe(order2));
+
+        final Lock outer = OrderEventLocks.lock(event1);
+        try {
+            // nested transition of the same order must not dead lock
+            final Lock inner = OrderEventLocks.lock(event1);
+            inner.unlock();
+
+            final AtomicBoolean otherOrderLocked = new AtomicBoolean(false);
+            final AtomicBoolean sameOrderLocked = new AtomicBoolean(true);
+            final Thread other = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final Lock lock2 = OrderEventLocks.lock(event2);
+                    otherOrderLocked.set(true);
+                    lock2.unlock();
+                    sameOrderLocked.set(outer.tryLock());
+                }
+            });
+            other.start();
+            other.join(5000L);
+
+            assertTrue(otherOrderLocked.get());
+            assertFalse(sameOrderLocked.get());
+
+        } finally {
+            outer.unlock();
+        }
+
+        context.assertIsSatisfied();
+
+    }
+
+    @Test
+    public void testInInventoryLockOrder() throws Exception {
+
+        final CustomerOrderDelivery delivery1 = context.mock(CustomerOrderDelivery.class, "delivery1");
+        final CustomerOrderDelivery delivery2 = context.mock(CustomerOrderDelivery.class, "delivery2");
+        final CustomerOrderDeliveryDet d1WhBSku1 = context.mock(CustomerOrderDeliveryDet.class, "d1WhBSku1");
+        final CustomerOrderDeliveryDet d1WhASku2 = context.mock(CustomerOrderDeliveryDet.class, "d1WhASku2");
+        final CustomerOrderDeliveryDet d2WhASku1 = context.mock(CustomerOrderDeliveryDet.class, "d2WhASku1");
+        final CustomerOrderDeliveryDet d2WhASku2 = context.mock(CustomerOrderDeliveryDet.class, "d2WhASku2");
+
+        context.checking(new Expectations() {{
+            allowing(delivery1).getDetail(); will(returnValue(Arrays.asList(d1WhBSku1, d1WhASku2)));
+            allowing(delivery1).getDeliveryNum(); will(returnValue("ORD-1-0"));
+            allowing(delivery2).getDetail(); will(returnValue(Arrays.asList(d2WhASku2, d2WhASku1)));
+            allowing(delivery2).getDeliveryNum(); will(returnValue("ORD-1-1"));
+            allowing(d1WhBSku1).getSupplierCode(); will(returnValue("WH-B"));
+            allowing(d1WhBSku1).getProductSkuCode(); will(returnValue("SKU-1"));
+            allowing(d1WhBSku1).getDelivery(); will(returnValue(delivery1));
+            allowing(d1WhASku2).getSupplierCode(); will(returnValue("WH-A"));
+            allowing(d1WhASku2).getProductSkuCode(); will(returnValue("SKU-2"));
+            allowing(d1WhASku2).getDelivery(); will(returnValue(delivery1));
+            allowing(d2WhASku1).getSupplierCode(); will(returnValue("WH-A"));
+            allowing(d2WhASku1).getProductSkuCode(); will(returnValue("SKU-1"));
+            allowing(d2WhASku1).getDelivery(); will(returnValue(delivery2));
+            allowing(d2WhASku2).getSupplierCode(); will(returnValue("WH-A"));
+            allowing(d2WhASku2).getProductSkuCode(); will(returnValue("SKU-2"));
+            allowing(d2WhASku2).getDelivery(); will(returnValue(delivery2));
+        }});
+
+        final List<CustomerOrderDeliveryDet> ordered = OrderEventLocks.inInventoryLockOrder(Arrays.asList(delivery2, delivery1));
+
+        assertEquals(Arrays.asList(d2WhASku1, d1WhASku2, d2WhASku2, d1WhBSku1), ordered);
+
+        context.assertIsSatisfied();
+
+    }
+
+}
@@ -83,3 +83,20 @@ INSERT INTO TATTRIBUTE (ATTRIBUTE_ID, GUID, CODE, MANDATORY, VAL, NAME, DESCRIPT
   VALUES (  11220,  'JOB_PROD_OBS_BATCH_SIZE', 'JOB_PROD_OBS_BATCH_SIZE',  0,  NULL,  'Job\\Obsolete product removal: batch size',
     'Maximum products to remove per each run. Default: 500',  1006, 1000, 0, 0, 0, 0);
 
+
+--
+-- Parallel workers for full product re-index
+--
+
+INSERT INTO TATTRIBUTE (ATTRIBUTE_ID, GUID, CODE, MANDATORY, VAL, NAME, DESCRIPTION, ETYPE_ID, ATTRIBUTEGROUP_ID, STORE, SEARCH, SEARCHPRIMARY, NAV)
+  VALUES (  11221,  'JOB_REINDEX_PRODUCT_WORKERS', 'JOB_REINDEX_PRODUCT_WORKERS',  0,  NULL,  'Job\\Product re-index: parallel workers',
+    'Number of parallel workers for full product re-index (each worker processes batches of product PK range). Default: 1 (serial)',  1006, 1000, 0, 0, 0, 0);
+
+--
+-- Selective cache eviction for inventory changes
+--
+
+INSERT INTO TATTRIBUTE (ATTRIBUTE_ID, GUID, CODE, MANDATORY, VAL, NAME, DESCRIPTION, ETYPE_ID, ATTRIBUTEGROUP_ID, STORE, SEARCH, SEARCHPRIMARY, NAV)
+  VALUES (  11222,  'JOB_PRODINVUP_CACHE_FULL', 'JOB_PRODINVUP_CACHE_FULL',  0,  NULL,  'Job\\Inventory Change Detection: changes for full cache flush',
+    'Number of changed SKU that should trigger flush of all product caches rather than eviction of changed SKU only. Default is 500',  1006, 1000, 0, 0, 0, 0);
+
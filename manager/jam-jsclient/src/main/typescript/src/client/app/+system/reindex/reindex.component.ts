@@ -35,6 +35,9 @@ export class ReindexComponent implements OnInit, OnDestroy {
   private static _jobCompleted:boolean = false;
   private static _lastReport:string = '';
 
+  private static _batchSize:number = null;
+  private static _workers:number = null;
+
   private delayedUpdate:Future;
   private _delayedFilteringMs:number = Config.UI_BULKSERVICE_DELAY;
 
@@ -90,6 +93,22 @@ export class ReindexComponent implements OnInit, OnDestroy {
     ReindexComponent._lastReport = value;
   }
 
+  public get batchSize():number {
+    return ReindexComponent._batchSize;
+  }
+
+  public set batchSize(value:number) {
+    ReindexComponent._batchSize = value;
+  }
+
+  public get workers():number {
+    return ReindexComponent._workers;
+  }
+
+  public set workers(value:number) {
+    ReindexComponent._workers = value;
+  }
+
   public get delayedFilteringMs():number {
     return this._delayedFilteringMs;
   }
@@ -128,7 +147,7 @@ export class ReindexComponent implements OnInit, OnDestroy {
     LogUtil.debug('ReindexComponent onReindexAll');
     if (!this.jobRunning) {
       this.jobRunning = true;
-      var _sub:any = this._systemService.reindexAllProducts().subscribe(status => {
+      var _sub:any = this._systemService.reindexAllProducts(this.batchSize, this.workers).subscribe(status => {
         LogUtil.debug('ReindexComponent onReindexAll', status);
         this.jobStatus = status;
         this.lastReport = this.jobStatus.report;
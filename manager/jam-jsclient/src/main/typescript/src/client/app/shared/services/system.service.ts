@@ -151,14 +151,24 @@ export class SystemService {
 
   /**
    * Reindex all products.
+   * @param batchSize batch size (optional, system configuration is used if not specified)
+   * @param workers number of parallel workers (optional, system configuration is used if not specified)
    * @returns {Observable<R>}
    */
-  reindexAllProducts() {
+  reindexAllProducts(batchSize?:number, workers?:number) {
 
     let headers = new Headers({ 'Content-Type': 'application/json; charset=utf-8' });
     let options = new RequestOptions({ headers: headers });
 
-    return this.http.post(this._serviceBaseUrl + '/index/all', null, options)
+    let params:string[] = [];
+    if (batchSize > 0) {
+      params.push('batchSize=' + batchSize);
+    }
+    if (workers > 0) {
+      params.push('workers=' + workers);
+    }
+
+    return this.http.post(this._serviceBaseUrl + '/index/all' + (params.length > 0 ? '?' + params.join('&') : ''), null, options)
       .map(res => <JobStatusVO> this.json(res))
       .catch(this.handleError);
   }
@@ -27,6 +27,9 @@ import org.springframework.context.ApplicationContextAware;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.yes.cart.cluster.node.Node;
 import org.yes.cart.cluster.node.NodeService;
 import org.yes.cart.cluster.node.RspMessage;
@@ -49,6 +52,15 @@ import java.util.*;
  * Time: 16:13:01
  * <p/>
  * Delegate cache eviction to shops in case if operation was performed on a cacheable entity.
+ * <p/>
+ * Changes are collected per transaction and coalesced by cache: full evictions are sent once
+ * per cache and keyed evictions are merged into key sets. The batch is broadcast as a single
+ * message after commit (and discarded on rollback). Changes outside of transaction are sent
+ * immediately as a batch of one.
+ * <p/>
+ * Batches are sent as "CacheDirector.onCacheableBulkChange" message, which storefronts prior to this
+ * version do not subscribe to. During rolling upgrade storefronts must be upgraded before the manager,
+ * otherwise old storefronts will not receive evictions (use "Evict all" on them once upgrade is complete).
  */
 public class AdminInterceptor extends AuditInterceptor implements ApplicationContextAware {
 
@@ -106,25 +118,92 @@ public class AdminInterceptor extends AuditInterceptor implements ApplicationCon
     void invalidateCache(final String op, final String entityName, final Long pk) {
 
         if (executor != null) {
-            if (nodeService == null) {
-                synchronized (this) {
-                    if (nodeService == null) {
-                        nodeService = applicationContext.getBean("nodeService", NodeService.class);
-                    }
-                    if (asyncContextFactory == null) {
-                        asyncContextFactory = applicationContext.getBean("webAppManagerAsyncContextFactory", AsyncContextFactory.class);
-                    }
-                }
+
+            final Set<Pair<String, String>> caches = resolveCacheNames(op, entityName);
+            if (caches == null || caches.isEmpty()) {
+                return;
+            }
+
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+
+                getTransactionBatch().add(caches, entityName, pk);
+
+            } else {
+
+                final CacheEvictionBatch batch = new CacheEvictionBatch();
+                batch.add(caches, entityName, pk);
+                sendBatch(batch);
+
+            }
+        }
+
+    }
+
+    /**
+     * Resolve caches names for invalidation for given entity and operation.
+     *
+     * @param op         given operation
+     * @param entityName given entity name
+     *
+     * @return set of cache names and eviction strategies
+     */
+    Set<Pair<String, String>> resolveCacheNames(final String op, final String entityName) {
+
+        final Map<String, Set<Pair<String, String>>> entOperations = this.entityOperationCache.get(entityName);
+
+        if (entOperations != null) {
+            return entOperations.get(op);
+        }
+
+        return null;
+
+    }
+
+    /**
+     * Batch is attached to current transaction synchronization, so that suspended outer transactions
+     * (e.g. REQUIRES_NEW) keep their own batches.
+     *
+     * @return batch for current transaction
+     */
+    private CacheEvictionBatch getTransactionBatch() {
+
+        for (final TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sync instanceof CacheEvictionBatchSynchronization
+                    && ((CacheEvictionBatchSynchronization) sync).getOwner() == this) {
+                return ((CacheEvictionBatchSynchronization) sync).getBatch();
             }
+        }
+
+        final CacheEvictionBatchSynchronization sync = new CacheEvictionBatchSynchronization();
+        TransactionSynchronizationManager.registerSynchronization(sync);
+        return sync.getBatch();
 
-            final Runnable evictCache = this.createEvictCacheRunnable(op, entityName, pk);
+    }
+
+    void sendBatch(final CacheEvictionBatch batch) {
 
-            this.executor.execute(evictCache);
+        if (batch.isEmpty()) {
+            return;
         }
 
+        if (nodeService == null) {
+            synchronized (this) {
+                if (nodeService == null) {
+                    nodeService = applicationContext.getBean("nodeService", NodeService.class);
+                }
+                if (asyncContextFactory == null) {
+                    asyncContextFactory = applicationContext.getBean("webAppManagerAsyncContextFactory", AsyncContextFactory.class);
+                }
+            }
+        }
+
+        final Runnable evictCache = this.createEvictCacheRunnable(batch);
+
+        this.executor.execute(evictCache);
+
     }
 
-    private Runnable createEvictCacheRunnable(final String op, final String entityName, final Long pk) {
+    private Runnable createEvictCacheRunnable(final CacheEvictionBatch batch) {
 
         final AsyncContext jobContext = ThreadLocalAsyncContextUtils.getContext();
         final Authentication auth = SecurityContextHolder.getContext() != null ? SecurityContextHolder.getContext().getAuthentication() : null;
@@ -148,7 +227,7 @@ public class AdminInterceptor extends AuditInterceptor implements ApplicationCon
                     }
 
                     if (threadContext == null) {
-                        LOG.debug("Cannot invalidate cache for entity [" + entityName + "] pk value =  [" + pk + "] - no async context ");
+                        LOG.debug("Cannot invalidate cache for " + batch + " - no async context ");
                         return;
                     }
 
@@ -160,18 +239,20 @@ public class AdminInterceptor extends AuditInterceptor implements ApplicationCon
                     }
 
                     final HashMap<String, Object> payload = new HashMap<String, Object>();
-                    payload.put("entityOperation", op);
-                    payload.put("entityName", entityName);
-                    payload.put("pkValue", pk);
+                    payload.put("evictAll", batch.getEvictAll());
+                    payload.put("evictKeys", batch.getEvictKeys());
+                    payload.put("evictTags", batch.getEvictTags());
 
                     final RspMessage message = new ContextRspMessageImpl(
                             nodeService.getCurrentNodeId(),
                             targets,
-                            "CacheDirector.onCacheableChange",
+                            "CacheDirector.onCacheableBulkChange",
                             payload,
                             threadContext
                     );
 
+                    LOG.debug("Invalidating cache for {}", batch);
+
                     nodeService.broadcast(message);
 
 
@@ -220,4 +301,107 @@ public class AdminInterceptor extends AuditInterceptor implements ApplicationCon
     public void setEntityOperationCacheExecutor(final TaskExecutor executor) {
         this.executor = executor;
     }
+
+
+    /**
+     * Evictions coalesced by cache. Full eviction of a cache supersedes any keyed or tagged evictions for it.
+     */
+    static final class CacheEvictionBatch {
+
+        private final HashSet<String> evictAll = new HashSet<String>();
+        private final HashMap<String, HashSet<Long>> evictKeys = new HashMap<String, HashSet<Long>>();
+        private final HashMap<String, HashSet<String>> evictTags = new HashMap<String, HashSet<String>>();
+        private int changes = 0;
+
+        void add(final Set<Pair<String, String>> caches, final String entityName, final Long pk) {
+
+            changes++;
+
+            for (final Pair<String, String> cacheStrategy : caches) {
+
+                final String cache = cacheStrategy.getFirst();
+
+                if ("all".equals(cacheStrategy.getSecond())) {
+
+                    if (evictAll.add(cache)) {
+                        evictKeys.remove(cache);
+                        evictTags.remove(cache);
+                    }
+
+                } else if ("key".equals(cacheStrategy.getSecond())) {
+
+                    if (!evictAll.contains(cache)) {
+                        HashSet<Long> keys = evictKeys.get(cache);
+                        if (keys == null) {
+                            keys = new HashSet<Long>();
+                            evictKeys.put(cache, keys);
+                        }
+                        keys.add(pk);
+                    }
+
+                } else if ("tag".equals(cacheStrategy.getSecond())) {
+
+                    if (!evictAll.contains(cache)) {
+                        HashSet<String> tags = evictTags.get(cache);
+                        if (tags == null) {
+                            tags = new HashSet<String>();
+                            evictTags.put(cache, tags);
+                        }
+                        tags.add(entityName + ":" + pk);
+                    }
+
+                } else {
+
+                    LOG.warn("The [" + cacheStrategy.getSecond() + "] cache eviction strategy not supported");
+
+                }
+
+            }
+
+        }
+
+        boolean isEmpty() {
+            return evictAll.isEmpty() && evictKeys.isEmpty() && evictTags.isEmpty();
+        }
+
+        HashSet<String> getEvictAll() {
+            return evictAll;
+        }
+
+        HashMap<String, HashSet<Long>> getEvictKeys() {
+            return evictKeys;
+        }
+
+        HashMap<String, HashSet<String>> getEvictTags() {
+            return evictTags;
+        }
+
+        @Override
+        public String toString() {
+            return "batch of " + changes + " change(s): evict all " + evictAll + ", evict keys " + evictKeys + ", evict tags " + evictTags;
+        }
+    }
+
+
+    /**
+     * Holds batch for the transaction and sends it after commit.
+     */
+    private final class CacheEvictionBatchSynchronization extends TransactionSynchronizationAdapter {
+
+        private final CacheEvictionBatch batch = new CacheEvictionBatch();
+
+        AdminInterceptor getOwner() {
+            return AdminInterceptor.this;
+        }
+
+        CacheEvictionBatch getBatch() {
+            return batch;
+        }
+
+        @Override
+        public void afterCommit() {
+            sendBatch(batch);
+        }
+    }
+
 }
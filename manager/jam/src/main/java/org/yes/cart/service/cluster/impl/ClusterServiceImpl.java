@@ -186,7 +186,7 @@ public class ClusterServiceImpl implements ClusterService {
                 nodeService.getCurrentNodeId(),
                 (shopId != null && shopId > 0L) ?
                         "BackdoorService.reindexShopProducts" : "BackdoorService.reindexAllProducts",
-                shopId,
+                (shopId != null && shopId > 0L) ? shopId : createFullReindexPayload(context),
                 context
         );
 
@@ -205,7 +205,7 @@ public class ClusterServiceImpl implements ClusterService {
                 nodeService.getCurrentNodeId(),
                 (shopId != null && shopId > 0L) ?
                         "BackdoorService.reindexShopProductsSku" : "BackdoorService.reindexAllProductsSku",
-                shopId,
+                (shopId != null && shopId > 0L) ? shopId : createFullReindexPayload(context),
                 context
         );
 
@@ -213,6 +213,25 @@ public class ClusterServiceImpl implements ClusterService {
 
     }
 
+    /*
+     * Batch size and workers override for full reindex (null values mean that node system configuration is used).
+     */
+    private HashMap<String, Object> createFullReindexPayload(final AsyncContext context) {
+
+        final Integer batchSize = context.getAttribute(JobContextKeys.NODE_FULL_PRODUCT_INDEX_BATCH_SIZE);
+        final Integer workers = context.getAttribute(JobContextKeys.NODE_FULL_PRODUCT_INDEX_WORKERS);
+
+        if (batchSize == null && workers == null) {
+            return null;
+        }
+
+        final HashMap<String, Object> payload = new HashMap<String, Object>();
+        payload.put("batchSize", batchSize);
+        payload.put("workers", workers);
+        return payload;
+
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -163,12 +163,16 @@ public interface SystemEndpointController {
     /**
      * Reindex all products.
      *
+     * @param batchSize batch size (optional, system configuration is used if not specified)
+     * @param workers   number of parallel workers (optional, system configuration is used if not specified)
+     *
      * @return status of indexing.
      */
     @Secured({"ROLE_SMADMIN"})
     @RequestMapping(value = "/index/all", method = RequestMethod.POST, produces = { MediaType.APPLICATION_JSON_VALUE })
     @ResponseBody
-    VoJobStatus reindexAllProducts();
+    VoJobStatus reindexAllProducts(@RequestParam(value = "batchSize", required = false) Integer batchSize,
+                                   @RequestParam(value = "workers", required = false) Integer workers);
 
     /**
      * Reindex all products.
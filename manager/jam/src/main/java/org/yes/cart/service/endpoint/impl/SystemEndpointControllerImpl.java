@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.yes.cart.bulkjob.impl.BulkJobAutoContextImpl;
 import org.yes.cart.cluster.node.Node;
@@ -28,6 +29,7 @@ import org.yes.cart.domain.vo.VoCacheInfo;
 import org.yes.cart.domain.vo.VoClusterNode;
 import org.yes.cart.domain.vo.VoJobStatus;
 import org.yes.cart.service.async.model.AsyncContext;
+import org.yes.cart.service.async.model.JobContextKeys;
 import org.yes.cart.service.async.model.JobStatus;
 import org.yes.cart.service.cluster.ClusterService;
 import org.yes.cart.service.cluster.ReindexService;
@@ -170,8 +172,16 @@ public class SystemEndpointControllerImpl implements SystemEndpointController {
 
     /** {@inheritDoc} */
     public @ResponseBody
-    VoJobStatus reindexAllProducts() {
-        final String token = reindexService.reindexAllProducts(createCtx(null));
+    VoJobStatus reindexAllProducts(@RequestParam(value = "batchSize", required = false) final Integer batchSize,
+                                   @RequestParam(value = "workers", required = false) final Integer workers) {
+        final Map<String, Object> param = new HashMap<String, Object>();
+        if (batchSize != null && batchSize > 0) {
+            param.put(JobContextKeys.NODE_FULL_PRODUCT_INDEX_BATCH_SIZE, batchSize);
+        }
+        if (workers != null && workers > 0) {
+            param.put(JobContextKeys.NODE_FULL_PRODUCT_INDEX_WORKERS, workers);
+        }
+        final String token = reindexService.reindexAllProducts(createCtx(param));
         return getIndexJobStatus(token);
     }
 
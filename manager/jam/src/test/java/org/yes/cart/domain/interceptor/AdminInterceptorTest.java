@@ -0,0 +1,230 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package org.yes.cart.domain.interceptor;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.yes.cart.cluster.node.Message;
+import org.yes.cart.cluster.node.Node;
+import org.yes.cart.cluster.node.NodeService;
+import org.yes.cart.domain.misc.Pair;
+import org.yes.cart.service.async.model.AsyncContext;
+import org.yes.cart.service.async.utils.ThreadLocalAsyncContextUtils;
+import org.yes.cart.web.service.ws.CacheDirector;
+import org.yes.cart.web.service.ws.client.AsyncContextFactory;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:30
+ */
+public class AdminInterceptorTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    private AdminInterceptor interceptor;
+    private NodeService nodeService;
+    private List<Message> sent;
+
+    @Before
+    public void setUp() throws Exception {
+
+        final ApplicationContext applicationContext = context.mock(ApplicationContext.class, "applicationContext");
+        final AsyncContextFactory asyncContextFactory = context.mock(AsyncContextFactory.class, "asyncContextFactory");
+        final AsyncContext asyncContext = context.mock(AsyncContext.class, "asyncContext");
+        final Node sf = context.mock(Node.class, "sf");
+        nodeService = context.mock(NodeService.class, "nodeService");
+
+        context.checking(new Expectations() {{
+            allowing(applicationContext).getBean("nodeService", NodeService.class); will(returnValue(nodeService));
+            allowing(applicationContext).getBean("webAppManagerAsyncContextFactory", AsyncContextFactory.class); will(returnValue(asyncContextFactory));
+            allowing(asyncContext).getAttribute(with(any(String.class))); will(returnValue(null));
+            allowing(sf).getId(); will(returnValue("SF1"));
+            allowing(nodeService).getSfNodes(); will(returnValue(Collections.singletonList(sf)));
+            allowing(nodeService).getCurrentNodeId(); will(returnValue("JAM"));
+        }});
+
+        ThreadLocalAsyncContextUtils.init(asyncContext);
+
+        final Map<String, Set<Pair<String, String>>> product = new HashMap<String, Set<Pair<String, String>>>();
+        product.put(CacheDirector.EntityOperation.UPDATE, new HashSet<Pair<String, String>>(Arrays.asList(
+                new Pair<String, String>("productService-productById", "key"),
+                new Pair<String, String>("breadCrumbBuilder-breadCrumbs", "all")
+        )));
+        final Map<String, Set<Pair<String, String>>> price = new HashMap<String, Set<Pair<String, String>>>();
+        price.put(CacheDirector.EntityOperation.UPDATE, new HashSet<Pair<String, String>>(Arrays.asList(
+                new Pair<String, String>("priceService-priceBook", "tag"),
+                new Pair<String, String>("breadCrumbBuilder-breadCrumbs", "all")
+        )));
+        final Map<String, Map<String, Set<Pair<String, String>>>> config = new HashMap<String, Map<String, Set<Pair<String, String>>>>();
+        config.put("ProductEntity", product);
+        config.put("SkuPriceEntity", price);
+
+        interceptor = new AdminInterceptor();
+        interceptor.setApplicationContext(applicationContext);
+        interceptor.setEntityOperationCache(config);
+        interceptor.setEntityOperationCacheExecutor(new SyncTaskExecutor());
+
+        sent = new ArrayList<Message>();
+
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        ThreadLocalAsyncContextUtils.clear();
+        context.assertIsSatisfied();
+
+    }
+
+    private void expectBroadcasts(final int count) {
+
+        context.checking(new Expectations() {{
+            exactly(count).of(nodeService).broadcast(with(any(Message.class)));
+            will(new CustomAction("capture message") {
+                @Override
+                public Object invoke(final Invocation invocation) throws Throwable {
+                    sent.add((Message) invocation.getParameter(0));
+                    return null;
+                }
+            });
+        }});
+
+    }
+
+    @Test
+    public void testInvalidateCacheWithoutTransactionSendsImmediately() throws Exception {
+
+        expectBroadcasts(2);
+
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "ProductEntity", 1L);
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "SkuPriceEntity", 10L);
+        interceptor.invalidateCache(CacheDirector.EntityOperation.DELETE, "SkuPriceEntity", 10L); // no caches for operation
+
+        assertEquals(2, sent.size());
+
+        final Map<String, Object> first = (Map<String, Object>) sent.get(0).getPayload();
+        assertEquals(Collections.singleton("breadCrumbBuilder-breadCrumbs"), first.get("evictAll"));
+        assertEquals(Collections.singletonMap("productService-productById", Collections.singleton(1L)), first.get("evictKeys"));
+        assertTrue(((Map) first.get("evictTags")).isEmpty());
+
+        final Map<String, Object> second = (Map<String, Object>) sent.get(1).getPayload();
+        assertEquals(Collections.singleton("breadCrumbBuilder-breadCrumbs"), second.get("evictAll"));
+        assertTrue(((Map) second.get("evictKeys")).isEmpty());
+        assertEquals(Collections.singletonMap("priceService-priceBook", Collections.singleton("SkuPriceEntity:10")), second.get("evictTags"));
+
+    }
+
+    @Test
+    public void testInvalidateCacheInTransactionMergedAndSentAfterCommit() throws Exception {
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "ProductEntity", 1L);
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "ProductEntity", 2L);
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "SkuPriceEntity", 10L);
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "SkuPriceEntity", 11L);
+
+        final List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, syncs.size());
+        assertTrue(sent.isEmpty());
+
+        expectBroadcasts(1);
+
+        for (final TransactionSynchronization sync : syncs) {
+            sync.afterCommit();
+            sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertEquals(1, sent.size());
+
+        final Message message = sent.get(0);
+        assertEquals("CacheDirector.onCacheableBulkChange", message.getSubject());
+        assertEquals("JAM", message.getSource());
+        assertEquals(Collections.singletonList("SF1"), message.getTargets());
+
+        final Map<String, Object> payload = (Map<String, Object>) message.getPayload();
+        assertEquals(Collections.singleton("breadCrumbBuilder-breadCrumbs"), payload.get("evictAll"));
+        assertEquals(Collections.singletonMap("productService-productById", new HashSet<Long>(Arrays.asList(1L, 2L))), payload.get("evictKeys"));
+        assertEquals(Collections.singletonMap("priceService-priceBook", new HashSet<String>(Arrays.asList("SkuPriceEntity:10", "SkuPriceEntity:11"))), payload.get("evictTags"));
+
+    }
+
+    @Test
+    public void testInvalidateCacheInTransactionDiscardedOnRollback() throws Exception {
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "ProductEntity", 1L);
+        interceptor.invalidateCache(CacheDirector.EntityOperation.UPDATE, "SkuPriceEntity", 10L);
+
+        final List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, syncs.size());
+
+        // no broadcast expected
+        for (final TransactionSynchronization sync : syncs) {
+            sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertTrue(sent.isEmpty());
+
+    }
+
+    @Test
+    public void testCacheEvictionBatchEvictAllSupersedesKeysAndTags() throws Exception {
+
+        final AdminInterceptor.CacheEvictionBatch batch = new AdminInterceptor.CacheEvictionBatch();
+        assertTrue(batch.isEmpty());
+
+        batch.add(Collections.singleton(new Pair<String, String>("cache1", "key")), "ProductEntity", 1L);
+        batch.add(Collections.singleton(new Pair<String, String>("cache2", "tag")), "ProductEntity", 1L);
+        batch.add(Collections.singleton(new Pair<String, String>("cache3", "unknown")), "ProductEntity", 1L);
+        assertFalse(batch.isEmpty());
+        assertEquals(Collections.singleton(1L), batch.getEvictKeys().get("cache1"));
+        assertEquals(Collections.singleton("ProductEntity:1"), batch.getEvictTags().get("cache2"));
+
+        batch.add(new HashSet<Pair<String, String>>(Arrays.asList(
+                new Pair<String, String>("cache1", "all"),
+                new Pair<String, String>("cache2", "all")
+        )), "CategoryEntity", 2L);
+        batch.add(Collections.singleton(new Pair<String, String>("cache1", "key")), "ProductEntity", 3L);
+
+        assertEquals(new HashSet<String>(Arrays.asList("cache1", "cache2")), batch.getEvictAll());
+        assertTrue(batch.getEvictKeys().isEmpty());
+        assertTrue(batch.getEvictTags().isEmpty());
+
+    }
+
+}
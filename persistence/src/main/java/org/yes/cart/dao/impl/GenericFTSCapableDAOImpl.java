@@ -451,6 +451,13 @@ public class GenericFTSCapableDAOImpl<T, PK extends Serializable>
         return genericFTS.fullTextSearch(query, firstResult, maxResults, sortFieldName, reverse, fields);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Pair<Pair<List<Object[]>, Integer>, String> fullTextSearchAfter(final org.apache.lucene.search.Query query, final int firstResult, final int maxResults, final String sortFieldName, final boolean reverse, final String pageToken, final String... fields) {
+        return genericFTS.fullTextSearchAfter(query, firstResult, maxResults, sortFieldName, reverse, pageToken, fields);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -479,6 +486,13 @@ public class GenericFTSCapableDAOImpl<T, PK extends Serializable>
         indexBuilder.fullTextSearchReindex(async, batchSize);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void fullTextSearchReindex(final boolean async, final int batchSize, final int workers) {
+        indexBuilder.fullTextSearchReindex(async, batchSize, workers);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -21,6 +21,7 @@ import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.domain.entity.SkuPrice;
 import org.yes.cart.search.dao.support.SkuPriceRelationshipSupport;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -67,4 +68,14 @@ public class SkuPriceRelationshipSupportCachedImpl implements SkuPriceRelationsh
     public List<SkuPrice> getSkuPrices(final String sku) {
         return support.getSkuPrices(sku);
     }
+
+    /** {@inheritDoc} */
+    public void prefetchSkuPrices(final Collection<String> skus) {
+        support.prefetchSkuPrices(skus);
+    }
+
+    /** {@inheritDoc} */
+    public void releasePrefetchedSkuPrices() {
+        support.releasePrefetchedSkuPrices();
+    }
 }
@@ -33,6 +33,10 @@ public class SkuPriceRelationshipSupportImpl implements SkuPriceRelationshipSupp
     private final GenericDAO<Shop, Long> shopDao;
     private final GenericDAO<SkuPrice, Long> skuPriceDao;
 
+    private static final int IN_CHUNK = 500;
+
+    private final ThreadLocal<Map<String, List<SkuPrice>>> prefetched = new ThreadLocal<Map<String, List<SkuPrice>>>();
+
     public SkuPriceRelationshipSupportImpl(final GenericDAO<Shop, Long> shopDao,
                                            final GenericDAO<SkuPrice, Long> skuPriceDao) {
         this.shopDao = shopDao;
@@ -79,9 +83,47 @@ public class SkuPriceRelationshipSupportImpl implements SkuPriceRelationshipSupp
 
     /** {@inheritDoc} */
     public List<SkuPrice> getSkuPrices(final String sku) {
+        final Map<String, List<SkuPrice>> prefetched = this.prefetched.get();
+        if (prefetched != null) {
+            final List<SkuPrice> prices = prefetched.get(sku);
+            if (prices != null) {
+                return prices;
+            }
+        }
         return skuPriceDao.findByNamedQuery("SKUPRICE.BY.SKUCODE.ALL", sku);
     }
 
+    /** {@inheritDoc} */
+    public void prefetchSkuPrices(final Collection<String> skus) {
+
+        final List<String> codes = new ArrayList<String>(new LinkedHashSet<String>(skus));
+        final Map<String, List<SkuPrice>> prices = new HashMap<String, List<SkuPrice>>(codes.size() * 2);
+        for (final String code : codes) {
+            prices.put(code, new ArrayList<SkuPrice>()); // SKU without prices is a valid prefetch result
+        }
+
+        for (int from = 0; from < codes.size(); from += IN_CHUNK) {
+            final List<String> chunk = codes.subList(from, Math.min(from + IN_CHUNK, codes.size()));
+            final List<SkuPrice> found = skuPriceDao.findByNamedQuery("SKUPRICE.BY.SKUCODES.ALL", chunk);
+            for (final SkuPrice price : found) {
+                List<SkuPrice> skuPrices = prices.get(price.getSkuCode());
+                if (skuPrices == null) {
+                    skuPrices = new ArrayList<SkuPrice>();
+                    prices.put(price.getSkuCode(), skuPrices);
+                }
+                skuPrices.add(price);
+            }
+        }
+
+        this.prefetched.set(prices);
+
+    }
+
+    /** {@inheritDoc} */
+    public void releasePrefetchedSkuPrices() {
+        this.prefetched.remove();
+    }
+
 
     private SkuPriceRelationshipSupport self;
 
@@ -22,10 +22,7 @@ import org.yes.cart.domain.entity.SkuWarehouse;
 import org.yes.cart.domain.entity.Warehouse;
 import org.yes.cart.search.dao.support.SkuWarehouseRelationshipSupport;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * User: denispavlov
@@ -37,6 +34,10 @@ public class SkuWarehouseRelationshipSupportImpl implements SkuWarehouseRelation
     private final GenericDAO<Warehouse, Long> warehouseDao;
     private final GenericDAO<SkuWarehouse, Long> skuWarehouseDao;
 
+    private static final int IN_CHUNK = 500;
+
+    private final ThreadLocal<Map<String, List<SkuWarehouse>>> prefetched = new ThreadLocal<Map<String, List<SkuWarehouse>>>();
+
 
     public SkuWarehouseRelationshipSupportImpl(final GenericDAO<Warehouse, Long> warehouseDao,
                                                final GenericDAO<SkuWarehouse, Long> skuWarehouseDao) {
@@ -58,6 +59,13 @@ public class SkuWarehouseRelationshipSupportImpl implements SkuWarehouseRelation
     /** {@inheritDoc} */
     public List<SkuWarehouse> getQuantityOnWarehouse(final String sku) {
 
+        final Map<String, List<SkuWarehouse>> prefetched = this.prefetched.get();
+        if (prefetched != null) {
+            final List<SkuWarehouse> inventory = prefetched.get(sku);
+            if (inventory != null) {
+                return inventory;
+            }
+        }
         return skuWarehouseDao.findByNamedQuery("SKUS.ON.WAREHOUSES.BY.SKUCODE.ALL", sku);
     }
 
@@ -83,4 +91,35 @@ public class SkuWarehouseRelationshipSupportImpl implements SkuWarehouseRelation
         return skuWarehouseDao.findByNamedQuery("SKUS.ON.WAREHOUSES.BY.SKUCODE.IN.WAREHOUSEID", sku, ids);
 
     }
+
+    /** {@inheritDoc} */
+    public void prefetchQuantityOnWarehouse(final Collection<String> skus) {
+
+        final List<String> codes = new ArrayList<String>(new LinkedHashSet<String>(skus));
+        final Map<String, List<SkuWarehouse>> inventory = new HashMap<String, List<SkuWarehouse>>(codes.size() * 2);
+        for (final String code : codes) {
+            inventory.put(code, new ArrayList<SkuWarehouse>()); // SKU without stock is a valid prefetch result
+        }
+
+        for (int from = 0; from < codes.size(); from += IN_CHUNK) {
+            final List<String> chunk = codes.subList(from, Math.min(from + IN_CHUNK, codes.size()));
+            final List<SkuWarehouse> found = skuWarehouseDao.findByNamedQuery("SKUS.ON.WAREHOUSES.BY.SKUCODES.ALL", chunk);
+            for (final SkuWarehouse stock : found) {
+                List<SkuWarehouse> skuStock = inventory.get(stock.getSkuCode());
+                if (skuStock == null) {
+                    skuStock = new ArrayList<SkuWarehouse>();
+                    inventory.put(stock.getSkuCode(), skuStock);
+                }
+                skuStock.add(stock);
+            }
+        }
+
+        this.prefetched.set(inventory);
+
+    }
+
+    /** {@inheritDoc} */
+    public void releasePrefetchedQuantityOnWarehouse() {
+        this.prefetched.remove();
+    }
 }
@@ -1,16 +1,21 @@
 package org.yes.cart.search.dao.impl;
 
+import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.yes.cart.dao.CriteriaTuner;
 import org.yes.cart.dao.GenericDAO;
 import org.yes.cart.dao.ResultsIterator;
 import org.yes.cart.search.dao.LuceneDocumentAdapter;
 import org.yes.cart.search.dao.LuceneIndexProvider;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * User: denispavlov
@@ -49,6 +54,39 @@ public class IndexBuilderLuceneHibernateTxAwareImpl<T, PK extends Serializable>
         return entity;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isPrimaryKeyRangeSupported() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected long[] findPrimaryKeyRange() {
+        final List range = genericDao.findByCriteria(new CriteriaTuner() {
+            @Override
+            public void tune(final Criteria crit) {
+                crit.setProjection(Projections.projectionList()
+                        .add(Projections.min("id"))
+                        .add(Projections.max("id")));
+            }
+        });
+        if (range.isEmpty()) {
+            return null;
+        }
+        final Object[] minMax = (Object[]) range.get(0);
+        if (minMax[0] == null || minMax[1] == null) {
+            return null; // no entities
+        }
+        return new long[] { ((Number) minMax[0]).longValue(), ((Number) minMax[1]).longValue() };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected List<T> findByPrimaryKeyRange(final long fromInclusive, final long toExclusive) {
+        return genericDao.findByCriteria(Restrictions.ge("id", fromInclusive), Restrictions.lt("id", toExclusive));
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void endBatch(final Object tx) {
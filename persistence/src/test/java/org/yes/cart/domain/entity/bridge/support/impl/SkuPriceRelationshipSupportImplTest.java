@@ -0,0 +1,91 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.entity.bridge.support.impl;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.yes.cart.dao.GenericDAO;
+import org.yes.cart.domain.entity.Shop;
+import org.yes.cart.domain.entity.SkuPrice;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:45
+ */
+public class SkuPriceRelationshipSupportImplTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testPrefetchSingleQueryAndRelease() throws Exception {
+
+        final GenericDAO<Shop, Long> shopDao = context.mock(GenericDAO.class, "shopDao");
+        final GenericDAO<SkuPrice, Long> skuPriceDao = context.mock(GenericDAO.class, "skuPriceDao");
+
+        final SkuPrice priceA1 = context.mock(SkuPrice.class, "priceA1");
+        final SkuPrice priceA2 = context.mock(SkuPrice.class, "priceA2");
+        final SkuPrice priceB = context.mock(SkuPrice.class, "priceB");
+        final SkuPrice priceAfter = context.mock(SkuPrice.class, "priceAfter");
+
+        context.checking(new Expectations() {{
+            allowing(priceA1).getSkuCode(); will(returnValue("A"));
+            allowing(priceA2).getSkuCode(); will(returnValue("A"));
+            allowing(priceB).getSkuCode(); will(returnValue("B"));
+            // duplicates are removed and all codes are loaded by single query
+            one(skuPriceDao).findByNamedQuery("SKUPRICE.BY.SKUCODES.ALL", Arrays.asList("A", "B", "C"));
+            will(returnValue(Arrays.asList(priceA1, priceB, priceA2)));
+            // after release lookups go to DB again
+            one(skuPriceDao).findByNamedQuery("SKUPRICE.BY.SKUCODE.ALL", "A");
+            will(returnValue(Arrays.asList(priceAfter)));
+        }});
+
+        final SkuPriceRelationshipSupportImpl support = new SkuPriceRelationshipSupportImpl(shopDao, skuPriceDao);
+
+        support.prefetchSkuPrices(Arrays.asList("A", "B", "A", "C"));
+
+        assertEquals(Arrays.asList(priceA1, priceA2), support.getSkuPrices("A"));
+        assertEquals(Arrays.asList(priceB), support.getSkuPrices("B"));
+        assertEquals(Collections.emptyList(), support.getSkuPrices("C"));
+
+        // prefetched data is bound to thread, so release in other thread does not affect this one
+        final Thread other = new Thread() {
+            @Override
+            public void run() {
+                support.releasePrefetchedSkuPrices();
+            }
+        };
+        other.start();
+        other.join();
+        assertEquals(Arrays.asList(priceB), support.getSkuPrices("B"));
+
+        support.releasePrefetchedSkuPrices();
+
+        assertEquals(Arrays.asList(priceAfter), support.getSkuPrices("A"));
+
+        context.assertIsSatisfied();
+
+    }
+
+}
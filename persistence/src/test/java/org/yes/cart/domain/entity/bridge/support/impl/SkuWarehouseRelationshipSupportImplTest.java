@@ -0,0 +1,73 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.entity.bridge.support.impl;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.yes.cart.dao.GenericDAO;
+import org.yes.cart.domain.entity.SkuWarehouse;
+import org.yes.cart.domain.entity.Warehouse;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:55
+ */
+public class SkuWarehouseRelationshipSupportImplTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    @Test
+    public void testPrefetchSingleQueryAndRelease() throws Exception {
+
+        final GenericDAO<Warehouse, Long> warehouseDao = context.mock(GenericDAO.class, "warehouseDao");
+        final GenericDAO<SkuWarehouse, Long> skuWarehouseDao = context.mock(GenericDAO.class, "skuWarehouseDao");
+
+        final SkuWarehouse stockA = context.mock(SkuWarehouse.class, "stockA");
+        final SkuWarehouse stockAfter = context.mock(SkuWarehouse.class, "stockAfter");
+
+        context.checking(new Expectations() {{
+            allowing(stockA).getSkuCode(); will(returnValue("A"));
+            one(skuWarehouseDao).findByNamedQuery("SKUS.ON.WAREHOUSES.BY.SKUCODES.ALL", Arrays.asList("A", "B"));
+            will(returnValue(Arrays.asList(stockA)));
+            one(skuWarehouseDao).findByNamedQuery("SKUS.ON.WAREHOUSES.BY.SKUCODE.ALL", "A");
+            will(returnValue(Arrays.asList(stockAfter)));
+        }});
+
+        final SkuWarehouseRelationshipSupportImpl support = new SkuWarehouseRelationshipSupportImpl(warehouseDao, skuWarehouseDao);
+
+        support.prefetchQuantityOnWarehouse(Arrays.asList("A", "B"));
+
+        assertEquals(Arrays.asList(stockA), support.getQuantityOnWarehouse("A"));
+        assertEquals(Collections.emptyList(), support.getQuantityOnWarehouse("B"));
+
+        support.releasePrefetchedQuantityOnWarehouse();
+
+        assertEquals(Arrays.asList(stockAfter), support.getQuantityOnWarehouse("A"));
+
+        context.assertIsSatisfied();
+
+    }
+
+}
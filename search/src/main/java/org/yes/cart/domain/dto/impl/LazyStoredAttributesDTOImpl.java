@@ -0,0 +1,92 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.domain.dto.impl;
+
+import org.yes.cart.domain.i18n.I18NModel;
+import org.yes.cart.domain.misc.Pair;
+
+import java.util.Map;
+
+/**
+ * Stored attributes that are parsed from raw string data on first access. Attributes are
+ * only needed on product details and some listing templates, so decoding search results
+ * should not pay for parsing them.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 12:20
+ */
+public class LazyStoredAttributesDTOImpl extends StoredAttributesDTOImpl {
+
+    private volatile String raw;
+
+    public LazyStoredAttributesDTOImpl(final String raw) {
+        super();
+        this.raw = raw;
+    }
+
+    private void ensureParsed() {
+        if (this.raw != null) {
+            synchronized (this) {
+                final String unparsed = this.raw;
+                if (unparsed != null) {
+                    super.setStringData(unparsed);
+                    this.raw = null;
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setStringData(final String raw) {
+        ensureParsed();
+        super.setStringData(raw);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Pair<String, I18NModel> getValue(final String code) {
+        ensureParsed();
+        return super.getValue(code);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void putValue(final String code, final String value, final Object displayValue) {
+        ensureParsed();
+        super.putValue(code, value, displayValue);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Pair<String, I18NModel>> getAllValues() {
+        ensureParsed();
+        return super.getAllValues();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        final String unparsed = this.raw;
+        if (unparsed != null) {
+            return unparsed; // same format, no need to parse
+        }
+        return super.toString();
+    }
+
+}
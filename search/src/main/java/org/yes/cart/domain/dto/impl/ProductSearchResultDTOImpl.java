@@ -433,7 +433,7 @@ public class ProductSearchResultDTOImpl implements ProductSearchResultDTO {
         copy.setCreatedTimestamp(this.createdTimestamp);
         copy.setUpdatedTimestamp(this.updatedTimestamp);
         if (this.attributes != null) {
-            copy.setAttributes(new StoredAttributesDTOImpl(this.attributes.toString()));
+            copy.setAttributes(new LazyStoredAttributesDTOImpl(this.attributes.toString()));
         }
         return copy;
     }
@@ -143,7 +143,7 @@ public class ProductSkuSearchResultDTOImpl implements ProductSkuSearchResultDTO
         copy.setDisplayName(this.displayName);
         copy.setDefaultImage(this.defaultImage);
         if (this.attributes != null) {
-            copy.setAttributes(new StoredAttributesDTOImpl(this.attributes.toString()));
+            copy.setAttributes(new LazyStoredAttributesDTOImpl(this.attributes.toString()));
         }
         return copy;
     }
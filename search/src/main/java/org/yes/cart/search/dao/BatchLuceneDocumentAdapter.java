@@ -0,0 +1,48 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Document adapter that is able to load relationships for a batch of entities upfront
+ * (e.g. using IN queries), so that adapting each entity does not issue its own queries.
+ *
+ * Prefetched data is bound to current thread, thus batches may be processed concurrently
+ * by parallel index workers sharing the same adapter.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 10:12
+ */
+public interface BatchLuceneDocumentAdapter<T, PK extends Serializable> extends LuceneDocumentAdapter<T, PK> {
+
+    /**
+     * Prefetch relationships for the entities that are about to be adapted by current thread.
+     * Any previously prefetched data for current thread is replaced.
+     *
+     * @param entities entities in next batch
+     */
+    void prefetch(List<T> entities);
+
+    /**
+     * Release data prefetched for current thread by {@link #prefetch(List)}.
+     */
+    void releasePrefetch();
+
+}
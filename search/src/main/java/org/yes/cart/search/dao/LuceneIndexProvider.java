@@ -16,11 +16,16 @@
 
 package org.yes.cart.search.dao;
 
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.IndexSearcher;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * User: denispavlov
  * Date: 31/03/2017
@@ -51,6 +56,109 @@ public interface LuceneIndexProvider {
      */
     void releaseIndexReader(IndexSearcher searcher);
 
+    /**
+     * Sorted set facet state for given searcher. Building state requires scanning ordinals
+     * across all segments, therefore states are cached per searcher (i.e. per index generation)
+     * and dropped as soon as index is refreshed.
+     *
+     * @param searcher searcher obtained via {@link #provideIndexReader()}
+     * @param field    sorted set doc values facet field
+     *
+     * @return facet state
+     *
+     * @throws IOException if state cannot be read from index
+     */
+    SortedSetDocValuesReaderState provideFacetsState(IndexSearcher searcher, String field) throws IOException;
+
+    /**
+     * @return number of facet states cached for current index generation
+     */
+    int getFacetsStateCacheSize();
+
+    /**
+     * @return number of facet state requests served from cache
+     */
+    long getFacetsStateCacheHits();
+
+    /**
+     * @return number of facet state requests that required state to be built
+     */
+    long getFacetsStateCacheMisses();
+
+    /**
+     * Drop all cached facet states, states are rebuilt on next facet request.
+     */
+    void clearFacetsStateCache();
+
+    /**
+     * @return true if facet state cache hits and misses are counted
+     */
+    boolean isFacetsStateCacheStatsEnabled();
+
+    /**
+     * Enable or disable counting of facet state cache hits and misses. Counters are reset
+     * when statistics are enabled.
+     *
+     * @param enabled enable statistics
+     */
+    void setFacetsStateCacheStatsEnabled(boolean enabled);
+
+    /**
+     * Cached stored values of given document. Stored values (and objects decoded from them) never
+     * change for a document in a segment, therefore values are cached per segment and dropped once
+     * segment is merged away.
+     *
+     * @param searcher searcher obtained via {@link #provideIndexReader()}
+     * @param docId    document id (as in search hit)
+     * @param fields   stored fields required
+     *
+     * @return cached values (unmodifiable) or null if some of the fields are not cached
+     */
+    Map<String, Object> getStoredValues(IndexSearcher searcher, int docId, Collection<String> fields);
+
+    /**
+     * Cache stored values of given document, see {@link #getStoredValues(IndexSearcher, int, Collection)}.
+     * Cached values are shared, so objects put in cache must not be modified.
+     *
+     * @param searcher searcher obtained via {@link #provideIndexReader()}
+     * @param docId    document id (as in search hit)
+     * @param values   stored values
+     */
+    void putStoredValues(IndexSearcher searcher, int docId, Map<String, Object> values);
+
+    /**
+     * @return number of documents with cached stored values
+     */
+    int getStoredValuesCacheSize();
+
+    /**
+     * @return number of stored values requests served from cache
+     */
+    long getStoredValuesCacheHits();
+
+    /**
+     * @return number of stored values requests that required reading stored fields
+     */
+    long getStoredValuesCacheMisses();
+
+    /**
+     * Drop all cached stored values, values are read from index on next request.
+     */
+    void clearStoredValuesCache();
+
+    /**
+     * @return true if stored values cache hits and misses are counted
+     */
+    boolean isStoredValuesCacheStatsEnabled();
+
+    /**
+     * Enable or disable counting of stored values cache hits and misses. Counters are reset
+     * when statistics are enabled.
+     *
+     * @param enabled enable statistics
+     */
+    void setStoredValuesCacheStatsEnabled(boolean enabled);
+
     /**
      * Writer for given index. There can be only single writer for index, which is open
      * as application context starts up and is closed automatically when application context
@@ -111,5 +219,23 @@ public interface LuceneIndexProvider {
      */
     void refreshIfNecessary();
 
+    /**
+     * Make changes done via {@link #provideIndexWriter()} visible to readers. If near-real-time
+     * refresh is enabled changes are picked up by background reopen within configured max staleness,
+     * so that bursts of updates result in a single reopen and this method does not block. Otherwise
+     * this is equivalent to {@link #refreshIfNecessary()}.
+     *
+     * @return generation that includes all changes made so far, see {@link #waitForGeneration(long)}
+     */
+    long scheduleRefresh();
+
+    /**
+     * Block until index and facet readers see all changes up to given generation. This should only
+     * be used by callers that require read-your-writes, since it forces reopen within min staleness.
+     *
+     * @param generation generation returned by {@link #scheduleRefresh()}
+     */
+    void waitForGeneration(long generation);
+
 
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao;
+
+import org.apache.lucene.search.SortField;
+
+/**
+ * Registry of sort fields that maps sort field names used by storefront (see
+ * {@link org.yes.cart.search.query.ProductSearchQueryBuilder}) to typed {@link SortField}s,
+ * so that sorting uses the doc values type that was used during indexing.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 14:05
+ */
+public interface SortFieldRegistry {
+
+    /**
+     * Get typed sort field for given sort field name.
+     *
+     * @param sortFieldName sort field name
+     * @param reverse       reverse order
+     *
+     * @return sort field
+     */
+    SortField getSortField(String sortFieldName, boolean reverse);
+
+}
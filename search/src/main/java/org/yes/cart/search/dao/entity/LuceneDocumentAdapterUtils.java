@@ -17,8 +17,10 @@
 package org.yes.cart.search.dao.entity;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.apache.lucene.document.*;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.util.BytesRef;
 import org.codehaus.jackson.Version;
 import org.codehaus.jackson.map.ObjectMapper;
@@ -47,10 +49,14 @@ public class LuceneDocumentAdapterUtils {
     private static final Logger LOGFTQ = LoggerFactory.getLogger("FTQ");
 
     public static final String FIELD_PK = "_PK";
+    public static final String FIELD_PK_VALUE = "_PK_value";
     public static final String FIELD_CLASS = "_CLASS";
     public static final String FIELD_OBJECT = "_OBJECT";
     public static final String FIELD_INDEXTIME = "_IDXTIME";
 
+    public static final String SORT_SUFFIX = "_sort";
+    public static final String NUMERIC_SORT_SUFFIX = "_nsort";
+
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
     static {
@@ -90,9 +96,57 @@ public class LuceneDocumentAdapterUtils {
      */
     public static <T> T readObjectField(final Document document, final String name, final Class<T> clazz) {
 
-        final String serialized = document.get(FIELD_OBJECT);
-        if (StringUtils.isNotBlank(serialized)) {
-            return readObjectFieldValue(serialized, clazz);
+        return readObjectFieldValue(readStoredFieldValue(document, FIELD_OBJECT), clazz);
+
+    }
+
+    /**
+     * Reads stored field value (e.g. for projections).
+     *
+     * @param document document
+     * @param name     field name
+     *
+     * @return string value, byte[] for binary stored fields or null
+     */
+    public static Object readStoredFieldValue(final Document document, final String name) {
+
+        final IndexableField field = document.getField(name);
+        if (field == null) {
+            return null;
+        }
+        final String value = field.stringValue();
+        if (value != null) {
+            return value;
+        }
+        final BytesRef binary = field.binaryValue();
+        if (binary != null) {
+            return Arrays.copyOfRange(binary.bytes, binary.offset, binary.offset + binary.length);
+        }
+        return null;
+    }
+
+    /**
+     * Reads object from stored field value, which could be either JSON (string) or binary (byte[])
+     * depending on the index configuration at the time the document was added.
+     *
+     * @param stored field value, see {@link #readStoredFieldValue(Document, String)}, or decoded object
+     * @param clazz  object type
+     */
+    public static <T> T readObjectFieldValue(final Object stored, final Class<T> clazz) {
+
+        if (clazz.isInstance(stored)) {
+            return clazz.cast(stored); // already decoded (e.g. cached projection)
+        } else if (stored instanceof String) {
+            return readObjectFieldValue((String) stored, clazz);
+        } else if (stored instanceof byte[]) {
+            final byte[] bytes = (byte[]) stored;
+            if (bytes.length > 0) {
+                try {
+                    return StoredDTOBinaryCodec.decode(bytes, 0, bytes.length, clazz);
+                } catch (Exception exp) {
+                    LOGFTQ.error("Unable to de-serialise the binary object in field: " + FIELD_OBJECT + ", length: " + bytes.length, exp);
+                }
+            }
         }
         return null;
     }
@@ -155,6 +209,26 @@ public class LuceneDocumentAdapterUtils {
         addObjectField(document, FIELD_OBJECT, object);
     }
 
+    /**
+     * Adds serialised version of object into stored field.
+     *
+     * @param document document
+     * @param object   object
+     * @param binary   use compact binary format if object is supported by {@link StoredDTOBinaryCodec},
+     *                 JSON otherwise
+     */
+    public static void addObjectDefaultField(final Document document, final Object object, final boolean binary) {
+        if (binary && StoredDTOBinaryCodec.isSupported(object)) {
+            try {
+                document.add(new StoredField(FIELD_OBJECT, StoredDTOBinaryCodec.encode(object)));
+                return;
+            } catch (Exception exp) {
+                LOGFTQ.error("Unable to encode the object into field: " + FIELD_OBJECT + ", object: " + object + ", falling back to JSON", exp);
+            }
+        }
+        addObjectField(document, FIELD_OBJECT, object);
+    }
+
     /**
      * Adds serialised version of object into stored field.
      *
@@ -196,6 +270,13 @@ public class LuceneDocumentAdapterUtils {
              */
             document.add(new StringField(FIELD_PK, value, Field.Store.YES));
 
+            /*
+                Numeric doc values copy of PK allows to collect PK's without loading stored document
+             */
+            if (NumberUtils.isDigits(value)) {
+                document.add(new NumericDocValuesField(FIELD_PK_VALUE, NumberUtils.toLong(value)));
+            }
+
             /*
                 Additional field to save type of the object
              */
@@ -412,16 +493,20 @@ public class LuceneDocumentAdapterUtils {
 
 
     /**
-     * Adds a string field with time long value
+     * Adds a numeric sort field with time long value
      *
-     * To be able to sort field has to be of type Binary or Sorted, so need to
-     * declare a separate field for this as SortedDocValuesField. This is not
-     * tokenized and also sorting is stored in index.
+     * Numeric doc values are compared as primitive longs, so this field has to be
+     * sorted using {@link org.apache.lucene.search.SortField.Type#LONG} (see
+     * {@link org.yes.cart.search.dao.SortFieldRegistry}).
+     *
+     * Value is indexed under {@link #numericSortFieldName(String)}, so that indexes created before
+     * numeric sort fields were introduced (where "_sort" fields were SortedDocValuesField) can be
+     * updated without doc values type conflict.
      *
      * Note that multivalue fields cannot be sorted.
      *
      * @param document     document
-     * @param name         field name
+     * @param name         sort field name (e.g. "createdTimestamp_sort")
      * @param value        value
      * @param negativeNull true if null values are to be filled with {@link Long#MIN_VALUE}, false if to be filled with {@link Long#MAX_VALUE}
      */
@@ -431,34 +516,53 @@ public class LuceneDocumentAdapterUtils {
                                     final boolean negativeNull) {
 
         final long datetime = value != null ? value.getTime() : (negativeNull ? Long.MIN_VALUE : Long.MAX_VALUE);
-        document.add(new SortedDocValuesField(name, new BytesRef(String.valueOf(datetime))));
+        document.add(new NumericDocValuesField(numericSortFieldName(name), datetime));
 
     }
 
     /**
-     * Adds a string field with long value
+     * Adds a numeric sort field with long value
      *
-     * To be able to sort field has to be of type Binary or Sorted, so need to
-     * declare a separate field for this as SortedDocValuesField. This is not
-     * tokenized and also sorting is stored in index.
+     * Numeric doc values are compared as primitive longs, so this field has to be
+     * sorted using {@link org.apache.lucene.search.SortField.Type#LONG} (see
+     * {@link org.yes.cart.search.dao.SortFieldRegistry}).
+     *
+     * Value is indexed under {@link #numericSortFieldName(String)}, so that indexes created before
+     * numeric sort fields were introduced (where "_sort" fields were SortedDocValuesField) can be
+     * updated without doc values type conflict.
      *
      * Note that multivalue fields cannot be sorted.
      *
      * @param document      document
-     * @param name          field name
+     * @param name          sort field name (e.g. "facet_price_10_EUR_sort")
      * @param positiveValue value
-     * @param zeroNull true if null values are to be filled with 0, false if to be filled with 9's
+     * @param zeroNull true if null values are to be filled with 0, false if to be filled with {@link Long#MAX_VALUE}
      */
     public static void addSortField(final Document document,
                                     final String name,
                                     final Long positiveValue,
                                     final boolean zeroNull) {
 
-        final String notNull = positiveValue != null ? StringUtils.leftPad(positiveValue.toString(), 10, '0') : (zeroNull ? "0000000000" : "9999999999");
-        document.add(new SortedDocValuesField(name, new BytesRef(notNull)));
+        final long notNull = positiveValue != null ? positiveValue : (zeroNull ? 0L : Long.MAX_VALUE);
+        document.add(new NumericDocValuesField(numericSortFieldName(name), notNull));
 
     }
 
+    /**
+     * Resolve name of the numeric doc values field for given sort field name. "_sort" suffix is
+     * replaced by "_nsort" (e.g. "createdTimestamp_sort" becomes "createdTimestamp_nsort").
+     *
+     * @param sortFieldName sort field name
+     *
+     * @return numeric sort field name
+     */
+    public static String numericSortFieldName(final String sortFieldName) {
+        if (sortFieldName.endsWith(SORT_SUFFIX)) {
+            return sortFieldName.substring(0, sortFieldName.length() - SORT_SUFFIX.length()) + NUMERIC_SORT_SUFFIX;
+        }
+        return sortFieldName + NUMERIC_SORT_SUFFIX;
+    }
+
 
     /**
      * Adds a "stem" text field (not stored, tokenized).
@@ -31,7 +31,7 @@ import org.yes.cart.domain.dto.impl.StoredAttributesDTOImpl;
 import org.yes.cart.domain.i18n.I18NModel;
 import org.yes.cart.domain.i18n.impl.StringI18NModel;
 import org.yes.cart.domain.misc.Pair;
-import org.yes.cart.search.dao.LuceneDocumentAdapter;
+import org.yes.cart.search.dao.BatchLuceneDocumentAdapter;
 import org.yes.cart.search.dao.support.*;
 import org.yes.cart.search.query.impl.SearchUtil;
 import org.yes.cart.util.DomainApiUtils;
@@ -48,7 +48,7 @@ import static org.yes.cart.search.query.ProductSearchQueryBuilder.*;
  * Date: 07/04/2017
  * Time: 14:21
  */
-public class ProductLuceneDocumentAdapter implements LuceneDocumentAdapter<Product, Long> {
+public class ProductLuceneDocumentAdapter implements BatchLuceneDocumentAdapter<Product, Long> {
 
     private static final Logger LOGFTQ = LoggerFactory.getLogger("FTQ");
 
@@ -60,6 +60,38 @@ public class ProductLuceneDocumentAdapter implements LuceneDocumentAdapter<Produ
     private SkuPriceRelationshipSupport skuPriceSupport;
     private NavigatableAttributesSupport attributesSupport;
 
+    private boolean binaryStoredObject = false;
+
+    /**
+     * Prices and inventory are per SKU, so for the batch we load them for all SKU of all products
+     * at once, instead of querying for every SKU in {@link #toDocument(Product)}.
+     *
+     * @param entities products in next batch
+     */
+    @Override
+    public void prefetch(final List<Product> entities) {
+
+        final List<String> skus = new ArrayList<String>();
+        for (final Product entity : entities) {
+            for (final ProductSku sku : entity.getSku()) {
+                skus.add(sku.getCode());
+            }
+        }
+
+        skuPriceSupport.prefetchSkuPrices(skus);
+        skuWarehouseSupport.prefetchQuantityOnWarehouse(skus);
+
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void releasePrefetch() {
+
+        skuPriceSupport.releasePrefetchedSkuPrices();
+        skuWarehouseSupport.releasePrefetchedQuantityOnWarehouse();
+
+    }
+
     /**
      * Product search result is bound to supplier (fulfilment centre).
      * Therefore for every supplier there will be a separate product search result
@@ -180,7 +212,7 @@ public class ProductLuceneDocumentAdapter implements LuceneDocumentAdapter<Produ
 
                 // save the whole search object instead of individual fields, fields are only for searching
                 // must be last step so that we have fully modified object serialised to index
-                addObjectDefaultField(document, result);
+                addObjectDefaultField(document, result, binaryStoredObject);
 
                 documents[count++] = document;
 
@@ -923,4 +955,14 @@ public class ProductLuceneDocumentAdapter implements LuceneDocumentAdapter<Produ
         this.attributesSupport = attributesSupport;
     }
 
+    /**
+     * Spring IoC.
+     *
+     * @param binaryStoredObject store search result DTO in compact binary format instead of JSON
+     *                           (documents stored as JSON are still readable)
+     */
+    public void setBinaryStoredObject(final boolean binaryStoredObject) {
+        this.binaryStoredObject = binaryStoredObject;
+    }
+
 }
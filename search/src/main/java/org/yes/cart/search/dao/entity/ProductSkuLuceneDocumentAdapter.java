@@ -48,6 +48,8 @@ public class ProductSkuLuceneDocumentAdapter implements LuceneDocumentAdapter<Pr
 
     private NavigatableAttributesSupport attributesSupport;
 
+    private boolean binaryStoredObject = false;
+
     /**
      * {@inheritDoc}
      */
@@ -109,7 +111,7 @@ public class ProductSkuLuceneDocumentAdapter implements LuceneDocumentAdapter<Pr
 
             // save the whole search object instead of individual fields, fields are only for searching
             // must be last step so that we have fully modified object serialised to index
-            addObjectDefaultField(document, result);
+            addObjectDefaultField(document, result, binaryStoredObject);
 
             return new Pair<Long, Document[]>(entity.getSkuId(), new Document[] { document });
 
@@ -306,4 +308,14 @@ public class ProductSkuLuceneDocumentAdapter implements LuceneDocumentAdapter<Pr
         this.attributesSupport = attributesSupport;
     }
 
+    /**
+     * Spring IoC.
+     *
+     * @param binaryStoredObject store search result DTO in compact binary format instead of JSON
+     *                           (documents stored as JSON are still readable)
+     */
+    public void setBinaryStoredObject(final boolean binaryStoredObject) {
+        this.binaryStoredObject = binaryStoredObject;
+    }
+
 }
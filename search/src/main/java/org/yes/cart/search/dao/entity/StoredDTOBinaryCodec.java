@@ -0,0 +1,399 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.entity;
+
+import org.yes.cart.domain.dto.ProductSearchResultDTO;
+import org.yes.cart.domain.dto.ProductSkuSearchResultDTO;
+import org.yes.cart.domain.dto.StoredAttributesDTO;
+import org.yes.cart.domain.dto.impl.LazyStoredAttributesDTOImpl;
+import org.yes.cart.domain.dto.impl.ProductSearchResultDTOImpl;
+import org.yes.cart.domain.dto.impl.ProductSkuSearchResultDTOImpl;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Compact binary format for search result DTO stored in {@link LuceneDocumentAdapterUtils#FIELD_OBJECT}.
+ *
+ * Format is: version byte, type byte followed by DTO properties in fixed order. Nullable values are
+ * prefixed by presence marker, so that decoded DTO is identical to the one de-serialised from JSON
+ * (i.e. setters are not invoked for null values). Stored attributes are kept in their raw string form
+ * and only parsed on first access (see {@link LazyStoredAttributesDTOImpl}).
+ *
+ * Any change to the format must bump {@link #VERSION}, documents written with older versions must
+ * still be readable until full reindex.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 12:05
+ */
+public final class StoredDTOBinaryCodec {
+
+    static final byte VERSION = 1;
+
+    static final byte TYPE_PRODUCT = 1;
+    static final byte TYPE_SKU = 2;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private StoredDTOBinaryCodec() {
+        // no instance
+    }
+
+    /**
+     * @param object object to check
+     *
+     * @return true if object can be encoded by this codec
+     */
+    public static boolean isSupported(final Object object) {
+        return object instanceof ProductSearchResultDTO || object instanceof ProductSkuSearchResultDTO;
+    }
+
+    /**
+     * Encode DTO.
+     *
+     * @param object DTO, see {@link #isSupported(Object)}
+     *
+     * @return bytes
+     *
+     * @throws IOException on encoding errors
+     */
+    public static byte[] encode(final Object object) throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(VERSION);
+        if (object instanceof ProductSearchResultDTO) {
+            out.writeByte(TYPE_PRODUCT);
+            writeProduct(out, (ProductSearchResultDTO) object);
+        } else if (object instanceof ProductSkuSearchResultDTO) {
+            out.writeByte(TYPE_SKU);
+            writeSku(out, (ProductSkuSearchResultDTO) object);
+        } else {
+            throw new IllegalArgumentException("Unsupported object type: " + (object != null ? object.getClass() : null));
+        }
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode DTO.
+     *
+     * @param bytes  bytes
+     * @param offset offset
+     * @param length length
+     * @param clazz  expected type
+     *
+     * @return DTO
+     *
+     * @throws IOException on decoding errors or unsupported version
+     */
+    public static <T> T decode(final byte[] bytes, final int offset, final int length, final Class<T> clazz) throws IOException {
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported stored object version: " + version);
+        }
+
+        final byte type = in.readByte();
+        final Object object;
+        switch (type) {
+            case TYPE_PRODUCT:
+                object = readProduct(in);
+                break;
+            case TYPE_SKU:
+                object = readSku(in);
+                break;
+            default:
+                throw new IOException("Unsupported stored object type: " + type);
+        }
+
+        return clazz.cast(object);
+
+    }
+
+    private static void writeProduct(final DataOutputStream out, final ProductSearchResultDTO dto) throws IOException {
+
+        out.writeLong(dto.getId());
+        writeString(out, dto.getCode());
+        writeString(out, dto.getManufacturerCode());
+        writeString(out, dto.getFulfilmentCentreCode());
+        out.writeBoolean(dto.isMultisku());
+        writeString(out, dto.getDefaultSkuCode());
+        writeString(out, dto.getName());
+        writeString(out, dto.getDisplayName());
+        writeString(out, dto.getDescription());
+        writeString(out, dto.getDisplayDescription());
+        writeString(out, dto.getType());
+        writeString(out, dto.getDisplayType());
+        writeString(out, dto.getTag());
+        writeString(out, dto.getBrand());
+        writeDate(out, dto.getAvailablefrom());
+        writeDate(out, dto.getAvailableto());
+        out.writeInt(dto.getAvailability());
+        writeQuantities(out, dto instanceof ProductSearchResultDTOImpl ? ((ProductSearchResultDTOImpl) dto).getQtyOnWarehouse() : null);
+        writeString(out, dto.getDefaultImage());
+        if (dto.getFeatured() == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(dto.getFeatured() ? 2 : 1);
+        }
+        writeDecimal(out, dto.getMinOrderQuantity());
+        writeDecimal(out, dto.getMaxOrderQuantity());
+        writeDecimal(out, dto.getStepOrderQuantity());
+        writeAttributes(out, dto.getAttributes());
+        writeDate(out, dto.getCreatedTimestamp());
+        writeDate(out, dto.getUpdatedTimestamp());
+
+        final List<ProductSkuSearchResultDTO> skus = dto.getSkus();
+        if (skus == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, skus.size() + 1);
+            for (final ProductSkuSearchResultDTO sku : skus) {
+                writeSku(out, sku);
+            }
+        }
+
+    }
+
+    private static ProductSearchResultDTO readProduct(final DataInputStream in) throws IOException {
+
+        final ProductSearchResultDTOImpl dto = new ProductSearchResultDTOImpl();
+
+        dto.setId(in.readLong());
+        dto.setCode(readString(in));
+        dto.setManufacturerCode(readString(in));
+        dto.setFulfilmentCentreCode(readString(in));
+        dto.setMultisku(in.readBoolean());
+        dto.setDefaultSkuCode(readString(in));
+        dto.setName(readString(in));
+        final String displayName = readString(in);
+        if (displayName != null) {
+            dto.setDisplayName(displayName);
+        }
+        dto.setDescription(readString(in));
+        final String displayDescription = readString(in);
+        if (displayDescription != null) {
+            dto.setDisplayDescription(displayDescription);
+        }
+        dto.setType(readString(in));
+        final String displayType = readString(in);
+        if (displayType != null) {
+            dto.setDisplayType(displayType);
+        }
+        dto.setTag(readString(in));
+        dto.setBrand(readString(in));
+        dto.setAvailablefrom(readDate(in));
+        dto.setAvailableto(readDate(in));
+        dto.setAvailability(in.readInt());
+        dto.setQtyOnWarehouse(readQuantities(in));
+        dto.setDefaultImage(readString(in));
+        final byte featured = in.readByte();
+        dto.setFeatured(featured == 0 ? null : Boolean.valueOf(featured == 2));
+        dto.setMinOrderQuantity(readDecimal(in));
+        dto.setMaxOrderQuantity(readDecimal(in));
+        dto.setStepOrderQuantity(readDecimal(in));
+        dto.setAttributes(readAttributes(in));
+        dto.setCreatedTimestamp(readDate(in));
+        dto.setUpdatedTimestamp(readDate(in));
+
+        final int skus = readVarInt(in);
+        if (skus > 0) {
+            final List<ProductSkuSearchResultDTO> list = new ArrayList<ProductSkuSearchResultDTO>(skus - 1);
+            for (int i = 1; i < skus; i++) {
+                list.add(readSku(in));
+            }
+            dto.setSkus(list);
+        }
+
+        return dto;
+    }
+
+    private static void writeSku(final DataOutputStream out, final ProductSkuSearchResultDTO dto) throws IOException {
+
+        out.writeLong(dto.getId());
+        out.writeLong(dto.getProductId());
+        writeString(out, dto.getCode());
+        writeString(out, dto.getManufacturerCode());
+        writeString(out, dto.getName());
+        writeString(out, dto.getDisplayName());
+        writeString(out, dto.getDefaultImage());
+        writeAttributes(out, dto.getAttributes());
+
+    }
+
+    private static ProductSkuSearchResultDTO readSku(final DataInputStream in) throws IOException {
+
+        final ProductSkuSearchResultDTOImpl dto = new ProductSkuSearchResultDTOImpl();
+
+        dto.setId(in.readLong());
+        dto.setProductId(in.readLong());
+        dto.setCode(readString(in));
+        dto.setManufacturerCode(readString(in));
+        dto.setName(readString(in));
+        final String displayName = readString(in);
+        if (displayName != null) {
+            dto.setDisplayName(displayName);
+        }
+        dto.setDefaultImage(readString(in));
+        dto.setAttributes(readAttributes(in));
+
+        return dto;
+    }
+
+    private static void writeQuantities(final DataOutputStream out, final Map<Long, Map<String, BigDecimal>> qty) throws IOException {
+
+        if (qty == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, qty.size() + 1);
+        for (final Map.Entry<Long, Map<String, BigDecimal>> shop : qty.entrySet()) {
+            out.writeLong(shop.getKey());
+            final Map<String, BigDecimal> skus = shop.getValue();
+            if (skus == null) {
+                writeVarInt(out, 0);
+                continue;
+            }
+            writeVarInt(out, skus.size() + 1);
+            for (final Map.Entry<String, BigDecimal> sku : skus.entrySet()) {
+                writeString(out, sku.getKey());
+                writeDecimal(out, sku.getValue());
+            }
+        }
+
+    }
+
+    private static Map<Long, Map<String, BigDecimal>> readQuantities(final DataInputStream in) throws IOException {
+
+        final int shops = readVarInt(in);
+        if (shops == 0) {
+            return null;
+        }
+        final Map<Long, Map<String, BigDecimal>> qty = new HashMap<Long, Map<String, BigDecimal>>(shops * 2);
+        for (int i = 1; i < shops; i++) {
+            final long shopId = in.readLong();
+            final int skus = readVarInt(in);
+            if (skus == 0) {
+                qty.put(shopId, null);
+                continue;
+            }
+            final Map<String, BigDecimal> skuQty = new HashMap<String, BigDecimal>(skus * 2);
+            for (int ii = 1; ii < skus; ii++) {
+                final String sku = readString(in);
+                skuQty.put(sku, readDecimal(in));
+            }
+            qty.put(shopId, skuQty);
+        }
+        return qty;
+
+    }
+
+    private static void writeAttributes(final DataOutputStream out, final StoredAttributesDTO attributes) throws IOException {
+        writeString(out, attributes != null ? attributes.toString() : null);
+    }
+
+    private static StoredAttributesDTO readAttributes(final DataInputStream in) throws IOException {
+        final String raw = readString(in);
+        return raw != null ? new LazyStoredAttributesDTOImpl(raw) : null;
+    }
+
+    private static void writeDecimal(final DataOutputStream out, final BigDecimal value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        final byte[] unscaled = value.unscaledValue().toByteArray();
+        writeVarInt(out, unscaled.length + 1);
+        out.write(unscaled);
+        out.writeInt(value.scale());
+    }
+
+    private static BigDecimal readDecimal(final DataInputStream in) throws IOException {
+        final int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        final byte[] unscaled = new byte[length - 1];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+
+    private static void writeDate(final DataOutputStream out, final Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    private static Date readDate(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        final byte[] utf = value.getBytes(UTF8);
+        writeVarInt(out, utf.length + 1);
+        out.write(utf);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        final byte[] utf = new byte[length - 1];
+        in.readFully(utf);
+        return new String(utf, UTF8);
+    }
+
+    private static void writeVarInt(final DataOutputStream out, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IOException("Malformed var int");
+            }
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+}
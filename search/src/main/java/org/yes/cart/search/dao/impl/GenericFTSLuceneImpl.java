@@ -23,18 +23,26 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.*;
 import org.apache.lucene.facet.range.LongRange;
 import org.apache.lucene.facet.range.LongRangeFacetCounts;
-import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yes.cart.constants.Constants;
+import org.yes.cart.domain.dto.ProductSearchResultDTO;
+import org.yes.cart.domain.dto.ProductSkuSearchResultDTO;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.search.dao.GenericFTS;
 import org.yes.cart.search.dao.LuceneIndexProvider;
+import org.yes.cart.search.dao.SortFieldRegistry;
+import org.yes.cart.search.dao.entity.LuceneDocumentAdapterUtils;
 import org.yes.cart.search.dto.FilteredNavigationRecordRequest;
 import org.yes.cart.util.log.Markers;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -54,6 +62,10 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
 
     private LuceneIndexProvider luceneIndexProvider;
 
+    private Class<?> storedObjectClass;
+
+    private SortFieldRegistry sortFieldRegistry = new SortFieldRegistryImpl();
+
     /**
      * {@inheritDoc}
      */
@@ -62,15 +74,18 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
 
         LOGFTQ.debug("Run count query {}", query);
 
-        final List<Long> pks = new ArrayList<Long>();
+        List<Long> pks = Collections.emptyList();
 
         IndexSearcher searcher = this.luceneIndexProvider.provideIndexReader();
         try {
-            final TopDocs topDocs = searcher.search(query, Integer.MAX_VALUE);
-            if (topDocs.totalHits > 0) {
+            // Stream PK's without scoring, priority queue and stored documents
+            final PrimaryKeyCollector collector = new PrimaryKeyCollector();
+            searcher.search(query, collector);
+            pks = collector.getPrimaryKeysAsList();
+            if (LOGFTQ.isTraceEnabled() && collector.getSize() > 0) {
+                // explanations need hit documents, so only pay for them in trace mode
+                final TopDocs topDocs = searcher.search(query, collector.getSize());
                 for (final ScoreDoc hit : topDocs.scoreDocs) {
-                    final Document doc = searcher.doc(hit.doc, PKS);
-                    pks.add(Long.valueOf(doc.get("_PK")));
                     logExplanation(searcher, query, null, hit.doc);
                 }
             }
@@ -102,7 +117,7 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
             final TopDocs topDocs;
             Sort sort = null;
             if (StringUtils.isNotBlank(sortFieldName)) {
-                sort = new Sort(new SortField(sortFieldName, SortField.Type.STRING_VAL, reverse));
+                sort = new Sort(this.sortFieldRegistry.getSortField(sortFieldName, reverse));
                 topDocs = searcher.search(query, firstResult + maxResults, sort);
             } else {
                 topDocs = searcher.search(query, firstResult + maxResults);
@@ -128,6 +143,56 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
         return pks;
     }
 
+    /**
+     * Read stored values for projection. Values are served from index provider cache when possible,
+     * otherwise they are read from stored fields ({@link LuceneDocumentAdapterUtils#FIELD_OBJECT} is decoded
+     * if {@link #storedObjectClass} is configured) and put to cache.
+     *
+     * @param searcher searcher
+     * @param docId    hit document
+     * @param fields   projection
+     * @param retrieve projection fields set
+     *
+     * @return projection values
+     *
+     * @throws IOException if stored fields cannot be read
+     */
+    private Object[] readStoredValues(final IndexSearcher searcher, final int docId, final String[] fields, final Set<String> retrieve) throws IOException {
+
+        Map<String, Object> stored = this.luceneIndexProvider.getStoredValues(searcher, docId, retrieve);
+        if (stored == null) {
+            final Document doc = searcher.doc(docId, retrieve);
+            stored = new HashMap<String, Object>(retrieve.size() * 2);
+            for (final String field : retrieve) {
+                Object value = LuceneDocumentAdapterUtils.readStoredFieldValue(doc, field);
+                if (this.storedObjectClass != null && LuceneDocumentAdapterUtils.FIELD_OBJECT.equals(field)) {
+                    value = LuceneDocumentAdapterUtils.readObjectFieldValue(value, this.storedObjectClass);
+                }
+                stored.put(field, value);
+            }
+            this.luceneIndexProvider.putStoredValues(searcher, docId, stored);
+        }
+
+        final Object[] values = new Object[fields.length];
+        for (int ii = 0; ii < fields.length; ii++) {
+            values[ii] = copyStoredValue(stored.get(fields[ii]));
+        }
+        return values;
+    }
+
+    /*
+     * Cached objects are shared, callers get own copy since search results are modified
+     * (e.g. SKU relevancy list).
+     */
+    private Object copyStoredValue(final Object value) {
+        if (value instanceof ProductSearchResultDTO) {
+            return ((ProductSearchResultDTO) value).copy();
+        } else if (value instanceof ProductSkuSearchResultDTO) {
+            return ((ProductSkuSearchResultDTO) value).copy();
+        }
+        return value;
+    }
+
     private static final Pair<List<Object[]>, Integer> EMPTY = new Pair<List<Object[]>, Integer>(Collections.EMPTY_LIST, 0);
 
     /**
@@ -147,7 +212,7 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
             final TopDocs topDocs;
             Sort sort = null;
             if (StringUtils.isNotBlank(sortFieldName)) {
-                sort = new Sort(new SortField(sortFieldName, SortField.Type.STRING_VAL, reverse));
+                sort = new Sort(this.sortFieldRegistry.getSortField(sortFieldName, reverse));
                 topDocs = searcher.search(query, lastResult, sort);
             } else {
                 topDocs = searcher.search(query, lastResult);
@@ -160,12 +225,7 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
 
                 for (int i = firstResult; i < lastResult; i++) {
                     final ScoreDoc hit = topDocs.scoreDocs[i];
-                    final Document doc = searcher.doc(hit.doc, retrieve);
-                    final Object[] values = new Object[fields.length];
-                    for (int ii = 0; ii < fields.length; ii++) {
-                        values[ii] = doc.get(fields[ii]);
-                    }
-                    resItems.add(values);
+                    resItems.add(readStoredValues(searcher, hit.doc, fields, retrieve));
                     logExplanation(searcher, query, sort, hit.doc);
                 }
 
@@ -184,6 +244,104 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Pair<Pair<List<Object[]>, Integer>, String> fullTextSearchAfter(final Query query, final int firstResult, final int maxResults, final String sortFieldName, final boolean reverse, final String pageToken, final String... fields) {
+
+        if (maxResults <= 0) {
+            // unlimited results cannot be paged, so there is no continuation
+            return new Pair<Pair<List<Object[]>, Integer>, String>(fullTextSearch(query, firstResult, maxResults, sortFieldName, reverse, fields), null);
+        }
+
+        LOGFTQ.debug("Run page query {}, token {}", query, pageToken);
+
+        Pair<List<Object[]>, Integer> result = EMPTY;
+        String nextPageToken = null;
+
+        IndexSearcher searcher = this.luceneIndexProvider.provideIndexReader();
+        try {
+
+            if (!isPrimaryKeySortable(searcher.getIndexReader())) {
+                // segments written before PK doc values were introduced cannot be paged by PK, until full reindex
+                LOGFTQ.debug("PK doc values are missing in some of the segments, using offset paging for query {}", query);
+                return new Pair<Pair<List<Object[]>, Integer>, String>(fullTextSearch(query, firstResult, maxResults, sortFieldName, reverse, fields), null);
+            }
+
+            final Set<String> retrieve = new HashSet<String>(Arrays.asList(fields));
+            final Sort sort = createSearchAfterSort(sortFieldName, reverse);
+            final String signature = SearchAfterTokenUtils.signature(query, sort);
+            final FieldDoc after = SearchAfterTokenUtils.decode(pageToken, signature, firstResult, searcher.getIndexReader().maxDoc());
+
+            final TopFieldDocs topDocs;
+            final int skip;
+            if (after != null) {
+                topDocs = searcher.searchAfter(after, query, maxResults, sort, false, false);
+                skip = 0;
+            } else {
+                topDocs = searcher.search(query, firstResult + maxResults, sort);
+                skip = firstResult;
+            }
+
+            if (topDocs.scoreDocs.length > skip) {
+
+                final List<Object[]> resItems = new ArrayList<Object[]>(topDocs.scoreDocs.length - skip);
+
+                for (int i = skip; i < topDocs.scoreDocs.length; i++) {
+                    final ScoreDoc hit = topDocs.scoreDocs[i];
+                    resItems.add(readStoredValues(searcher, hit.doc, fields, retrieve));
+                    logExplanation(searcher, query, sort, hit.doc);
+                }
+
+                final int nextFirst = firstResult + resItems.size();
+                if (nextFirst < topDocs.totalHits) {
+                    nextPageToken = SearchAfterTokenUtils.encode((FieldDoc) topDocs.scoreDocs[topDocs.scoreDocs.length - 1], signature, nextFirst);
+                }
+
+                result = new Pair<List<Object[]>, Integer>(resItems, topDocs.totalHits);
+            }
+        } catch (IllegalStateException ise) {
+            LOG.warn("Failed to run query " + query + ", caused: " + ise.getMessage());
+        } catch (Exception exp) {
+            LOG.error("Failed to run query " + query + ", caused: " + exp.getMessage(), exp);
+        } finally {
+            this.luceneIndexProvider.releaseIndexReader(searcher);
+        }
+
+        LOGFTQ.debug("Result is {}, next page {}, query {}", new Object[] { result, nextPageToken, query });
+
+        return new Pair<Pair<List<Object[]>, Integer>, String>(result, nextPageToken);
+    }
+
+    /*
+     * PK tie breaker only gives total order if every document has PK doc values. Segments indexed by older
+     * versions do not have them (all documents would sort as 0), so such index must be paged by offset.
+     */
+    private boolean isPrimaryKeySortable(final IndexReader reader) {
+        for (final LeafReaderContext leaf : reader.leaves()) {
+            if (leaf.reader().numDocs() > 0) {
+                final FieldInfo pk = leaf.reader().getFieldInfos().fieldInfo(LuceneDocumentAdapterUtils.FIELD_PK_VALUE);
+                if (pk == null || pk.getDocValuesType() != DocValuesType.NUMERIC) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Search after requires total order, therefore PK is always used as last sort field (relevance is
+     * used when no sort field is specified).
+     */
+    private Sort createSearchAfterSort(final String sortFieldName, final boolean reverse) {
+        final SortField pk = new SortField(LuceneDocumentAdapterUtils.FIELD_PK_VALUE, SortField.Type.LONG);
+        if (StringUtils.isNotBlank(sortFieldName)) {
+            return new Sort(this.sortFieldRegistry.getSortField(sortFieldName, reverse), pk);
+        }
+        return new Sort(SortField.FIELD_SCORE, pk);
+    }
+
     private void logExplanation(final IndexSearcher searcher, final Query query, final Sort sort, final int doc) throws Exception {
         if (LOGFTQ.isTraceEnabled()) {
 
@@ -256,7 +414,7 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
 
                     } else {
 
-                        facets = new SortedSetDocValuesFacetCounts(new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader(), request.getField()), fc);
+                        facets = new SortedSetDocValuesFacetCounts(this.luceneIndexProvider.provideFacetsState(searcher, request.getField()), fc);
 
                     }
 
@@ -330,4 +488,23 @@ public class GenericFTSLuceneImpl implements GenericFTS<Long, org.apache.lucene.
         this.luceneIndexProvider = luceneIndexProvider;
     }
 
+    /**
+     * Spring IoC.
+     *
+     * @param sortFieldRegistry sort field registry
+     */
+    public void setSortFieldRegistry(final SortFieldRegistry sortFieldRegistry) {
+        this.sortFieldRegistry = sortFieldRegistry;
+    }
+
+    /**
+     * Spring IoC.
+     *
+     * @param storedObjectClass class of object stored in {@link LuceneDocumentAdapterUtils#FIELD_OBJECT},
+     *                          if set projections return decoded object instead of raw stored value
+     */
+    public void setStoredObjectClass(final Class<?> storedObjectClass) {
+        this.storedObjectClass = storedObjectClass;
+    }
+
 }
@@ -25,9 +25,11 @@ import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.Term;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.yes.cart.dao.ResultsIterator;
 import org.yes.cart.domain.misc.Pair;
+import org.yes.cart.search.dao.BatchLuceneDocumentAdapter;
 import org.yes.cart.search.dao.IndexBuilder;
 import org.yes.cart.search.dao.LuceneDocumentAdapter;
 import org.yes.cart.search.dao.LuceneIndexProvider;
@@ -35,6 +37,10 @@ import org.yes.cart.search.dao.entity.LuceneDocumentAdapterUtils;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -54,6 +60,10 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
 
     private TaskExecutor indexExecutor;
 
+    private AsyncTaskExecutor indexWorkerExecutor;
+
+    private int indexWorkers = 1;
+
     public IndexBuilderLuceneImpl(final LuceneDocumentAdapter<T, PK> documentAdapter,
                                   final LuceneIndexProvider indexProvider) {
         this.documentAdapter = documentAdapter;
@@ -69,6 +79,26 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
         this.indexExecutor = indexExecutor;
     }
 
+    /**
+     * Executor that runs workers of parallel reindex. Must not be the same executor as
+     * {@link #setIndexExecutor(TaskExecutor)}, since reindex job waits for its workers.
+     * Without worker executor full reindex is always serial.
+     *
+     * @param indexWorkerExecutor worker executor
+     */
+    public void setIndexWorkerExecutor(final AsyncTaskExecutor indexWorkerExecutor) {
+        this.indexWorkerExecutor = indexWorkerExecutor;
+    }
+
+    /**
+     * Default number of parallel workers for full reindex (1 means serial reindex).
+     *
+     * @param indexWorkers number of workers
+     */
+    public void setIndexWorkers(final int indexWorkers) {
+        this.indexWorkers = indexWorkers;
+    }
+
     /**
      * Extension hook for persistence layer.
      *
@@ -105,8 +135,9 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
                         new Object[] { name, primaryKey, counts[0], counts[1], counts[2] });
             }
 
-            // Refresh ensures we use an updated index
-            indexProvider.refreshIfNecessary();
+            // Refresh ensures we use an updated index. NRT providers batch reopens in the background, so we
+            // wait for generation with this change to have read-your-writes (concurrent updates share reopen)
+            indexProvider.waitForGeneration(indexProvider.scheduleRefresh());
 
         } catch (Exception exp) {
             LOGFTQ.error("Unable to remove " + name + " document with _PK:" + primaryKey, exp);
@@ -198,6 +229,13 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
      * {@inheritDoc}
      */
     public void fullTextSearchReindex(final boolean async, final int batchSize) {
+        fullTextSearchReindex(async, batchSize, this.indexWorkers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fullTextSearchReindex(final boolean async, final int batchSize, final int workers) {
 
         final boolean runAsync = async && this.indexExecutor != null;
 
@@ -205,10 +243,16 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
 
         if (asyncRunningState.compareAndSet(IDLE, RUNNING)) {  // If we are idle we can start
 
+            final boolean parallel = workers > 1 && this.indexWorkerExecutor != null && isPrimaryKeyRangeSupported();
+
             if (runAsync) {
-                this.indexExecutor.execute(createIndexingRunnable(true, batchSize)); // async
+                this.indexExecutor.execute(parallel ?
+                        createParallelIndexingRunnable(true, batchSize, workers) :
+                        createIndexingRunnable(true, batchSize)); // async
             } else {
-                createIndexingRunnable(false, batchSize).run(); // sync
+                (parallel ?
+                        createParallelIndexingRunnable(false, batchSize, workers) :
+                        createIndexingRunnable(false, batchSize)).run(); // sync
             }
 
         } else if (!runAsync) {
@@ -246,6 +290,37 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
      */
     protected abstract T unproxyEntity(T entity);
 
+    /**
+     * Extension hook for persistence layer. Parallel reindex is only possible if entities can be
+     * partitioned by numeric primary key range.
+     *
+     * @return true if {@link #findPrimaryKeyRange()} and {@link #findByPrimaryKeyRange(long, long)} are supported
+     */
+    protected boolean isPrimaryKeyRangeSupported() {
+        return false;
+    }
+
+    /**
+     * Extension hook for persistence layer.
+     *
+     * @return min and max primary key (inclusive) or null if there are no entities
+     */
+    protected long[] findPrimaryKeyRange() {
+        throw new UnsupportedOperationException("Primary key range is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Extension hook for persistence layer.
+     *
+     * @param fromInclusive start of the primary key range
+     * @param toExclusive   end of the primary key range
+     *
+     * @return entities in range
+     */
+    protected List<T> findByPrimaryKeyRange(final long fromInclusive, final long toExclusive) {
+        throw new UnsupportedOperationException("Primary key range is not supported by " + getClass().getSimpleName());
+    }
+
     /**
      * Extension hook called on each batch commit.
      *
@@ -260,6 +335,26 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
      */
     protected abstract void endTx(Object tx);
 
+    /**
+     * Prefetch relationships for next batch if adapter supports it.
+     *
+     * @param entities entities in next batch
+     */
+    private void prefetch(final List<T> entities) {
+        if (this.documentAdapter instanceof BatchLuceneDocumentAdapter && !entities.isEmpty()) {
+            ((BatchLuceneDocumentAdapter<T, PK>) this.documentAdapter).prefetch(entities);
+        }
+    }
+
+    /**
+     * Release relationships prefetched for current thread.
+     */
+    private void releasePrefetch() {
+        if (this.documentAdapter instanceof BatchLuceneDocumentAdapter) {
+            ((BatchLuceneDocumentAdapter<T, PK>) this.documentAdapter).releasePrefetch();
+        }
+    }
+
     private Runnable createIndexingRunnable(final boolean async, final int batchSize) {
         return new Runnable() {
             @Override
@@ -292,27 +387,45 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
 
                     try {
 
+                        final List<T> batch = new ArrayList<T>(Math.max(batchSize, 1));
+
                         while (all.hasNext()) {
 
-                            final T entity = unproxyEntity(all.next());
+                            batch.add(unproxyEntity(all.next()));
+
+                            if (batch.size() < batchSize && all.hasNext()) {
+                                continue; // keep reading until batch is full so that relationships are prefetched in bulk
+                            }
+
+                            prefetch(batch);
+                            try {
+
+                                for (final T entity : batch) {
+
+                                    final Pair<PK, Document[]> documents = documentAdapter.toDocument(entity);
+                                    boolean remove = documents == null || documents.getSecond() == null || documents.getSecond().length == 0;
 
-                            final Pair<PK, Document[]> documents = documentAdapter.toDocument(entity);
-                            boolean remove = documents == null || documents.getSecond() == null || documents.getSecond().length == 0;
+                                    fullTextSearchReindexSingleEntity(iw, name, documents, remove, indexTime, counts);
 
-                            fullTextSearchReindexSingleEntity(iw, name, documents, remove, indexTime, counts);
+                                    index++;
+                                    currentIndexingCount.compareAndSet(index - 1, index);
 
-                            index++;
+                                }
+
+                            } finally {
+                                releasePrefetch();
+                                batch.clear();
+                            }
 
                             if (index % batchSize == 0) {
                                 // TODO: may need to revisit this in favour of iw.flush()
                                 iw.commit();  //apply changes to indexes
-                                indexProvider.refreshIfNecessary(); // make changes visible
+                                indexProvider.scheduleRefresh(); // make changes visible
                                 endBatch(tx);
                                 if (log.isInfoEnabled()) {
                                     log.info("Indexed {} items of {} class", index, indexProvider.getName());
                                 }
                             }
-                            currentIndexingCount.compareAndSet(index - 1, index);
                         }
 
                         // Remove unindexed values
@@ -346,6 +459,145 @@ public abstract class IndexBuilderLuceneImpl<T, PK extends Serializable> impleme
         };
     }
 
+    private Runnable createParallelIndexingRunnable(final boolean async, final int batchSize, final int workers) {
+        return new Runnable() {
+            @Override
+            public void run() {
+
+                final long counts[] = new long[] { 0L, 0L, 0L };
+
+                final Logger log = LOGFTQ;
+
+                Object tx = null;
+                final List<Future<?>> partitionWorkers = new ArrayList<Future<?>>(workers);
+                final AtomicBoolean failed = new AtomicBoolean(false);
+                try {
+
+                    currentIndexingCount.set(0);
+
+                    final String name = indexProvider.getName();
+
+                    if (log.isInfoEnabled()) {
+                        log.info("Full parallel reindex for {} class, workers: {}, batch size: {}", new Object[] { name, workers, batchSize });
+                    }
+
+                    if (async) {
+                        tx = startTx();
+                    }
+
+                    final long indexTime = System.currentTimeMillis();
+                    final IndexWriter iw = indexProvider.provideIndexWriter();
+
+                    final long[] range = findPrimaryKeyRange();
+
+                    if (range != null) {
+
+                        final long partitionSize = Math.max(batchSize, 1);
+                        final AtomicLong nextPartition = new AtomicLong(range[0]);
+                        final long maxPk = range[1];
+
+                        for (int i = 0; i < workers; i++) {
+                            partitionWorkers.add(indexWorkerExecutor.submit(new Runnable() {
+                                @Override
+                                public void run() {
+
+                                    final long workerCounts[] = new long[] { 0L, 0L, 0L };
+
+                                    // Each worker has its own session, index writer is shared and committed once all workers finish
+                                    final Object workerTx = startTx();
+                                    try {
+
+                                        long from;
+                                        while (!failed.get() && (from = nextPartition.getAndAdd(partitionSize)) <= maxPk) {
+
+                                            final List<T> entities = new ArrayList<T>();
+                                            for (final T entity : findByPrimaryKeyRange(from, from + partitionSize)) {
+                                                entities.add(unproxyEntity(entity));
+                                            }
+
+                                            prefetch(entities);
+                                            try {
+
+                                                for (final T entity : entities) {
+
+                                                    final Pair<PK, Document[]> documents = documentAdapter.toDocument(entity);
+                                                    boolean remove = documents == null || documents.getSecond() == null || documents.getSecond().length == 0;
+
+                                                    fullTextSearchReindexSingleEntity(iw, name, documents, remove, indexTime, workerCounts);
+
+                                                }
+
+                                            } finally {
+                                                releasePrefetch();
+                                            }
+
+                                            endBatch(workerTx);
+
+                                            final long index = currentIndexingCount.addAndGet(entities.size());
+                                            if (log.isInfoEnabled()) {
+                                                log.info("Indexed {} items of {} class", index, name);
+                                            }
+                                        }
+
+                                    } catch (Exception exp) {
+                                        failed.set(true);
+                                        LOGFTQ.error("Error during parallel indexing", exp);
+                                    } finally {
+                                        try {
+                                            endTx(workerTx);
+                                        } catch (Exception exp) { }
+                                        synchronized (counts) {
+                                            for (int c = 0; c < counts.length; c++) {
+                                                counts[c] += workerCounts[c];
+                                            }
+                                        }
+                                    }
+                                }
+                            }));
+                        }
+
+                        for (final Future<?> partitionWorker : partitionWorkers) {
+                            partitionWorker.get();
+                        }
+
+                    }
+
+                    if (failed.get()) {
+                        // Do not remove unindexed values, since we will lose documents that have not been reindexed
+                        log.error("Parallel reindex for {} class failed, unindexed documents are not removed", name);
+                    } else {
+                        // Remove unindexed values
+                        iw.deleteDocuments(LongPoint.newRangeQuery(LuceneDocumentAdapterUtils.FIELD_INDEXTIME, 0, indexTime - 1));
+                    }
+
+                    iw.commit();  //apply changes to indexes
+                    indexProvider.refreshIfNecessary(); // make changes visible
+                    if (log.isInfoEnabled()) {
+                        log.info("Indexed {} items of {} class, added: {}, removed: {}, failed: {}", new Object[] { currentIndexingCount.get(), name, counts[0], counts[1], counts[2] });
+                    }
+                    iw.forceMerge(1, true); // optimise the index
+                } catch (Exception exp) {
+                    failed.set(true); // stop workers that are still running
+                    LOGFTQ.error("Error during indexing", exp);
+                } finally {
+                    for (final Future<?> partitionWorker : partitionWorkers) {
+                        // do not interrupt, since interrupting index writer IO closes the index
+                        partitionWorker.cancel(false);
+                    }
+                    asyncRunningState.set(COMPLETED);
+                    if (async) {
+                        try {
+                            endTx(tx);
+                        } catch (Exception exp) { }
+                    }
+                    if (log.isInfoEnabled()) {
+                        log.info("Full reindex for {} class ... COMPLETED", indexProvider.getName());
+                    }
+                }
+            }
+        };
+    }
+
     static class FTIndexStateImpl implements FTIndexState {
 
         private boolean fullTextSearchReindexInProgress = false;
@@ -17,11 +17,16 @@
 package org.yes.cart.search.dao.impl;
 
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.*;
 import org.slf4j.Logger;
@@ -34,6 +39,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * In Memory implementation of Lucene index provider.
@@ -54,10 +65,41 @@ public class LuceneIndexProviderImpl implements LuceneIndexProvider, Initializin
     private SearcherManager indexReaderManager;
     private IndexWriter indexWriter;
 
+    /*
+     * Facet states are keyed by reader, so that searchers acquired before refresh never see
+     * states from a newer generation. Cached states hold strong references to their readers,
+     * so entries are removed explicitly by reader closed listener, which covers states that
+     * searchers acquired before refresh put back into the cache after it was cleared.
+     */
+    private final Map<IndexReader, ConcurrentMap<String, SortedSetDocValuesReaderState>> facetsStates =
+            new HashMap<IndexReader, ConcurrentMap<String, SortedSetDocValuesReaderState>>();
+    private final IndexReader.ReaderClosedListener onReaderClosed = new IndexReader.ReaderClosedListener() {
+        @Override
+        public void onClose(final IndexReader reader) throws IOException {
+            synchronized (facetsStates) {
+                facetsStates.remove(reader);
+            }
+        }
+    };
+    private final AtomicLong facetsStateHits = new AtomicLong(0L);
+    private final AtomicLong facetsStateMisses = new AtomicLong(0L);
+    private volatile boolean facetsStateStatsEnabled = true;
+
+    private StoredValuesCache storedValuesCache = new StoredValuesCache(1000);
+
     private Directory facets = null;
     private SearcherTaxonomyManager facetsReaderManager;
     private DirectoryTaxonomyWriter facetsWriter;
 
+    /*
+     * Near-real-time reopen is disabled by default (i.e. every change is refreshed immediately), since
+     * tests and some tools require read-your-writes without waiting.
+     */
+    private double nrtMaxStaleSec = 0d;
+    private double nrtMinStaleSec = 0.025d;
+    private ControlledRealTimeReopenThread<IndexSearcher> indexReopenThread;
+    private ControlledRealTimeReopenThread<SearcherTaxonomyManager.SearcherAndTaxonomy> facetsReopenThread;
+
     private final String name;
     private final String uri;
 
@@ -100,6 +142,164 @@ public class LuceneIndexProviderImpl implements LuceneIndexProvider, Initializin
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SortedSetDocValuesReaderState provideFacetsState(final IndexSearcher searcher, final String field) throws IOException {
+
+        final IndexReader reader = searcher.getIndexReader();
+
+        ConcurrentMap<String, SortedSetDocValuesReaderState> states;
+        synchronized (facetsStates) {
+            states = facetsStates.get(reader);
+            if (states == null) {
+                states = new ConcurrentHashMap<String, SortedSetDocValuesReaderState>();
+                facetsStates.put(reader, states);
+                reader.addReaderClosedListener(onReaderClosed); // listeners are a set, so re-adding is no-op
+            }
+        }
+
+        final SortedSetDocValuesReaderState cached = states.get(field);
+        if (cached != null) {
+            if (facetsStateStatsEnabled) {
+                facetsStateHits.incrementAndGet();
+            }
+            return cached;
+        }
+
+        if (facetsStateStatsEnabled) {
+            facetsStateMisses.incrementAndGet();
+        }
+        final SortedSetDocValuesReaderState state = new DefaultSortedSetDocValuesReaderState(reader, field);
+        final SortedSetDocValuesReaderState existing = states.putIfAbsent(field, state);
+        return existing != null ? existing : state;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getFacetsStateCacheSize() {
+        int size = 0;
+        synchronized (facetsStates) {
+            for (final Map<String, SortedSetDocValuesReaderState> states : facetsStates.values()) {
+                size += states.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFacetsStateCacheHits() {
+        return facetsStateHits.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFacetsStateCacheMisses() {
+        return facetsStateMisses.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearFacetsStateCache() {
+        synchronized (facetsStates) {
+            facetsStates.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isFacetsStateCacheStatsEnabled() {
+        return facetsStateStatsEnabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setFacetsStateCacheStatsEnabled(final boolean enabled) {
+        if (enabled && !facetsStateStatsEnabled) {
+            facetsStateHits.set(0L);
+            facetsStateMisses.set(0L);
+        }
+        facetsStateStatsEnabled = enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getStoredValues(final IndexSearcher searcher, final int docId, final Collection<String> fields) {
+        return storedValuesCache.get(searcher, docId, fields);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putStoredValues(final IndexSearcher searcher, final int docId, final Map<String, Object> values) {
+        storedValuesCache.put(searcher, docId, values);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStoredValuesCacheSize() {
+        return storedValuesCache.getSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStoredValuesCacheHits() {
+        return storedValuesCache.getHits();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStoredValuesCacheMisses() {
+        return storedValuesCache.getMisses();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearStoredValuesCache() {
+        storedValuesCache.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStoredValuesCacheStatsEnabled() {
+        return storedValuesCache.isStatsEnabled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setStoredValuesCacheStatsEnabled(final boolean enabled) {
+        storedValuesCache.setStatsEnabled(enabled);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -194,6 +394,35 @@ public class LuceneIndexProviderImpl implements LuceneIndexProvider, Initializin
         this.refreshFacetsIfNecessary();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long scheduleRefresh() {
+        if (indexReopenThread == null) {
+            this.refreshIfNecessary();
+        }
+        // Reopen threads will pick up changes within max staleness
+        return indexWriter.getMaxCompletedSequenceNumber();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void waitForGeneration(final long generation) {
+        if (indexReopenThread == null) {
+            return; // scheduleRefresh() already refreshed readers
+        }
+        try {
+            indexReopenThread.waitForGeneration(generation);
+            facetsReopenThread.waitForGeneration(generation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGFTQ.warn("Interrupted while waiting for index {} generation {}", name, generation);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -203,11 +432,43 @@ public class LuceneIndexProviderImpl implements LuceneIndexProvider, Initializin
         index = getInstance(uri + File.separatorChar + name + File.separatorChar + "index");
         provideIndexWriter();
         indexReaderManager = new SearcherManager(indexWriter, null);
+        indexReaderManager.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() throws IOException {
+                // nothing to do
+            }
+
+            @Override
+            public void afterRefresh(final boolean didRefresh) throws IOException {
+                if (didRefresh) {
+                    clearFacetsStateCache();
+                }
+            }
+        });
 
         facets = getInstance(uri + File.separatorChar + name + File.separatorChar + "taxonomy");
         provideFacetsWriter();
         facetsReaderManager = new SearcherTaxonomyManager(indexWriter, null, facetsWriter);
 
+        if (nrtMaxStaleSec > 0d) {
+
+            LOGFTQ.info("Starting near-real-time reopen for {}, min stale: {}s, max stale: {}s",
+                    new Object[] { name, nrtMinStaleSec, nrtMaxStaleSec });
+
+            indexReopenThread = new ControlledRealTimeReopenThread<IndexSearcher>(
+                    indexWriter, indexReaderManager, nrtMaxStaleSec, nrtMinStaleSec);
+            indexReopenThread.setName("Lucene NRT " + name + " index reopen");
+            indexReopenThread.setDaemon(true);
+            indexReopenThread.start();
+
+            facetsReopenThread = new ControlledRealTimeReopenThread<SearcherTaxonomyManager.SearcherAndTaxonomy>(
+                    indexWriter, facetsReaderManager, nrtMaxStaleSec, nrtMinStaleSec);
+            facetsReopenThread.setName("Lucene NRT " + name + " facets reopen");
+            facetsReopenThread.setDaemon(true);
+            facetsReopenThread.start();
+
+        }
+
     }
 
     Directory getInstance(final String uri) throws Exception {
@@ -245,11 +506,19 @@ public class LuceneIndexProviderImpl implements LuceneIndexProvider, Initializin
     public void destroy() throws Exception {
 
         LOGFTQ.info("Closing directory for {}", name);
+        if (indexReopenThread != null) {
+            indexReopenThread.close();
+        }
+        if (facetsReopenThread != null) {
+            facetsReopenThread.close();
+        }
         try {
             indexReaderManager.close();
         } catch (IOException e) {
             LOGFTQ.error("Unable to release index searchers " + name + ", cause: " + e.getMessage());
         }
+        clearFacetsStateCache();
+        storedValuesCache.clear();
         try {
             if (indexWriter != null) {
                 indexWriter.close();
@@ -280,4 +549,33 @@ public class LuceneIndexProviderImpl implements LuceneIndexProvider, Initializin
             LOGFTQ.error("Unable to release facet directory " + name + ", cause: " + e.getMessage());
         }
     }
+
+    /**
+     * Max number of documents for which stored values are cached. Zero disables the cache.
+     *
+     * @param storedValuesCacheSize max number of documents
+     */
+    public void setStoredValuesCacheSize(final int storedValuesCacheSize) {
+        this.storedValuesCache = new StoredValuesCache(storedValuesCacheSize);
+    }
+
+    /**
+     * Target max staleness of readers in seconds when there are no callers waiting for generation.
+     * Zero or negative value disables near-real-time reopen, in which case every change is refreshed
+     * immediately.
+     *
+     * @param nrtMaxStaleSec max staleness in seconds
+     */
+    public void setNrtMaxStaleSec(final double nrtMaxStaleSec) {
+        this.nrtMaxStaleSec = nrtMaxStaleSec;
+    }
+
+    /**
+     * Target min staleness of readers in seconds when there are callers waiting for generation.
+     *
+     * @param nrtMinStaleSec min staleness in seconds
+     */
+    public void setNrtMinStaleSec(final double nrtMinStaleSec) {
+        this.nrtMinStaleSec = nrtMinStaleSec;
+    }
 }
@@ -16,12 +16,16 @@
 
 package org.yes.cart.search.dao.impl;
 
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.IndexSearcher;
 import org.yes.cart.search.dao.LuceneIndexProvider;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * User: denispavlov
  * Date: 08/08/2017
@@ -44,6 +48,81 @@ public class NoopLuceneIndexProviderImpl implements LuceneIndexProvider {
 
     }
 
+    @Override
+    public SortedSetDocValuesReaderState provideFacetsState(final IndexSearcher searcher, final String field) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getFacetsStateCacheSize() {
+        return 0;
+    }
+
+    @Override
+    public long getFacetsStateCacheHits() {
+        return 0L;
+    }
+
+    @Override
+    public long getFacetsStateCacheMisses() {
+        return 0L;
+    }
+
+    @Override
+    public void clearFacetsStateCache() {
+        // nothing to clear
+    }
+
+    @Override
+    public boolean isFacetsStateCacheStatsEnabled() {
+        return false;
+    }
+
+    @Override
+    public void setFacetsStateCacheStatsEnabled(final boolean enabled) {
+        // no stats
+    }
+
+    @Override
+    public Map<String, Object> getStoredValues(final IndexSearcher searcher, final int docId, final Collection<String> fields) {
+        return null;
+    }
+
+    @Override
+    public void putStoredValues(final IndexSearcher searcher, final int docId, final Map<String, Object> values) {
+
+    }
+
+    @Override
+    public int getStoredValuesCacheSize() {
+        return 0;
+    }
+
+    @Override
+    public long getStoredValuesCacheHits() {
+        return 0L;
+    }
+
+    @Override
+    public long getStoredValuesCacheMisses() {
+        return 0L;
+    }
+
+    @Override
+    public void clearStoredValuesCache() {
+        // nothing to clear
+    }
+
+    @Override
+    public boolean isStoredValuesCacheStatsEnabled() {
+        return false;
+    }
+
+    @Override
+    public void setStoredValuesCacheStatsEnabled(final boolean enabled) {
+        // no stats
+    }
+
     @Override
     public IndexWriter provideIndexWriter() {
         throw new UnsupportedOperationException();
@@ -78,4 +157,14 @@ public class NoopLuceneIndexProviderImpl implements LuceneIndexProvider {
     public void refreshIfNecessary() {
 
     }
+
+    @Override
+    public long scheduleRefresh() {
+        return 0L;
+    }
+
+    @Override
+    public void waitForGeneration(final long generation) {
+
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.impl;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.util.Bits;
+import org.yes.cart.search.dao.entity.LuceneDocumentAdapterUtils;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Collector that streams primary keys of all matching documents into primitive array.
+ *
+ * Primary keys are read from {@link LuceneDocumentAdapterUtils#FIELD_PK_VALUE} doc values, so there is
+ * no need to score hits, keep them in priority queue or load stored documents. Segments that were
+ * indexed before PK doc values were introduced fall back to reading stored {@link LuceneDocumentAdapterUtils#FIELD_PK}.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 09:12
+ */
+public class PrimaryKeyCollector extends SimpleCollector {
+
+    private static final Set<String> PKS = Collections.singleton(LuceneDocumentAdapterUtils.FIELD_PK);
+
+    private long[] pks;
+    private int size = 0;
+
+    private LeafReader reader;
+    private NumericDocValues pkValues;
+    private Bits pkValuesExist;
+
+    public PrimaryKeyCollector() {
+        this(64);
+    }
+
+    public PrimaryKeyCollector(final int expectedSize) {
+        this.pks = new long[Math.max(expectedSize, 16)];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doSetNextReader(final LeafReaderContext context) throws IOException {
+        this.reader = context.reader();
+        this.pkValues = this.reader.getNumericDocValues(LuceneDocumentAdapterUtils.FIELD_PK_VALUE);
+        this.pkValuesExist = this.pkValues != null ? this.reader.getDocsWithField(LuceneDocumentAdapterUtils.FIELD_PK_VALUE) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void collect(final int doc) throws IOException {
+
+        final long pk;
+        if (this.pkValuesExist != null && this.pkValuesExist.get(doc)) {
+            pk = this.pkValues.get(doc);
+        } else {
+            pk = Long.valueOf(this.reader.document(doc, PKS).get(LuceneDocumentAdapterUtils.FIELD_PK));
+        }
+
+        if (this.size == this.pks.length) {
+            this.pks = Arrays.copyOf(this.pks, this.size + (this.size >> 1));
+        }
+        this.pks[this.size++] = pk;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean needsScores() {
+        return false;
+    }
+
+    /**
+     * @return number of collected hits
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return collected primary keys
+     */
+    public long[] getPrimaryKeys() {
+        return Arrays.copyOf(this.pks, this.size);
+    }
+
+    /**
+     * @return read only list view of collected primary keys
+     */
+    public List<Long> getPrimaryKeysAsList() {
+        return new LongArrayView(this.pks, this.size);
+    }
+
+    private static class LongArrayView extends AbstractList<Long> implements RandomAccess {
+
+        private final long[] values;
+        private final int size;
+
+        private LongArrayView(final long[] values, final int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        public Long get(final int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.impl;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang.StringUtils;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes position of the last hit on the page (i.e. sort values of {@link FieldDoc}) into opaque
+ * continuation token, so that next page can be retrieved via search after instead of collecting all
+ * preceding hits.
+ *
+ * Token format (before Base64): version~first~signature~value1~value2... where first is the offset of
+ * the page that token leads to, signature is hash of query and sort (tokens are only valid for the same
+ * query and sort) and values are type prefixed sort values.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 11:05
+ */
+public class SearchAfterTokenUtils {
+
+    private static final Logger LOGFTQ = LoggerFactory.getLogger("FTQ");
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "~";
+
+    private SearchAfterTokenUtils() {
+        // no instance
+    }
+
+    /**
+     * Signature of the query and sort, which is stable across cluster nodes.
+     *
+     * @param query query
+     * @param sort  sort
+     *
+     * @return signature
+     */
+    public static String signature(final Query query, final Sort sort) {
+
+        return Integer.toHexString((String.valueOf(query) + SEPARATOR + String.valueOf(sort)).hashCode());
+
+    }
+
+    /**
+     * Encode last hit of the page into continuation token.
+     *
+     * @param last      last hit on current page
+     * @param signature query signature (see {@link #signature(Query, Sort)})
+     * @param nextFirst offset of the first result of the next page
+     *
+     * @return token
+     */
+    public static String encode(final FieldDoc last, final String signature, final int nextFirst) {
+
+        final StringBuilder token = new StringBuilder();
+        token.append(VERSION).append(SEPARATOR).append(nextFirst).append(SEPARATOR).append(signature);
+        for (final Object value : last.fields) {
+            token.append(SEPARATOR);
+            if (value == null) {
+                token.append('n');
+            } else if (value instanceof BytesRef) {
+                final BytesRef bytes = (BytesRef) value;
+                token.append('b').append(Base64.encodeBase64URLSafeString(BytesRef.deepCopyOf(bytes).bytes));
+            } else if (value instanceof Long) {
+                token.append('l').append(value);
+            } else if (value instanceof Integer) {
+                token.append('i').append(value);
+            } else if (value instanceof Float) {
+                token.append('f').append(Float.floatToIntBits((Float) value));
+            } else if (value instanceof Double) {
+                token.append('d').append(Double.doubleToLongBits((Double) value));
+            } else {
+                LOGFTQ.debug("Unsupported sort value type {}, continuation token is not available", value.getClass());
+                return null;
+            }
+        }
+        return Base64.encodeBase64URLSafeString(token.toString().getBytes(StandardCharsets.UTF_8));
+
+    }
+
+    /**
+     * Decode continuation token.
+     *
+     * @param token     token
+     * @param signature signature of current query
+     * @param first     offset of the requested page
+     * @param maxDoc    max doc of the current searcher
+     *
+     * @return search after hit or null if token is not valid for given query and page
+     */
+    public static FieldDoc decode(final String token, final String signature, final int first, final int maxDoc) {
+
+        if (StringUtils.isBlank(token) || maxDoc <= 0) {
+            return null;
+        }
+
+        try {
+
+            final String[] parts = StringUtils.splitPreserveAllTokens(
+                    new String(Base64.decodeBase64(token), StandardCharsets.UTF_8), SEPARATOR);
+
+            if (parts.length < 4 || !VERSION.equals(parts[0])
+                    || Integer.parseInt(parts[1]) != first || !signature.equals(parts[2])) {
+                return null; // token from different query, sort or page
+            }
+
+            final Object[] fields = new Object[parts.length - 3];
+            for (int i = 3; i < parts.length; i++) {
+                final String part = parts[i];
+                final String value = part.substring(1);
+                switch (part.charAt(0)) {
+                    case 'n':
+                        fields[i - 3] = null;
+                        break;
+                    case 'b':
+                        fields[i - 3] = new BytesRef(Base64.decodeBase64(value));
+                        break;
+                    case 'l':
+                        fields[i - 3] = Long.valueOf(value);
+                        break;
+                    case 'i':
+                        fields[i - 3] = Integer.valueOf(value);
+                        break;
+                    case 'f':
+                        fields[i - 3] = Float.intBitsToFloat(Integer.parseInt(value));
+                        break;
+                    case 'd':
+                        fields[i - 3] = Double.longBitsToDouble(Long.parseLong(value));
+                        break;
+                    default:
+                        return null;
+                }
+            }
+
+            /*
+                Sort always ends with unique PK, so no other hit has the same values. Using last doc
+                as tie breaker ensures the hit from token itself is never returned again.
+             */
+            return new FieldDoc(maxDoc - 1, Float.NaN, fields);
+
+        } catch (Exception exp) {
+            LOGFTQ.debug("Invalid continuation token {}, caused: {}", token, exp.getMessage());
+            return null;
+        }
+
+    }
+
+}
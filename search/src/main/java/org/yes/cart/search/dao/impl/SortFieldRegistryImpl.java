@@ -0,0 +1,101 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.impl;
+
+import org.apache.lucene.search.SortField;
+import org.yes.cart.search.dao.SortFieldRegistry;
+import org.yes.cart.search.dao.entity.LuceneDocumentAdapterUtils;
+import org.yes.cart.search.query.ProductSearchQueryBuilder;
+
+import java.util.*;
+
+/**
+ * Default sort field registry. Numeric sort fields (price, creation date) are indexed as
+ * {@link org.apache.lucene.document.NumericDocValuesField} and sorted as {@link SortField.Type#LONG},
+ * all other sort fields are indexed as {@link org.apache.lucene.document.SortedDocValuesField} and
+ * sorted by ordinals using {@link SortField.Type#STRING}.
+ *
+ * Numeric sort fields are indexed under "_nsort" names (see
+ * {@link LuceneDocumentAdapterUtils#numericSortFieldName(String)}) so that they do not clash with
+ * string "_sort" doc values of the same name in indexes created by previous versions.
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 14:05
+ */
+public class SortFieldRegistryImpl implements SortFieldRegistry {
+
+    private Set<String> numericFields = new HashSet<String>(Collections.singletonList(
+            ProductSearchQueryBuilder.PRODUCT_CREATED_SORT_FIELD
+    ));
+
+    private List<String> numericFieldPrefixes = Collections.singletonList(
+            "facet_price_"  // see SearchUtil.priceFacetName()
+    );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SortField getSortField(final String sortFieldName, final boolean reverse) {
+
+        if (isNumeric(sortFieldName)) {
+            final SortField sortField = new SortField(
+                    LuceneDocumentAdapterUtils.numericSortFieldName(sortFieldName), SortField.Type.LONG, reverse);
+            // documents without value come first, same as for string fields
+            sortField.setMissingValue(Long.MIN_VALUE);
+            return sortField;
+        }
+        return new SortField(sortFieldName, SortField.Type.STRING, reverse);
+
+    }
+
+    private boolean isNumeric(final String sortFieldName) {
+
+        if (numericFields.contains(sortFieldName)) {
+            return true;
+        }
+        if (sortFieldName.endsWith(LuceneDocumentAdapterUtils.SORT_SUFFIX)) {
+            for (final String prefix : numericFieldPrefixes) {
+                if (sortFieldName.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+
+    }
+
+    /**
+     * Sort fields that are indexed as numeric doc values (exact names).
+     *
+     * @param numericFields numeric fields
+     */
+    public void setNumericFields(final Set<String> numericFields) {
+        this.numericFields = numericFields;
+    }
+
+    /**
+     * Sort fields that are indexed as numeric doc values (name prefixes for fields with "_sort" suffix,
+     * e.g. price fields that are resolved per shop and currency).
+     *
+     * @param numericFieldPrefixes numeric field prefixes
+     */
+    public void setNumericFieldPrefixes(final List<String> numericFieldPrefixes) {
+        this.numericFieldPrefixes = numericFieldPrefixes;
+    }
+}
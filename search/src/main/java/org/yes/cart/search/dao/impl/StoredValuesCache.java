@@ -0,0 +1,203 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.impl;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of stored values (including decoded objects) keyed by segment core and
+ * segment document id. Segment documents never change, so entries remain valid for as long as
+ * segment core is open (deleted documents are simply never requested). Entries of a segment are
+ * dropped as soon as its core is closed (e.g. segment merged away).
+ *
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 13:30
+ */
+class StoredValuesCache {
+
+    private final int maxSize;
+
+    private final Map<Key, Map<String, Object>> values;
+    private final Set<Object> cores = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong misses = new AtomicLong(0L);
+    private volatile boolean statsEnabled = true;
+
+    private final LeafReader.CoreClosedListener onCoreClosed = new LeafReader.CoreClosedListener() {
+        @Override
+        public void onClose(final Object ownerCoreCacheKey) {
+            evict(ownerCoreCacheKey);
+        }
+    };
+
+    StoredValuesCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.values = new LinkedHashMap<Key, Map<String, Object>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Map<String, Object>> eldest) {
+                return size() > StoredValuesCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get cached values for given document.
+     *
+     * @param searcher searcher that produced document id
+     * @param docId    top level document id
+     * @param fields   fields that must be present in cached values
+     *
+     * @return cached values or null if not all fields are cached
+     */
+    Map<String, Object> get(final IndexSearcher searcher, final int docId, final Collection<String> fields) {
+
+        if (maxSize <= 0) {
+            return null;
+        }
+
+        final Key key = key(searcher, docId);
+        final Map<String, Object> cached;
+        synchronized (values) {
+            cached = values.get(key);
+        }
+        if (cached != null && cached.keySet().containsAll(fields)) {
+            if (statsEnabled) {
+                hits.incrementAndGet();
+            }
+            return cached;
+        }
+        if (statsEnabled) {
+            misses.incrementAndGet();
+        }
+        return null;
+    }
+
+    /**
+     * Cache values for given document. Values are merged with already cached ones.
+     *
+     * @param searcher searcher that produced document id
+     * @param docId    top level document id
+     * @param fields   values to cache
+     */
+    void put(final IndexSearcher searcher, final int docId, final Map<String, Object> fields) {
+
+        if (maxSize <= 0) {
+            return;
+        }
+
+        final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        final LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        final Object core = leaf.reader().getCoreCacheKey();
+        final Key key = new Key(core, docId - leaf.docBase);
+
+        synchronized (values) {
+            if (cores.add(core)) {
+                leaf.reader().addCoreClosedListener(onCoreClosed);
+            }
+            final Map<String, Object> cached = values.get(key);
+            final Map<String, Object> merged = new HashMap<String, Object>(fields);
+            if (cached != null) {
+                merged.putAll(cached);
+            }
+            values.put(key, Collections.unmodifiableMap(merged));
+        }
+    }
+
+    private void evict(final Object core) {
+        synchronized (values) {
+            cores.remove(core);
+            final Iterator<Key> it = values.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().core == core) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private Key key(final IndexSearcher searcher, final int docId) {
+        final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        final LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        return new Key(leaf.reader().getCoreCacheKey(), docId - leaf.docBase);
+    }
+
+    void clear() {
+        synchronized (values) {
+            // cores are kept, since close listeners remain registered with open segments
+            values.clear();
+        }
+    }
+
+    int getSize() {
+        synchronized (values) {
+            return values.size();
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    boolean isStatsEnabled() {
+        return statsEnabled;
+    }
+
+    void setStatsEnabled(final boolean enabled) {
+        if (enabled && !statsEnabled) {
+            hits.set(0L);
+            misses.set(0L);
+        }
+        statsEnabled = enabled;
+    }
+
+    private static final class Key {
+
+        private final Object core;
+        private final int doc;
+
+        private Key(final Object core, final int doc) {
+            this.core = core;
+            this.doc = doc;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return doc == key.doc && core == key.core;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(core) + doc;
+        }
+    }
+
+}
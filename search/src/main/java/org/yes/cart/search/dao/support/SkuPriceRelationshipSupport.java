@@ -19,6 +19,7 @@ package org.yes.cart.search.dao.support;
 import org.yes.cart.domain.entity.Shop;
 import org.yes.cart.domain.entity.SkuPrice;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,4 +70,21 @@ public interface SkuPriceRelationshipSupport {
      */
     List<SkuPrice> getSkuPrices(String sku);
 
+    /**
+     * Prefetch prices for given skus in bulk and retain them for current thread only, so that
+     * subsequent calls to {@link #getSkuPrices(String)} for these skus are resolved without
+     * hitting the database. Any previously prefetched data for current thread is replaced.
+     *
+     * Prefetched data must be released by {@link #releasePrefetchedSkuPrices()} once the
+     * batch is processed.
+     *
+     * @param skus sku codes
+     */
+    void prefetchSkuPrices(Collection<String> skus);
+
+    /**
+     * Release prices prefetched for current thread by {@link #prefetchSkuPrices(Collection)}.
+     */
+    void releasePrefetchedSkuPrices();
+
 }
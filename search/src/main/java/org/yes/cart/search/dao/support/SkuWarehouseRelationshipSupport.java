@@ -67,4 +67,22 @@ public interface SkuWarehouseRelationshipSupport {
      */
     List<SkuWarehouse> getQuantityOnWarehouses(String sku, Collection<Warehouse> warehouses);
 
+    /**
+     * Prefetch quantities for given skus on all warehouses in bulk and retain them for current
+     * thread only, so that subsequent calls to {@link #getQuantityOnWarehouse(String)} for these
+     * skus are resolved without hitting the database. Any previously prefetched data for current
+     * thread is replaced.
+     *
+     * Prefetched data must be released by {@link #releasePrefetchedQuantityOnWarehouse()} once
+     * the batch is processed.
+     *
+     * @param skus sku codes
+     */
+    void prefetchQuantityOnWarehouse(Collection<String> skus);
+
+    /**
+     * Release inventory prefetched for current thread by {@link #prefetchQuantityOnWarehouse(Collection)}.
+     */
+    void releasePrefetchedQuantityOnWarehouse();
+
 }
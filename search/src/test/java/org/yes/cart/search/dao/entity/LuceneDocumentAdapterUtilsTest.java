@@ -16,9 +16,13 @@
 
 package org.yes.cart.search.dao.entity;
 
+import org.apache.lucene.document.Document;
 import org.junit.Test;
 import org.yes.cart.domain.dto.ProductSearchResultDTO;
+import org.yes.cart.domain.dto.ProductSkuSearchResultDTO;
+import org.yes.cart.domain.dto.impl.LazyStoredAttributesDTOImpl;
 import org.yes.cart.domain.dto.impl.ProductSearchResultDTOImpl;
+import org.yes.cart.domain.dto.impl.ProductSkuSearchResultDTOImpl;
 import org.yes.cart.domain.dto.impl.StoredAttributesDTOImpl;
 
 import java.math.BigDecimal;
@@ -70,4 +74,83 @@ public class LuceneDocumentAdapterUtilsTest {
 
     }
 
+    @Test
+    public void readObjectFieldValueBinary() throws Exception {
+
+        final ProductSearchResultDTOImpl dto = new ProductSearchResultDTOImpl();
+        dto.setAttributes(new StoredAttributesDTOImpl());
+        dto.setId(10L);
+        dto.setCode("CODE");
+        dto.setDisplayName("en#~#Name EN#~#ru#~#Имя");
+        dto.setAvailability(1);
+        dto.setAvailablefrom(new Date(1000L));
+        dto.setMaxOrderQuantity(new BigDecimal("10.50"));
+        dto.setFeatured(Boolean.FALSE);
+        dto.setQtyOnWarehouse(new HashMap<Long, Map<String, BigDecimal>>() {{
+            put(123L, new HashMap<String, BigDecimal>() {{
+                put("ABC", BigDecimal.TEN);
+            }});
+        }});
+        dto.getAttributes().putValue("attr1", "val1", "en#~#name1");
+
+        final Document document = new Document();
+        LuceneDocumentAdapterUtils.addObjectDefaultField(document, dto, true);
+
+        final Object stored = LuceneDocumentAdapterUtils.readStoredFieldValue(document, LuceneDocumentAdapterUtils.FIELD_OBJECT);
+        assertTrue(stored instanceof byte[]);
+        assertTrue(((byte[]) stored).length < LuceneDocumentAdapterUtils.writeObjectFieldValue(dto).length());
+
+        final ProductSearchResultDTO dtoCopy = LuceneDocumentAdapterUtils.readObjectFieldValue(stored, ProductSearchResultDTOImpl.class);
+
+        assertNotNull(dtoCopy);
+        assertEquals(10L, dtoCopy.getId());
+        assertEquals("CODE", dtoCopy.getCode());
+        assertEquals("Имя", dtoCopy.getName("ru"));
+        assertNull(dtoCopy.getDescription());
+        assertEquals(1, dtoCopy.getAvailability());
+        assertEquals(new Date(1000L), dtoCopy.getAvailablefrom());
+        assertNull(dtoCopy.getAvailableto());
+        assertEquals(new BigDecimal("10.50"), dtoCopy.getMaxOrderQuantity());
+        assertNull(dtoCopy.getMinOrderQuantity());
+        assertEquals(Boolean.FALSE, dtoCopy.getFeatured());
+        assertEquals(BigDecimal.TEN, dtoCopy.getQtyOnWarehouse(123L).get("ABC"));
+        assertTrue(dtoCopy.getAttributes() instanceof LazyStoredAttributesDTOImpl);
+        assertEquals(dto.getAttributes().toString(), dtoCopy.getAttributes().toString());
+        assertEquals("val1", dtoCopy.getAttributes().getValue("attr1").getFirst());
+        assertEquals("name1", dtoCopy.getAttributes().getValue("attr1").getSecond().getValue("en"));
+
+        // JSON documents from existing indexes are still readable
+        final Document json = new Document();
+        LuceneDocumentAdapterUtils.addObjectDefaultField(json, dto, false);
+        final Object storedJson = LuceneDocumentAdapterUtils.readStoredFieldValue(json, LuceneDocumentAdapterUtils.FIELD_OBJECT);
+        assertTrue(storedJson instanceof String);
+        assertEquals("CODE", LuceneDocumentAdapterUtils.readObjectFieldValue(storedJson, ProductSearchResultDTOImpl.class).getCode());
+
+    }
+
+    @Test
+    public void readObjectFieldValueBinarySku() throws Exception {
+
+        final ProductSkuSearchResultDTOImpl dto = new ProductSkuSearchResultDTOImpl();
+        dto.setId(11L);
+        dto.setProductId(10L);
+        dto.setCode("SKU");
+        dto.setDisplayName("en#~#Sku EN");
+
+        final Document document = new Document();
+        LuceneDocumentAdapterUtils.addObjectDefaultField(document, dto, true);
+
+        final ProductSkuSearchResultDTO dtoCopy = LuceneDocumentAdapterUtils.readObjectFieldValue(
+                LuceneDocumentAdapterUtils.readStoredFieldValue(document, LuceneDocumentAdapterUtils.FIELD_OBJECT),
+                ProductSkuSearchResultDTOImpl.class);
+
+        assertNotNull(dtoCopy);
+        assertEquals(11L, dtoCopy.getId());
+        assertEquals(10L, dtoCopy.getProductId());
+        assertEquals("SKU", dtoCopy.getCode());
+        assertEquals("Sku EN", dtoCopy.getName("en"));
+        assertNull(dtoCopy.getAttributes());
+
+    }
+
 }
\ No newline at end of file
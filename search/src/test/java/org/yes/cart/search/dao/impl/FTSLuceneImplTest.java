@@ -18,7 +18,9 @@ package org.yes.cart.search.dao.impl;
 
 import org.apache.commons.lang.math.NumberUtils;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.FuzzyQuery;
@@ -27,6 +29,7 @@ import org.apache.lucene.search.TermQuery;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.yes.cart.dao.ResultsIterator;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.search.dao.LuceneDocumentAdapter;
@@ -36,6 +39,8 @@ import org.yes.cart.search.dto.FilteredNavigationRecordRequest;
 import org.yes.cart.search.dto.impl.FilteredNavigationRecordRequestImpl;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
 
@@ -53,6 +58,7 @@ public class FTSLuceneImplTest {
     private GenericFTSLuceneImpl genericFTSLucene;
     private MapLuceneDocumentAdapter documentAdapter;
     private MapIndexBuilderLucene indexBuilderLucene;
+    private ExecutorService indexWorkers;
 
 
     @Before
@@ -62,8 +68,13 @@ public class FTSLuceneImplTest {
         provider.afterPropertiesSet();
         genericFTSLucene = new GenericFTSLuceneImpl();
         genericFTSLucene.setLuceneIndexProvider(provider);
+        final SortFieldRegistryImpl sortFieldRegistry = new SortFieldRegistryImpl();
+        sortFieldRegistry.setNumericFields(Collections.singleton("_PK_sort"));
+        genericFTSLucene.setSortFieldRegistry(sortFieldRegistry);
         documentAdapter = new MapLuceneDocumentAdapter();
         indexBuilderLucene = new MapIndexBuilderLucene(documentAdapter, provider);
+        indexWorkers = Executors.newFixedThreadPool(2);
+        indexBuilderLucene.setIndexWorkerExecutor(new TaskExecutorAdapter(indexWorkers));
     }
 
     private static class MapLuceneDocumentAdapter implements LuceneDocumentAdapter<Map<String, Object>, Long> {
@@ -223,6 +234,35 @@ public class FTSLuceneImplTest {
             return entity;
         }
 
+        @Override
+        protected boolean isPrimaryKeyRangeSupported() {
+            return true;
+        }
+
+        @Override
+        protected long[] findPrimaryKeyRange() {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (final Map<String, Object> doc : this.docs) {
+                final long pk = NumberUtils.toLong((String) doc.get(LuceneDocumentAdapterUtils.FIELD_PK));
+                min = Math.min(min, pk);
+                max = Math.max(max, pk);
+            }
+            return this.docs.isEmpty() ? null : new long[] { min, max };
+        }
+
+        @Override
+        protected List<Map<String, Object>> findByPrimaryKeyRange(final long fromInclusive, final long toExclusive) {
+            final List<Map<String, Object>> range = new ArrayList<Map<String, Object>>();
+            for (final Map<String, Object> doc : this.docs) {
+                final long pk = NumberUtils.toLong((String) doc.get(LuceneDocumentAdapterUtils.FIELD_PK));
+                if (pk >= fromInclusive && pk < toExclusive) {
+                    range.add(doc);
+                }
+            }
+            return range;
+        }
+
         @Override
         protected void endBatch(final Object tx) {
 
@@ -237,6 +277,7 @@ public class FTSLuceneImplTest {
     @After
     public void tearDown() throws Exception {
 
+        indexWorkers.shutdownNow();
         provider.destroy();
 
     }
@@ -363,6 +404,156 @@ public class FTSLuceneImplTest {
         assertEquals("100001", vals.get(0)[0]);
         assertEquals("{\"name\":\"item two\",\"_PK\":\"100001\",\"desc\":\"other desc\"}", vals.get(0)[1]);
 
+        // Stored values are cached per segment document
+        assertEquals(1, provider.getStoredValuesCacheSize());
+        assertEquals(1L, provider.getStoredValuesCacheMisses());
+        assertEquals(0L, provider.getStoredValuesCacheHits());
+
+        rez = genericFTSLucene.fullTextSearch(new MatchAllDocsQuery(), 1, 1, "_PK_sort", true, "_PK", "_OBJECT");
+        assertEquals("100001", rez.getFirst().get(0)[0]);
+        assertEquals(vals.get(0)[1], rez.getFirst().get(0)[1]);
+        assertEquals(1L, provider.getStoredValuesCacheMisses());
+        assertEquals(1L, provider.getStoredValuesCacheHits());
+
+        // Reindexed documents are in new segments
+        indexBuilderLucene.fullTextSearchReindex(false, 2);
+
+        rez = genericFTSLucene.fullTextSearch(new MatchAllDocsQuery(), 1, 1, "_PK_sort", true, "_PK", "_OBJECT");
+        assertEquals("100001", rez.getFirst().get(0)[0]);
+        assertEquals(2L, provider.getStoredValuesCacheMisses());
+        assertEquals(1L, provider.getStoredValuesCacheHits());
+
+    }
+
+    @Test
+    public void testFullTextSearchReindexParallel() throws Exception {
+
+        final List<Map<String, Object>> docs = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < 50; i++) {
+            final Map<String, Object> doc = new HashMap<String, Object>();
+            doc.put("_PK", String.valueOf(100000 + i * 3));
+            doc.put("name", "item " + i);
+            docs.add(doc);
+        }
+        indexBuilderLucene.setDocs(docs);
+
+        indexBuilderLucene.fullTextSearchReindex(false, 10, 4);
+
+        assertEquals(50, genericFTSLucene.fullTextSearchCount(new MatchAllDocsQuery()));
+        assertEquals(50L, indexBuilderLucene.getFullTextIndexState().getLastIndexCount());
+        assertTrue(indexBuilderLucene.getFullTextIndexState().isFullTextSearchReindexCompleted());
+
+        // Reindex with fewer docs removes stale documents
+        indexBuilderLucene.setDocs(docs.subList(0, 20));
+
+        indexBuilderLucene.fullTextSearchReindex(false, 7, 3);
+
+        assertEquals(20, genericFTSLucene.fullTextSearchCount(new MatchAllDocsQuery()));
+        assertTrue(genericFTSLucene.fullTextSearch(new MatchAllDocsQuery()).contains(100057L));
+        assertFalse(genericFTSLucene.fullTextSearch(new MatchAllDocsQuery()).contains(100060L));
+
+    }
+
+    @Test
+    public void testFullTextSearchAfter() throws Exception {
+
+        indexBuilderLucene.setDocs(
+                (List) Arrays.asList(
+                        new HashMap<String, String>() {{
+                            put("_PK", "100000");
+                            put("name", "item one");
+                        }},
+                        new HashMap<String, String>() {{
+                            put("_PK", "100001");
+                            put("name", "item two");
+                        }},
+                        new HashMap<String, String>() {{
+                            put("_PK", "111111");
+                            put("name", "element three");
+                        }}
+                )
+        );
+
+        indexBuilderLucene.fullTextSearchReindex(false, 2);
+
+        Pair<Pair<List<Object[]>, Integer>, String> rez;
+
+        // First page, no token
+        rez = genericFTSLucene.fullTextSearchAfter(new MatchAllDocsQuery(), 0, 2, "name_sort", false, null, "_PK");
+        assertNotNull(rez);
+        assertEquals(Integer.valueOf(3), rez.getFirst().getSecond());
+        assertEquals(2, rez.getFirst().getFirst().size());
+        assertEquals("111111", rez.getFirst().getFirst().get(0)[0]);
+        assertEquals("100000", rez.getFirst().getFirst().get(1)[0]);
+        final String token = rez.getSecond();
+        assertNotNull(token);
+
+        // Second page, continue from token
+        rez = genericFTSLucene.fullTextSearchAfter(new MatchAllDocsQuery(), 2, 2, "name_sort", false, token, "_PK");
+        assertEquals(Integer.valueOf(3), rez.getFirst().getSecond());
+        assertEquals(1, rez.getFirst().getFirst().size());
+        assertEquals("100001", rez.getFirst().getFirst().get(0)[0]);
+        assertNull(rez.getSecond());
+
+        // Token issued for different sort is ignored, offset paging is used
+        rez = genericFTSLucene.fullTextSearchAfter(new MatchAllDocsQuery(), 2, 2, "name_sort", true, token, "_PK");
+        assertEquals(1, rez.getFirst().getFirst().size());
+        assertEquals("111111", rez.getFirst().getFirst().get(0)[0]);
+
+        // Token issued for different page is ignored, offset paging is used
+        rez = genericFTSLucene.fullTextSearchAfter(new MatchAllDocsQuery(), 1, 2, "name_sort", false, token, "_PK");
+        assertEquals(2, rez.getFirst().getFirst().size());
+        assertEquals("100000", rez.getFirst().getFirst().get(0)[0]);
+        assertEquals("100001", rez.getFirst().getFirst().get(1)[0]);
+
+        // Garbage token is ignored
+        rez = genericFTSLucene.fullTextSearchAfter(new MatchAllDocsQuery(), 2, 2, "name_sort", false, "garbage", "_PK");
+        assertEquals(1, rez.getFirst().getFirst().size());
+        assertEquals("100001", rez.getFirst().getFirst().get(0)[0]);
+
+    }
+
+    @Test
+    public void testFullTextSearchAfterWithoutPkDocValues() throws Exception {
+
+        indexBuilderLucene.setDocs(
+                (List) Arrays.asList(
+                        new HashMap<String, String>() {{
+                            put("_PK", "100000");
+                            put("name", "item one");
+                        }},
+                        new HashMap<String, String>() {{
+                            put("_PK", "100001");
+                            put("name", "item two");
+                        }}
+                )
+        );
+
+        indexBuilderLucene.fullTextSearchReindex(false, 2);
+
+        // document as written by older version, i.e. without PK doc values
+        final Document legacy = new Document();
+        legacy.add(new StringField(LuceneDocumentAdapterUtils.FIELD_PK, "111111", Field.Store.YES));
+        LuceneDocumentAdapterUtils.addSortField(legacy, "name_sort", "element three");
+        provider.provideIndexWriter().addDocument(legacy);
+        provider.provideIndexWriter().commit();
+        provider.refreshIndexIfNecessary();
+
+        Pair<Pair<List<Object[]>, Integer>, String> rez;
+
+        // Offset paging is used and no token is issued
+        rez = genericFTSLucene.fullTextSearchAfter(new MatchAllDocsQuery(), 0, 2, "name_sort", false, null, "_PK");
+        assertEquals(Integer.valueOf(3), rez.getFirst().getSecond());
+        assertEquals(2, rez.getFirst().getFirst().size());
+        assertEquals("111111", rez.getFirst().getFirst().get(0)[0]);
+        assertEquals("100000", rez.getFirst().getFirst().get(1)[0]);
+        assertNull(rez.getSecond());
+
+        rez = genericFTSLucene.fullTextSearchAfter(new MatchAllDocsQuery(), 2, 2, "name_sort", false, null, "_PK");
+        assertEquals(1, rez.getFirst().getFirst().size());
+        assertEquals("100001", rez.getFirst().getFirst().get(0)[0]);
+        assertNull(rez.getSecond());
+
     }
 
     @Test
@@ -485,6 +676,19 @@ public class FTSLuceneImplTest {
         checkFacetValue(facets, "other desc", 3);
         checkFacetValue(facets, "desc", 2);
 
+        // Facet states built once per index generation
+        assertEquals(2, provider.getFacetsStateCacheSize());
+        assertEquals(2L, provider.getFacetsStateCacheMisses());
+        assertEquals(4L, provider.getFacetsStateCacheHits());
+
+        // Reindex drops cached states
+        indexBuilderLucene.fullTextSearchReindex(false, 2);
+
+        rez = genericFTSLucene.fullTextSearchNavigation(new MatchAllDocsQuery(), fr);
+        assertEquals(3, rez.size());
+        assertEquals(2, provider.getFacetsStateCacheSize());
+        assertEquals(4L, provider.getFacetsStateCacheMisses());
+        assertEquals(4L, provider.getFacetsStateCacheHits());
 
     }
 
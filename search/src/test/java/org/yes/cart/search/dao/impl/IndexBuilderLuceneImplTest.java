@@ -0,0 +1,216 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.impl;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.yes.cart.dao.ResultsIterator;
+import org.yes.cart.domain.misc.Pair;
+import org.yes.cart.search.dao.BatchLuceneDocumentAdapter;
+import org.yes.cart.search.dao.entity.LuceneDocumentAdapterUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:30
+ */
+public class IndexBuilderLuceneImplTest {
+
+    private LuceneIndexProviderImpl provider;
+
+    @Before
+    public void setUp() throws Exception {
+        provider = new LuceneIndexProviderImpl("test", "ram");
+        provider.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        provider.destroy();
+    }
+
+    @Test
+    public void testFullReindexPrefetchesOncePerBatch() throws Exception {
+
+        final PrefetchingAdapter adapter = new PrefetchingAdapter(null);
+
+        newIndexBuilder(adapter, Arrays.asList(1L, 2L, 3L, 4L, 5L)).fullTextSearchReindex(false, 2);
+
+        assertEquals(3, adapter.batches.size());
+        assertEquals(Arrays.asList(1L, 2L), adapter.batches.get(0));
+        assertEquals(Arrays.asList(3L, 4L), adapter.batches.get(1));
+        assertEquals(Arrays.asList(5L), adapter.batches.get(2));
+        assertEquals(3, adapter.released);
+        assertNull(adapter.prefetched.get());
+
+        assertEquals(5, countDocs());
+
+    }
+
+    @Test
+    public void testFullReindexReleasesPrefetchOnFailure() throws Exception {
+
+        final PrefetchingAdapter adapter = new PrefetchingAdapter(3L);
+
+        newIndexBuilder(adapter, Arrays.asList(1L, 2L, 3L, 4L, 5L)).fullTextSearchReindex(false, 2);
+
+        // reindex stops at failed batch
+        assertEquals(2, adapter.batches.size());
+        assertEquals(2, adapter.released);
+        assertNull(adapter.prefetched.get());
+
+    }
+
+    @Test
+    public void testSingleReindexVisibleWhenNrtEnabled() throws Exception {
+
+        provider.destroy();
+        provider = new LuceneIndexProviderImpl("test", "ram");
+        provider.setNrtMaxStaleSec(60d); // do not let background reopen happen on its own
+        provider.setNrtMinStaleSec(0.01d);
+        provider.afterPropertiesSet();
+
+        final PrefetchingAdapter adapter = new PrefetchingAdapter(null);
+        adapter.prefetch(Arrays.asList(1L));
+
+        newIndexBuilder(adapter, Arrays.asList(1L)).fullTextSearchReindex(1L, false);
+
+        // single entity reindex waits for reopen, so change is visible straight away
+        assertEquals(1, countDocs());
+
+    }
+
+    private int countDocs() throws Exception {
+        final IndexSearcher searcher = provider.provideIndexReader();
+        try {
+            return searcher.count(new MatchAllDocsQuery());
+        } finally {
+            provider.releaseIndexReader(searcher);
+        }
+    }
+
+    private IndexBuilderLuceneImpl<Long, Long> newIndexBuilder(final PrefetchingAdapter adapter, final List<Long> entities) {
+
+        return new IndexBuilderLuceneImpl<Long, Long>(adapter, provider) {
+
+            @Override
+            protected Long findById(final Long primaryKey) {
+                return primaryKey;
+            }
+
+            @Override
+            protected Object startTx() {
+                return null;
+            }
+
+            @Override
+            protected ResultsIterator<Long> findAllIterator() {
+                final Iterator<Long> it = entities.iterator();
+                return new ResultsIterator<Long>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Long next() {
+                        return it.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("read only");
+                    }
+
+                    @Override
+                    public void close() {
+                        // nothing to release
+                    }
+                };
+            }
+
+            @Override
+            protected Long unproxyEntity(final Long entity) {
+                return entity;
+            }
+
+            @Override
+            protected void endBatch(final Object tx) {
+                // no tx
+            }
+
+            @Override
+            protected void endTx(final Object tx) {
+                // no tx
+            }
+        };
+
+    }
+
+    private static class PrefetchingAdapter implements BatchLuceneDocumentAdapter<Long, Long> {
+
+        private final ThreadLocal<List<Long>> prefetched = new ThreadLocal<List<Long>>();
+        private final List<List<Long>> batches = new ArrayList<List<Long>>();
+        private int released = 0;
+
+        private final Long failOn;
+
+        private PrefetchingAdapter(final Long failOn) {
+            this.failOn = failOn;
+        }
+
+        @Override
+        public void prefetch(final List<Long> entities) {
+            batches.add(new ArrayList<Long>(entities));
+            prefetched.set(new ArrayList<Long>(entities));
+        }
+
+        @Override
+        public void releasePrefetch() {
+            released++;
+            prefetched.remove();
+        }
+
+        @Override
+        public Pair<Long, Document[]> toDocument(final Long entity) {
+
+            assertNotNull("Entity must be adapted within prefetched batch", prefetched.get());
+            assertTrue(prefetched.get().contains(entity));
+
+            if (entity.equals(failOn)) {
+                throw new IllegalStateException("Failed to adapt " + entity);
+            }
+
+            final Document document = new Document();
+            LuceneDocumentAdapterUtils.addPkField(document, Long.class, String.valueOf(entity));
+            return new Pair<Long, Document[]>(entity, new Document[] { document });
+
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.impl;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 11:05
+ */
+public class LuceneIndexProviderImplTest {
+
+    @Test
+    public void testScheduleRefreshImmediateWhenNrtDisabled() throws Exception {
+
+        final LuceneIndexProviderImpl provider = new LuceneIndexProviderImpl("test", "ram");
+        provider.afterPropertiesSet();
+
+        try {
+
+            assertEquals(0, countDocs(provider));
+
+            provider.provideIndexWriter().addDocument(newDocument("1"));
+            provider.scheduleRefresh();
+
+            assertEquals(1, countDocs(provider));
+
+        } finally {
+            provider.destroy();
+        }
+
+    }
+
+    @Test
+    public void testWaitForGenerationWhenNrtEnabled() throws Exception {
+
+        final LuceneIndexProviderImpl provider = new LuceneIndexProviderImpl("test", "ram");
+        provider.setNrtMaxStaleSec(60d); // do not let background reopen happen on its own
+        provider.setNrtMinStaleSec(0.01d);
+        provider.afterPropertiesSet();
+
+        try {
+
+            provider.provideIndexWriter().addDocument(newDocument("1"));
+            provider.provideIndexWriter().addDocument(newDocument("2"));
+            final long generation = provider.scheduleRefresh();
+
+            provider.waitForGeneration(generation);
+
+            assertEquals(2, countDocs(provider));
+
+        } finally {
+            provider.destroy();
+        }
+
+    }
+
+    @Test
+    public void testFacetsStateCacheClearAndStats() throws Exception {
+
+        final LuceneIndexProviderImpl provider = new LuceneIndexProviderImpl("test", "ram");
+        provider.afterPropertiesSet();
+
+        try {
+
+            final Document document = newDocument("1");
+            document.add(new SortedSetDocValuesField("facet", new BytesRef("value")));
+            provider.provideIndexWriter().addDocument(document);
+            provider.scheduleRefresh();
+
+            final IndexSearcher searcher = provider.provideIndexReader();
+            try {
+
+                assertTrue(provider.isFacetsStateCacheStatsEnabled());
+
+                provider.provideFacetsState(searcher, "facet");
+                provider.provideFacetsState(searcher, "facet");
+
+                assertEquals(1, provider.getFacetsStateCacheSize());
+                assertEquals(1L, provider.getFacetsStateCacheHits());
+                assertEquals(1L, provider.getFacetsStateCacheMisses());
+
+                provider.clearFacetsStateCache();
+
+                assertEquals(0, provider.getFacetsStateCacheSize());
+
+                provider.setFacetsStateCacheStatsEnabled(false);
+                provider.provideFacetsState(searcher, "facet");
+
+                assertEquals(1, provider.getFacetsStateCacheSize());
+                assertEquals(1L, provider.getFacetsStateCacheMisses());
+
+                provider.setFacetsStateCacheStatsEnabled(true);
+                provider.provideFacetsState(searcher, "facet");
+
+                assertEquals(1L, provider.getFacetsStateCacheHits());
+                assertEquals(0L, provider.getFacetsStateCacheMisses());
+
+            } finally {
+                provider.releaseIndexReader(searcher);
+            }
+
+        } finally {
+            provider.destroy();
+        }
+
+    }
+
+    @Test
+    public void testFacetsStateCacheEvictedWhenReaderClosed() throws Exception {
+
+        final LuceneIndexProviderImpl provider = new LuceneIndexProviderImpl("test", "ram");
+        provider.afterPropertiesSet();
+
+        try {
+
+            final Document document = newDocument("1");
+            document.add(new SortedSetDocValuesField("facet", new BytesRef("value")));
+            provider.provideIndexWriter().addDocument(document);
+            provider.scheduleRefresh();
+
+            final IndexSearcher before = provider.provideIndexReader();
+            try {
+
+                provider.provideFacetsState(before, "facet");
+                assertEquals(1, provider.getFacetsStateCacheSize());
+
+                final Document other = newDocument("2");
+                other.add(new SortedSetDocValuesField("facet", new BytesRef("other")));
+                provider.provideIndexWriter().addDocument(other);
+                provider.scheduleRefresh();
+
+                assertEquals(0, provider.getFacetsStateCacheSize());
+
+                // searcher acquired before refresh puts its state back
+                provider.provideFacetsState(before, "facet");
+                assertEquals(1, provider.getFacetsStateCacheSize());
+
+            } finally {
+                provider.releaseIndexReader(before);
+            }
+
+            // last reference to old reader is released, so its state is evicted
+            assertEquals(0, provider.getFacetsStateCacheSize());
+
+        } finally {
+            provider.destroy();
+        }
+
+    }
+
+    @Test
+    public void testStoredValuesCacheClearAndStats() throws Exception {
+
+        final LuceneIndexProviderImpl provider = new LuceneIndexProviderImpl("test", "ram");
+        provider.afterPropertiesSet();
+
+        try {
+
+            provider.provideIndexWriter().addDocument(newDocument("1"));
+            provider.scheduleRefresh();
+
+            final IndexSearcher searcher = provider.provideIndexReader();
+            try {
+
+                final List<String> fields = Collections.singletonList("_PK");
+                final Map<String, Object> values = Collections.<String, Object>singletonMap("_PK", "1");
+
+                assertTrue(provider.isStoredValuesCacheStatsEnabled());
+
+                assertNull(provider.getStoredValues(searcher, 0, fields));
+                provider.putStoredValues(searcher, 0, values);
+                assertEquals(values, provider.getStoredValues(searcher, 0, fields));
+
+                assertEquals(1, provider.getStoredValuesCacheSize());
+                assertEquals(1L, provider.getStoredValuesCacheHits());
+                assertEquals(1L, provider.getStoredValuesCacheMisses());
+
+                provider.clearStoredValuesCache();
+
+                assertEquals(0, provider.getStoredValuesCacheSize());
+
+                provider.setStoredValuesCacheStatsEnabled(false);
+                assertNull(provider.getStoredValues(searcher, 0, fields));
+                provider.putStoredValues(searcher, 0, values);
+
+                assertEquals(1, provider.getStoredValuesCacheSize());
+                assertEquals(1L, provider.getStoredValuesCacheMisses());
+
+                provider.setStoredValuesCacheStatsEnabled(true);
+                assertEquals(values, provider.getStoredValues(searcher, 0, fields));
+
+                assertEquals(1L, provider.getStoredValuesCacheHits());
+                assertEquals(0L, provider.getStoredValuesCacheMisses());
+
+            } finally {
+                provider.releaseIndexReader(searcher);
+            }
+
+        } finally {
+            provider.destroy();
+        }
+
+    }
+
+    private Document newDocument(final String pk) {
+        final Document document = new Document();
+        document.add(new StringField("_PK", pk, Field.Store.YES));
+        return document;
+    }
+
+    private int countDocs(final LuceneIndexProviderImpl provider) throws Exception {
+        final IndexSearcher searcher = provider.provideIndexReader();
+        try {
+            return searcher.count(new MatchAllDocsQuery());
+        } finally {
+            provider.releaseIndexReader(searcher);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.impl;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.yes.cart.search.dao.entity.LuceneDocumentAdapterUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 20:10
+ */
+public class PrimaryKeyCollectorTest {
+
+    private Directory directory;
+    private IndexWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new RAMDirectory();
+        // keep segments as they are written, so that old and new segments can co-exist
+        writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        writer.close();
+        directory.close();
+    }
+
+    @Test
+    public void testCollectFromDocValues() throws Exception {
+
+        writer.addDocument(newDocument(10L, "a", true));
+        writer.addDocument(newDocument(20L, "b", true));
+        writer.addDocument(newDocument(30L, "a", true));
+        writer.commit();
+
+        assertEquals(Arrays.asList(10L, 30L), collect(new TermQuery(new Term("group", "a")), 1));
+
+        // more hits than initial capacity
+        for (long pk = 100L; pk < 140L; pk++) {
+            writer.addDocument(newDocument(pk, "c", true));
+        }
+        writer.commit();
+
+        final List<Long> pks = collect(new TermQuery(new Term("group", "c")), 1);
+        assertEquals(40, pks.size());
+        assertEquals(Long.valueOf(100L), pks.get(0));
+        assertEquals(Long.valueOf(139L), pks.get(39));
+
+    }
+
+    @Test
+    public void testCollectFromStoredFieldBeforeUpgrade() throws Exception {
+
+        writer.addDocument(newDocument(10L, "a", false));
+        writer.addDocument(newDocument(20L, "a", false));
+        writer.commit();
+
+        assertEquals(Arrays.asList(10L, 20L), collect(new TermQuery(new Term("group", "a")), 64));
+
+    }
+
+    @Test
+    public void testCollectFromMixedSegments() throws Exception {
+
+        // pre-upgrade segment
+        writer.addDocument(newDocument(10L, "a", false));
+        writer.addDocument(newDocument(20L, "b", false));
+        writer.commit();
+
+        // reindexed segment
+        writer.addDocument(newDocument(30L, "a", true));
+        writer.addDocument(newDocument(40L, "a", true));
+        writer.commit();
+
+        final DirectoryReader reader = DirectoryReader.open(directory);
+        try {
+            assertEquals(2, reader.leaves().size());
+        } finally {
+            reader.close();
+        }
+
+        final List<Long> pks = new ArrayList<Long>(collect(new MatchAllDocsQuery(), 1));
+        Collections.sort(pks);
+        assertEquals(Arrays.asList(10L, 20L, 30L, 40L), pks);
+
+    }
+
+    private List<Long> collect(final org.apache.lucene.search.Query query, final int expectedSize) throws Exception {
+
+        final DirectoryReader reader = DirectoryReader.open(directory);
+        try {
+            final PrimaryKeyCollector collector = new PrimaryKeyCollector(expectedSize);
+            new IndexSearcher(reader).search(query, collector);
+            assertEquals(collector.getSize(), collector.getPrimaryKeys().length);
+            return collector.getPrimaryKeysAsList();
+        } finally {
+            reader.close();
+        }
+
+    }
+
+    private Document newDocument(final long pk, final String group, final boolean pkDocValues) {
+        final Document document = new Document();
+        document.add(new StringField(LuceneDocumentAdapterUtils.FIELD_PK, String.valueOf(pk), Field.Store.YES));
+        if (pkDocValues) {
+            document.add(new NumericDocValuesField(LuceneDocumentAdapterUtils.FIELD_PK_VALUE, pk));
+        }
+        document.add(new StringField("group", group, Field.Store.NO));
+        return document;
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009 Denys Pavlov, Igor Azarnyi
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package org.yes.cart.search.dao.impl;
+
+import org.apache.lucene.search.SortField;
+import org.junit.Test;
+import org.yes.cart.search.query.ProductSearchQueryBuilder;
+import org.yes.cart.search.query.impl.SearchUtil;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: denispavlov
+ * Date: 18/10/2017
+ * Time: 14:40
+ */
+public class SortFieldRegistryImplTest {
+
+    @Test
+    public void testGetSortField() throws Exception {
+
+        final SortFieldRegistryImpl registry = new SortFieldRegistryImpl();
+
+        SortField sort;
+
+        sort = registry.getSortField(SearchUtil.priceFacetName(10L, "EUR") + "_sort", true);
+        assertEquals(SortField.Type.LONG, sort.getType());
+        assertTrue(sort.getReverse());
+        assertEquals(Long.MIN_VALUE, sort.getMissingValue());
+        assertEquals(SearchUtil.priceFacetName(10L, "EUR") + "_nsort", sort.getField());
+
+        sort = registry.getSortField(ProductSearchQueryBuilder.PRODUCT_CREATED_SORT_FIELD, false);
+        assertEquals(SortField.Type.LONG, sort.getType());
+        assertFalse(sort.getReverse());
+        assertEquals("createdTimestamp_nsort", sort.getField());
+
+        sort = registry.getSortField(ProductSearchQueryBuilder.PRODUCT_DISPLAYNAME_SORT_FIELD + "en", false);
+        assertEquals(SortField.Type.STRING, sort.getType());
+
+        sort = registry.getSortField(ProductSearchQueryBuilder.PRODUCT_NAME_SORT_FIELD, false);
+        assertEquals(SortField.Type.STRING, sort.getType());
+        assertEquals(ProductSearchQueryBuilder.PRODUCT_NAME_SORT_FIELD, sort.getField());
+
+        // price facet itself is not a sort field
+        sort = registry.getSortField(SearchUtil.priceFacetName(10L, "EUR"), false);
+        assertEquals(SortField.Type.STRING, sort.getType());
+
+    }
+
+}
@@ -41,6 +41,7 @@ public class SearchRO implements Serializable {
 
     private int pageNumber;
     private int pageSize;
+    private String pageToken;
 
     private String sortField;
     private boolean sortDescending;
@@ -82,6 +83,15 @@ public class SearchRO implements Serializable {
         this.pageSize = pageSize;
     }
 
+    @XmlElement(name = "page-token")
+    public String getPageToken() {
+        return pageToken;
+    }
+
+    public void setPageToken(final String pageToken) {
+        this.pageToken = pageToken;
+    }
+
     @XmlElement(name = "sort-field")
     public String getSortField() {
         return sortField;
@@ -39,6 +39,7 @@ public class SearchResultRO implements Serializable {
     private SearchRO search;
 
     private int totalResults;
+    private String nextPageToken;
 
     private String productImageWidth;
     private String productImageHeight;
@@ -70,6 +71,15 @@ public class SearchResultRO implements Serializable {
         this.totalResults = totalResults;
     }
 
+    @XmlElement(name = "next-page-token")
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public void setNextPageToken(final String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+
     @XmlElement(name = "product-image-width")
     public String getProductImageWidth() {
         return productImageWidth;
@@ -67,7 +67,7 @@ public class RESTLoginCommandImpl extends LoginCommandImpl {
     protected void recalculate(final MutableShoppingCart shoppingCart) {
 
         // This call will merge the cart
-        cartRepository.storeShoppingCart(shoppingCart);
+        cartRepository.flushShoppingCart(shoppingCart);
 
         super.recalculate(shoppingCart);
 
@@ -447,6 +447,8 @@ public class CustomerController {
         customer.setMiddlename(update.getMiddlename());
 
         customerServiceFacade.updateCustomerAttributes(shop, customer, valuesToUpdate);
+        customerServiceFacade.refreshCustomerSnapshot(cart);
+        cartMixin.persistShoppingCart(request, response);
 
         result.setCustomer(viewSummary(request, response));
 
@@ -47,6 +47,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -898,21 +899,27 @@ public class ProductController {
 
             final Pair<String, Boolean> symbol = currencySymbolService.getCurrencySymbol(cart.getCurrencyCode());
 
+            final List<ProductAvailabilityModel> skuPams = new ArrayList<ProductAvailabilityModel>();
+            final List<String> skuCodes = new ArrayList<String>();
             for (final ProductSearchResultDTO hit : productAssociations) {
-
                 final ProductAvailabilityModel skuPam = productServiceFacade.getProductAvailability(hit, cart.getShoppingContext().getCustomerShopId());
+                skuPams.add(skuPam);
+                skuCodes.add(skuPam.getFirstAvailableSkuCode());
+            }
+
+            final Map<String, ProductPriceModel> prices = productServiceFacade.getMinimalSkuPrices(cart, skuCodes, BigDecimal.ONE);
+
+            final Iterator<ProductAvailabilityModel> skuPamIt = skuPams.iterator();
+            for (final ProductSearchResultDTO hit : productAssociations) {
+
+                final ProductAvailabilityModel skuPam = skuPamIt.next();
 
                 final ProductSearchResultRO ro = mappingMixin.map(hit, ProductSearchResultRO.class, ProductSearchResultDTO.class);
 
                 final ProductAvailabilityModelRO amRo = mappingMixin.map(skuPam, ProductAvailabilityModelRO.class, ProductAvailabilityModel.class);
                 ro.setProductAvailabilityModel(amRo);
 
-                final ProductPriceModel price = productServiceFacade.getSkuPrice(
-                        cart,
-                        null,
-                        skuPam.getFirstAvailableSkuCode(),
-                        BigDecimal.ONE
-                );
+                final ProductPriceModel price = prices.get(skuPam.getFirstAvailableSkuCode());
 
                 final SkuPriceRO priceRo = mappingMixin.map(price, SkuPriceRO.class, ProductPriceModel.class);
                 priceRo.setSymbol(symbol.getFirst());
@@ -144,6 +144,10 @@ public class SearchController {
      * <p>
      * Note that if category is not specified and/or includeNavigation is false no filtered navigation will be generated in response. This is useful for simple searches such as "search suggest".
      * <p>
+     * For deep pagination pass "nextPageToken" from the previous response as "pageToken" (XML: page-token) together
+     * with the next page number. Such pages cost the same as the first page. Tokens that do not match the search or
+     * page number are ignored.
+     * <p>
      * <h3>Output</h3><p>
      * <table border="1">
      *     <tr><td>JSON object SearchResultRO</td><td>
@@ -310,6 +314,7 @@ public class SearchController {
      *     ]
      *   },
      *   "totalResults" : 3,
+     *   "nextPageToken" : null,
      *   "productImageWidth" : "280",
      *   "productImageHeight" : "280"
      * }
@@ -709,30 +714,37 @@ public class SearchController {
 
         ProductSearchResultPageDTO products = productServiceFacade.getListProducts(
                 context, result.getSearch().getPageNumber() * result.getSearch().getPageSize(), result.getSearch().getPageSize(),
-                result.getSearch().getSortField(), result.getSearch().getSortDescending());
+                result.getSearch().getSortField(), result.getSearch().getSortDescending(), result.getSearch().getPageToken());
 
         result.setTotalResults(products.getTotalHits());
+        result.setNextPageToken(products.getNextPageToken());
 
         final List<ProductSearchResultRO> ros = new ArrayList<ProductSearchResultRO>();
         if (CollectionUtils.isNotEmpty(products.getResults())) {
 
             final Pair<String, Boolean> symbol = currencySymbolService.getCurrencySymbol(cart.getCurrencyCode());
 
+            final List<ProductAvailabilityModel> skuPams = new ArrayList<ProductAvailabilityModel>();
+            final List<String> skuCodes = new ArrayList<String>();
             for (final ProductSearchResultDTO hit : products.getResults()) {
-
                 final ProductAvailabilityModel skuPam = productServiceFacade.getProductAvailability(hit, context.getShopId());
+                skuPams.add(skuPam);
+                skuCodes.add(skuPam.getFirstAvailableSkuCode());
+            }
+
+            final Map<String, ProductPriceModel> prices = productServiceFacade.getMinimalSkuPrices(cart, skuCodes, BigDecimal.ONE);
+
+            final Iterator<ProductAvailabilityModel> skuPamIt = skuPams.iterator();
+            for (final ProductSearchResultDTO hit : products.getResults()) {
+
+                final ProductAvailabilityModel skuPam = skuPamIt.next();
 
                 final ProductSearchResultRO ro = mappingMixin.map(hit, ProductSearchResultRO.class, ProductSearchResultDTO.class);
 
                 final ProductAvailabilityModelRO amRo = mappingMixin.map(skuPam, ProductAvailabilityModelRO.class, ProductAvailabilityModel.class);
                 ro.setProductAvailabilityModel(amRo);
 
-                final ProductPriceModel price = productServiceFacade.getSkuPrice(
-                        cart,
-                        null,
-                        skuPam.getFirstAvailableSkuCode(),
-                        BigDecimal.ONE
-                );
+                final ProductPriceModel price = prices.get(skuPam.getFirstAvailableSkuCode());
 
                 final SkuPriceRO priceRo = mappingMixin.map(price, SkuPriceRO.class, ProductPriceModel.class);
                 priceRo.setSymbol(symbol.getFirst());
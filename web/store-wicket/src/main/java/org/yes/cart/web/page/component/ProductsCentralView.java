@@ -24,6 +24,7 @@ import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.yes.cart.domain.dto.ProductSearchResultDTO;
 import org.yes.cart.domain.dto.ProductSearchResultPageDTO;
+import org.yes.cart.domain.entity.ProductPriceModel;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.search.dto.NavigationContext;
 import org.yes.cart.web.page.component.data.SortableProductDataProvider;
@@ -39,7 +40,10 @@ import org.yes.cart.web.support.constants.StorefrontServiceSpringKeys;
 import org.yes.cart.web.support.constants.WebParametersKeys;
 import org.yes.cart.web.support.service.ProductServiceFacade;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -124,10 +128,11 @@ public class ProductsCentralView extends AbstractCentralView {
 
         final int selectedItemPerPage = pagination.getCurrentItemsPerPage(pageParameters, itemsPerPageValues);
         final Pair<String, Boolean> sortResult = getSortField();
+        final String pageToken = pageParameters.get(WebParametersKeys.PAGE_TOKEN).toString();
 
         ProductSearchResultPageDTO products = productServiceFacade.getListProducts(
                 context, currentPageIdx * selectedItemPerPage, selectedItemPerPage,
-                sortResult.getFirst(), sortResult.getSecond());
+                sortResult.getFirst(), sortResult.getSecond(), pageToken);
 
         if (currentPageIdx * selectedItemPerPage > products.getTotalHits()) {
             // if we have gone overboard restart from 0 by redirect!
@@ -138,13 +143,20 @@ public class ProductsCentralView extends AbstractCentralView {
 
         final boolean hasResults = products.getTotalHits() > 0L;
 
-        final SortableProductDataProvider dataProvider = new SortableProductDataProvider(products);
+        // Resolve prices for the whole page in one go rather than per product view
+        final List<String> defaultSkuCodes = new ArrayList<String>(products.getResults().size());
+        for (final ProductSearchResultDTO product : products.getResults()) {
+            defaultSkuCodes.add(product.getDefaultSkuCode());
+        }
+        final Map<String, ProductPriceModel> prices = productServiceFacade.getMinimalSkuPrices(getCurrentCart(), defaultSkuCodes, BigDecimal.ONE);
+
+        final SortableProductDataProvider dataProvider = new SortableProductDataProvider(products, prices);
 
         final GridView<ProductSearchResultDTO> productDataView = new GridView<ProductSearchResultDTO>(PRODUCT_LIST, dataProvider) {
 
             protected void populateItem(Item<ProductSearchResultDTO> productItem) {
                 productItem.add(
-                        new ProductInListView(PRODUCT, productItem.getModelObject(), widthHeight)
+                        new ProductInListView(PRODUCT, productItem.getModelObject(), dataProvider.getPrice(productItem.getModelObject()), widthHeight)
                 );
             }
 
@@ -162,8 +174,8 @@ public class ProductsCentralView extends AbstractCentralView {
         productDataView.setCurrentPage(currentPageIdx);
 
         add(new ProductSorter(SORTER, pageSortingValues).setVisible(hasResults));
-        add(new URLPagingNavigator(PAGINATOR, productDataView, getPage().getPageParameters()).setVisible(hasResults));
-        add(new URLPagingNavigator(PAGINATOR2, productDataView, getPage().getPageParameters()).setVisible(hasResults));
+        add(new URLPagingNavigator(PAGINATOR, productDataView, getPage().getPageParameters(), products.getNextPageToken()).setVisible(hasResults));
+        add(new URLPagingNavigator(PAGINATOR2, productDataView, getPage().getPageParameters(), products.getNextPageToken()).setVisible(hasResults));
         add(new ProductPerPageListView(ITEMS_PER_PAGE_LIST, itemsPerPageValues).setVisible(hasResults));
         add(productDataView.setVisible(hasResults));
 
@@ -134,6 +134,7 @@ public class DynaFormPanel extends BaseComponent {
                 }
 
                 customerService.updateCustomerAttributes(getCurrentShop(), customer, values);
+                customerService.refreshCustomerSnapshot(getCurrentCart());
                 info(getLocalizer().getString("profileUpdated", this));
             }
         };
@@ -20,8 +20,11 @@ import org.apache.wicket.extensions.markup.html.repeater.util.SortableDataProvid
 import org.apache.wicket.model.IModel;
 import org.yes.cart.domain.dto.ProductSearchResultDTO;
 import org.yes.cart.domain.dto.ProductSearchResultPageDTO;
+import org.yes.cart.domain.entity.ProductPriceModel;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -34,6 +37,8 @@ public class SortableProductDataProvider extends SortableDataProvider<ProductSea
 
     private ProductSearchResultPageDTO products;
 
+    private Map<String, ProductPriceModel> prices;
+
 
     /**
      * Construct product data provider.
@@ -41,7 +46,30 @@ public class SortableProductDataProvider extends SortableDataProvider<ProductSea
      * @param products products page.
      */
     public SortableProductDataProvider(final ProductSearchResultPageDTO products) {
+        this(products, Collections.<String, ProductPriceModel>emptyMap());
+    }
+
+    /**
+     * Construct product data provider.
+     *
+     * @param products products page.
+     * @param prices   prices for default SKU of products on this page (resolved in single pass)
+     */
+    public SortableProductDataProvider(final ProductSearchResultPageDTO products,
+                                       final Map<String, ProductPriceModel> prices) {
         this.products = products;
+        this.prices = prices;
+    }
+
+    /**
+     * Get prefetched price for default SKU of given product.
+     *
+     * @param product product on this page
+     *
+     * @return price or null if price was not prefetched
+     */
+    public ProductPriceModel getPrice(final ProductSearchResultDTO product) {
+        return prices.get(product.getDefaultSkuCode());
     }
 
     public Iterator<? extends ProductSearchResultDTO> iterator(int first, int count) {
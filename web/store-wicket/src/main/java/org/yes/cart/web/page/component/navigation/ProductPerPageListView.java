@@ -68,6 +68,7 @@ public class ProductPerPageListView extends ListView<String> {
 
         final PageParameters params = links.getFilteredCurrentParameters(pageParameters);
         params.set(WebParametersKeys.QUANTITY, pageSize);
+        params.remove(WebParametersKeys.PAGE_TOKEN);
 
         final Link pageSizeLink = links.newLink(ITEMS_PER_PAGE, params);
         pageSizeLink.add(label);
@@ -108,6 +108,7 @@ public class ProductSorter extends BaseComponent {
         params.remove(WebParametersKeys.SORT);
         params.remove(WebParametersKeys.SORT_REVERSE);
         params.set(WebParametersKeys.PAGE, "0");
+        params.remove(WebParametersKeys.PAGE_TOKEN);
         params.add(sortOrder, sortField);
 
         final Link rez = links.newLink(id, params);
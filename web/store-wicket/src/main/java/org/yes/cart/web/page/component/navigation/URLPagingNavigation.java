@@ -38,9 +38,18 @@ import org.yes.cart.web.support.constants.WebParametersKeys;
  */
 public class URLPagingNavigation extends PagingNavigation {
 
+    private final String nextPageToken;
 
     public URLPagingNavigation(final String s, final IPageable iPageable, final IPagingLabelProvider iPagingLabelProvider) {
+        this(s, iPageable, iPagingLabelProvider, null);
+    }
+
+    public URLPagingNavigation(final String s,
+                               final IPageable iPageable,
+                               final IPagingLabelProvider iPagingLabelProvider,
+                               final String nextPageToken) {
         super(s, iPageable, iPagingLabelProvider);
+        this.nextPageToken = nextPageToken;
         setViewSize(5);
     }
 
@@ -54,6 +63,10 @@ public class URLPagingNavigation extends PagingNavigation {
 
         final PageParameters pageParameters = links.getFilteredCurrentParameters(getPage().getPageParameters());
         pageParameters.set(WebParametersKeys.PAGE, pageIndex);
+        pageParameters.remove(WebParametersKeys.PAGE_TOKEN);
+        if (nextPageToken != null && pageIndex == pageable.getCurrentPage() + 1) {
+            pageParameters.set(WebParametersKeys.PAGE_TOKEN, nextPageToken);
+        }
 
         final Link rez = links.newLink(id, pageParameters);
         if (pagination.markSelectedPageLink(rez, getPage().getPageParameters(), pageIndex)) {
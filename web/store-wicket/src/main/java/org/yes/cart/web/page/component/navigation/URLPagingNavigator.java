@@ -39,19 +39,36 @@ public class URLPagingNavigator   extends PagingNavigator {
     private final IPagingLabelProvider labelProvider;
     private PagingNavigation pagingNavigation;
     private final PageParameters pageParameters;
+    private final String nextPageToken;
 
 
     public URLPagingNavigator(final String s, final IPageable iPageable, final PageParameters pageParameters) {
-        this(s, iPageable, null, pageParameters);
+        this(s, iPageable, null, pageParameters, null);
+    }
+
+    public URLPagingNavigator(final String s, final IPageable iPageable, final PageParameters pageParameters, final String nextPageToken) {
+        this(s, iPageable, null, pageParameters, nextPageToken);
     }
 
     public URLPagingNavigator(final String s,
                               final IPageable iPageable,
                               final IPagingLabelProvider iPagingLabelProvider,
                               final PageParameters pageParameters) {
+        this(s, iPageable, iPagingLabelProvider, pageParameters, null);
+    }
+
+    /**
+     * @param nextPageToken continuation token for the next page (added to links pointing to next page only)
+     */
+    public URLPagingNavigator(final String s,
+                              final IPageable iPageable,
+                              final IPagingLabelProvider iPagingLabelProvider,
+                              final PageParameters pageParameters,
+                              final String nextPageToken) {
         super(s, iPageable, iPagingLabelProvider);
         this.labelProvider = iPagingLabelProvider;
         this.pageParameters = pageParameters;
+        this.nextPageToken = nextPageToken;
     }
 
     /**
@@ -60,7 +77,7 @@ public class URLPagingNavigator   extends PagingNavigator {
     protected PagingNavigation newNavigation(final String id,
                                              final IPageable pageable,
                                              final IPagingLabelProvider labelProvider) {
-        return new URLPagingNavigation(id, pageable, labelProvider);
+        return new URLPagingNavigation(id, pageable, labelProvider, nextPageToken);
     }
 
     /**
@@ -71,6 +88,10 @@ public class URLPagingNavigator   extends PagingNavigator {
         final LinksSupport links = ((AbstractWebPage) getPage()).getWicketSupportFacade().links();
         final PageParameters map = links.getFilteredCurrentParameters(pageParameters);
         map.set(WebParametersKeys.PAGE, pageable.getCurrentPage() + increment);
+        map.remove(WebParametersKeys.PAGE_TOKEN);
+        if (nextPageToken != null && increment == 1) {
+            map.set(WebParametersKeys.PAGE_TOKEN, nextPageToken);
+        }
 
         return (AbstractLink) links.newLink(id, map).add(new AttributeModifier("class", "nav-page-control"));
 
@@ -95,6 +116,10 @@ public class URLPagingNavigator   extends PagingNavigator {
         }
 
         params.set(WebParametersKeys.PAGE, pNum);
+        params.remove(WebParametersKeys.PAGE_TOKEN);
+        if (nextPageToken != null && pNum == pageable.getCurrentPage() + 1) {
+            params.set(WebParametersKeys.PAGE_TOKEN, nextPageToken);
+        }
 
         return (AbstractLink) links.newLink(id, params).add(new AttributeModifier("class", "nav-page-control " + id));
 
@@ -70,6 +70,7 @@ public class ProductInListView extends BaseComponent {
 
     private final ProductSearchResultDTO product;
     private final ProductSkuSearchResultDTO sku;
+    private final ProductPriceModel price;
 
     @SpringBean(name = StorefrontServiceSpringKeys.PRODUCT_IMAGE_SERVICE)
     private AttributableImageService attributableImageService;
@@ -88,9 +89,22 @@ public class ProductInListView extends BaseComponent {
      * @param defImgSize image size in given category
      */
     public ProductInListView(final String id, final ProductSearchResultDTO product, final Pair<String, String> defImgSize) {
+        this(id, product, null, defImgSize);
+    }
+
+    /**
+     * Construct product view, that show product in grid.
+     *
+     * @param id         view id
+     * @param product    product model
+     * @param price      prefetched price for default SKU (optional, resolved by this view if null)
+     * @param defImgSize image size in given category
+     */
+    public ProductInListView(final String id, final ProductSearchResultDTO product, final ProductPriceModel price, final Pair<String, String> defImgSize) {
         super(id);
         this.product = product;
         this.sku = resolveDefaultSku(product);
+        this.price = price;
         this.defImgSize = defImgSize;
     }
 
@@ -176,9 +190,13 @@ public class ProductInListView extends BaseComponent {
 
     private PriceView getPriceView(final ProductAvailabilityModel skuPam) {
 
-        final ShoppingCart cart = getCurrentCart();
-
-        final ProductPriceModel model = productServiceFacade.getSkuPrice(cart, null, skuPam.getDefaultSkuCode(), BigDecimal.ONE);
+        final ProductPriceModel model;
+        if (price != null) {
+            model = price;
+        } else {
+            final ShoppingCart cart = getCurrentCart();
+            model = productServiceFacade.getSkuPrice(cart, null, skuPam.getDefaultSkuCode(), BigDecimal.ONE);
+        }
 
         return new PriceView(PRICE_VIEW, model, null, true, true, model.isTaxInfoEnabled(), model.isTaxInfoShowAmount());
     }
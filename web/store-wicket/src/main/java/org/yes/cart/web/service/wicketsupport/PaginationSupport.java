@@ -119,7 +119,7 @@ public interface PaginationSupport {
 
 
     /**
-     * Remove page parameter.
+     * Remove page parameter (and page continuation token).
      *
      * @param pageParameters copy current page parameters.
      */
@@ -120,5 +120,6 @@ public class PaginationSupportImpl implements PaginationSupport {
     @Override
     public void removePageParam(final PageParameters pageParameters) {
         pageParameters.remove(WebParametersKeys.PAGE);
+        pageParameters.remove(WebParametersKeys.PAGE_TOKEN);
     }
 }
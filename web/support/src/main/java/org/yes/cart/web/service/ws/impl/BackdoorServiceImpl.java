@@ -43,6 +43,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User: Igor Azarny iazarny@yahoo.com
@@ -135,6 +136,16 @@ public class BackdoorServiceImpl implements BackdoorService {
      * {@inheritDoc}
      */
     public void reindexAllProducts() {
+        reindexAllProducts(getProductIndexBatchSize(), getProductIndexWorkers());
+    }
+
+    /**
+     * Reindex all products.
+     *
+     * @param batchSize batch size
+     * @param workers   number of parallel workers
+     */
+    void reindexAllProducts(final int batchSize, final int workers) {
         if (!isLuceneIndexDisabled()) {
 
             try {
@@ -150,7 +161,7 @@ public class BackdoorServiceImpl implements BackdoorService {
                 LOG.error("Unable to update JOB_PRODINVUP_LR_X: " + exp.getMessage(), exp);
             }
 
-            productService.reindexProducts(getProductIndexBatchSize());
+            productService.reindexProducts(batchSize, workers, true);
         }
     }
 
@@ -158,8 +169,18 @@ public class BackdoorServiceImpl implements BackdoorService {
      * {@inheritDoc}
      */
     public void reindexAllProductsSku() {
+        reindexAllProductsSku(getProductIndexBatchSize(), getProductIndexWorkers());
+    }
+
+    /**
+     * Reindex all SKU.
+     *
+     * @param batchSize batch size
+     * @param workers   number of parallel workers
+     */
+    void reindexAllProductsSku(final int batchSize, final int workers) {
         if (!isLuceneIndexDisabled()) {
-            productService.reindexProductsSku(getProductIndexBatchSize());
+            productService.reindexProductsSku(batchSize, workers, true);
         }
     }
 
@@ -338,14 +359,16 @@ public class BackdoorServiceImpl implements BackdoorService {
         this.nodeService.subscribe("BackdoorService.reindexAllProducts", new MessageListener() {
             @Override
             public Serializable onMessageReceived(final Message message) {
-                BackdoorServiceImpl.this.reindexAllProducts();
+                final Serializable payload = message.getPayload();
+                BackdoorServiceImpl.this.reindexAllProducts(getProductIndexBatchSize(payload), getProductIndexWorkers(payload));
                 return "OK";
             }
         });
         this.nodeService.subscribe("BackdoorService.reindexAllProductsSku", new MessageListener() {
             @Override
             public Serializable onMessageReceived(final Message message) {
-                BackdoorServiceImpl.this.reindexAllProductsSku();
+                final Serializable payload = message.getPayload();
+                BackdoorServiceImpl.this.reindexAllProductsSku(getProductIndexBatchSize(payload), getProductIndexWorkers(payload));
                 return "OK";
             }
         });
@@ -456,6 +479,38 @@ public class BackdoorServiceImpl implements BackdoorService {
         return NumberUtils.toInt(systemService.getAttributeValue(AttributeNamesKeys.System.JOB_REINDEX_PRODUCT_BATCH_SIZE), 100);
     }
 
+    private int getProductIndexWorkers() {
+        return NumberUtils.toInt(systemService.getAttributeValue(AttributeNamesKeys.System.JOB_REINDEX_PRODUCT_WORKERS), 1);
+    }
+
+    /*
+     * Batch size override sent from manager reindex screen (system configuration is used if not specified).
+     * Older managers send shop PK (or null) instead of override map.
+     */
+    private int getProductIndexBatchSize(final Serializable payload) {
+        if (payload instanceof Map && ((Map) payload).get("batchSize") != null) {
+            final int batchSize = NumberUtils.toInt(String.valueOf(((Map) payload).get("batchSize")), 0);
+            if (batchSize > 0) {
+                return batchSize;
+            }
+        }
+        return getProductIndexBatchSize();
+    }
+
+    /*
+     * Workers override sent from manager reindex screen (system configuration is used if not specified).
+     * Older managers send shop PK (or null) instead of override map.
+     */
+    private int getProductIndexWorkers(final Serializable payload) {
+        if (payload instanceof Map && ((Map) payload).get("workers") != null) {
+            final int workers = NumberUtils.toInt(String.valueOf(((Map) payload).get("workers")), 0);
+            if (workers > 0) {
+                return workers;
+            }
+        }
+        return getProductIndexWorkers();
+    }
+
     private BackdoorService self;
 
     private BackdoorService self() {
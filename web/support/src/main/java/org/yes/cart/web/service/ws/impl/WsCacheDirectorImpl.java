@@ -25,6 +25,7 @@ import org.yes.cart.web.service.ws.CacheDirector;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Service responsible  to evict particular cache(s) depending on entity and operation.
@@ -106,6 +107,20 @@ public class WsCacheDirectorImpl extends CacheDirectorImpl implements CacheDirec
 
             }
         });
+        nodeService.subscribe("CacheDirector.onCacheableBulkChange", new MessageListener() {
+            @Override
+            public Serializable onMessageReceived(final Message message) {
+
+                final Map<String, Object> payload = (Map<String, Object>) message.getPayload();
+
+                return WsCacheDirectorImpl.this.onCacheableBulkChange(
+                        (Set<String>) payload.get("evictAll"),
+                        (Map<String, Set<Long>>) payload.get("evictKeys"),
+                        (Map<String, Set<String>>) payload.get("evictTags")
+                );
+
+            }
+        });
     }
 
 }
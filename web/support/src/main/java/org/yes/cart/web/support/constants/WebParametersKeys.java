@@ -108,6 +108,11 @@ public interface WebParametersKeys {
 
     String PAGE = "page";
 
+    /**
+     * Continuation token for search after pagination (valid only for page it was issued for).
+     */
+    String PAGE_TOKEN = "pageToken";
+
     String SORT = "sorta";
 
     String SORT_REVERSE = "sortd";
@@ -215,6 +215,14 @@ public interface CustomerServiceFacade {
      */
     void updateCustomerAttributes(Shop profileShop, Customer customer, Map<String, String> values);
 
+    /**
+     * Discard customer snapshot held by the cart, so that next cart calculation uses latest
+     * customer profile. Must be invoked after customer profile is updated.
+     *
+     * @param cart current cart
+     */
+    void refreshCustomerSnapshot(ShoppingCart cart);
+
 
     /**
      * Get customer public key information. Default format is PUBLICKEY-LASTNAME.
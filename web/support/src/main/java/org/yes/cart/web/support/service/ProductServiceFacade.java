@@ -26,6 +26,7 @@ import org.yes.cart.shoppingcart.ShoppingCart;
 import org.yes.cart.domain.entity.ProductPriceModel;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -220,6 +221,26 @@ public interface ProductServiceFacade {
                                                String sortFieldName,
                                                boolean descendingSort);
 
+    /**
+     * Get the all products , that match the given query. Continuation token from previous page
+     * (see {@link ProductSearchResultPageDTO#getNextPageToken()}) allows to retrieve deep pages
+     * at the same cost as the first page.
+     *
+     * @param context       navigation context
+     * @param firstResult   index of first result
+     * @param maxResults    quantity results to return
+     * @param sortFieldName sort field name (specify null for no sorting)
+     * @param descendingSort sort the search result in reverse if true
+     * @param pageToken     continuation token (optional)
+     * @return list of products
+     */
+    ProductSearchResultPageDTO getListProducts(NavigationContext context,
+                                               int firstResult,
+                                               int maxResults,
+                                               String sortFieldName,
+                                               boolean descendingSort,
+                                               String pageToken);
+
     /**
      * Get product availability.
      *
@@ -330,6 +351,19 @@ public interface ProductServiceFacade {
      */
     ProductPriceModel getSkuPrice(ShoppingCart cart, Long productId, String skuCode, BigDecimal quantity);
 
+    /**
+     * Get currently active SKU prices (or blank objects) for multiple SKU in single pass with respect
+     * to current shop tax display settings. Equivalent to calling {@link #getSkuPrice(ShoppingCart, Long, String, BigDecimal)}
+     * for each SKU, intended for listings.
+     *
+     * @param cart      current cart
+     * @param skuCodes  SKU codes
+     * @param quantity  quantity tier
+     *
+     * @return active SKU price (or blank object) for each SKU code (same order as in request)
+     */
+    Map<String, ProductPriceModel> getMinimalSkuPrices(ShoppingCart cart, Collection<String> skuCodes, BigDecimal quantity);
+
     /**
      * Get price model (or blank object) with respect to current shop tax display settings.
      *
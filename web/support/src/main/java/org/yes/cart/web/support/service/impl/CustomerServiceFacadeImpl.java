@@ -25,6 +25,8 @@ import org.yes.cart.domain.entity.*;
 import org.yes.cart.domain.i18n.I18NModel;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.service.domain.*;
+import org.yes.cart.shoppingcart.MutableShoppingCart;
+import org.yes.cart.shoppingcart.MutableShoppingContext;
 import org.yes.cart.shoppingcart.ShoppingCart;
 import org.yes.cart.web.support.service.CustomerServiceFacade;
 
@@ -372,6 +374,20 @@ public class CustomerServiceFacadeImpl implements CustomerServiceFacade {
         customerService.update(customer);
     }
 
+    /** {@inheritDoc} */
+    public void refreshCustomerSnapshot(final ShoppingCart cart) {
+
+        if (cart instanceof MutableShoppingCart) {
+            final MutableShoppingContext ctx = ((MutableShoppingCart) cart).getShoppingContext();
+            if (ctx.getCustomerSnapshot() != null) {
+                // snapshot is captured again on next calculation
+                ctx.setCustomerSnapshot(null);
+                ((MutableShoppingCart) cart).markDirty();
+            }
+        }
+
+    }
+
     /** {@inheritDoc} */
     public String getCustomerPublicKey(final Customer customer) {
         if (StringUtils.isBlank(customer.getPublicKey())) {
@@ -285,6 +285,32 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
                 context, firstResult, maxResults, sortFieldName, descendingSort
         ).copy(); // MUST BE COPY for each search as we are setting relevant SKU list
 
+        populateSkus(context, result);
+        return result;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ProductSearchResultPageDTO getListProducts(final NavigationContext context,
+                                                      final int firstResult,
+                                                      final int maxResults,
+                                                      final String sortFieldName,
+                                                      final boolean descendingSort,
+                                                      final String pageToken) {
+
+        final ProductSearchResultPageDTO result = productService.getProductSearchResultDTOByQuery(
+                context, firstResult, maxResults, sortFieldName, descendingSort, pageToken
+        ).copy(); // MUST BE COPY for each search as we are setting relevant SKU list
+
+        populateSkus(context, result);
+        return result;
+
+    }
+
+    private void populateSkus(final NavigationContext context, final ProductSearchResultPageDTO result) {
+
         if (!result.getResults().isEmpty()) {
 
             final NavigationContext skuContext = searchQueryFactory.getSkuSnowBallQuery(context, result.getResults());
@@ -306,7 +332,6 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
                 product.setSkus(skuMap.get(product.getId()));
             }
         }
-        return result;
 
     }
 
@@ -422,6 +447,42 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
     }
 
 
+    /**
+     * Bulk version of {@link #resolveMinimalPrice(ShoppingCart, Long, String, BigDecimal)}.
+     *
+     * @param cart      cart
+     * @param skus      skus to resolve price for
+     * @param qty       quantity
+     *
+     * @return resolved SKU prices
+     */
+    protected Map<String, SkuPrice> resolveMinimalPrices(final ShoppingCart cart,
+                                                         final Collection<String> skus,
+                                                         final BigDecimal qty) {
+
+        final long customerShopId = cart.getShoppingContext().getCustomerShopId();
+        final long masterShopId = cart.getShoppingContext().getShopId();
+        // Fallback only if we have a B2B non-strict mode
+        final Long fallbackShopId = masterShopId == customerShopId || shopService.getById(customerShopId).isB2BStrictPriceActive() ? null : masterShopId;
+        final String shopCode = cart.getShoppingContext().getShopCode();
+        final String currency = cart.getCurrencyCode();
+
+        // Policy is setup on master
+        final PricingPolicyProvider.PricingPolicy policy = pricingPolicyProvider.determinePricingPolicy(
+                shopCode, currency, cart.getCustomerEmail(),
+                cart.getShoppingContext().getCountryCode(),
+                cart.getShoppingContext().getStateCode()
+        );
+
+        final Map<String, BigDecimal> skuQuantities = new LinkedHashMap<String, BigDecimal>(skus.size() * 2);
+        for (final String sku : skus) {
+            skuQuantities.put(sku, qty);
+        }
+
+        return priceResolver.getMinimalPrices(skuQuantities, customerShopId, fallbackShopId, currency, false, policy.getID());
+
+    }
+
     /**
      * We resolve prices from current customer shop first. In simple setup this would be the same as the master.
      * In case current and master differs we are in B2B mode, so we check if we are not in strict profile and
@@ -569,6 +630,52 @@ public class ProductServiceFacadeImpl implements ProductServiceFacade {
         return getNullProductPriceModel(currency);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, ProductPriceModel> getMinimalSkuPrices(final ShoppingCart cart,
+                                                              final Collection<String> skuCodes,
+                                                              final BigDecimal quantity) {
+
+        if (CollectionUtils.isEmpty(skuCodes)) {
+            return Collections.emptyMap();
+        }
+
+        final String currency = cart.getCurrencyCode();
+
+        final Set<String> resolvable = new LinkedHashSet<String>();
+        for (final String skuCode : skuCodes) {
+            if (skuCode != null) {
+                resolvable.add(skuCode);
+            }
+        }
+
+        final Map<String, SkuPrice> resolved;
+        if (cart.getShoppingContext().isHidePrices() || resolvable.isEmpty()) {
+            resolved = Collections.emptyMap();
+        } else {
+            resolved = resolveMinimalPrices(cart, resolvable, quantity);
+        }
+
+        final Map<String, ProductPriceModel> models = new LinkedHashMap<String, ProductPriceModel>(skuCodes.size() * 2);
+        for (final String skuCode : skuCodes) {
+            final SkuPrice price = resolved.get(skuCode);
+            if (price != null) {
+                models.put(skuCode, getSkuPrice(
+                        cart,
+                        price.getSkuCode(),
+                        price.getQuantity(),
+                        price.getRegularPrice(),
+                        price.getSalePriceForCalculation()
+                ));
+            } else {
+                models.put(skuCode, getNullProductPriceModel(currency));
+            }
+        }
+        return models;
+
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -23,14 +23,13 @@ import org.springframework.cache.CacheManager;
 import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.yes.cart.cache.CacheEntityChangeHandler;
 import org.yes.cart.domain.dto.impl.CacheInfoDTOImpl;
 import org.yes.cart.domain.misc.Pair;
 import org.yes.cart.web.service.ws.CacheDirector;
 
 import javax.naming.NamingException;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 import static junit.framework.Assert.*;
 
@@ -166,5 +165,97 @@ public class WsCacheDirectorImplTest {
         assertNotNull(cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").get("hi"));
     }
 
+    @Test
+    public void testOnCacheableBulkChange() {
+        cacheDirector.getCacheManager().getCache("attributeService-availableAttributesByProductTypeId").put("hi", "there");
+        cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").put("hi", "there");
+        cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").put(10L, "ten");
+        cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").put(11L, "eleven");
+        final Map<String, Set<Long>> keys = new HashMap<String, Set<Long>>();
+        keys.put("categoryService-categoryHasSubcategory", new HashSet<Long>(Arrays.asList(10L, 12L)));
+        keys.put("attributeService-availableAttributesByProductTypeId", new HashSet<Long>(Arrays.asList(1L)));
+        final int cnt = cacheDirector.onCacheableBulkChange(
+                Collections.singleton("attributeService-availableAttributesByProductTypeId"), keys, null);
+        assertEquals(3, cnt);
+        assertNull(cacheDirector.getCacheManager().getCache("attributeService-availableAttributesByProductTypeId").get("hi"));
+        assertNotNull(cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").get("hi"));
+        assertNull(cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").get(10L));
+        assertNotNull(cacheDirector.getCacheManager().getCache("categoryService-categoryHasSubcategory").get(11L));
+    }
+
+    @Test
+    public void testOnCacheableBulkChangeEntityChangeHandler() {
+        final List<String> applied = new ArrayList<String>();
+        final boolean[] patch = new boolean[] { true };
+        cacheDirector.setEntityChangeHandlers(Collections.<String, CacheEntityChangeHandler>singletonMap(
+                "priceService-priceBook",
+                new CacheEntityChangeHandler() {
+                    @Override
+                    public boolean onEntityChange(final String cacheName, final String entityName, final Object pkValue) {
+                        applied.add(cacheName + "|" + entityName + "|" + pkValue);
+                        return patch[0];
+                    }
+
+                    @Override
+                    public boolean onEntityChanges(final String cacheName, final String entityName, final Collection<?> pkValues) {
+                        applied.add(cacheName + "|" + entityName + "|" + pkValues);
+                        return patch[0];
+                    }
+                }));
+
+        final Map<String, Set<String>> tags = new HashMap<String, Set<String>>();
+        tags.put("priceService-priceBook", Collections.singleton("SkuPriceEntity:10"));
+
+        cacheDirector.getCacheManager().getCache("priceService-priceBook").put("SHOP10:EUR", "book");
+        cacheDirector.onCacheableBulkChange(null, null, tags);
+        assertEquals(Arrays.asList("priceService-priceBook|SkuPriceEntity|[10]"), applied);
+        assertNotNull(cacheDirector.getCacheManager().getCache("priceService-priceBook").get("SHOP10:EUR"));
+
+        patch[0] = false;
+        cacheDirector.onCacheableBulkChange(null, null, tags);
+        assertEquals(2, applied.size());
+        assertNull(cacheDirector.getCacheManager().getCache("priceService-priceBook").get("SHOP10:EUR"));
+    }
+
+    @Test
+    public void testOnCacheableBulkChangeEntityChangeHandlerMaxBatch() {
+        final List<String> applied = new ArrayList<String>();
+        cacheDirector.setEntityChangeHandlers(Collections.<String, CacheEntityChangeHandler>singletonMap(
+                "priceService-priceBook",
+                new CacheEntityChangeHandler() {
+                    @Override
+                    public boolean onEntityChange(final String cacheName, final String entityName, final Object pkValue) {
+                        applied.add(String.valueOf(pkValue));
+                        return true;
+                    }
+
+                    @Override
+                    public boolean onEntityChanges(final String cacheName, final String entityName, final Collection<?> pkValues) {
+                        applied.add(String.valueOf(pkValues.size()));
+                        return true;
+                    }
+                }));
+        cacheDirector.setEntityChangeHandlerMaxBatch(2);
+
+        try {
+
+            final Map<String, Set<String>> tags = new HashMap<String, Set<String>>();
+            tags.put("priceService-priceBook", new HashSet<String>(Arrays.asList("SkuPriceEntity:10", "SkuPriceEntity:11")));
+
+            cacheDirector.getCacheManager().getCache("priceService-priceBook").put("SHOP10:EUR", "book");
+            cacheDirector.onCacheableBulkChange(null, null, tags);
+            assertEquals(Arrays.asList("2"), applied); // single call for all changes
+            assertNotNull(cacheDirector.getCacheManager().getCache("priceService-priceBook").get("SHOP10:EUR"));
+
+            tags.put("priceService-priceBook", new HashSet<String>(Arrays.asList("SkuPriceEntity:10", "SkuPriceEntity:11", "SkuPriceEntity:12")));
+            cacheDirector.onCacheableBulkChange(null, null, tags);
+            assertEquals(1, applied.size()); // too many changes, handler is not called
+            assertNull(cacheDirector.getCacheManager().getCache("priceService-priceBook").get("SHOP10:EUR"));
+
+        } finally {
+            cacheDirector.setEntityChangeHandlerMaxBatch(500);
+        }
+    }
+
 
 }
@@ -33,6 +33,8 @@ import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.junit.Assert.*;
@@ -528,6 +530,69 @@ public class ProductServiceFacadeImplTest {
 
     }
 
+    @Test
+    public void testGetMinimalSkuPricesBulkNoTaxInfo() throws Exception {
+
+        final PriceResolver priceResolver = context.mock(PriceResolver.class, "priceResolver");
+        final PricingPolicyProvider pricingPolicyProvider = context.mock(PricingPolicyProvider.class, "pricingPolicyProvider");
+        final ShopService shopService = context.mock(ShopService.class, "shopService");
+
+        final ShoppingCart cart = context.mock(ShoppingCart.class, "cart");
+        final ShoppingContext cartCtx = context.mock(ShoppingContext.class, "cartCtx");
+        final PricingPolicyProvider.PricingPolicy policy = context.mock(PricingPolicyProvider.PricingPolicy.class, "policy");
+
+        final SkuPrice skuPrice = context.mock(SkuPrice.class, "skuPrice");
+
+        final Map<String, BigDecimal> skuQuantities = new LinkedHashMap<String, BigDecimal>();
+        skuQuantities.put("ABC", BigDecimal.ONE);
+        skuQuantities.put("DEF", BigDecimal.ONE);
+
+        final Map<String, SkuPrice> resolved = new HashMap<String, SkuPrice>();
+        resolved.put("ABC", skuPrice);
+
+        context.checking(new Expectations() {{
+            allowing(cart).getShoppingContext(); will(returnValue(cartCtx));
+            allowing(cartCtx).isHidePrices(); will(returnValue(false));
+            allowing(cartCtx).getShopId(); will(returnValue(234L));
+            allowing(cartCtx).getCustomerShopId(); will(returnValue(234L));
+            allowing(cartCtx).getShopCode(); will(returnValue("SHOP10"));
+            allowing(cartCtx).getCountryCode(); will(returnValue("GB"));
+            allowing(cartCtx).getStateCode(); will(returnValue("GB-LON"));
+            allowing(cart).getCustomerEmail(); will(returnValue("bob@doe.com"));
+            allowing(cart).getCurrencyCode(); will(returnValue("EUR"));
+            allowing(pricingPolicyProvider).determinePricingPolicy("SHOP10", "EUR", "bob@doe.com", "GB", "GB-LON"); will(returnValue(policy));
+            allowing(policy).getID(); will(returnValue("P1"));
+            oneOf(priceResolver).getMinimalPrices(skuQuantities, 234L, null, "EUR", false, "P1"); will(returnValue(resolved));
+            allowing(skuPrice).getSkuCode(); will(returnValue("ABC"));
+            allowing(skuPrice).getQuantity(); will(returnValue(BigDecimal.ONE));
+            allowing(skuPrice).getRegularPrice(); will(returnValue(new BigDecimal("100.00")));
+            allowing(skuPrice).getSalePriceForCalculation(); will(returnValue(null));
+            allowing(cartCtx).isTaxInfoEnabled(); will(returnValue(false));
+        }});
+
+        final ProductServiceFacade facade = new ProductServiceFacadeImpl(null, null, null, null, null, null, pricingPolicyProvider, priceResolver, null, null, null, shopService, null);
+
+
+        final Map<String, ProductPriceModel> models = facade.getMinimalSkuPrices(cart, Arrays.asList("ABC", "DEF", null), BigDecimal.ONE);
+
+        assertEquals(3, models.size());
+
+        final ProductPriceModel abc = models.get("ABC");
+        assertEquals("ABC", abc.getRef());
+        assertEquals("EUR", abc.getCurrency());
+        assertEquals("100.00", abc.getRegularPrice().toPlainString());
+        assertNull(abc.getSalePrice());
+
+        final ProductPriceModel def = models.get("DEF");
+        assertEquals("EUR", def.getCurrency());
+        assertNull(def.getRegularPrice());
+
+        assertNotNull(models.get(null));
+
+        context.assertIsSatisfied();
+
+    }
+
     @Test
     public void testGetSkuPriceSearchAndProductDetailsPriceListAndSaleNoTaxInfo() throws Exception {
 